@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package data;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.TimeUnit;
+
+/**
+ * Static methods for retrieving benchmark data, both synthetic and from the {@link TestData} series.
+ *
+ * @author Jacob Rachiele
+ *
+ */
+public final class BenchmarkData {
+
+  private static final OffsetDateTime START = OffsetDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+  private BenchmarkData() {}
+
+  /**
+   * Generate a reproducible hourly series with a linear trend, a seasonal pattern repeating every
+   * seasonalFrequency observations, and AR(1) noise.
+   *
+   * @param n the number of observations to generate.
+   * @param seasonalFrequency the number of observations in one seasonal cycle.
+   * @param seed the seed for the random number generator.
+   * @return a new synthetic seasonal series.
+   */
+  public static TimeSeries seasonalSeries(final int n, final int seasonalFrequency, final long seed) {
+    final Random random = new Random(seed);
+    final double[] series = new double[n];
+    double noise = 0.0;
+    for (int t = 0; t < n; t++) {
+      noise = 0.5 * noise + random.nextGaussian();
+      series[t] = 100.0 + 0.05 * t + 10.0 * Math.sin(2 * Math.PI * t / seasonalFrequency) + noise;
+    }
+    return new TimeSeries(TimeUnit.HOUR, START, series);
+  }
+
+  /**
+   * The seasonal cycle matching a series created by {@link #seasonalSeries(int, int, long)}.
+   *
+   * @param seasonalFrequency the number of observations in one seasonal cycle.
+   * @return the seasonal cycle matching a synthetic series with the given seasonal frequency.
+   */
+  public static TimePeriod seasonalCycle(final int seasonalFrequency) {
+    return new TimePeriod(TimeUnit.HOUR, seasonalFrequency);
+  }
+
+  /**
+   * Retrieve one of the {@link TestData} series by name.
+   *
+   * @param name the name of the test series.
+   * @return the test series with the given name.
+   */
+  public static TimeSeries testSeries(final String name) {
+    switch (name) {
+      case "ausbeer":
+        return TestData.ausbeerSeries();
+      case "ukcars":
+        return TestData.ukcars();
+      case "debitcards":
+        return TestData.debitcards();
+      case "livestock":
+        return TestData.livestock();
+      default:
+        throw new IllegalArgumentException("There is no test series named " + name);
+    }
+  }
+}
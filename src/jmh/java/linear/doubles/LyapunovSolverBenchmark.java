@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package linear.doubles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the stationary state covariance of a seasonal ARMA model in companion form, with state dimension r,
+ * found by the doubling algorithm and by solving the Kronecker product system of dimension r<sup>2</sup>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LyapunovSolverBenchmark {
+
+  @Param({"2", "5", "13", "25", "53"})
+  private int r;
+
+  private double[] transition;
+  private double[] disturbance;
+  private double[] solution;
+  private LyapunovSolver solver;
+
+  private DenseMatrix64F kroneckerSystem;
+  private DenseMatrix64F kroneckerDisturbance;
+  private DenseMatrix64F kroneckerSolution;
+  private LinearSolver<DenseMatrix64F> kroneckerSolver;
+
+  @Setup
+  public void setUp() {
+    // The model (1 - 0.5B)(1 - 0.7B^s) y = (1 + 0.3B)(1 - 0.6B^s) e with s = r - 1.
+    final int s = r - 1;
+    final double[] ar = new double[r];
+    final double[] ma = new double[r];
+    ar[0] += 0.5;
+    ar[s - 1] += 0.7;
+    ar[s] += -0.35;
+    ma[0] = 1.0;
+    ma[1] += 0.3;
+    ma[s] += -0.6;
+    if (s + 1 < r) {
+      ma[s + 1] += -0.18;
+    }
+    this.transition = new double[r * r];
+    this.disturbance = new double[r * r];
+    for (int i = 0; i < r; i++) {
+      transition[i * r] = ar[i];
+      if (i < r - 1) {
+        transition[i * r + i + 1] = 1.0;
+      }
+      for (int j = 0; j < r; j++) {
+        disturbance[i * r + j] = ma[i] * ma[j];
+      }
+    }
+    this.solution = new double[r * r];
+    this.solver = new LyapunovSolver(r);
+
+    final int m = r * r;
+    this.kroneckerSystem = new DenseMatrix64F(m, m);
+    this.kroneckerDisturbance = new DenseMatrix64F(m, 1, true, disturbance);
+    this.kroneckerSolution = new DenseMatrix64F(m, 1);
+    this.kroneckerSolver = LinearSolverFactory.linear(m);
+  }
+
+  @Benchmark
+  public double[] doubling() {
+    solver.solve(transition, disturbance, solution);
+    return solution;
+  }
+
+  @Benchmark
+  public DenseMatrix64F kronecker() {
+    final int m = r * r;
+    final double[] a = kroneckerSystem.data;
+    for (int i = 0; i < r; i++) {
+      for (int j = 0; j < r; j++) {
+        final int row = (i * r + j) * m;
+        for (int k = 0; k < r; k++) {
+          for (int l = 0; l < r; l++) {
+            a[row + k * r + l] = ((i == k && j == l) ? 1.0 : 0.0) - transition[i * r + k] * transition[j * r + l];
+          }
+        }
+      }
+    }
+    kroneckerSolver.setA(kroneckerSystem);
+    kroneckerSolver.solve(kroneckerDisturbance, kroneckerSolution);
+    return kroneckerSolution;
+  }
+}
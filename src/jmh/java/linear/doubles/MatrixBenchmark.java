@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package linear.doubles;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for square matrix products and updates, compared with the same operations in EJML.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+  @Param({"4", "16", "64", "256"})
+  private int n;
+
+  private Matrix a;
+  private Matrix b;
+  private double[] product;
+  private double[] x;
+  private double[] y;
+  private Matrix.Mutable mutable;
+
+  private DenseMatrix64F ejmlA;
+  private DenseMatrix64F ejmlB;
+  private DenseMatrix64F ejmlProduct;
+  private DenseMatrix64F ejmlX;
+  private DenseMatrix64F ejmlY;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(42L);
+    final double[] aData = new double[n * n];
+    final double[] bData = new double[n * n];
+    for (int i = 0; i < aData.length; i++) {
+      aData[i] = random.nextGaussian();
+      bData[i] = random.nextGaussian();
+    }
+    this.x = new double[n];
+    this.y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = random.nextGaussian();
+      y[i] = random.nextGaussian();
+    }
+    this.a = new Matrix(n, n, aData);
+    this.b = new Matrix(n, n, bData);
+    this.product = new double[n * n];
+    this.mutable = new Matrix.Mutable(a);
+    this.ejmlA = new DenseMatrix64F(n, n, true, aData);
+    this.ejmlB = new DenseMatrix64F(n, n, true, bData);
+    this.ejmlProduct = new DenseMatrix64F(n, n);
+    this.ejmlX = new DenseMatrix64F(n, 1, true, x);
+    this.ejmlY = new DenseMatrix64F(n, 1, true, y);
+  }
+
+  @Benchmark
+  public Matrix times() {
+    return a.times(b);
+  }
+
+  @Benchmark
+  public double[] timesInto() {
+    a.timesInto(b, product);
+    return product;
+  }
+
+  @Benchmark
+  public DenseMatrix64F ejmlMult() {
+    CommonOps.mult(ejmlA, ejmlB, ejmlProduct);
+    return ejmlProduct;
+  }
+
+  @Benchmark
+  public Matrix plus() {
+    return a.plus(b);
+  }
+
+  @Benchmark
+  public DenseMatrix64F ejmlAdd() {
+    CommonOps.add(ejmlA, ejmlB, ejmlProduct);
+    return ejmlProduct;
+  }
+
+  @Benchmark
+  public Matrix.Mutable rankOneUpdate() {
+    return mutable.rankOneUpdate(1E-9, x, y);
+  }
+
+  @Benchmark
+  public DenseMatrix64F ejmlMultAddTransB() {
+    CommonOps.multAddTransB(1E-9, ejmlX, ejmlY, ejmlA);
+    return ejmlA;
+  }
+
+  @Benchmark
+  public Matrix outerProduct() {
+    return new Vector(x).outerProduct(new Vector(y));
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package optim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+
+/**
+ * Benchmarks for the BFGS and L-BFGS optimizers on the extended Rosenbrock function of varying dimension.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BFGSBenchmark {
+
+  @Param({"2", "10", "50"})
+  private int dimension;
+
+  private Vector startingPoint;
+
+  @Setup
+  public void setUp() {
+    final double[] start = new double[dimension];
+    for (int i = 0; i < dimension; i++) {
+      start[i] = (i % 2 == 0) ? -1.2 : 1.0;
+    }
+    this.startingPoint = new Vector(start);
+  }
+
+  @Benchmark
+  public BFGS rosenbrock() {
+    return new BFGS(new ExtendedRosenbrock(), startingPoint, 1e-8, 1e-8);
+  }
+
+  @Benchmark
+  public LBFGS lbfgsRosenbrock() {
+    return new LBFGS(new ExtendedRosenbrock(), startingPoint, 1e-8, 1e-8);
+  }
+
+  private static final class ExtendedRosenbrock extends AbstractMultivariateFunction {
+
+    @Override
+    public double at(final Vector point) {
+      functionEvaluations++;
+      double sum = 0.0;
+      for (int i = 0; i < point.size() - 1; i++) {
+        final double a = point.at(i + 1) - point.at(i) * point.at(i);
+        final double b = 1 - point.at(i);
+        sum += 100 * a * a + b * b;
+      }
+      return sum;
+    }
+  }
+}
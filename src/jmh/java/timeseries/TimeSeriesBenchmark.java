@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+
+/**
+ * Benchmarks for the primitive operations of a TimeSeries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  private int n;
+
+  @Param({"24", "500"})
+  private int maxLag;
+
+  private double[] data;
+  private TimeSeries series;
+
+  @Setup
+  public void setUp() {
+    this.series = BenchmarkData.seasonalSeries(n, 24, 42L);
+    this.data = series.series();
+  }
+
+  @Benchmark
+  public double[] autoCorrelationUpToLag() {
+    return series.autoCorrelationUpToLag(maxLag);
+  }
+
+  @Benchmark
+  public TimeSeries seasonalDifference() {
+    return series.difference(1, 1).difference(24, 1);
+  }
+
+  @Benchmark
+  public double atDateTime() {
+    return series.at(series.startTime().plusHours(n / 2));
+  }
+
+  @Benchmark
+  public TimeSeries construct() {
+    return new TimeSeries(timeseries.TimeUnit.HOUR, series.startTime(), data);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.models.arima.StateSpaceARMA;
+
+/**
+ * Benchmarks for the Kalman filter applied to an ARMA model in state space form, both through KalmanFilter and
+ * through a reused ArmaKalmanKernel, as when evaluating a likelihood during optimization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KalmanFilterBenchmark {
+
+  @Param({"120", "1200", "12000"})
+  private int n;
+
+  // The number of moving-average coefficients, which determines the state dimension r = q + 1.
+  @Param({"1", "5", "13"})
+  private int q;
+
+  private StateSpaceARMA stateSpace;
+  private final ArmaKalmanKernel kernel = new ArmaKalmanKernel();
+  private double[] y;
+  private double[] ar;
+  private double[] ma;
+
+  @Setup
+  public void setUp() {
+    final double[] y = BenchmarkData.seasonalSeries(n + 1, 12, 42L).difference().demean().series();
+    final double[] ma = new double[q];
+    for (int i = 0; i < q; i++) {
+      ma[i] = -0.5 / (i + 1);
+    }
+    this.stateSpace = new StateSpaceARMA(y, new double[] {0.3}, ma);
+    this.y = y;
+    this.ar = new double[] {0.3};
+    this.ma = ma;
+  }
+
+  @Benchmark
+  public KalmanFilter filter() {
+    return new KalmanFilter(stateSpace);
+  }
+
+  @Benchmark
+  public double reusedKernel() {
+    kernel.filter(y, y.length, 0.0, ar, ar.length, ma, ma.length, null, null);
+    return kernel.logLikelihood();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models.arima;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * Benchmarks for fitting a batch of seasonal ARIMA models, comparing a sequential loop with batches of increasing
+ * parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArimaBatchBenchmark {
+
+  private static final int SEASONAL_FREQUENCY = 24;
+
+  @Param({"64"})
+  private int batchSize;
+
+  @Param({"1", "2", "4", "8"})
+  private int parallelism;
+
+  private final ModelOrder order = ModelOrder.order(1, 1, 1, 0, 1, 1);
+  private List<TimeSeries> series;
+  private TimePeriod seasonalCycle;
+  private ArimaBatch batch;
+
+  @Setup
+  public void setUp() {
+    this.series = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      series.add(BenchmarkData.seasonalSeries(480, SEASONAL_FREQUENCY, i));
+    }
+    this.seasonalCycle = BenchmarkData.seasonalCycle(SEASONAL_FREQUENCY);
+    this.batch = ArimaBatch.newBuilder().parallelism(parallelism).seasonalCycle(seasonalCycle).build();
+  }
+
+  @Benchmark
+  public List<Arima> sequentialLoop() {
+    final List<Arima> models = new ArrayList<>(batchSize);
+    for (TimeSeries s : series) {
+      models.add(Arima.model(s, order, seasonalCycle));
+    }
+    return models;
+  }
+
+  @Benchmark
+  public ArimaBatch.Result batch() {
+    return batch.fit(series, order);
+  }
+}
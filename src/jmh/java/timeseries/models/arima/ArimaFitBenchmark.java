@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models.arima;
+
+import static data.DoubleFunctions.fill;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelInformation;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * Benchmarks for fitting seasonal ARIMA models to synthetic data, covering both the full fit and a single
+ * evaluation of the conditional and unconditional sum-of-squares objectives and of the exact likelihood.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArimaFitBenchmark {
+
+  @Param({"120", "480", "1920"})
+  private int n;
+
+  @Param({"4", "12", "24"})
+  private int seasonalFrequency;
+
+  // p_d_q_P_D_Q
+  @Param({"1_0_1_0_0_0", "1_1_1_0_1_1", "2_1_2_1_1_1"})
+  private String order;
+
+  private TimeSeries series;
+  private TimePeriod seasonalCycle;
+  private ModelOrder modelOrder;
+  private TimeSeries differencedSeries;
+  private double[] arSarCoeffs;
+  private double[] maSmaCoeffs;
+  private double mean;
+
+  @Setup
+  public void setUp() {
+    this.series = BenchmarkData.seasonalSeries(n, seasonalFrequency, 42L);
+    this.seasonalCycle = BenchmarkData.seasonalCycle(seasonalFrequency);
+    final String[] o = order.split("_");
+    this.modelOrder = ModelOrder.order(Integer.parseInt(o[0]), Integer.parseInt(o[1]), Integer.parseInt(o[2]),
+        Integer.parseInt(o[3]), Integer.parseInt(o[4]), Integer.parseInt(o[5]));
+    this.differencedSeries = series.difference(1, modelOrder.d).difference(seasonalFrequency, modelOrder.D);
+    this.arSarCoeffs = Arima.expandArCoefficients(fill(modelOrder.p, 0.3), fill(modelOrder.P, 0.2),
+        seasonalFrequency);
+    this.maSmaCoeffs = Arima.expandMaCoefficients(fill(modelOrder.q, -0.4), fill(modelOrder.Q, -0.3),
+        seasonalFrequency);
+    this.mean = (modelOrder.constant == 1) ? differencedSeries.mean() : 0.0;
+  }
+
+  @Benchmark
+  public Arima fitUss() {
+    return Arima.model(series, modelOrder, seasonalCycle, FittingStrategy.USS);
+  }
+
+  @Benchmark
+  public Arima fitCss() {
+    return Arima.model(series, modelOrder, seasonalCycle, FittingStrategy.CSS);
+  }
+
+  @Benchmark
+  public Arima fitMl() {
+    return Arima.model(series, modelOrder, seasonalCycle, FittingStrategy.ML);
+  }
+
+  @Benchmark
+  public ModelInformation ussObjective() {
+    return Arima.fitUss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, modelOrder);
+  }
+
+  @Benchmark
+  public ModelInformation cssObjective() {
+    return Arima.fitCss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, modelOrder);
+  }
+
+  @Benchmark
+  public ModelInformation mlObjective() {
+    return Arima.fitMl(differencedSeries, arSarCoeffs, maSmaCoeffs, mean);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models.arima;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * Benchmarks for fitting and forecasting seasonal ARIMA models on the {@link data.TestData} series.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArimaForecastBenchmark {
+
+  @Param({"ukcars", "ausbeer", "debitcards"})
+  private String seriesName;
+
+  @Param({"12", "120"})
+  private int steps;
+
+  private TimeSeries series;
+  private ModelOrder order;
+  private Arima model;
+  private ForecastState forecastState;
+  private double[] forecast;
+  private double[] lower;
+  private double[] upper;
+
+  @Setup
+  public void setUp() {
+    this.series = BenchmarkData.testSeries(seriesName);
+    this.order = ModelOrder.order(1, 1, 1, 0, 1, 1);
+    this.model = Arima.model(series, order, TimePeriod.oneYear());
+    this.forecastState = model.forecastState(steps);
+    this.forecast = new double[steps];
+    this.lower = new double[steps];
+    this.upper = new double[steps];
+  }
+
+  @Benchmark
+  public Arima fit() {
+    return Arima.model(series, order, TimePeriod.oneYear());
+  }
+
+  @Benchmark
+  public double[] pointForecast() {
+    return model.forecast(steps);
+  }
+
+  @Benchmark
+  public ArimaForecast forecastWithIntervals() {
+    return ArimaForecast.forecast(model, steps, 0.05);
+  }
+
+  @Benchmark
+  public double[][] fanChartBounds() {
+    return ArimaForecast.forecast(model, steps, 0.05).predictionBounds(0.5, 0.4, 0.3, 0.2, 0.1, 0.05, 0.01);
+  }
+
+  @Benchmark
+  public double[] forecastStateInto() {
+    forecastState.forecastInto(forecast);
+    return forecast;
+  }
+
+  @Benchmark
+  public double[] forecastStateWithIntervalsInto() {
+    forecastState.forecastInto(forecast, 0.05, lower, upper);
+    return upper;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models.arima;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimePeriod;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * Benchmarks for simulating sample paths of a seasonal ARIMA model and reading quantile bands from them, across
+ * levels of parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArimaSimulatorBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  private int parallelism;
+
+  @Param({"1000", "100000"})
+  private int nPaths;
+
+  @Param({"BOOTSTRAP", "GAUSSIAN"})
+  private ArimaSimulator.Innovations innovations;
+
+  private static final int STEPS = 24;
+
+  private Arima model;
+  private ArimaSimulator simulator;
+  private ArimaSimulator.Paths paths;
+
+  @Setup
+  public void setUp() {
+    this.model = Arima.model(BenchmarkData.testSeries("ausbeer"), ModelOrder.order(1, 1, 1, 0, 1, 1),
+                             TimePeriod.oneYear());
+    this.simulator = ArimaSimulator.newBuilder().innovations(innovations).seed(42L).parallelism(parallelism)
+                                   .build();
+    this.paths = simulator.simulate(model, STEPS, nPaths);
+  }
+
+  @Benchmark
+  public ArimaSimulator.Paths simulatePaths() {
+    return simulator.simulate(model, STEPS, nPaths);
+  }
+
+  @Benchmark
+  public double[][] quantileBands() {
+    return paths.predictionBounds(0.5, 0.2, 0.05);
+  }
+}
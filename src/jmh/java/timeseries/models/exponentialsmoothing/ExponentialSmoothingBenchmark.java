@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.models.exponentialsmoothing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.exponentialsmoothing.HoltWinters.Seasonality;
+
+/**
+ * Benchmarks for fitting exponential smoothing models to synthetic seasonal data, covering both the full fit and a
+ * single pass of the smoothing recursion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExponentialSmoothingBenchmark {
+
+  @Param({"120", "480", "1920"})
+  private int n;
+
+  @Param({"4", "24"})
+  private int seasonalFrequency;
+
+  private TimeSeries series;
+  private TimePeriod seasonalCycle;
+  private SmoothingKernel kernel;
+
+  @Setup
+  public void setUp() {
+    this.series = BenchmarkData.seasonalSeries(n, seasonalFrequency, 42L);
+    this.seasonalCycle = BenchmarkData.seasonalCycle(seasonalFrequency);
+    this.kernel = new SmoothingKernel(series.series(), true, seasonalFrequency, false);
+  }
+
+  @Benchmark
+  public SimpleExponentialSmoothing fitSimple() {
+    return SimpleExponentialSmoothing.model(series);
+  }
+
+  @Benchmark
+  public Holt fitHolt() {
+    return Holt.model(series);
+  }
+
+  @Benchmark
+  public HoltWinters fitAdditive() {
+    return HoltWinters.model(series, seasonalCycle, Seasonality.ADDITIVE);
+  }
+
+  @Benchmark
+  public HoltWinters fitMultiplicative() {
+    return HoltWinters.model(series, seasonalCycle, Seasonality.MULTIPLICATIVE);
+  }
+
+  @Benchmark
+  public double recursion() {
+    return kernel.run(0.3, 0.1, 0.1, null);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package timeseries.rolling;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import data.BenchmarkData;
+import timeseries.TimeSeries;
+
+/**
+ * Benchmarks for sliding-window statistics over series of increasing length and window size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollingBenchmark {
+
+  @Param({"10000", "1000000"})
+  private int n;
+
+  @Param({"12", "365", "5000"})
+  private int window;
+
+  private TimeSeries series;
+
+  @Setup
+  public void setUp() {
+    this.series = BenchmarkData.seasonalSeries(n, 24, 42L);
+  }
+
+  @Benchmark
+  public TimeSeries movingAverage() {
+    return series.movingAverage(window);
+  }
+
+  @Benchmark
+  public TimeSeries variance() {
+    return Rolling.variance(series, window);
+  }
+
+  @Benchmark
+  public TimeSeries max() {
+    return Rolling.max(series, window);
+  }
+
+  @Benchmark
+  public TimeSeries median() {
+    return Rolling.median(series, window);
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.chrono.IsoChronology;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+
+/**
+ * The columns read from a CSV source by a {@link StreamingCsvReader}, held as primitive arrays. Numeric columns are
+ * stored as doubles and the time column, if there is one, as milliseconds since the epoch.
+ *
+ * @author Jacob Rachiele
+ */
+public final class CsvColumns {
+
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+  // The number of days from 0000-01-01 to 1970-01-01.
+  private static final long DAYS_0000_TO_1970 = 719_528L;
+
+  private final List<String> names;
+  private final double[][] columns;
+  private final long[] times;
+  private final int rows;
+  private final ZoneOffset zoneOffset;
+
+  CsvColumns(final List<String> names, final double[][] columns, final long[] times, final int rows,
+             final ZoneOffset zoneOffset) {
+    this.names = Collections.unmodifiableList(names);
+    this.columns = columns;
+    this.times = times;
+    this.rows = rows;
+    this.zoneOffset = zoneOffset;
+  }
+
+  /**
+   * The number of rows read, not counting the header.
+   *
+   * @return the number of rows read.
+   */
+  public int rows() {
+    return this.rows;
+  }
+
+  /**
+   * The names of the columns, taken from the header row, or empty if there was no header.
+   *
+   * @return the names of the columns.
+   */
+  public List<String> names() {
+    return this.names;
+  }
+
+  /**
+   * Return true if the source had a time column.
+   *
+   * @return true if the source had a time column.
+   */
+  public boolean hasTimes() {
+    return this.times != null;
+  }
+
+  /**
+   * The values in the column at the given position. Empty cells are NaN.
+   *
+   * @param column the position of the column.
+   * @return the values in the column at the given position.
+   * @throws IllegalArgumentException if the column was not read as a numeric column.
+   */
+  public double[] column(final int column) {
+    return Arrays.copyOf(buffer(column), rows);
+  }
+
+  /**
+   * The values in the column with the given name. Empty cells are NaN.
+   *
+   * @param name the name of the column.
+   * @return the values in the column with the given name.
+   * @throws IllegalArgumentException if there is no numeric column with the given name.
+   */
+  public double[] column(final String name) {
+    return column(indexOf(name));
+  }
+
+  /**
+   * The observation times, in milliseconds since the epoch.
+   *
+   * @return the observation times, in milliseconds since the epoch.
+   * @throws IllegalStateException if the source had no time column.
+   */
+  public long[] times() {
+    if (times == null) {
+      throw new IllegalStateException("No time column was read.");
+    }
+    return Arrays.copyOf(times, rows);
+  }
+
+  /**
+   * Create a time series of the values in the given column, observed at the times in the time column. If the times
+   * are those of a regular series with the given time period, the series stores only its start time. Otherwise the
+   * times are kept as they are, in the zone offset of the reader. In either case the times are compared and stored as
+   * primitives, and no date-time is created for each row.
+   *
+   * @param column the position of the column.
+   * @param timePeriod the time period between observations.
+   * @return a time series of the values in the given column.
+   * @throws IllegalStateException if the source had no time column.
+   * @throws IllegalArgumentException if the column was not read as a numeric column.
+   */
+  public TimeSeries timeSeries(final int column, final TimePeriod timePeriod) {
+    if (times == null) {
+      throw new IllegalStateException("No time column was read, so a start time must be given.");
+    }
+    final double[] values = buffer(column);
+    final double[] series = (values.length == rows) ? values : Arrays.copyOf(values, rows);
+    if (rows == 0) {
+      return new TimeSeries(timePeriod, Collections.emptyList(), series);
+    }
+    if (isRegular(timePeriod)) {
+      return new TimeSeries(timePeriod, OffsetDateTime.ofInstant(Instant.ofEpochMilli(times[0]), zoneOffset), series);
+    }
+    return TimeSeries.fromEpochMillis(timePeriod, (times.length == rows) ? times : Arrays.copyOf(times, rows),
+                                      zoneOffset, series);
+  }
+
+  /**
+   * Create a time series of the values in the column with the given name, observed at the times in the time column.
+   *
+   * @param name the name of the column.
+   * @param timePeriod the time period between observations.
+   * @return a time series of the values in the column with the given name.
+   * @throws IllegalStateException if the source had no time column.
+   * @throws IllegalArgumentException if there is no numeric column with the given name.
+   * @see #timeSeries(int, TimePeriod)
+   */
+  public TimeSeries timeSeries(final String name, final TimePeriod timePeriod) {
+    return timeSeries(indexOf(name), timePeriod);
+  }
+
+  /**
+   * Create a regular time series of the values in the given column, starting at the given time.
+   *
+   * @param column the position of the column.
+   * @param timePeriod the time period between observations.
+   * @param startTime the time of the first observation.
+   * @return a regular time series of the values in the given column.
+   * @throws IllegalArgumentException if the column was not read as a numeric column.
+   */
+  public TimeSeries timeSeries(final int column, final TimePeriod timePeriod, final OffsetDateTime startTime) {
+    final double[] values = buffer(column);
+    return new TimeSeries(timePeriod, startTime, (values.length == rows) ? values : Arrays.copyOf(values, rows));
+  }
+
+  private boolean isRegular(final TimePeriod timePeriod) {
+    final long step = timePeriod.periodLength() * timePeriod.timeUnit().unitLength();
+    final TemporalUnit unit = timePeriod.timeUnit().temporalUnit();
+    // In a fixed zone offset every day is exactly 24 hours long, so days and weeks are of fixed length too.
+    if (!unit.isDurationEstimated() || unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+      final Duration duration = unit.getDuration().multipliedBy(step);
+      if (duration.getNano() % 1_000_000 != 0) {
+        return false;
+      }
+      final long stepMillis = duration.toMillis();
+      for (int i = 1; i < rows; i++) {
+        if (times[i] - times[i - 1] != stepMillis) {
+          return false;
+        }
+      }
+      return true;
+    }
+    final long monthsPerStep = monthsIn(unit) * step;
+    final long offsetMillis = zoneOffset.getTotalSeconds() * 1000L;
+    final long localStart = times[0] + offsetMillis;
+    final long millisOfDay = Math.floorMod(localStart, MILLIS_PER_DAY);
+    final LocalDate startDate = LocalDate.ofEpochDay(Math.floorDiv(localStart, MILLIS_PER_DAY));
+    final long startMonth = startDate.getYear() * 12L + startDate.getMonthValue() - 1;
+    for (int i = 1; i < rows; i++) {
+      // Adding months keeps the day of the month, unless the month is too short for it.
+      final long month = startMonth + i * monthsPerStep;
+      final long year = Math.floorDiv(month, 12);
+      final int monthOfYear = (int) Math.floorMod(month, 12L) + 1;
+      if (year > Year.MAX_VALUE || year < Year.MIN_VALUE) {
+        return false;
+      }
+      final int day = Math.min(startDate.getDayOfMonth(), lengthOfMonth(year, monthOfYear));
+      if (epochDay(year, monthOfYear, day) * MILLIS_PER_DAY + millisOfDay - offsetMillis != times[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The number of months in one of the estimated units of a time period, each of which is a whole number of months.
+  private static long monthsIn(final TemporalUnit unit) {
+    if (unit == ChronoUnit.MONTHS) {
+      return 1;
+    }
+    if (unit == ChronoUnit.YEARS) {
+      return 12;
+    }
+    if (unit == ChronoUnit.DECADES) {
+      return 120;
+    }
+    if (unit == ChronoUnit.CENTURIES) {
+      return 1200;
+    }
+    if (unit == ChronoUnit.MILLENNIA) {
+      return 12000;
+    }
+    throw new IllegalArgumentException("Observation times in units of " + unit + " are not supported.");
+  }
+
+  private static int lengthOfMonth(final long year, final int month) {
+    switch (month) {
+      case 2:
+        return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  // The number of days from 1970-01-01 to the given date in the proleptic Gregorian calendar, computed as in
+  // LocalDate.toEpochDay but without creating the date.
+  private static long epochDay(final long year, final int month, final int day) {
+    long total = 365 * year;
+    if (year >= 0) {
+      total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    } else {
+      total -= year / -4 - year / -100 + year / -400;
+    }
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!IsoChronology.INSTANCE.isLeapYear(year)) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+
+  private double[] buffer(final int column) {
+    if (column < 0 || column >= columns.length || columns[column] == null) {
+      throw new IllegalArgumentException("Column " + column + " was not read as a numeric column.");
+    }
+    return columns[column];
+  }
+
+  private int indexOf(final String name) {
+    final int index = names.indexOf(name);
+    if (index < 0) {
+      throw new IllegalArgumentException("A column with the provided column name was not found.");
+    }
+    return index;
+  }
+}
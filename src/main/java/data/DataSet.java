@@ -5,6 +5,7 @@
 package data;
 
 import java.awt.Color;
+import java.nio.DoubleBuffer;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 
@@ -18,12 +19,25 @@ import stats.Statistics;
 
 /**
  * A collection of numerical observations. This class is immutable and all subclasses must be immutable.
+ * 
+ * <p>
+ * The observations are a contiguous range of a buffer that is never modified once the data set is constructed, so
+ * that subclasses can create slices of a data set that share its buffer rather than copying it. The sum, mean, and
+ * variance are computed the first time they are requested and cached.
+ * </p>
  * @author Jacob Rachiele
  *
  */
 public class DataSet {
 	
 	private final double[] data;
+	private final int offset;
+	private final int length;
+	// Each cached value is written before its flag is set, so a thread that reads a set flag also sees the value.
+	private double sum;
+	private volatile boolean sumComputed;
+	private double variance;
+	private volatile boolean varianceComputed;
 	
 	/**
 	 * Construct a new DataSet from the given data.
@@ -34,6 +48,28 @@ public class DataSet {
 			throw new IllegalArgumentException("Null array passed to constructor.");
 		}
 		this.data = data.clone();
+		this.offset = 0;
+		this.length = data.length;
+	}
+
+	/**
+	 * Construct a new DataSet viewing the given range of the given buffer, without copying it. The buffer must not be
+	 * modified after it is passed to this constructor.
+	 * @param buffer the buffer holding the observations.
+	 * @param offset the position of the first observation in the buffer.
+	 * @param length the number of observations.
+	 */
+	protected DataSet(final double[] buffer, final int offset, final int length) {
+		if (buffer == null) {
+			throw new IllegalArgumentException("Null array passed to constructor.");
+		}
+		if (offset < 0 || length < 0 || offset + length > buffer.length) {
+			throw new IllegalArgumentException("The range starting at " + offset + " of length " + length +
+					" does not lie within the buffer of length " + buffer.length + ".");
+		}
+		this.data = buffer;
+		this.offset = offset;
+		this.length = length;
 	}
 	
 	/**
@@ -41,7 +77,15 @@ public class DataSet {
 	 * @return the sum of the observations.
 	 */
 	public final double sum() {
-		return Statistics.sumOf(this.data);
+		if (!sumComputed) {
+			double total = 0.0;
+			for (int i = offset; i < offset + length; i++) {
+				total += data[i];
+			}
+			this.sum = total;
+			this.sumComputed = true;
+		}
+		return this.sum;
 	}
 	
 	/**
@@ -49,7 +93,11 @@ public class DataSet {
 	 * @return the sum of the squared observations.
 	 */
 	public final double sumOfSquares() {
-	  return Statistics.sumOfSquared(this.data);
+		double total = 0.0;
+		for (int i = offset; i < offset + length; i++) {
+			total += data[i] * data[i];
+		}
+		return total;
 	}
 
 	/**
@@ -57,7 +105,7 @@ public class DataSet {
 	 * @return the mean of the observations.
 	 */
 	public final double mean() {
-		return Statistics.meanOf(this.data);
+		return sum() / length;
 	}
 
 	/**
@@ -65,7 +113,7 @@ public class DataSet {
 	 * @return the median value of the observations.
 	 */
 	public final double median() {
-		return Statistics.medianOf(this.data);
+		return Statistics.medianOf(values());
 	}
 	
 	/**
@@ -73,7 +121,15 @@ public class DataSet {
 	 * @return the size of the DataSet.
 	 */
 	public final int n() {
-		return this.data.length;
+		return this.length;
+	}
+
+	/**
+	 * A read-only buffer over the observations. Unlike {@link #data()}, this does not copy the observations.
+	 * @return a read-only buffer over the observations.
+	 */
+	public final DoubleBuffer asBuffer() {
+		return DoubleBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
 	}
 
 	/**
@@ -83,7 +139,7 @@ public class DataSet {
 	 * the corresponding element of the given DataSet.
 	 */
 	public final DataSet times(final DataSet otherData) {
-		return new DataSet(Operators.productOf(this.data, otherData.data));
+		return new DataSet(Operators.productOf(this.values(), otherData.values()));
 	}
 
 	/**
@@ -93,7 +149,7 @@ public class DataSet {
 	 * the corresponding element of the given DataSet.
 	 */
 	public final DataSet plus(final DataSet otherData) {
-		return new DataSet(Operators.sumOf(this.data, otherData.data));
+		return new DataSet(Operators.sumOf(this.values(), otherData.values()));
 	}
 	
 	/**
@@ -101,7 +157,16 @@ public class DataSet {
 	 * @return the unbiased sample variance of the observations.
 	 */
 	public final double variance() {
-		return Statistics.varianceOf(this.data);
+		if (!varianceComputed) {
+			final double mean = mean();
+			double sumOfSquaredDifferences = 0.0;
+			for (int i = offset; i < offset + length; i++) {
+				sumOfSquaredDifferences += (data[i] - mean) * (data[i] - mean);
+			}
+			this.variance = sumOfSquaredDifferences / (length - 1);
+			this.varianceComputed = true;
+		}
+		return this.variance;
 	}
 	
 	/**
@@ -109,7 +174,7 @@ public class DataSet {
 	 * @return the unbiased sample standard deviation of the observations.
 	 */
 	public final double stdDeviation() {
-		return Statistics.stdDeviationOf(this.data);
+		return Math.sqrt(variance());
 	}
 	
 	/**
@@ -120,7 +185,7 @@ public class DataSet {
 	 * contained in the given DataSet.
 	 */
 	public final double covariance(final DataSet otherData) {
-		return Statistics.covarianceOf(this.data, otherData.data);
+		return Statistics.covarianceOf(this.values(), otherData.values());
 	}
 	
 	/**
@@ -131,7 +196,7 @@ public class DataSet {
 	 * contained in the given DataSet.
 	 */
 	public final double correlation(DataSet otherData) {
-		return Statistics.correlationOf(this.data, otherData.data);
+		return Statistics.correlationOf(this.values(), otherData.values());
 	}
 	
 	/**
@@ -139,7 +204,12 @@ public class DataSet {
 	 * @return the observations.
 	 */
 	public final double[] data() {
-		return this.data.clone();
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	// The observations, without copying them if this data set spans its whole buffer. The result must not be modified.
+	private double[] values() {
+		return (offset == 0 && length == data.length) ? data : data();
 	}
 
   /**
@@ -147,7 +217,7 @@ public class DataSet {
    * from 0 to n - 1, where n is the size of the data set.
    */
 	public void plot() {
-		final double[] indices = new double[this.data.length];
+		final double[] indices = new double[this.length];
 		for (int i = 0; i < indices.length; i++) {
 			indices[i] = i;
 		}
@@ -155,7 +225,7 @@ public class DataSet {
 				title("Scatter Plot").xAxisTitle("Index").yAxisTitle("Values").build();
 		chart.getStyler().setDefaultSeriesRenderStyle(XYSeriesRenderStyle.Scatter).
 		    setChartFontColor(Color.BLACK).setSeriesColors(new Color[] {Color.BLUE});
-		chart.addSeries("data values", indices, data);
+		chart.addSeries("data values", indices, values());
 	    new SwingWrapper<>(chart).displayChart();
 	}
 
@@ -169,21 +239,26 @@ public class DataSet {
 				.title("Scatter Plot").xAxisTitle("X").yAxisTitle("Y").build();
 		chart.getStyler().setDefaultSeriesRenderStyle(XYSeriesRenderStyle.Scatter).
 	    setChartFontColor(Color.DARK_GRAY).setSeriesColors(new Color[] {Color.BLUE});
-		chart.addSeries(" ", otherData.data, this.data);
+		chart.addSeries(" ", otherData.values(), this.values());
 		new SwingWrapper<>(chart).displayChart();
 	}
 
 	@Override
 	public String toString() {
 		DecimalFormat df = new DecimalFormat("0.##");
-		return "\nValues: " + Arrays.toString(data) + "\nSize: " + data.length + "\nMean: " + mean() + "\nStandard deviation: " + df.format(stdDeviation());
+		return "\nValues: " + Arrays.toString(values()) + "\nSize: " + length + "\nMean: " + mean() + "\nStandard deviation: " + df.format(stdDeviation());
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(data);
+		int dataHash = 1;
+		for (int i = offset; i < offset + length; i++) {
+			final long bits = Double.doubleToLongBits(data[i]);
+			dataHash = prime * dataHash + (int) (bits ^ (bits >>> 32));
+		}
+		result = prime * result + dataHash;
 		return result;
 	}
 
@@ -199,7 +274,15 @@ public class DataSet {
 			return false;
 		}
 		DataSet other = (DataSet) obj;
-		return Arrays.equals(data, other.data);
+		if (length != other.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (Double.doubleToLongBits(data[offset + i]) != Double.doubleToLongBits(other.data[other.offset + i])) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 }
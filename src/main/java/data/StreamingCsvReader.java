@@ -0,0 +1,763 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+
+/**
+ * A reader that parses CSV data from a file or stream directly into primitive columns, one record at a time.
+ *
+ * <p>
+ * Unlike {@link CsvReader}, which holds every cell of a file as a string, this reader keeps only a growable
+ * {@code double[]} for each numeric column and a {@code long[]} of epoch milliseconds for the time column, so the
+ * memory needed to read a file is about eight bytes per value read, however large the file. Fields are tokenized from
+ * a reused character buffer, quoted fields are supported as described in RFC 4180, and simple decimal numbers are
+ * converted without creating strings. Columns that are neither the time column nor selected are skipped without
+ * being parsed.
+ * </p>
+ *
+ * <p>
+ * By default, times are parsed from ISO-8601 dates or date-times, such as 2016-03-01, 2016-03-01T10:15:30,
+ * 2016-03-01 10:15:30.25+01:00, or the year and month alone, 2016-03, and times without an offset are taken to be in
+ * UTC. A reader is immutable, and can be used to read any number of sources, including concurrently.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class StreamingCsvReader {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int END_OF_FIELD = 0;
+  private static final int END_OF_RECORD = 1;
+  private static final int END_OF_INPUT = 2;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+      1e20, 1e21, 1e22};
+
+  private static final DateTimeFormatter DEFAULT_FORMATTER = new DateTimeFormatterBuilder()
+      .appendPattern("uuuu-MM")
+      .optionalStart().appendPattern("-dd")
+      .optionalStart().optionalStart().appendLiteral('T').optionalEnd().optionalStart().appendLiteral(' ').optionalEnd()
+      .appendPattern("HH:mm")
+      .optionalStart().appendPattern(":ss").optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+      .optionalEnd().optionalEnd()
+      .optionalStart().appendOffsetId().optionalEnd()
+      .optionalEnd().optionalEnd()
+      .toFormatter();
+
+  private final boolean header;
+  private final char delimiter;
+  private final Charset charset;
+  private final int timeColumn;
+  private final String timeColumnName;
+  private final DateTimeFormatter formatter;
+  private final TimeUnit epochUnit;
+  private final ZoneOffset zoneOffset;
+  private final int[] selectedColumns;
+  private final List<String> selectedNames;
+
+  private StreamingCsvReader(final Builder builder) {
+    this.header = builder.header;
+    this.delimiter = builder.delimiter;
+    this.charset = builder.charset;
+    this.timeColumn = builder.timeColumn;
+    this.timeColumnName = builder.timeColumnName;
+    this.formatter = builder.formatter;
+    this.epochUnit = builder.epochUnit;
+    this.zoneOffset = builder.zoneOffset;
+    this.selectedColumns = builder.selectedColumns;
+    this.selectedNames = builder.selectedNames;
+  }
+
+  /**
+   * Create a new builder for a streaming CSV reader.
+   *
+   * @return a new builder for a streaming CSV reader.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Read the CSV file at the given path.
+   *
+   * @param path the path to the file.
+   * @return the columns read from the file.
+   * @throws UncheckedIOException if the file cannot be read.
+   * @throws IllegalArgumentException if a numeric or time field cannot be parsed, or a named column is not found.
+   */
+  public CsvColumns read(final Path path) {
+    try (InputStream in = Files.newInputStream(path)) {
+      return read(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException("The file " + path + " could not be read.", e);
+    }
+  }
+
+  /**
+   * Read CSV data from the given stream, which is read to its end but not closed.
+   *
+   * @param in the stream to read from.
+   * @return the columns read from the stream.
+   * @throws UncheckedIOException if the stream cannot be read.
+   * @throws IllegalArgumentException if a numeric or time field cannot be parsed, or a named column is not found.
+   */
+  public CsvColumns read(final InputStream in) {
+    try {
+      return new Parse(new InputStreamReader(in, charset), selectedColumns, selectedNames).run();
+    } catch (IOException e) {
+      throw new UncheckedIOException("The CSV stream could not be read.", e);
+    }
+  }
+
+  /**
+   * Read a single column of the CSV file at the given path as a time series, skipping every other column but the
+   * time column.
+   *
+   * @param path the path to the file.
+   * @param column the name of the column holding the observations.
+   * @param timePeriod the time period between observations.
+   * @return a time series of the observations in the given column.
+   * @throws IllegalStateException if this reader has no time column.
+   * @see CsvColumns#timeSeries(int, TimePeriod)
+   */
+  public TimeSeries readTimeSeries(final Path path, final String column, final TimePeriod timePeriod) {
+    try (InputStream in = Files.newInputStream(path)) {
+      return readTimeSeries(in, column, timePeriod);
+    } catch (IOException e) {
+      throw new UncheckedIOException("The file " + path + " could not be read.", e);
+    }
+  }
+
+  /**
+   * Read a single column of CSV data from the given stream as a time series, skipping every other column but the
+   * time column.
+   *
+   * @param in the stream to read from.
+   * @param column the name of the column holding the observations.
+   * @param timePeriod the time period between observations.
+   * @return a time series of the observations in the given column.
+   * @throws IllegalStateException if this reader has no time column.
+   * @see CsvColumns#timeSeries(int, TimePeriod)
+   */
+  public TimeSeries readTimeSeries(final InputStream in, final String column, final TimePeriod timePeriod) {
+    if (timeColumn < 0 && timeColumnName == null) {
+      throw new IllegalStateException("A time column is needed to read a time series.");
+    }
+    try {
+      final CsvColumns columns = new Parse(new InputStreamReader(in, charset), null,
+                                           Collections.singletonList(column)).run();
+      return columns.timeSeries(column, timePeriod);
+    } catch (IOException e) {
+      throw new UncheckedIOException("The CSV stream could not be read.", e);
+    }
+  }
+
+  /**
+   * Parse a decimal number from the given range of characters. Numbers with at most 15 or so significant digits and
+   * a small exponent, which covers almost all numbers written to CSV files, are converted exactly using a single
+   * floating-point multiplication or division, since both operands are exactly representable (Clinger, 1990). Any
+   * other number is converted by {@link Double#parseDouble(String)}. Surrounding whitespace is ignored and an empty
+   * range is NaN.
+   *
+   * @param chars the characters to parse.
+   * @param from the position of the first character, inclusive.
+   * @param to the position of the last character, exclusive.
+   * @return the number represented by the given range of characters.
+   * @throws NumberFormatException if the characters do not represent a number.
+   */
+  static double parseDouble(final char[] chars, int from, int to) {
+    while (from < to && Character.isWhitespace(chars[from])) {
+      from++;
+    }
+    while (to > from && Character.isWhitespace(chars[to - 1])) {
+      to--;
+    }
+    if (from == to) {
+      return Double.NaN;
+    }
+    int i = from;
+    boolean negative = false;
+    if (chars[i] == '-' || chars[i] == '+') {
+      negative = chars[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int exponent = 0;
+    int digits = 0;
+    boolean exact = true;
+    boolean point = false;
+    for (; i < to; i++) {
+      final char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        digits++;
+        if (mantissa < MAX_EXACT_MANTISSA / 10) {
+          mantissa = 10 * mantissa + (c - '0');
+          if (point) {
+            exponent--;
+          }
+        } else {
+          exact = false;
+        }
+      } else if (c == '.' && !point) {
+        point = true;
+      } else if ((c == 'e' || c == 'E') && digits > 0 && i + 1 < to) {
+        int j = i + 1;
+        boolean negativeExponent = false;
+        if (chars[j] == '-' || chars[j] == '+') {
+          negativeExponent = chars[j] == '-';
+          j++;
+        }
+        int value = 0;
+        if (j == to) {
+          exact = false;
+        }
+        for (; j < to && exact; j++) {
+          final char e = chars[j];
+          if (e < '0' || e > '9' || value > 1000) {
+            exact = false;
+          } else {
+            value = 10 * value + (e - '0');
+          }
+        }
+        exponent += negativeExponent ? -value : value;
+        break;
+      } else {
+        exact = false;
+        break;
+      }
+    }
+    if (digits == 0 || !exact || exponent < -22 || exponent > 22 || mantissa > MAX_EXACT_MANTISSA) {
+      return Double.parseDouble(new String(chars, from, to - from));
+    }
+    final double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+    return negative ? -value : value;
+  }
+
+  private static long parseLong(final char[] chars, int from, int to) {
+    while (from < to && Character.isWhitespace(chars[from])) {
+      from++;
+    }
+    while (to > from && Character.isWhitespace(chars[to - 1])) {
+      to--;
+    }
+    int i = from;
+    final boolean negative = i < to && chars[i] == '-';
+    if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+      i++;
+    }
+    if (i == to || to - i > 18) {
+      return Long.parseLong(new String(chars, from, to - from));
+    }
+    long value = 0;
+    for (; i < to; i++) {
+      final char c = chars[i];
+      if (c < '0' || c > '9') {
+        return Long.parseLong(new String(chars, from, to - from));
+      }
+      value = 10 * value + (c - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  // The state of a single pass over a source.
+  private final class Parse {
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final FieldSequence field = new FieldSequence();
+    private final List<String> names = new ArrayList<>();
+    private final int[] requestedColumns;
+    private final List<String> requestedNames;
+
+    private int time = -1;
+    // The numeric column buffer for each position, or null if the column is skipped. Grown as wider rows are seen
+    // when every column is read.
+    private double[][] columns = new double[0][];
+    private boolean readAll;
+    private long[] times;
+    private int capacity = INITIAL_CAPACITY;
+    private int rows;
+    private int line = 1;
+
+    private Parse(final Reader reader, final int[] requestedColumns, final List<String> requestedNames) {
+      this.reader = reader;
+      this.requestedColumns = requestedColumns;
+      this.requestedNames = requestedNames;
+    }
+
+    private CsvColumns run() throws IOException {
+      if (header) {
+        int column = 0;
+        int end;
+        do {
+          end = nextField();
+          if (end == END_OF_INPUT && column == 0 && field.length == 0) {
+            break;
+          }
+          names.add(field.toString().trim());
+          column++;
+        } while (end == END_OF_FIELD);
+      }
+      configure();
+      int column = 0;
+      boolean empty = true;
+      while (true) {
+        final int end = nextField();
+        if (end == END_OF_INPUT && column == 0 && field.length == 0) {
+          break;
+        }
+        if (column == 0 && end != END_OF_FIELD && field.isBlank()) {
+          // A blank line.
+          line++;
+          if (end == END_OF_INPUT) {
+            break;
+          }
+          continue;
+        }
+        if (empty) {
+          ensureCapacity();
+          empty = false;
+        }
+        accept(column);
+        column++;
+        if (end != END_OF_FIELD) {
+          for (int j = column; j < columns.length; j++) {
+            if (columns[j] != null) {
+              columns[j][rows] = Double.NaN;
+            }
+          }
+          if (time >= column) {
+            throw new IllegalArgumentException("Line " + line + " has no time field.");
+          }
+          rows++;
+          line++;
+          column = 0;
+          empty = true;
+          if (end == END_OF_INPUT) {
+            break;
+          }
+        }
+      }
+      return new CsvColumns(names, columns, times, rows, zoneOffset);
+    }
+
+    private void configure() {
+      if (timeColumnName != null) {
+        time = names.indexOf(timeColumnName);
+        if (time < 0) {
+          throw new IllegalArgumentException("The time column " + timeColumnName + " was not found.");
+        }
+      } else {
+        time = timeColumn;
+      }
+      if (time >= 0) {
+        times = new long[capacity];
+      }
+      final int[] requested = (requestedNames == null) ? requestedColumns : indicesOf(requestedNames);
+      if (requested == null) {
+        readAll = true;
+        columns = new double[names.size()][];
+        for (int j = 0; j < columns.length; j++) {
+          if (j != time) {
+            columns[j] = new double[capacity];
+          }
+        }
+      } else {
+        int width = 0;
+        for (int j : requested) {
+          width = Math.max(width, j + 1);
+        }
+        columns = new double[width][];
+        for (int j : requested) {
+          if (j == time) {
+            throw new IllegalArgumentException("The time column cannot also be read as a numeric column.");
+          }
+          columns[j] = new double[capacity];
+        }
+      }
+    }
+
+    private int[] indicesOf(final List<String> requested) {
+      final int[] indices = new int[requested.size()];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = names.indexOf(requested.get(i));
+        if (indices[i] < 0) {
+          throw new IllegalArgumentException("A column named " + requested.get(i) + " was not found.");
+        }
+      }
+      return indices;
+    }
+
+    private void accept(final int column) {
+      if (column == time) {
+        times[rows] = parseTime();
+        return;
+      }
+      if (column >= columns.length) {
+        if (!readAll) {
+          return;
+        }
+        // A row wider than the header, or than every row before it when there is no header.
+        final int previous = columns.length;
+        columns = Arrays.copyOf(columns, column + 1);
+        for (int j = previous; j <= column; j++) {
+          if (j != time) {
+            columns[j] = new double[capacity];
+            Arrays.fill(columns[j], 0, rows, Double.NaN);
+          }
+        }
+      }
+      final double[] values = columns[column];
+      if (values != null) {
+        try {
+          values[rows] = parseDouble(field.chars, 0, field.length);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("The value " + field + " in column " + (column + 1) + " on line " +
+                                             line + " is not a number.", e);
+        }
+      }
+    }
+
+    private long parseTime() {
+      try {
+        if (epochUnit != null) {
+          return epochUnit.toMillis(parseLong(field.chars, 0, field.length));
+        }
+        final TemporalAccessor parsed = formatter.parse(field);
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        if (date == null) {
+          date = YearMonth.from(parsed).atDay(1);
+        }
+        final LocalTime localTime = parsed.query(TemporalQueries.localTime());
+        final ZoneOffset offset = parsed.query(TemporalQueries.offset());
+        final long seconds = date.atTime((localTime == null) ? LocalTime.MIDNIGHT : localTime)
+                                 .toEpochSecond((offset == null) ? zoneOffset : offset);
+        return 1000 * seconds + ((localTime == null) ? 0 : localTime.getNano() / 1_000_000);
+      } catch (DateTimeException | NumberFormatException e) {
+        throw new IllegalArgumentException("The time " + field + " on line " + line + " could not be parsed.", e);
+      }
+    }
+
+    private void ensureCapacity() {
+      if (rows < capacity) {
+        return;
+      }
+      capacity = (capacity > Integer.MAX_VALUE / 2) ? Integer.MAX_VALUE - 8 : 2 * capacity;
+      for (int j = 0; j < columns.length; j++) {
+        if (columns[j] != null) {
+          columns[j] = Arrays.copyOf(columns[j], capacity);
+        }
+      }
+      if (times != null) {
+        times = Arrays.copyOf(times, capacity);
+      }
+    }
+
+    // Read the next field into the field buffer, returning how it ended.
+    private int nextField() throws IOException {
+      field.length = 0;
+      int c = read();
+      if (c == '"') {
+        while (true) {
+          c = read();
+          if (c < 0) {
+            throw new IllegalArgumentException("A quoted field starting on line " + line + " is not closed.");
+          }
+          if (c == '"') {
+            c = read();
+            if (c != '"') {
+              break;
+            }
+          }
+          field.append((char) c);
+        }
+        // Anything between the closing quote and the delimiter is kept, as most other readers do.
+      }
+      while (true) {
+        if (c < 0) {
+          return END_OF_INPUT;
+        }
+        if (c == delimiter) {
+          return END_OF_FIELD;
+        }
+        if (c == '\n') {
+          return END_OF_RECORD;
+        }
+        if (c == '\r') {
+          if (peek() == '\n') {
+            position++;
+          }
+          return END_OF_RECORD;
+        }
+        field.append((char) c);
+        c = read();
+      }
+    }
+
+    private int read() throws IOException {
+      if (position == limit && !fill()) {
+        return -1;
+      }
+      return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+      if (position == limit && !fill()) {
+        return -1;
+      }
+      return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+      final int read = reader.read(buffer, 0, buffer.length);
+      if (read <= 0) {
+        return false;
+      }
+      position = 0;
+      limit = read;
+      return true;
+    }
+  }
+
+  // A reusable, growable field buffer that date-time formatters can parse without a string being created.
+  private static final class FieldSequence implements CharSequence {
+
+    private char[] chars = new char[64];
+    private int length;
+
+    private void append(final char c) {
+      if (length == chars.length) {
+        chars = Arrays.copyOf(chars, 2 * length);
+      }
+      chars[length++] = c;
+    }
+
+    private boolean isBlank() {
+      for (int i = 0; i < length; i++) {
+        if (!Character.isWhitespace(chars[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return this.length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, 0, length);
+    }
+  }
+
+  /**
+   * A builder for a streaming CSV reader.
+   */
+  public static final class Builder {
+
+    private boolean header = false;
+    private char delimiter = ',';
+    private Charset charset = StandardCharsets.UTF_8;
+    private int timeColumn = -1;
+    private String timeColumnName = null;
+    private DateTimeFormatter formatter = DEFAULT_FORMATTER;
+    private TimeUnit epochUnit = null;
+    private ZoneOffset zoneOffset = ZoneOffset.UTC;
+    private int[] selectedColumns = null;
+    private List<String> selectedNames = null;
+
+    private Builder() {
+    }
+
+    /**
+     * Set whether the first row is a header row holding the column names. The default is false.
+     *
+     * @param header whether the first row is a header row.
+     * @return this builder.
+     */
+    public Builder header(final boolean header) {
+      this.header = header;
+      return this;
+    }
+
+    /**
+     * Set the character that separates fields. The default is a comma.
+     *
+     * @param delimiter the character that separates fields.
+     * @return this builder.
+     */
+    public Builder delimiter(final char delimiter) {
+      if (delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+        throw new IllegalArgumentException("The delimiter cannot be a quote or a line break.");
+      }
+      this.delimiter = delimiter;
+      return this;
+    }
+
+    /**
+     * Set the character set of the source. The default is UTF-8.
+     *
+     * @param charset the character set of the source.
+     * @return this builder.
+     */
+    public Builder charset(final Charset charset) {
+      this.charset = charset;
+      return this;
+    }
+
+    /**
+     * Set the position of the column holding the observation times. By default there is no time column.
+     *
+     * @param column the position of the time column.
+     * @return this builder.
+     */
+    public Builder timeColumn(final int column) {
+      if (column < 0) {
+        throw new IllegalArgumentException("The time column must be non-negative, but was " + column + ".");
+      }
+      this.timeColumn = column;
+      this.timeColumnName = null;
+      return this;
+    }
+
+    /**
+     * Set the name of the column holding the observation times, which requires a header row.
+     *
+     * @param name the name of the time column.
+     * @return this builder.
+     */
+    public Builder timeColumn(final String name) {
+      this.timeColumnName = name;
+      this.timeColumn = -1;
+      return this;
+    }
+
+    /**
+     * Set the formatter used to parse the observation times. Fields lacking a day of the month are taken to be at the
+     * start of the month, fields lacking a time at midnight, and fields lacking an offset in the zone offset of this
+     * reader.
+     *
+     * @param formatter the formatter used to parse the observation times.
+     * @return this builder.
+     */
+    public Builder timeFormatter(final DateTimeFormatter formatter) {
+      this.formatter = formatter;
+      this.epochUnit = null;
+      return this;
+    }
+
+    /**
+     * Read the observation times as whole numbers of the given unit since the epoch, rather than as date-times.
+     *
+     * @param unit the unit of the observation times.
+     * @return this builder.
+     */
+    public Builder epochTimes(final TimeUnit unit) {
+      this.epochUnit = unit;
+      return this;
+    }
+
+    /**
+     * Set the zone offset of observation times that have none, which is also the offset of the times of the time
+     * series created from the columns read. The default is UTC.
+     *
+     * @param zoneOffset the zone offset of observation times that have none.
+     * @return this builder.
+     */
+    public Builder zoneOffset(final ZoneOffset zoneOffset) {
+      this.zoneOffset = zoneOffset;
+      return this;
+    }
+
+    /**
+     * Read only the columns at the given positions as numeric columns. By default every column but the time column is
+     * read.
+     *
+     * @param columns the positions of the columns to read.
+     * @return this builder.
+     */
+    public Builder columns(final int... columns) {
+      for (int column : columns) {
+        if (column < 0) {
+          throw new IllegalArgumentException("Column positions must be non-negative, but one was " + column + ".");
+        }
+      }
+      this.selectedColumns = columns.clone();
+      this.selectedNames = null;
+      return this;
+    }
+
+    /**
+     * Read only the columns with the given names as numeric columns, which requires a header row. By default every
+     * column but the time column is read.
+     *
+     * @param names the names of the columns to read.
+     * @return this builder.
+     */
+    public Builder columns(final String... names) {
+      this.selectedNames = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(names)));
+      this.selectedColumns = null;
+      return this;
+    }
+
+    /**
+     * Construct a new streaming CSV reader from the current state of this builder.
+     *
+     * @return a new streaming CSV reader.
+     * @throws IllegalStateException if columns are named but there is no header row.
+     */
+    public StreamingCsvReader build() {
+      if (!header && (timeColumnName != null || selectedNames != null)) {
+        throw new IllegalStateException("Columns can only be referred to by name when there is a header row.");
+      }
+      return new StreamingCsvReader(this);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package linear.doubles;
+
+import java.util.Arrays;
+
+/**
+ * A solver for the discrete Lyapunov equation X = AXA' + Q, whose solution for a stable matrix A is the stationary
+ * covariance of the process x<sub>t+1</sub> = Ax<sub>t</sub> + w<sub>t</sub> with disturbance covariance Q.
+ *
+ * <p>
+ * The solution X = &Sigma; A<sup>k</sup>QA'<sup>k</sup> is summed by the doubling algorithm, which after k steps
+ * holds the first 2<sup>k</sup> terms: X<sub>k+1</sub> = X<sub>k</sub> + A<sub>k</sub>X<sub>k</sub>A<sub>k</sub>'
+ * and A<sub>k+1</sub> = A<sub>k</sub><sup>2</sup>. Each step takes O(n<sup>3</sup>) time, and the number of steps
+ * grows only with the logarithm of 1 / (1 - &rho;), where &rho; is the spectral radius of A, so the solver replaces the
+ * O(n<sup>6</sup>) time and O(n<sup>4</sup>) memory of solving the equivalent n<sup>2</sup> by n<sup>2</sup> linear
+ * system (I - A &otimes; A)vec(X) = vec(Q).
+ * </p>
+ *
+ * <p>
+ * All matrices are square and stored row-major in flat arrays. A solver holds the workspace for one dimension and
+ * allocates nothing when it solves, so it can be reused for every evaluation of a likelihood. It is mutable and must
+ * not be shared between threads.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class LyapunovSolver {
+
+  // The summation stops once a step adds no more than this amount, relative to the largest element of the solution.
+  private static final double TOLERANCE = 1E-15;
+
+  // A stable matrix raised to the power 2^64 has vanished for any spectral radius a double can distinguish from one.
+  private static final int MAX_STEPS = 64;
+
+  private final int n;
+  private double[] power;
+  private double[] product;
+  private final double[] increment;
+
+  /**
+   * Create a new solver for matrices of the given dimension.
+   *
+   * @param n the number of rows and columns of the matrices.
+   * @throws IllegalArgumentException if the dimension is negative.
+   */
+  public LyapunovSolver(final int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("The dimension cannot be negative, but was " + n + ".");
+    }
+    this.n = n;
+    this.power = new double[n * n];
+    this.product = new double[n * n];
+    this.increment = new double[n * n];
+  }
+
+  /**
+   * The number of rows and columns of the matrices this solver handles.
+   *
+   * @return the number of rows and columns of the matrices this solver handles.
+   */
+  public int dimension() {
+    return this.n;
+  }
+
+  /**
+   * Solve X = AXA' + Q, writing the solution into the given array.
+   *
+   * @param a the matrix A, which is not modified.
+   * @param q the symmetric matrix Q, which is not modified.
+   * @param x an array of length n * n to hold the solution. It must not be the same array as a or q.
+   * @return true if the summation converged, or false if it did not, as happens when A has an eigenvalue on or
+   *         outside the unit circle, in which case the contents of x are unspecified.
+   * @throws IllegalArgumentException if an array does not have length n * n.
+   */
+  public boolean solve(final double[] a, final double[] q, final double[] x) {
+    final int m = n * n;
+    if (a.length != m || q.length != m || x.length != m) {
+      throw new IllegalArgumentException("Every matrix must have " + m + " elements.");
+    }
+    System.arraycopy(a, 0, power, 0, m);
+    System.arraycopy(q, 0, x, 0, m);
+    for (int step = 0; step < MAX_STEPS; step++) {
+      // increment = power * x * power', which is symmetric since x is.
+      multiply(power, x, product);
+      double largestIncrement = 0.0;
+      for (int i = 0; i < n; i++) {
+        final int rowI = i * n;
+        for (int j = i; j < n; j++) {
+          final int rowJ = j * n;
+          double sum = 0.0;
+          for (int k = 0; k < n; k++) {
+            sum += product[rowI + k] * power[rowJ + k];
+          }
+          increment[rowI + j] = sum;
+          largestIncrement = Math.max(largestIncrement, Math.abs(sum));
+        }
+      }
+      double largest = 0.0;
+      for (int i = 0; i < n; i++) {
+        for (int j = i; j < n; j++) {
+          final double value = x[i * n + j] + increment[i * n + j];
+          x[i * n + j] = value;
+          x[j * n + i] = value;
+          largest = Math.max(largest, Math.abs(value));
+        }
+      }
+      if (!(largest < Double.POSITIVE_INFINITY)) {
+        return false;
+      }
+      if (largestIncrement <= TOLERANCE * largest) {
+        return true;
+      }
+      multiply(power, power, product);
+      final double[] squared = product;
+      product = power;
+      power = squared;
+    }
+    return false;
+  }
+
+  // c = a * b for n by n matrices, with the inner loop running along rows of b and c.
+  private void multiply(final double[] a, final double[] b, final double[] c) {
+    Arrays.fill(c, 0.0);
+    for (int i = 0; i < n; i++) {
+      final int rowI = i * n;
+      for (int k = 0; k < n; k++) {
+        final double aik = a[rowI + k];
+        if (aik == 0.0) {
+          continue;
+        }
+        final int rowK = k * n;
+        for (int j = 0; j < n; j++) {
+          c[rowI + j] += aik * b[rowK + j];
+        }
+      }
+    }
+  }
+}
@@ -23,7 +23,7 @@ public final class Matrices {
     for (int i = 0; i < n; i++) {
       data[i * n + i] = 1.0;
     }
-    return new Matrix(n, n , data);
+    return Matrix.adopt(n, n, data);
   }
 
 }
@@ -7,12 +7,17 @@ package linear.doubles;
 import java.util.Arrays;
 
 /**
- * An immutable and thread-safe Matrix implementation.
+ * An immutable and thread-safe Matrix implementation. Elements are stored in a single array in row-major order.
+ * Code that updates a matrix repeatedly, such as the inner loop of an optimizer, can use a {@link Mutable} matrix and
+ * the {@code timesInto} methods to avoid allocating a new matrix at every step.
  * @author jrachiele
  *
  */
 public final class Matrix {
-  
+
+  // The number of rows and columns in a tile of the blocked product. Three tiles of doubles fit in a 32KB L1 cache.
+  private static final int BLOCK_SIZE = 32;
+
   private final int nrow;
   private final int ncol;
   private final double[] data;
@@ -26,6 +31,29 @@ public final class Matrix {
     this.ncol = ncol;
     this.data = data.clone();
   }
+
+  // Adopt the given array, which must not be modified afterwards, rather than copying it.
+  private Matrix(final int nrow, final int ncol, final double[] data, final boolean adopt) {
+    this.nrow = nrow;
+    this.ncol = ncol;
+    this.data = data;
+  }
+
+  /**
+   * Create a new matrix that takes ownership of the given row-major array rather than copying it. The array must not
+   * be modified after it is passed to this method.
+   * @param nrow the number of rows.
+   * @param ncol the number of columns.
+   * @param data the elements of the matrix in row-major order.
+   * @return a new matrix backed by the given array.
+   */
+  static Matrix adopt(final int nrow, final int ncol, final double[] data) {
+    if (nrow * ncol != data.length) {
+      throw new IllegalArgumentException("The dimensions do not match the amount of data provided. The amount of data was "
+              + data.length + ", but the number of rows and columns were " + nrow + " and " + ncol + " respectively.");
+    }
+    return new Matrix(nrow, ncol, data, true);
+  }
   
   public Matrix(final int nrow, final int ncol, final double datum) {
     this.nrow = nrow;
@@ -51,13 +79,9 @@ public final class Matrix {
           + "This matrix has dimension (" + this.nrow + ", " + this.ncol + ") and the other matrix has dimension (" + other.nrow
           + ", " + other.ncol + ")");
     }
-    final double[] sum = new double[nrow * ncol];
-    for (int i = 0; i < nrow; i++) {
-      for (int j = 0; j < ncol; j++) {
-        sum[i * ncol + j] = this.data[i * ncol + j] + other.data[i * ncol + j];
-      }
-    }
-    return new Matrix(this.nrow, this.ncol, sum);
+    final double[] sum = this.data.clone();
+    addTo(sum, other.data, 1.0);
+    return new Matrix(this.nrow, this.ncol, sum, true);
   }
   
   /**
@@ -66,34 +90,83 @@ public final class Matrix {
    * @return a new matrix that is the product of this one with the given one.
    */
   public final Matrix times(final Matrix other) {
+    final double[] product = new double[this.nrow * other.ncol];
+    timesInto(other, product);
+    return new Matrix(this.nrow, other.ncol, product, true);
+  }
+
+  /**
+   * Multiply this matrix by the given matrix and write the product, in row-major order, into the given array. Any
+   * values already in the array are overwritten.
+   *
+   * <p>
+   * The product is computed in square tiles so that the rows of both matrices being read stay in cache, and within a
+   * tile the inner loop runs along a row of the other matrix and of the product, so every access has unit stride.
+   * </p>
+   * @param other the matrix to multiply this one by.
+   * @param product an array with room for the product's nrow * other.ncol elements.
+   * @throws IllegalArgumentException if the dimensions of the matrices do not conform, or the array is too small.
+   */
+  public final void timesInto(final Matrix other, final double[] product) {
     if (this.ncol != other.nrow) {
       throw new IllegalArgumentException("The columns of this matrix must equal the rows of the other matrix. "
           + "This matrix has " + this.ncol + " columns and the other matrix has " + other.nrow + " rows.");
     }
-    final double[] product = new double[this.nrow * other.ncol];
-    for (int i = 0; i < this.nrow; i++) {
-      for (int j = 0; j < other.ncol; j++) {
-        for (int k = 0; k < this.ncol; k++) {
-          product[i * this.nrow + j] += this.data[i * this.ncol + k] * other.data[j + k * other.ncol];
+    final int m = this.nrow;
+    final int n = other.ncol;
+    final int p = this.ncol;
+    if (product.length < m * n) {
+      throw new IllegalArgumentException("The product has " + m * n + " elements, but the array has room for only "
+          + product.length + ".");
+    }
+    final double[] a = this.data;
+    final double[] b = other.data;
+    Arrays.fill(product, 0, m * n, 0.0);
+    for (int ii = 0; ii < m; ii += BLOCK_SIZE) {
+      final int iEnd = Math.min(ii + BLOCK_SIZE, m);
+      for (int kk = 0; kk < p; kk += BLOCK_SIZE) {
+        final int kEnd = Math.min(kk + BLOCK_SIZE, p);
+        for (int jj = 0; jj < n; jj += BLOCK_SIZE) {
+          final int jEnd = Math.min(jj + BLOCK_SIZE, n);
+          for (int i = ii; i < iEnd; i++) {
+            final int rowA = i * p;
+            final int rowC = i * n;
+            for (int k = kk; k < kEnd; k++) {
+              final double aik = a[rowA + k];
+              final int rowB = k * n;
+              for (int j = jj; j < jEnd; j++) {
+                product[rowC + j] += aik * b[rowB + j];
+              }
+            }
+          }
         }
       }
     }
-    return new Matrix(this.nrow, other.ncol, product);
   }
-  
+
   public final Vector times(final Vector vector) {
-    double[] elements = vector.elements();
-    if (this.ncol != elements.length) {
+    final double[] product = new double[this.nrow];
+    timesInto(vector.elements(), product);
+    return new Vector(product);
+  }
+
+  /**
+   * Multiply this matrix by the given vector and write the product into the given array.
+   * @param vector the elements of the vector to multiply this matrix by.
+   * @param product an array with room for the product's nrow elements.
+   * @throws IllegalArgumentException if the length of the vector does not equal the number of columns of this
+   *                                  matrix, or the array is too small.
+   */
+  public final void timesInto(final double[] vector, final double[] product) {
+    if (this.ncol != vector.length) {
       throw new IllegalArgumentException("The columns of this matrix must equal the rows of the vector. "
-          + "This matrix has " + this.ncol + " columns and the vector has " + elements.length + " rows.");
+          + "This matrix has " + this.ncol + " columns and the vector has " + vector.length + " rows.");
     }
-    final double[] product = new double[this.nrow];
-    for (int i = 0; i < this.nrow; i++) {
-        for (int k = 0; k < this.ncol; k++) {
-          product[i] += this.data[i * this.ncol + k] * elements[k];
-        }
+    if (product.length < this.nrow) {
+      throw new IllegalArgumentException("The product has " + this.nrow + " elements, but the array has room for "
+          + "only " + product.length + ".");
     }
-    return new Vector(product);
+    multiply(this.data, this.nrow, this.ncol, vector, product);
   }
 
   public final Matrix scaledBy(final double c) {
@@ -101,7 +174,7 @@ public final class Matrix {
     for (int i = 0; i < this.data.length; i++) {
       scaled[i] = this.data[i] * c;
     }
-    return new Matrix(this.nrow, this.ncol, scaled);
+    return new Matrix(this.nrow, this.ncol, scaled, true);
   }
   
   public final Matrix minus(final Matrix other) {
@@ -110,13 +183,9 @@ public final class Matrix {
           + "This matrix has dimension (" + this.nrow + ", " + this.ncol + ") and the other matrix has dimension (" + other.nrow
           + ", " + other.ncol + ")");
     }
-    final double[] minus = new double[nrow * ncol];
-    for (int i = 0; i < nrow; i++) {
-      for (int j = 0; j < ncol; j++) {
-        minus[i * ncol + j] = this.data[i * ncol + j] - other.data[i * ncol + j];
-      }
-    }
-    return new Matrix(this.nrow, this.ncol, minus);
+    final double[] minus = this.data.clone();
+    addTo(minus, other.data, -1.0);
+    return new Matrix(this.nrow, this.ncol, minus, true);
   }
   
   public final double[] diagonal() {
@@ -138,6 +207,41 @@ public final class Matrix {
     return twoD;
   }
 
+  /**
+   * The number of rows in this matrix.
+   * @return the number of rows in this matrix.
+   */
+  public final int nrow() {
+    return this.nrow;
+  }
+
+  /**
+   * The number of columns in this matrix.
+   * @return the number of columns in this matrix.
+   */
+  public final int ncol() {
+    return this.ncol;
+  }
+
+  // target += alpha * other, elementwise.
+  private static void addTo(final double[] target, final double[] other, final double alpha) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] += alpha * other[i];
+    }
+  }
+
+  // product = A * x, for the row-major m by n matrix A.
+  private static void multiply(final double[] a, final int m, final int n, final double[] x, final double[] product) {
+    for (int i = 0; i < m; i++) {
+      final int row = i * n;
+      double sum = 0.0;
+      for (int k = 0; k < n; k++) {
+        sum += a[row + k] * x[k];
+      }
+      product[i] = sum;
+    }
+  }
+
   @Override
   public String toString() {
     return "Matrix{" +
@@ -197,4 +301,157 @@ public final class Matrix {
     }
   }
 
+  /**
+   * A matrix whose elements can be updated in place, for code that would otherwise create a new matrix at every step
+   * of an iteration. Instances are not thread-safe. An immutable copy can be taken at any time with
+   * {@link #toMatrix()}.
+   * @author Jacob Rachiele
+   *
+   */
+  public static final class Mutable {
+
+    private final int nrow;
+    private final int ncol;
+    private final double[] data;
+
+    /**
+     * Create a new mutable matrix of the given dimensions with every element equal to zero.
+     * @param nrow the number of rows.
+     * @param ncol the number of columns.
+     */
+    public Mutable(final int nrow, final int ncol) {
+      this.nrow = nrow;
+      this.ncol = ncol;
+      this.data = new double[nrow * ncol];
+    }
+
+    /**
+     * Create a new mutable matrix with the same dimensions and elements as the given matrix.
+     * @param matrix the matrix to copy.
+     */
+    public Mutable(final Matrix matrix) {
+      this.nrow = matrix.nrow;
+      this.ncol = matrix.ncol;
+      this.data = matrix.data.clone();
+    }
+
+    /**
+     * The element in the given row and column.
+     * @param i the row of the element.
+     * @param j the column of the element.
+     * @return the element in the given row and column.
+     */
+    public final double get(final int i, final int j) {
+      return this.data[i * ncol + j];
+    }
+
+    /**
+     * Set the element in the given row and column.
+     * @param i the row of the element.
+     * @param j the column of the element.
+     * @param value the new value of the element.
+     * @return this matrix.
+     */
+    public final Mutable set(final int i, final int j, final double value) {
+      this.data[i * ncol + j] = value;
+      return this;
+    }
+
+    /**
+     * Set this matrix to the identity matrix.
+     * @return this matrix.
+     * @throws IllegalStateException if this matrix is not square.
+     */
+    public final Mutable setIdentity() {
+      if (nrow != ncol) {
+        throw new IllegalStateException("Only a square matrix can be set to the identity, but this matrix has "
+            + "dimension (" + nrow + ", " + ncol + ").");
+      }
+      Arrays.fill(data, 0.0);
+      for (int i = 0; i < nrow; i++) {
+        data[i * ncol + i] = 1.0;
+      }
+      return this;
+    }
+
+    /**
+     * Add the given matrix to this one, element by element.
+     * @param other the matrix to add to this one.
+     * @return this matrix.
+     * @throws IllegalArgumentException if the dimensions of the matrices differ.
+     */
+    public final Mutable plusInPlace(final Matrix other) {
+      if (this.nrow != other.nrow || this.ncol != other.ncol) {
+        throw new IllegalArgumentException("The dimensions of this matrix must equal the dimensions of the other "
+            + "matrix. This matrix has dimension (" + this.nrow + ", " + this.ncol + ") and the other matrix has "
+            + "dimension (" + other.nrow + ", " + other.ncol + ")");
+      }
+      addTo(this.data, other.data, 1.0);
+      return this;
+    }
+
+    /**
+     * Multiply every element of this matrix by the given scalar.
+     * @param c the scalar to multiply by.
+     * @return this matrix.
+     */
+    public final Mutable scaleInPlace(final double c) {
+      for (int i = 0; i < data.length; i++) {
+        data[i] *= c;
+      }
+      return this;
+    }
+
+    /**
+     * Add the outer product of the given vectors, scaled by alpha, to this matrix, so that A becomes
+     * A + &alpha;xy<sup>T</sup>. The update takes O(nrow * ncol) time and allocates nothing.
+     * @param alpha the scale of the outer product.
+     * @param x a vector with nrow elements.
+     * @param y a vector with ncol elements.
+     * @return this matrix.
+     * @throws IllegalArgumentException if the vectors do not match the dimensions of this matrix.
+     */
+    public final Mutable rankOneUpdate(final double alpha, final double[] x, final double[] y) {
+      if (x.length != nrow || y.length != ncol) {
+        throw new IllegalArgumentException("The outer product of vectors of length " + x.length + " and " + y.length
+            + " does not match the dimension (" + nrow + ", " + ncol + ") of this matrix.");
+      }
+      for (int i = 0; i < nrow; i++) {
+        final double ax = alpha * x[i];
+        final int row = i * ncol;
+        for (int j = 0; j < ncol; j++) {
+          data[row + j] += ax * y[j];
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Multiply this matrix by the given vector and write the product into the given array.
+     * @param vector the elements of the vector to multiply this matrix by.
+     * @param product an array with room for the product's nrow elements, distinct from the vector.
+     * @throws IllegalArgumentException if the length of the vector does not equal the number of columns of this
+     *                                  matrix, or the array is too small.
+     */
+    public final void timesInto(final double[] vector, final double[] product) {
+      if (this.ncol != vector.length) {
+        throw new IllegalArgumentException("The columns of this matrix must equal the rows of the vector. "
+            + "This matrix has " + this.ncol + " columns and the vector has " + vector.length + " rows.");
+      }
+      if (product.length < this.nrow) {
+        throw new IllegalArgumentException("The product has " + this.nrow + " elements, but the array has room for "
+            + "only " + product.length + ".");
+      }
+      multiply(this.data, this.nrow, this.ncol, vector, product);
+    }
+
+    /**
+     * Create an immutable copy of this matrix.
+     * @return an immutable copy of this matrix.
+     */
+    public final Matrix toMatrix() {
+      return new Matrix(nrow, ncol, data.clone(), true);
+    }
+  }
+
 }
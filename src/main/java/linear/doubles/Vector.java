@@ -129,7 +129,7 @@ public final class Vector {
         product[i * other.elements.length + j] = elements[i] * other.elements[j];
       }
     }
-    return new Matrix(elements.length, other.elements.length, product);
+    return Matrix.adopt(elements.length, other.elements.length, product);
     
   }
 
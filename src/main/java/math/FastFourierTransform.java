@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package math;
+
+/**
+ * An in-place radix-2 fast Fourier transform of complex sequences stored as separate arrays of real and imaginary
+ * parts, so that no {@link Complex} objects are created. The length of the sequences must be a power of two.
+ *
+ * @author Jacob Rachiele
+ */
+public final class FastFourierTransform {
+
+  private FastFourierTransform() {
+  }
+
+  /**
+   * Replace the given sequence with its discrete Fourier transform, X_k = sum of x_t * exp(-2 * pi * i * t * k / n).
+   *
+   * @param real the real parts of the sequence.
+   * @param imaginary the imaginary parts of the sequence.
+   * @throws IllegalArgumentException if the arrays differ in length or their length is not a power of two.
+   */
+  public static void transform(final double[] real, final double[] imaginary) {
+    transform(real, imaginary, -1.0);
+  }
+
+  /**
+   * Replace the given sequence with its inverse discrete Fourier transform,
+   * x_t = (1 / n) * sum of X_k * exp(2 * pi * i * t * k / n).
+   *
+   * @param real the real parts of the sequence.
+   * @param imaginary the imaginary parts of the sequence.
+   * @throws IllegalArgumentException if the arrays differ in length or their length is not a power of two.
+   */
+  public static void inverse(final double[] real, final double[] imaginary) {
+    transform(real, imaginary, 1.0);
+    final int n = real.length;
+    for (int i = 0; i < n; i++) {
+      real[i] /= n;
+      imaginary[i] /= n;
+    }
+  }
+
+  /**
+   * The smallest power of two greater than or equal to the given number.
+   *
+   * @param n the number to round up to a power of two.
+   * @return the smallest power of two greater than or equal to the given number.
+   */
+  public static int nextPowerOfTwo(final int n) {
+    return (n <= 1) ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  private static void transform(final double[] real, final double[] imaginary, final double sign) {
+    final int n = real.length;
+    if (imaginary.length != n) {
+      throw new IllegalArgumentException("The real and imaginary parts must have the same length, but had lengths " +
+                                         n + " and " + imaginary.length + ".");
+    }
+    if (Integer.bitCount(n) > 1) {
+      throw new IllegalArgumentException("The length of the sequence must be a power of two, but was " + n + ".");
+    }
+
+    // Reorder the sequence so that the butterflies can be done in place.
+    for (int i = 1, j = 0; i < n; i++) {
+      int bit = n >> 1;
+      for (; (j & bit) != 0; bit >>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+      if (i < j) {
+        double temp = real[i];
+        real[i] = real[j];
+        real[j] = temp;
+        temp = imaginary[i];
+        imaginary[i] = imaginary[j];
+        imaginary[j] = temp;
+      }
+    }
+
+    // The twiddle factors are computed directly rather than by repeated multiplication, which would accumulate
+    // rounding error over long sequences.
+    final int half = n >> 1;
+    final double[] cosines = new double[half];
+    final double[] sines = new double[half];
+    for (int k = 0; k < half; k++) {
+      final double angle = sign * 2 * Math.PI * k / n;
+      cosines[k] = Math.cos(angle);
+      sines[k] = Math.sin(angle);
+    }
+
+    for (int length = 2; length <= n; length <<= 1) {
+      final int halfLength = length >> 1;
+      final int stride = n / length;
+      for (int start = 0; start < n; start += length) {
+        for (int k = 0; k < halfLength; k++) {
+          final double wReal = cosines[k * stride];
+          final double wImaginary = sines[k * stride];
+          final int even = start + k;
+          final int odd = even + halfLength;
+          final double oddReal = real[odd] * wReal - imaginary[odd] * wImaginary;
+          final double oddImaginary = real[odd] * wImaginary + imaginary[odd] * wReal;
+          real[odd] = real[even] - oddReal;
+          imaginary[odd] = imaginary[even] - oddImaginary;
+          real[even] += oddReal;
+          imaginary[even] += oddImaginary;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package math.function;
+
+/**
+ * A scalar-valued function of several variables whose exact gradient can be computed together with its value.
+ * Optimizers that detect this interface use it in place of finite-difference gradient approximations.
+ * @author Jacob Rachiele
+ *
+ */
+public interface DifferentiableMultivariateFunction extends MultivariateFunction {
+
+  /**
+   * Compute the value of the function at the given point and store the gradient at that point in the provided array.
+   * @param point the point at which to evaluate the function and its gradient.
+   * @param gradient an array with the same length as the point, which will be overwritten with the gradient.
+   * @return the value of the function at the given point.
+   */
+  double valueAndGradientAt(double[] point, double[] gradient);
+
+  /**
+   * Return true if computing the gradient along with the value costs little more than computing the value alone.
+   * When it does not, a line search evaluates only the value at a trial point, and computes the gradient there only
+   * if it needs the slope.
+   * @return true if computing the gradient along with the value costs little more than computing the value alone.
+   */
+  default boolean isGradientCheap() {
+    return true;
+  }
+
+}
@@ -6,15 +6,24 @@ package optim;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
+import static optim.QuasiNewton.dot;
+import static optim.QuasiNewton.norm;
 
 import linear.doubles.Matrices;
 import linear.doubles.Matrix;
 import linear.doubles.Vector;
 import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
 
 /**
  * An implementation of the Broyden-Fletcher-Goldfarb-Shanno (BFGS) algorithm for unconstrained
  * nonlinear optimization.
+ *
+ * <p>
+ * The iterate, gradient, search direction and inverse Hessian approximation are held in buffers allocated once, and
+ * the inverse Hessian is updated in place with the rank-two form of the BFGS update. Each iteration therefore takes
+ * O(n<sup>2</sup>) time and, for a {@link DifferentiableMultivariateFunction}, creates no garbage that grows with n.
+ * </p>
  * @author Jacob Rachiele
  *
  */
@@ -24,15 +33,20 @@ public final class BFGS {
   private static final double c2 = 0.9;
 
   private final AbstractMultivariateFunction f;
-  private Vector iterate;
-  private Vector gradient;
-  private Vector searchDirection;
+  private final OptimizerOptions options;
+  private final double[] iterate;
+  private double[] gradient;
+  private double[] nextGradient;
+  private final double[] searchDirection;
+  private final double[] s;
+  private final double[] y;
+  private final double[] hy;
+  private final double[] w;
+  private final Matrix.Mutable H;
+  private final QuasiNewtonLineFunction lineFunction;
+  private final OptimizationResult result;
   private double functionValue = 0.0;
-  private double rho = 0.0;
-  private Vector s;
-  private Vector y;
-  private Matrix H;
-  private final Matrix identity;
+  private int evaluations = 0;
 
   /**
    * Create a new BFGS object with the given information. The identity matrix will be used for
@@ -57,53 +71,127 @@ public final class BFGS {
    */
   public BFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final double gradientTolerance,
           final double relativeErrorTolerance, final Matrix initialHessian) {
+    this(f, startingPoint, OptimizerOptions.withTolerances(gradientTolerance, relativeErrorTolerance), initialHessian);
+  }
+
+  /**
+   * Create a new BFGS object with the given options. The identity matrix will be used for initial inverse Hessian
+   * approximation.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param options the tolerances and budgets that decide when the optimization stops.
+   */
+  public BFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final OptimizerOptions options) {
+    this(f, startingPoint, options, Matrices.identity(startingPoint.size()));
+  }
+
+  /**
+   * Create a new BFGS object with the given options.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param options the tolerances and budgets that decide when the optimization stops.
+   * @param initialHessian The initial guess for the inverse Hessian approximation.
+   */
+  public BFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final OptimizerOptions options,
+          final Matrix initialHessian) {
     this.f = f;
-    this.identity = Matrices.identity(startingPoint.size());
-    this.H = initialHessian;
-    this.iterate = startingPoint;
+    this.options = options;
+    final int n = startingPoint.size();
+    this.iterate = startingPoint.elements();
+    this.gradient = new double[n];
+    this.nextGradient = new double[n];
+    this.searchDirection = new double[n];
+    this.s = new double[n];
+    this.y = new double[n];
+    this.hy = new double[n];
+    this.w = new double[n];
+    this.H = new Matrix.Mutable(initialHessian);
+    this.lineFunction = new QuasiNewtonLineFunction(f, iterate, searchDirection);
+    final long startNanos = System.nanoTime();
     int k = 0;
     double priorFunctionValue;
-    functionValue = f.at(startingPoint);
     double relativeChange = Double.MAX_VALUE;
     double relativeChangeDenominator;
-    gradient = f.gradientAt(startingPoint, functionValue);
-    if (startingPoint.size() > 0) {
-      int maxIterations = 100;
-      while (gradient.norm() > gradientTolerance && relativeChange > relativeErrorTolerance
-          && k < maxIterations) {
-        searchDirection = (H.times(gradient).scaledBy(-1.0));
-        double stepSize = updateStepSize(functionValue);
-        Vector nextIterate = iterate.plus(searchDirection.scaledBy(stepSize));
-        s = nextIterate.minus(iterate);
+    functionValue = valueAndGradient(gradient);
+    OptimizationResult.ConvergenceReason reason = OptimizationResult.ConvergenceReason.GRADIENT_TOLERANCE;
+    if (n > 0) {
+      while ((reason = options.check(k, functionEvaluations(), System.nanoTime() - startNanos, functionValue,
+                                     norm(gradient), relativeChange)) == null) {
+        H.timesInto(gradient, searchDirection);
+        for (int i = 0; i < n; i++) {
+          searchDirection[i] = -searchDirection[i];
+        }
+        lineFunction.reset();
+        final double stepSize = updateStepSize(functionValue);
+        for (int i = 0; i < n; i++) {
+          s[i] = stepSize * searchDirection[i];
+          iterate[i] += s[i];
+        }
         priorFunctionValue = functionValue;
-        functionValue = f.at(nextIterate);
-        relativeChangeDenominator = max(abs(priorFunctionValue), abs(nextIterate.norm()));
+        // The line search will usually have already computed the value and gradient at the accepted step.
+        if (lineFunction.hasGradientAt(stepSize)) {
+          functionValue = lineFunction.lastValue();
+          lineFunction.lastGradientInto(nextGradient);
+        } else {
+          functionValue = valueAndGradient(nextGradient);
+        }
+        relativeChangeDenominator = max(abs(priorFunctionValue), abs(norm(iterate)));
         //Hamming, Numerical Methods, 2nd edition, pg. 22
         relativeChange = Math.abs((priorFunctionValue - functionValue) / relativeChangeDenominator);
-        Vector nextGradient = f.gradientAt(nextIterate, functionValue);
-        y = nextGradient.minus(gradient);
-        rho = 1 / y.dotProduct(s);
-        H = updateHessian();
-        iterate = nextIterate;
+        for (int i = 0; i < n; i++) {
+          y[i] = nextGradient[i] - gradient[i];
+        }
+        // The update is only positive definite when the curvature condition y's > 0 holds. It can fail, or y's can
+        // underflow, where the function is flat, such as at a bound imposed by a transformation of the parameters,
+        // in which case the current approximation is kept (Nocedal and Wright, Numerical Optimization, 6.1).
+        final double ys = dot(y, s);
+        if (ys > 0 && !Double.isInfinite(1 / ys)) {
+          updateHessian(1 / ys);
+        }
+        final double[] previousGradient = gradient;
         gradient = nextGradient;
+        nextGradient = previousGradient;
         k += 1;
       }
     }
+    this.result = new OptimizationResult(reason, k, functionEvaluations(), gradientEvaluations(),
+                                         System.nanoTime() - startNanos, functionValue, norm(gradient));
   }
 
   private double updateStepSize(final double functionValue) {
-    final double slope0 = gradient.dotProduct(searchDirection);
-    final QuasiNewtonLineFunction lineFunction = new QuasiNewtonLineFunction(this.f, iterate, searchDirection);
+    final double slope0 = dot(gradient, searchDirection);
     StrongWolfeLineSearch lineSearch = StrongWolfeLineSearch.newBuilder(lineFunction, functionValue, slope0).c1(c1)
-            .c2(c2).alphaMax(1000).alpha0(1.0).build();
+            .c2(c2).alphaMax(1000).maxIterations(options.maxLineSearchIterations())
+            .alpha0(1.0).build();
     return lineSearch.search();
   }
 
-  private Matrix updateHessian() {
-    Matrix a = identity.minus(s.outerProduct(y).scaledBy(rho));
-    Matrix b = identity.minus(y.outerProduct(s).scaledBy(rho));
-    Matrix c = s.outerProduct(s).scaledBy(rho);
-    return a.times(H).times(b).plus(c);
+  // Compute the function value at the current iterate and store the gradient there in the given array.
+  private double valueAndGradient(final double[] gradientOut) {
+    evaluations++;
+    return QuasiNewton.valueAndGradient(f, iterate, gradientOut);
+  }
+
+  private int functionEvaluations() {
+    return evaluations + lineFunction.evaluations();
+  }
+
+  // Each evaluation made outside the line search computes the gradient as well.
+  private int gradientEvaluations() {
+    return evaluations + lineFunction.slopeEvaluations();
+  }
+
+  // The inverse Hessian update H' = (I - rho*s*y')H(I - rho*y*s') + rho*s*s', expanded with v = Hy into
+  // H' = H - rho*(v*s' + s*v') + (rho^2 * y'v + rho)*s*s' and applied as the two rank-one updates
+  // H += s*w' with w = (rho^2 * y'v + rho)*s - rho*v, then H += -rho*v*s'.
+  private void updateHessian(final double rho) {
+    H.timesInto(y, hy);
+    final double scale = rho * rho * dot(y, hy) + rho;
+    for (int i = 0; i < w.length; i++) {
+      w[i] = scale * s[i] - rho * hy[i];
+    }
+    H.rankOneUpdate(1.0, s, w);
+    H.rankOneUpdate(-rho, hy, s);
   }
 
   /**
@@ -119,7 +207,15 @@ public final class BFGS {
    * @return the final, optimized input parameters.
    */
   public final Vector parameters() {
-    return this.iterate;
+    return new Vector(this.iterate);
+  }
+
+  /**
+   * Return a summary of the optimization.
+   * @return a summary of the optimization.
+   */
+  public final OptimizationResult result() {
+    return this.result;
   }
 
   /**
@@ -127,7 +223,7 @@ public final class BFGS {
    * @return the final approximation to the inverse Hessian.
    */
   public final Matrix inverseHessian() {
-    return this.H;
+    return this.H.toMatrix();
   }
 
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package optim;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static optim.QuasiNewton.dot;
+import static optim.QuasiNewton.norm;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+
+/**
+ * An implementation of the limited-memory Broyden-Fletcher-Goldfarb-Shanno (L-BFGS) algorithm for unconstrained
+ * nonlinear optimization.
+ *
+ * <p>
+ * Rather than storing a dense approximation to the inverse Hessian, L-BFGS keeps the m most recent pairs of steps
+ * s = x<sub>k+1</sub> - x<sub>k</sub> and gradient changes y = g<sub>k+1</sub> - g<sub>k</sub>, and applies the
+ * implied inverse Hessian to the gradient with the two-loop recursion of Nocedal and Wright, <i>Numerical
+ * Optimization</i>, Algorithm 7.4. The initial approximation at each iteration is the identity scaled by
+ * s'y / y'y for the most recent pair. Memory and time per iteration are both O(mn), which makes the algorithm
+ * suitable for functions of hundreds of variables, where the O(n<sup>2</sup>) cost of {@link BFGS} dominates.
+ * </p>
+ * @author Jacob Rachiele
+ *
+ */
+public final class LBFGS {
+
+  /**
+   * The number of correction pairs kept when no history size is given.
+   */
+  public static final int DEFAULT_HISTORY_SIZE = 10;
+
+  private static final double c1 = 1E-4;
+  private static final double c2 = 0.9;
+
+  private final AbstractMultivariateFunction f;
+  private final OptimizerOptions options;
+  private final int historySize;
+  private final double[] iterate;
+  private double[] gradient;
+  private double[] nextGradient;
+  private final double[] searchDirection;
+  private final double[][] sHistory;
+  private final double[][] yHistory;
+  private final double[] rhoHistory;
+  private final double[] alphas;
+  private final QuasiNewtonLineFunction lineFunction;
+  private final OptimizationResult result;
+  private int pairs = 0;
+  private int newest = -1;
+  private double functionValue = 0.0;
+  private int evaluations = 0;
+
+  /**
+   * Create a new L-BFGS object with the given information, keeping the default number of correction pairs.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param gradientTolerance the tolerance for the norm of the gradient of the function.
+   * @param relativeErrorTolerance the tolerance for the change in function value.
+   */
+  public LBFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final double gradientTolerance,
+               final double relativeErrorTolerance) {
+    this(f, startingPoint, OptimizerOptions.withTolerances(gradientTolerance, relativeErrorTolerance));
+  }
+
+  /**
+   * Create a new L-BFGS object with the given information.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param gradientTolerance the tolerance for the norm of the gradient of the function.
+   * @param relativeErrorTolerance the tolerance for the change in function value.
+   * @param historySize the number of correction pairs used to approximate the inverse Hessian.
+   * @throws IllegalArgumentException if the history size is less than 1.
+   */
+  public LBFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final double gradientTolerance,
+               final double relativeErrorTolerance, final int historySize) {
+    this(f, startingPoint, OptimizerOptions.withTolerances(gradientTolerance, relativeErrorTolerance), historySize);
+  }
+
+  /**
+   * Create a new L-BFGS object with the given options, keeping the default number of correction pairs.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param options the tolerances and budgets that decide when the optimization stops.
+   */
+  public LBFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final OptimizerOptions options) {
+    this(f, startingPoint, options, DEFAULT_HISTORY_SIZE);
+  }
+
+  /**
+   * Create a new L-BFGS object with the given options.
+   * @param f the function to be minimized.
+   * @param startingPoint the initial guess of the minimum.
+   * @param options the tolerances and budgets that decide when the optimization stops.
+   * @param historySize the number of correction pairs used to approximate the inverse Hessian.
+   * @throws IllegalArgumentException if the history size is less than 1.
+   */
+  public LBFGS(final AbstractMultivariateFunction f, final Vector startingPoint, final OptimizerOptions options,
+               final int historySize) {
+    if (historySize < 1) {
+      throw new IllegalArgumentException("The history size must be at least 1, but was " + historySize + ".");
+    }
+    this.f = f;
+    this.options = options;
+    this.historySize = historySize;
+    final int n = startingPoint.size();
+    this.iterate = startingPoint.elements();
+    this.gradient = new double[n];
+    this.nextGradient = new double[n];
+    this.searchDirection = new double[n];
+    this.sHistory = new double[historySize][n];
+    this.yHistory = new double[historySize][n];
+    this.rhoHistory = new double[historySize];
+    this.alphas = new double[historySize];
+    this.lineFunction = new QuasiNewtonLineFunction(f, iterate, searchDirection);
+    final long startNanos = System.nanoTime();
+    int k = 0;
+    double priorFunctionValue;
+    double relativeChange = Double.MAX_VALUE;
+    double relativeChangeDenominator;
+    functionValue = valueAndGradient(gradient);
+    OptimizationResult.ConvergenceReason reason = OptimizationResult.ConvergenceReason.GRADIENT_TOLERANCE;
+    if (n > 0) {
+      while ((reason = options.check(k, functionEvaluations(), System.nanoTime() - startNanos, functionValue,
+                                     norm(gradient), relativeChange)) == null) {
+        computeSearchDirection();
+        lineFunction.reset();
+        // Without any curvature information the direction is the steepest descent direction, which has no natural
+        // scale, so the first trial step is given unit length.
+        final double alpha0 = (pairs == 0) ? Math.min(1.0, 1.0 / norm(searchDirection)) : 1.0;
+        final double stepSize = updateStepSize(functionValue, alpha0);
+        final int next = (newest + 1) % historySize;
+        final double[] s = sHistory[next];
+        final double[] y = yHistory[next];
+        for (int i = 0; i < n; i++) {
+          s[i] = stepSize * searchDirection[i];
+          iterate[i] += s[i];
+        }
+        priorFunctionValue = functionValue;
+        // The line search will usually have already computed the value and gradient at the accepted step.
+        if (lineFunction.hasGradientAt(stepSize)) {
+          functionValue = lineFunction.lastValue();
+          lineFunction.lastGradientInto(nextGradient);
+        } else {
+          functionValue = valueAndGradient(nextGradient);
+        }
+        relativeChangeDenominator = max(abs(priorFunctionValue), abs(norm(iterate)));
+        //Hamming, Numerical Methods, 2nd edition, pg. 22
+        relativeChange = Math.abs((priorFunctionValue - functionValue) / relativeChangeDenominator);
+        for (int i = 0; i < n; i++) {
+          y[i] = nextGradient[i] - gradient[i];
+        }
+        // A pair that fails the curvature condition would make the implied inverse Hessian indefinite, so it is
+        // discarded, as in BFGS.
+        final double ys = dot(y, s);
+        if (ys > 0 && !Double.isInfinite(1 / ys)) {
+          rhoHistory[next] = 1 / ys;
+          newest = next;
+          pairs = Math.min(pairs + 1, historySize);
+        } else if (pairs == historySize) {
+          // The rejected pair overwrote the oldest one.
+          pairs--;
+        }
+        final double[] previousGradient = gradient;
+        gradient = nextGradient;
+        nextGradient = previousGradient;
+        k += 1;
+      }
+    }
+    this.result = new OptimizationResult(reason, k, functionEvaluations(), gradientEvaluations(),
+                                         System.nanoTime() - startNanos, functionValue, norm(gradient));
+  }
+
+  // The two-loop recursion, which sets the search direction to -Hg without forming H.
+  private void computeSearchDirection() {
+    final double[] q = searchDirection;
+    System.arraycopy(gradient, 0, q, 0, q.length);
+    int index = newest;
+    for (int j = 0; j < pairs; j++) {
+      final double alpha = rhoHistory[index] * dot(sHistory[index], q);
+      alphas[index] = alpha;
+      axpy(-alpha, yHistory[index], q);
+      index = (index == 0) ? historySize - 1 : index - 1;
+    }
+    if (pairs > 0) {
+      final double[] y = yHistory[newest];
+      final double gamma = 1.0 / (rhoHistory[newest] * dot(y, y));
+      for (int i = 0; i < q.length; i++) {
+        q[i] *= gamma;
+      }
+    }
+    for (int j = 0; j < pairs; j++) {
+      index = (index + 1) % historySize;
+      final double beta = rhoHistory[index] * dot(yHistory[index], q);
+      axpy(alphas[index] - beta, sHistory[index], q);
+    }
+    for (int i = 0; i < q.length; i++) {
+      q[i] = -q[i];
+    }
+  }
+
+  private double updateStepSize(final double functionValue, final double alpha0) {
+    final double slope0 = dot(gradient, searchDirection);
+    StrongWolfeLineSearch lineSearch = StrongWolfeLineSearch.newBuilder(lineFunction, functionValue, slope0).c1(c1)
+            .c2(c2).alphaMax(1000).maxIterations(options.maxLineSearchIterations())
+            .alpha0(alpha0).build();
+    return lineSearch.search();
+  }
+
+  // Compute the function value at the current iterate and store the gradient there in the given array.
+  private double valueAndGradient(final double[] gradientOut) {
+    evaluations++;
+    return QuasiNewton.valueAndGradient(f, iterate, gradientOut);
+  }
+
+  private int functionEvaluations() {
+    return evaluations + lineFunction.evaluations();
+  }
+
+  // Each evaluation made outside the line search computes the gradient as well.
+  private int gradientEvaluations() {
+    return evaluations + lineFunction.slopeEvaluations();
+  }
+
+  // target += a * x
+  private static void axpy(final double a, final double[] x, final double[] target) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] += a * x[i];
+    }
+  }
+
+  /**
+   * Return the final value of the target function.
+   * @return the final value of the target function.
+   */
+  public final double functionValue() {
+    return this.functionValue;
+  }
+
+  /**
+   * Return the final, optimized input parameters.
+   * @return the final, optimized input parameters.
+   */
+  public final Vector parameters() {
+    return new Vector(this.iterate);
+  }
+
+  /**
+   * Return the number of correction pairs used to approximate the inverse Hessian.
+   * @return the number of correction pairs used to approximate the inverse Hessian.
+   */
+  public final int historySize() {
+    return this.historySize;
+  }
+
+  /**
+   * Return a summary of the optimization.
+   * @return a summary of the optimization.
+   */
+  public final OptimizationResult result() {
+    return this.result;
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package optim;
+
+/**
+ * A summary of a completed optimization: why it stopped, how much work it did, and where it ended. This class is
+ * immutable and thread-safe.
+ * @author Jacob Rachiele
+ *
+ */
+public final class OptimizationResult {
+
+  private final ConvergenceReason convergenceReason;
+  private final int iterations;
+  private final int functionEvaluations;
+  private final int gradientEvaluations;
+  private final long elapsedNanos;
+  private final double functionValue;
+  private final double gradientNorm;
+
+  OptimizationResult(final ConvergenceReason convergenceReason, final int iterations, final int functionEvaluations,
+                     final int gradientEvaluations, final long elapsedNanos, final double functionValue,
+                     final double gradientNorm) {
+    this.convergenceReason = convergenceReason;
+    this.iterations = iterations;
+    this.functionEvaluations = functionEvaluations;
+    this.gradientEvaluations = gradientEvaluations;
+    this.elapsedNanos = elapsedNanos;
+    this.functionValue = functionValue;
+    this.gradientNorm = gradientNorm;
+  }
+
+  /**
+   * The reason the optimization stopped.
+   * @return the reason the optimization stopped.
+   */
+  public ConvergenceReason convergenceReason() {
+    return this.convergenceReason;
+  }
+
+  /**
+   * Return true if the optimization stopped because a tolerance was met rather than because a budget was spent.
+   * @return true if the optimization stopped because a tolerance was met.
+   */
+  public boolean converged() {
+    return this.convergenceReason.isConverged();
+  }
+
+  /**
+   * The number of iterations performed.
+   * @return the number of iterations performed.
+   */
+  public int iterations() {
+    return this.iterations;
+  }
+
+  /**
+   * The number of times the optimizer evaluated the function. Evaluations that a function makes itself, such as to
+   * approximate its gradient by finite differences, are not included.
+   * @return the number of times the optimizer evaluated the function.
+   */
+  public int functionEvaluations() {
+    return this.functionEvaluations;
+  }
+
+  /**
+   * The number of times the gradient, or the slope along a search direction, was computed.
+   * @return the number of times the gradient was computed.
+   */
+  public int gradientEvaluations() {
+    return this.gradientEvaluations;
+  }
+
+  /**
+   * The wall-clock time spent optimizing, in nanoseconds.
+   * @return the wall-clock time spent optimizing, in nanoseconds.
+   */
+  public long elapsedNanos() {
+    return this.elapsedNanos;
+  }
+
+  /**
+   * The final value of the function.
+   * @return the final value of the function.
+   */
+  public double functionValue() {
+    return this.functionValue;
+  }
+
+  /**
+   * The norm of the gradient at the final point.
+   * @return the norm of the gradient at the final point.
+   */
+  public double gradientNorm() {
+    return this.gradientNorm;
+  }
+
+  @Override
+  public String toString() {
+    return "OptimizationResult{" +
+        "convergenceReason=" + convergenceReason +
+        ", iterations=" + iterations +
+        ", functionEvaluations=" + functionEvaluations +
+        ", gradientEvaluations=" + gradientEvaluations +
+        ", elapsedNanos=" + elapsedNanos +
+        ", functionValue=" + functionValue +
+        ", gradientNorm=" + gradientNorm +
+        '}';
+  }
+
+  /**
+   * The reasons an optimization can stop.
+   */
+  public enum ConvergenceReason {
+
+    /**
+     * The norm of the gradient fell to the gradient tolerance.
+     */
+    GRADIENT_TOLERANCE(true),
+
+    /**
+     * The relative change in function value fell to the relative error tolerance.
+     */
+    RELATIVE_ERROR_TOLERANCE(true),
+
+    /**
+     * The maximum number of iterations was reached.
+     */
+    MAX_ITERATIONS(false),
+
+    /**
+     * The maximum number of function evaluations was reached.
+     */
+    MAX_FUNCTION_EVALUATIONS(false),
+
+    /**
+     * The maximum time was reached.
+     */
+    MAX_TIME(false),
+
+    /**
+     * The function value or gradient was not finite, so no further progress could be made.
+     */
+    NOT_FINITE(false);
+
+    private final boolean converged;
+
+    ConvergenceReason(final boolean converged) {
+      this.converged = converged;
+    }
+
+    /**
+     * Return true if this reason means a tolerance was met.
+     * @return true if this reason means a tolerance was met.
+     */
+    public boolean isConverged() {
+      return this.converged;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+package optim;
+
+import java.time.Duration;
+
+/**
+ * Options that bound the work done by a quasi-Newton optimizer. An optimizer stops at the first of these conditions
+ * to be met: the norm of the gradient falls to the gradient tolerance, the relative change in function value falls to
+ * the relative error tolerance, or the iteration, function evaluation, or time budget is spent.
+ *
+ * <p>
+ * The evaluation and time budgets are soft limits, checked only at iteration boundaries. An iteration that starts
+ * within budget always runs to the end of its line search, which may take up to the maximum number of line search
+ * iterations, so an optimizer can exceed either budget by the cost of one full line search. Lowering the maximum
+ * number of line search iterations bounds the overrun. This class is immutable and thread-safe.
+ * </p>
+ * @author Jacob Rachiele
+ *
+ */
+public final class OptimizerOptions {
+
+  private static final OptimizerOptions DEFAULTS = newBuilder().build();
+
+  private final int maxIterations;
+  private final int maxFunctionEvaluations;
+  private final long maxNanos;
+  private final int maxLineSearchIterations;
+  private final double gradientTolerance;
+  private final double relativeErrorTolerance;
+
+  private OptimizerOptions(final Builder builder) {
+    this.maxIterations = builder.maxIterations;
+    this.maxFunctionEvaluations = builder.maxFunctionEvaluations;
+    this.maxNanos = builder.maxNanos;
+    this.maxLineSearchIterations = builder.maxLineSearchIterations;
+    this.gradientTolerance = builder.gradientTolerance;
+    this.relativeErrorTolerance = builder.relativeErrorTolerance;
+  }
+
+  /**
+   * Get a new builder for optimizer options, initialized with the default options.
+   * @return a new builder for optimizer options.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * The default options: at most 100 iterations, 40 iterations per line search, no limit on function evaluations or
+   * time, and gradient and relative error tolerances of 1E-8.
+   * @return the default options.
+   */
+  public static OptimizerOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * Create new options with the given tolerances and otherwise default values.
+   * @param gradientTolerance the tolerance for the norm of the gradient of the function.
+   * @param relativeErrorTolerance the tolerance for the relative change in function value.
+   * @return new options with the given tolerances.
+   */
+  static OptimizerOptions withTolerances(final double gradientTolerance, final double relativeErrorTolerance) {
+    return newBuilder().gradientTolerance(gradientTolerance).relativeErrorTolerance(relativeErrorTolerance).build();
+  }
+
+  /**
+   * The maximum number of iterations.
+   * @return the maximum number of iterations.
+   */
+  public int maxIterations() {
+    return this.maxIterations;
+  }
+
+  /**
+   * The maximum number of function evaluations.
+   * @return the maximum number of function evaluations.
+   */
+  public int maxFunctionEvaluations() {
+    return this.maxFunctionEvaluations;
+  }
+
+  /**
+   * The maximum time to spend optimizing, in nanoseconds.
+   * @return the maximum time to spend optimizing, in nanoseconds.
+   */
+  public long maxNanos() {
+    return this.maxNanos;
+  }
+
+  /**
+   * The maximum number of iterations in a single line search.
+   * @return the maximum number of iterations in a single line search.
+   */
+  public int maxLineSearchIterations() {
+    return this.maxLineSearchIterations;
+  }
+
+  /**
+   * The tolerance for the norm of the gradient of the function.
+   * @return the tolerance for the norm of the gradient of the function.
+   */
+  public double gradientTolerance() {
+    return this.gradientTolerance;
+  }
+
+  /**
+   * The tolerance for the relative change in function value between iterations.
+   * @return the tolerance for the relative change in function value between iterations.
+   */
+  public double relativeErrorTolerance() {
+    return this.relativeErrorTolerance;
+  }
+
+  // The reason to stop after the given progress, or null if the optimizer should continue. An infinite or NaN function
+  // value or gradient ends the optimization, since no further progress can be made from it.
+  OptimizationResult.ConvergenceReason check(final int iterations, final int functionEvaluations,
+                                             final long elapsedNanos, final double functionValue,
+                                             final double gradientNorm, final double relativeChange) {
+    if (!Double.isFinite(functionValue) || !Double.isFinite(gradientNorm)) {
+      return OptimizationResult.ConvergenceReason.NOT_FINITE;
+    }
+    if (gradientNorm <= gradientTolerance) {
+      return OptimizationResult.ConvergenceReason.GRADIENT_TOLERANCE;
+    }
+    if (!(relativeChange > relativeErrorTolerance)) {
+      return OptimizationResult.ConvergenceReason.RELATIVE_ERROR_TOLERANCE;
+    }
+    if (iterations >= maxIterations) {
+      return OptimizationResult.ConvergenceReason.MAX_ITERATIONS;
+    }
+    if (functionEvaluations >= maxFunctionEvaluations) {
+      return OptimizationResult.ConvergenceReason.MAX_FUNCTION_EVALUATIONS;
+    }
+    if (elapsedNanos >= maxNanos) {
+      return OptimizationResult.ConvergenceReason.MAX_TIME;
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "OptimizerOptions{" +
+        "maxIterations=" + maxIterations +
+        ", maxFunctionEvaluations=" + maxFunctionEvaluations +
+        ", maxNanos=" + maxNanos +
+        ", maxLineSearchIterations=" + maxLineSearchIterations +
+        ", gradientTolerance=" + gradientTolerance +
+        ", relativeErrorTolerance=" + relativeErrorTolerance +
+        '}';
+  }
+
+  /**
+   * A builder for optimizer options.
+   */
+  public static final class Builder {
+
+    private int maxIterations = 100;
+    private int maxFunctionEvaluations = Integer.MAX_VALUE;
+    private long maxNanos = Long.MAX_VALUE;
+    private int maxLineSearchIterations = 40;
+    private double gradientTolerance = 1E-8;
+    private double relativeErrorTolerance = 1E-8;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the maximum number of iterations.
+     * @param maxIterations the maximum number of iterations.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum is negative.
+     */
+    public Builder maxIterations(final int maxIterations) {
+      if (maxIterations < 0) {
+        throw new IllegalArgumentException("The maximum number of iterations cannot be negative.");
+      }
+      this.maxIterations = maxIterations;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of function evaluations. This is a soft limit, checked only between iterations, so the
+     * line search of the last iteration may take the count past it.
+     * @param maxFunctionEvaluations the maximum number of function evaluations.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum is less than 1.
+     */
+    public Builder maxFunctionEvaluations(final int maxFunctionEvaluations) {
+      if (maxFunctionEvaluations < 1) {
+        throw new IllegalArgumentException("The maximum number of function evaluations must be at least 1.");
+      }
+      this.maxFunctionEvaluations = maxFunctionEvaluations;
+      return this;
+    }
+
+    /**
+     * Set the maximum wall-clock time to spend optimizing. This is a soft limit, checked only between iterations, so
+     * the line search of the last iteration may run past it.
+     * @param maxTime the maximum wall-clock time to spend optimizing.
+     * @return this builder.
+     * @throws IllegalArgumentException if the time is negative.
+     */
+    public Builder maxTime(final Duration maxTime) {
+      if (maxTime.isNegative()) {
+        throw new IllegalArgumentException("The maximum time cannot be negative.");
+      }
+      long nanos;
+      try {
+        nanos = maxTime.toNanos();
+      } catch (ArithmeticException e) {
+        nanos = Long.MAX_VALUE;
+      }
+      this.maxNanos = nanos;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of iterations in a single line search.
+     * @param maxLineSearchIterations the maximum number of iterations in a single line search.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum is less than 2.
+     */
+    public Builder maxLineSearchIterations(final int maxLineSearchIterations) {
+      if (maxLineSearchIterations < 2) {
+        throw new IllegalArgumentException("The maximum number of line search iterations must be at least 2.");
+      }
+      this.maxLineSearchIterations = maxLineSearchIterations;
+      return this;
+    }
+
+    /**
+     * Set the tolerance for the norm of the gradient of the function.
+     * @param gradientTolerance the tolerance for the norm of the gradient of the function.
+     * @return this builder.
+     */
+    public Builder gradientTolerance(final double gradientTolerance) {
+      this.gradientTolerance = gradientTolerance;
+      return this;
+    }
+
+    /**
+     * Set the tolerance for the relative change in function value between iterations.
+     * @param relativeErrorTolerance the tolerance for the relative change in function value between iterations.
+     * @return this builder.
+     */
+    public Builder relativeErrorTolerance(final double relativeErrorTolerance) {
+      this.relativeErrorTolerance = relativeErrorTolerance;
+      return this;
+    }
+
+    /**
+     * Create new optimizer options from the values set in this builder.
+     * @return new optimizer options.
+     */
+    public OptimizerOptions build() {
+      return new OptimizerOptions(this);
+    }
+  }
+}
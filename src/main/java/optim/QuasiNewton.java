@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package optim;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
+
+/**
+ * Primitive array operations shared by the quasi-Newton optimizers.
+ * @author Jacob Rachiele
+ *
+ */
+final class QuasiNewton {
+
+  private QuasiNewton() {
+  }
+
+  /**
+   * Compute the value of the function at the given point and store the gradient there in the given array. A
+   * {@link DifferentiableMultivariateFunction} computes both in one pass without allocating.
+   * @param f the function to evaluate.
+   * @param point the point to evaluate the function at.
+   * @param gradientOut the array to store the gradient in.
+   * @return the value of the function at the given point.
+   */
+  static double valueAndGradient(final AbstractMultivariateFunction f, final double[] point,
+                                 final double[] gradientOut) {
+    if (f instanceof DifferentiableMultivariateFunction) {
+      return ((DifferentiableMultivariateFunction) f).valueAndGradientAt(point, gradientOut);
+    }
+    final Vector vector = new Vector(point);
+    final double value = f.at(vector);
+    final double[] g = f.gradientAt(vector, value).elements();
+    System.arraycopy(g, 0, gradientOut, 0, g.length);
+    return value;
+  }
+
+  /**
+   * The dot product of the given arrays.
+   * @param a the first array.
+   * @param b the second array, at least as long as the first.
+   * @return the dot product of the given arrays.
+   */
+  static double dot(final double[] a, final double[] b) {
+    double sum = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /**
+   * The Euclidean norm of the given array.
+   * @param a the array.
+   * @return the Euclidean norm of the given array.
+   */
+  static double norm(final double[] a) {
+    return Math.sqrt(dot(a, a));
+  }
+}
@@ -8,36 +8,147 @@ package optim;
 import linear.doubles.Vector;
 import math.function.AbstractFunction;
 import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
 
 /**
- * A function for the line search component of a quasi-Newton algorithm.
+ * A function for the line search component of a quasi-Newton algorithm. The function reads the current point and
+ * search direction from arrays owned by the optimizer, which updates them in place between line searches, so a single
+ * instance serves every iteration.
  * @author Jacob Rachiele
  *
  */
 final class QuasiNewtonLineFunction extends AbstractFunction {
   
   private final AbstractMultivariateFunction f;
-  private final Vector x;
-  private final Vector p;
+  private final double[] x;
+  private final double[] p;
+  private final DifferentiableMultivariateFunction differentiable;
+  private final boolean cheapGradient;
+  private final double[] point;
+  private final double[] gradient;
+  // The most recent step sizes at which the gradient, and the value alone, were computed.
+  private double lastAlpha = Double.NaN;
+  private double lastValueAlpha = Double.NaN;
+  private double lastValue;
+  private int evaluations = 0;
   
   /**
    * Construct a new line function for the quasi-Newton algorithm with the given function, 
-   * point vector, and search direction.
+   * point, and search direction. The arrays are not copied, and {@link #reset()} must be called whenever the
+   * optimizer changes them.
    * @param f the function being optimized.
    * @param point the current input point.
    * @param searchDirection the current search direction.
    */
-  QuasiNewtonLineFunction(final AbstractMultivariateFunction f, final Vector point,
-      final Vector searchDirection) {
+  QuasiNewtonLineFunction(final AbstractMultivariateFunction f, final double[] point,
+      final double[] searchDirection) {
     this.f = f;
     this.x = point;
     this.p = searchDirection;
+    this.point = new double[point.length];
+    if (f instanceof DifferentiableMultivariateFunction) {
+      this.differentiable = (DifferentiableMultivariateFunction) f;
+      this.cheapGradient = differentiable.isGradientCheap();
+      this.gradient = new double[point.length];
+    } else {
+      this.differentiable = null;
+      this.cheapGradient = false;
+      this.gradient = null;
+    }
+  }
+
+  /**
+   * Forget the most recent evaluation, since the point or the search direction has changed.
+   */
+  final void reset() {
+    this.lastAlpha = Double.NaN;
+    this.lastValueAlpha = Double.NaN;
   }
 
   @Override
   public final double at(final double alpha) {
     functionEvaluations++;
-    return f.at(x.plus(p.scaledBy(alpha))); 
+    if (cheapGradient) {
+      evaluate(alpha);
+      return lastValue;
+    }
+    if (differentiable != null) {
+      // The gradient is expensive, so it is left until the line search asks for the slope here.
+      if (alpha != lastValueAlpha) {
+        pointAt(alpha);
+        evaluations++;
+        lastValue = f.at(new Vector(point));
+        lastValueAlpha = alpha;
+      }
+      return lastValue;
+    }
+    pointAt(alpha);
+    evaluations++;
+    return f.at(new Vector(point));
+  }
+
+  @Override
+  public final double slopeAt(final double alpha) {
+    if (differentiable != null) {
+      slopeEvaluations++;
+      evaluate(alpha);
+      double slope = 0.0;
+      for (int i = 0; i < gradient.length; i++) {
+        slope += gradient[i] * p[i];
+      }
+      return slope;
+    }
+    return super.slopeAt(alpha);
+  }
+
+  /**
+   * Return true if the function value and gradient at the given step size have already been computed.
+   * @param alpha the step size.
+   * @return true if the function value and gradient at the given step size have already been computed.
+   */
+  final boolean hasGradientAt(final double alpha) {
+    return differentiable != null && alpha == lastAlpha;
+  }
+
+  /**
+   * Return the number of times the underlying function has been evaluated.
+   * @return the number of times the underlying function has been evaluated.
+   */
+  final int evaluations() {
+    return this.evaluations;
+  }
+
+  /**
+   * Return the function value at the most recently evaluated step size.
+   * @return the function value at the most recently evaluated step size.
+   */
+  final double lastValue() {
+    return this.lastValue;
+  }
+
+  /**
+   * Copy the gradient at the most recently evaluated step size into the given array.
+   * @param target the array to copy the gradient into.
+   */
+  final void lastGradientInto(final double[] target) {
+    System.arraycopy(gradient, 0, target, 0, gradient.length);
+  }
+
+  // Evaluate the value and the gradient together, reusing the last evaluation if the step size hasn't changed.
+  private void evaluate(final double alpha) {
+    if (alpha != lastAlpha) {
+      pointAt(alpha);
+      lastValue = differentiable.valueAndGradientAt(point, gradient);
+      evaluations++;
+      lastAlpha = alpha;
+      lastValueAlpha = alpha;
+    }
+  }
+
+  private void pointAt(final double alpha) {
+    for (int i = 0; i < point.length; i++) {
+      point[i] = x[i] + alpha * p[i];
+    }
   }
 
 }
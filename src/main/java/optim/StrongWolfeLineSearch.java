@@ -13,7 +13,6 @@ import static java.lang.Math.abs;
  */
 final class StrongWolfeLineSearch {
 
-  private static final int MAX_UPDATE_ITERATIONS = 40;
   private static final double DELTA_MAX = 4.0;
 
   private final AbstractFunction f;
@@ -23,6 +22,7 @@ final class StrongWolfeLineSearch {
   private final double slope0;
   private final double alphaMax;
   private final double alpha0;
+  private final int maxIterations;
   int m = 0;
   private double alphaT = 0.0;
 
@@ -39,6 +39,7 @@ final class StrongWolfeLineSearch {
     this.slope0 = builder.slope0;
     this.alphaMax = builder.alphaMax;
     this.alpha0 = builder.alpha0;
+    this.maxIterations = builder.maxIterations;
   }
 
   /**
@@ -64,12 +65,12 @@ final class StrongWolfeLineSearch {
     double newAlphaT = alpha0;
 
     int i = 1;
-    while (i < MAX_UPDATE_ITERATIONS) {
+    while (i < maxIterations) {
       m++;
       double fAlphaT = fNewAlphaT;
       double dAlphaT = dNewAlphaT;
       fNewAlphaT = f.at(newAlphaT);
-      while (abs(fNewAlphaT) == Double.POSITIVE_INFINITY && i < MAX_UPDATE_ITERATIONS) {
+      while (abs(fNewAlphaT) == Double.POSITIVE_INFINITY && i < maxIterations) {
         newAlphaT /= 2;
         fAlphaT = fNewAlphaT;
         dAlphaT = dNewAlphaT;
@@ -108,7 +109,7 @@ final class StrongWolfeLineSearch {
 
     int k = 1;
     double gradientTolerance = 1E-8;
-    while (k < MAX_UPDATE_ITERATIONS && abs(dAlphaJ) > gradientTolerance) {
+    while (k < maxIterations && abs(dAlphaJ) > gradientTolerance) {
       m++;
       // mid = 0.80*alphaLo + 0.2*alphaHi;
       // fMid = f.at(mid);
@@ -185,6 +186,7 @@ final class StrongWolfeLineSearch {
     private double c2 = 0.5;
     private double alphaMax = 1000.0;
     private double alpha0 = 1.0;
+    private int maxIterations = 40;
 
     Builder(AbstractFunction f, double f0, double slope0) {
       this.f = f;
@@ -212,6 +214,11 @@ final class StrongWolfeLineSearch {
       return this;
     }
 
+    final Builder maxIterations(int maxIterations) {
+      this.maxIterations = maxIterations;
+      return this;
+    }
+
     public final StrongWolfeLineSearch build() {
       return new StrongWolfeLineSearch(this);
     }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A read-only view of a time series stored in a memory-mapped {@link TimeSeriesFile}. Observations are read directly
+ * from the mapped file, so a series far larger than the heap can be scanned without loading it. The view can be
+ * converted to a {@link TimeSeries} with {@link #toTimeSeries()}, which copies the observations into the heap once.
+ *
+ * @author Jacob Rachiele
+ */
+public final class MappedTimeSeries {
+
+  private final TimePeriod timePeriod;
+  private final OffsetDateTime startTime;
+  private final DoubleBuffer values;
+  private final LongBuffer epochSeconds;
+  private final IntBuffer nanos;
+  // The zone offset of each observation time, in seconds, or null if every time has the start time's offset.
+  private final IntBuffer zoneOffsets;
+  private final int n;
+
+  MappedTimeSeries(final TimePeriod timePeriod, final OffsetDateTime startTime, final DoubleBuffer values,
+                   final LongBuffer epochSeconds, final IntBuffer nanos, final IntBuffer zoneOffsets) {
+    this.timePeriod = timePeriod;
+    this.startTime = startTime;
+    this.values = values;
+    this.epochSeconds = epochSeconds;
+    this.nanos = nanos;
+    this.zoneOffsets = zoneOffsets;
+    this.n = values.remaining();
+  }
+
+  /**
+   * The number of observations in the series.
+   *
+   * @return the number of observations in the series.
+   */
+  public int n() {
+    return this.n;
+  }
+
+  /**
+   * The time period between observations.
+   *
+   * @return the time period between observations.
+   */
+  public TimePeriod timePeriod() {
+    return this.timePeriod;
+  }
+
+  /**
+   * The time of the first observation.
+   *
+   * @return the time of the first observation.
+   */
+  public OffsetDateTime startTime() {
+    return this.startTime;
+  }
+
+  /**
+   * Return true if the observation times follow from the start time and the time period, rather than being stored in
+   * a time column.
+   *
+   * @return true if the observation times follow from the start time and the time period.
+   */
+  public boolean isRegular() {
+    return this.epochSeconds == null;
+  }
+
+  /**
+   * The observation at the given index.
+   *
+   * @param index the index of the observation.
+   * @return the observation at the given index.
+   * @throws IndexOutOfBoundsException if the index is negative or not less than the number of observations.
+   */
+  public double at(final int index) {
+    return values.get(index);
+  }
+
+  /**
+   * The time of the observation at the given index.
+   *
+   * @param index the index of the observation.
+   * @return the time of the observation at the given index.
+   * @throws IndexOutOfBoundsException if the index is negative or not less than the number of observations.
+   * @throws IllegalArgumentException if the time column holds an invalid time at the given index.
+   */
+  public OffsetDateTime observationTime(final int index) {
+    if (index < 0 || index >= n) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + n);
+    }
+    if (epochSeconds == null) {
+      final long step = index * timePeriod.periodLength() * timePeriod.timeUnit().unitLength();
+      return startTime.plus(step, timePeriod.timeUnit().temporalUnit());
+    }
+    final int offset = (zoneOffsets == null) ? startTime.getOffset().getTotalSeconds() : zoneOffsets.get(index);
+    return dateTime(epochSeconds.get(index), nanos.get(index), offset);
+  }
+
+  /**
+   * A read-only buffer over the observations in the mapped file. The buffer is independent of this view, so its
+   * position and limit may be changed freely.
+   *
+   * @return a read-only buffer over the observations in the mapped file.
+   */
+  public DoubleBuffer values() {
+    return values.duplicate();
+  }
+
+  /**
+   * Copy the observations, and the time and zone offset columns if there are any, into the heap as a new time series.
+   *
+   * @return a new time series with the observations and times of this view.
+   * @throws IllegalArgumentException if the time column holds an invalid time.
+   */
+  public TimeSeries toTimeSeries() {
+    final double[] series = new double[n];
+    values.duplicate().get(series);
+    final TimeIndex timeIndex;
+    if (epochSeconds == null) {
+      timeIndex = TimeIndex.regular(startTime, timePeriod, n);
+    } else {
+      final long[] seconds = new long[n];
+      final int[] nanosOfSecond = new int[n];
+      epochSeconds.duplicate().get(seconds);
+      nanos.duplicate().get(nanosOfSecond);
+      final ZoneOffset[] offsets = (zoneOffsets == null) ? null : new ZoneOffset[n];
+      for (int i = 0; i < n; i++) {
+        final OffsetDateTime dateTime = observationTime(i);
+        if (offsets != null) {
+          offsets[i] = dateTime.getOffset();
+        }
+      }
+      timeIndex = TimeIndex.irregular(startTime, seconds, nanosOfSecond, offsets);
+    }
+    return new TimeSeries(timePeriod, timeIndex, series);
+  }
+
+  // The date-time at the given epoch second, nanosecond and zone offset in seconds, which are read from a file and so
+  // may be out of range.
+  static OffsetDateTime dateTime(final long epochSecond, final int nano, final int zoneOffset) {
+    if (nano < 0 || nano > 999_999_999) {
+      throw new IllegalArgumentException("The nanosecond " + nano + " in the time series file is out of range.");
+    }
+    try {
+      return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneOffset.ofTotalSeconds(zoneOffset));
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("The time series file holds an invalid time at " + epochSecond +
+                                         " seconds since the epoch with zone offset " + zoneOffset + " seconds.", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MappedTimeSeries(n=" + n + ", timePeriod=" + timePeriod + ", startTime=" + startTime + ")";
+  }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ */
+
+package timeseries;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalUnit;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact index of the times at which the observations of a series were made. A regular index stores only the
+ * time of the first observation and the fixed step between observations, and computes every other time, or the
+ * position of a given time, with O(1) date-time arithmetic. An irregular index stores the observation times as
+ * primitive epoch seconds and nanosecond adjustments, so that any two representable times may appear in the same
+ * index, and finds the position of a given time by binary search.
+ *
+ * <p>
+ * In both cases {@link OffsetDateTime} objects are only created when they are asked for. This class is immutable
+ * and thread-safe.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+abstract class TimeIndex {
+
+  private final int size;
+  private final List<OffsetDateTime> view;
+
+  private TimeIndex(final int size) {
+    this.size = size;
+    this.view = new View(this, 0, size);
+  }
+
+  /**
+   * Create a new regular index of the given size, with observations made at the given time period starting at the
+   * given time.
+   *
+   * @param startTime the time of the first observation.
+   * @param timePeriod the time period between observations.
+   * @param size the number of observations.
+   * @return a new regular index of the given size.
+   */
+  static TimeIndex regular(final OffsetDateTime startTime, final TimePeriod timePeriod, final int size) {
+    return new Regular(startTime, timePeriod.timeUnit().temporalUnit(),
+                       timePeriod.periodLength() * timePeriod.timeUnit().unitLength(), 0, size);
+  }
+
+  /**
+   * Create an index of the given observation times. If the list is a view of another index, the index is shared
+   * rather than copied.
+   *
+   * @param observationTimes the times at which the observations were made.
+   * @return an index of the given observation times.
+   */
+  static TimeIndex of(final List<OffsetDateTime> observationTimes) {
+    if (observationTimes instanceof View) {
+      final View view = (View) observationTimes;
+      return (view.from == 0 && view.to == view.index.size()) ? view.index : view.index.slice(view.from, view.to);
+    }
+    return new Irregular(observationTimes);
+  }
+
+  /**
+   * Create an index of observation times given as seconds from the epoch of 1970-01-01T00:00:00Z and nanosecond
+   * adjustments to those seconds. Every time has the zone offset of the given start time.
+   *
+   * @param startTime the first observation time, which supplies the zone offset of every time.
+   * @param epochSeconds the seconds from the epoch of each observation time, which are not copied.
+   * @param nanos the nanosecond of the second of each observation time, from 0 to 999,999,999, which are not copied.
+   * @return an index of the given observation times.
+   */
+  static TimeIndex irregular(final OffsetDateTime startTime, final long[] epochSeconds, final int[] nanos) {
+    return new Irregular(startTime, epochSeconds, nanos, null);
+  }
+
+  /**
+   * Create an index of observation times given as seconds from the epoch of 1970-01-01T00:00:00Z and nanosecond
+   * adjustments to those seconds, each time having the zone offset at the same position in the given array.
+   *
+   * @param startTime the first observation time, which supplies the zone offset of every time if none are given.
+   * @param epochSeconds the seconds from the epoch of each observation time, which are not copied.
+   * @param nanos the nanosecond of the second of each observation time, from 0 to 999,999,999, which are not copied.
+   * @param zoneOffsets the zone offset of each observation time, which are not copied, or null if every time has the
+   *                    zone offset of the start time.
+   * @return an index of the given observation times.
+   */
+  static TimeIndex irregular(final OffsetDateTime startTime, final long[] epochSeconds, final int[] nanos,
+                             final ZoneOffset[] zoneOffsets) {
+    return new Irregular(startTime, epochSeconds, nanos, zoneOffsets);
+  }
+
+  /**
+   * Return true if this index computes its times from a start time and a fixed step.
+   *
+   * @return true if this index computes its times from a start time and a fixed step.
+   */
+  final boolean isRegular() {
+    return this instanceof Regular;
+  }
+
+  /**
+   * The number of observation times in this index.
+   *
+   * @return the number of observation times in this index.
+   */
+  final int size() {
+    return this.size;
+  }
+
+  /**
+   * The observation times as an unmodifiable list whose elements are created on demand.
+   *
+   * @return the observation times as an unmodifiable list.
+   */
+  final List<OffsetDateTime> asList() {
+    return this.view;
+  }
+
+  /**
+   * The time of the first observation.
+   *
+   * @return the time of the first observation.
+   */
+  abstract OffsetDateTime startTime();
+
+  /**
+   * The time of the observation at the given position.
+   *
+   * @param index the position of the observation.
+   * @return the time of the observation at the given position.
+   */
+  abstract OffsetDateTime timeAt(int index);
+
+  /**
+   * The position of the observation made at the given time, or -1 if no observation was made at that time.
+   *
+   * @param dateTime the time to find the position of.
+   * @return the position of the observation made at the given time, or -1 if there is none.
+   */
+  abstract int indexOf(OffsetDateTime dateTime);
+
+  /**
+   * The index of the observations from position from, inclusive, to position to, exclusive.
+   *
+   * @param from the position of the first observation, inclusive.
+   * @param to the position of the last observation, exclusive.
+   * @return the index of the observations between the given positions.
+   */
+  abstract TimeIndex slice(int from, int to);
+
+  /**
+   * The index of every stride-th observation, starting with the first, limited to the given number of observations.
+   *
+   * @param stride the number of positions between the observations kept.
+   * @param count the number of observations to keep.
+   * @return the index of every stride-th observation.
+   */
+  abstract TimeIndex stride(int stride, int count);
+
+  @Override
+  public final boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof TimeIndex)) {
+      return false;
+    }
+    final TimeIndex other = (TimeIndex) obj;
+    if (this.size != other.size) {
+      return false;
+    }
+    if (this instanceof Regular && other instanceof Regular) {
+      final Regular thisRegular = (Regular) this;
+      final Regular otherRegular = (Regular) other;
+      if (thisRegular.temporalUnit.equals(otherRegular.temporalUnit) && thisRegular.step == otherRegular.step &&
+          thisRegular.offset == otherRegular.offset && thisRegular.start.equals(otherRegular.start)) {
+        return true;
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      if (!timeAt(i).equals(other.timeAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public final int hashCode() {
+    return 31 * size + ((size == 0) ? 0 : startTime().hashCode());
+  }
+
+  // Observation times a fixed number of temporal units apart, the time at position i being
+  // start + (offset + i) * step units. Regular indexes created by slicing or striding keep the original start time, so
+  // that every time is computed from the same origin.
+  private static final class Regular extends TimeIndex {
+
+    private final OffsetDateTime start;
+    private final TemporalUnit temporalUnit;
+    private final long step;
+    private final long offset;
+
+    private Regular(final OffsetDateTime start, final TemporalUnit temporalUnit, final long step, final long offset,
+                    final int size) {
+      super(size);
+      this.start = start;
+      this.temporalUnit = temporalUnit;
+      this.step = step;
+      this.offset = offset;
+    }
+
+    @Override
+    OffsetDateTime startTime() {
+      return (offset == 0) ? start : timeAt(0);
+    }
+
+    @Override
+    OffsetDateTime timeAt(final int index) {
+      return start.plus((offset + index) * step, temporalUnit);
+    }
+
+    @Override
+    int indexOf(final OffsetDateTime dateTime) {
+      // Adding months or years can clip the day of the month, so the number of whole units between the start and the
+      // given time may be one step short.
+      final long steps;
+      try {
+        steps = start.until(dateTime, temporalUnit) / step - offset;
+      } catch (ArithmeticException e) {
+        return -1;
+      }
+      for (long candidate = steps; candidate <= steps + 1; candidate++) {
+        if (candidate >= 0 && candidate < size() && timeAt((int) candidate).equals(dateTime)) {
+          return (int) candidate;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    TimeIndex slice(final int from, final int to) {
+      return new Regular(start, temporalUnit, step, offset + from, to - from);
+    }
+
+    @Override
+    TimeIndex stride(final int stride, final int count) {
+      if (offset == 0) {
+        return new Regular(start, temporalUnit, step * stride, 0, count);
+      }
+      return new Regular(timeAt(0), temporalUnit, step * stride, 0, count);
+    }
+  }
+
+  // Observation times stored as epoch seconds and nanosecond adjustments, which cannot overflow for any pair of
+  // representable times, along with their zone offsets, which are kept once if they are all the same.
+  private static final class Irregular extends TimeIndex {
+
+    private final OffsetDateTime start;
+    private final long[] epochSeconds;
+    private final int[] nanos;
+    private final ZoneOffset zoneOffset;
+    private final ZoneOffset[] zoneOffsets;
+    private final boolean sorted;
+
+    private Irregular(final List<OffsetDateTime> observationTimes) {
+      super(observationTimes.size());
+      final int n = observationTimes.size();
+      this.start = (n == 0) ? null : observationTimes.get(0);
+      this.epochSeconds = new long[n];
+      this.nanos = new int[n];
+      final ZoneOffset firstOffset = (n == 0) ? null : start.getOffset();
+      ZoneOffset[] offsets = null;
+      int i = 0;
+      for (OffsetDateTime dateTime : observationTimes) {
+        epochSeconds[i] = dateTime.toEpochSecond();
+        nanos[i] = dateTime.getNano();
+        if (offsets == null && !dateTime.getOffset().equals(firstOffset)) {
+          offsets = new ZoneOffset[n];
+          Arrays.fill(offsets, 0, i, firstOffset);
+        }
+        if (offsets != null) {
+          offsets[i] = dateTime.getOffset();
+        }
+        i++;
+      }
+      this.zoneOffset = firstOffset;
+      this.zoneOffsets = offsets;
+      this.sorted = isSorted(epochSeconds, nanos);
+    }
+
+    private Irregular(final OffsetDateTime start, final long[] epochSeconds, final int[] nanos,
+                      final ZoneOffset[] zoneOffsets) {
+      super(epochSeconds.length);
+      if (nanos.length != epochSeconds.length) {
+        throw new IllegalArgumentException("There must be as many nanosecond adjustments as epoch seconds, but there " +
+                                           "were " + nanos.length + " and " + epochSeconds.length + ".");
+      }
+      this.start = start;
+      this.epochSeconds = epochSeconds;
+      this.nanos = nanos;
+      this.zoneOffset = start.getOffset();
+      this.zoneOffsets = zoneOffsets;
+      this.sorted = isSorted(epochSeconds, nanos);
+    }
+
+    private Irregular(final Irregular other, final int from, final int to, final int stride) {
+      super((to - from + stride - 1) / stride);
+      final int n = size();
+      this.epochSeconds = new long[n];
+      this.nanos = new int[n];
+      this.zoneOffsets = (other.zoneOffsets == null) ? null : new ZoneOffset[n];
+      for (int i = 0; i < n; i++) {
+        this.epochSeconds[i] = other.epochSeconds[from + i * stride];
+        this.nanos[i] = other.nanos[from + i * stride];
+        if (zoneOffsets != null) {
+          this.zoneOffsets[i] = other.zoneOffsets[from + i * stride];
+        }
+      }
+      this.start = other.start;
+      this.zoneOffset = other.zoneOffset;
+      this.sorted = other.sorted;
+    }
+
+    @Override
+    OffsetDateTime startTime() {
+      return (size() == 0) ? start : timeAt(0);
+    }
+
+    @Override
+    OffsetDateTime timeAt(final int index) {
+      return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds[index], nanos[index]), offsetAt(index));
+    }
+
+    @Override
+    int indexOf(final OffsetDateTime dateTime) {
+      final long seconds = dateTime.toEpochSecond();
+      final int nano = dateTime.getNano();
+      if (sorted) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+          final int mid = (low + high) >>> 1;
+          final int comparison = compare(epochSeconds[mid], nanos[mid], seconds, nano);
+          if (comparison < 0) {
+            low = mid + 1;
+          } else if (comparison > 0) {
+            high = mid - 1;
+          } else {
+            return offsetAt(mid).equals(dateTime.getOffset()) ? mid : -1;
+          }
+        }
+        return -1;
+      }
+      for (int i = 0; i < epochSeconds.length; i++) {
+        if (epochSeconds[i] == seconds && nanos[i] == nano && offsetAt(i).equals(dateTime.getOffset())) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    TimeIndex slice(final int from, final int to) {
+      return new Irregular(this, from, to, 1);
+    }
+
+    @Override
+    TimeIndex stride(final int stride, final int count) {
+      return new Irregular(this, 0, Math.min(size(), count * stride), stride);
+    }
+
+    private ZoneOffset offsetAt(final int index) {
+      return (zoneOffsets == null) ? zoneOffset : zoneOffsets[index];
+    }
+
+    private static boolean isSorted(final long[] epochSeconds, final int[] nanos) {
+      for (int i = 1; i < epochSeconds.length; i++) {
+        if (compare(epochSeconds[i], nanos[i], epochSeconds[i - 1], nanos[i - 1]) <= 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int compare(final long seconds, final int nano, final long otherSeconds, final int otherNano) {
+      final int comparison = Long.compare(seconds, otherSeconds);
+      return (comparison != 0) ? comparison : Integer.compare(nano, otherNano);
+    }
+  }
+
+  // An unmodifiable list of the times in part of an index, creating each time when it is retrieved.
+  private static final class View extends AbstractList<OffsetDateTime> implements RandomAccess {
+
+    private final TimeIndex index;
+    private final int from;
+    private final int to;
+
+    private View(final TimeIndex index, final int from, final int to) {
+      this.index = index;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public OffsetDateTime get(final int i) {
+      if (i < 0 || i >= to - from) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + (to - from));
+      }
+      return index.timeAt(from + i);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+      if (!(o instanceof OffsetDateTime)) {
+        return -1;
+      }
+      final int i = index.indexOf((OffsetDateTime) o);
+      return (i >= from && i < to) ? i - from : -1;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    @Override
+    public List<OffsetDateTime> subList(final int fromIndex, final int toIndex) {
+      if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+        throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+      }
+      return new View(index, from + fromIndex, from + toIndex);
+    }
+  }
+}
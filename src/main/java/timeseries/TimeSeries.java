@@ -7,6 +7,7 @@ package timeseries;
 import java.awt.Color;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -34,6 +35,8 @@ import org.knowm.xchart.style.markers.SeriesMarkers;
 
 import data.DataSet;
 import data.DoubleFunctions;
+import math.FastFourierTransform;
+import timeseries.rolling.RollingStatistics;
 
 /**
  * An immutable sequence of observations taken at regular time intervals.
@@ -43,12 +46,21 @@ import data.DoubleFunctions;
  */
 public final class TimeSeries extends DataSet {
 
+  // The relative cost of one butterfly of the fast Fourier transform compared to one multiply-add of the direct
+  // autocovariance computation, used to choose between the two.
+  private static final double FFT_COST_FACTOR = 12.0;
+
   private final TimePeriod timePeriod;
   private final int n;
-  private final double mean;
+  // The observations are series[offset] through series[offset + n - 1]. The buffer is shared with slices of this
+  // series and with the data set this series extends, and is never modified.
   private final double[] series;
-  private final List<OffsetDateTime> observationTimes;
-  private final Map<OffsetDateTime, Integer> dateTimeIndex;
+  private final int offset;
+  private final TimeIndex timeIndex;
+  private volatile Map<OffsetDateTime, Integer> dateTimeIndex;
+  // The autocovariances and partial autocorrelations up to the largest lag requested so far.
+  private volatile double[] autoCovariances;
+  private volatile double[] partialAutoCorrelations;
 
   /**
    * Construct a new TimeSeries from the given data without regard to when the observations were made. Use this
@@ -81,31 +93,8 @@ public final class TimeSeries extends DataSet {
    * @param series the observation data.
    */
   public TimeSeries(final TimePeriod timePeriod, final String startTime, final double... series) {
-    super(series);
-    this.series = series.clone();
-    this.n = series.length;
-    this.mean = super.mean();
-    this.timePeriod = timePeriod;
-    Map<OffsetDateTime, Integer> dateTimeIndex = new HashMap<>(series.length);
-    List<OffsetDateTime> dateTimes = new ArrayList<>(series.length);
-    OffsetDateTime dateTime;
-    try {
-      dateTime = OffsetDateTime.parse(startTime);
-      dateTimes.add(dateTime);
-      dateTimeIndex.put(dateTime, 0);
-    } catch (DateTimeParseException e) {
-      dateTime = OffsetDateTime.of(LocalDateTime.parse(startTime), ZoneOffset.ofHours(0));
-      dateTimes.add(dateTime);
-      dateTimeIndex.put(dateTime, 0);
-    }
-
-    for (int i = 1; i < series.length; i++) {
-      dateTime = dateTimes.get(i - 1).plus(totalPeriodLength(timePeriod), timePeriod.timeUnit().temporalUnit());
-      dateTimes.add(dateTime);
-      dateTimeIndex.put(dateTime, i);
-    }
-    this.observationTimes = Collections.unmodifiableList(dateTimes);
-    this.dateTimeIndex = Collections.unmodifiableMap(dateTimeIndex);
+    this(timePeriod, TimeIndex.regular(parseDateTime(startTime), timePeriod, series.length), series.clone(), 0,
+         series.length);
   }
 
   /**
@@ -116,24 +105,7 @@ public final class TimeSeries extends DataSet {
    * @param series the observation data.
    */
   public TimeSeries(final TimePeriod timePeriod, final OffsetDateTime startTime, final double... series) {
-    super(series);
-    this.series = series.clone();
-    this.n = series.length;
-    this.mean = super.mean();
-    this.timePeriod = timePeriod;
-    List<OffsetDateTime> dateTimes = new ArrayList<>(series.length);
-    Map<OffsetDateTime, Integer> dateTimeIndex = new HashMap<>(series.length);
-    dateTimes.add(startTime);
-    dateTimeIndex.put(startTime, 0);
-    OffsetDateTime dateTime;
-    for (int i = 1; i < series.length; i++) {
-      dateTime = dateTimes.get(i - 1).plus(timePeriod.periodLength() * timePeriod.timeUnit().unitLength(),
-          timePeriod.timeUnit().temporalUnit());
-      dateTimes.add(dateTime);
-      dateTimeIndex.put(dateTime, i);
-    }
-    this.observationTimes = Collections.unmodifiableList(dateTimes);
-    this.dateTimeIndex = Collections.unmodifiableMap(dateTimeIndex);
+    this(timePeriod, TimeIndex.regular(startTime, timePeriod, series.length), series.clone(), 0, series.length);
   }
 
   /**
@@ -167,18 +139,62 @@ public final class TimeSeries extends DataSet {
    * @param series the observation data.
    */
   public TimeSeries(final TimePeriod timePeriod, final List<OffsetDateTime> observationTimes, final double... series) {
-    super(series);
-    this.series = series.clone();
-    this.n = series.length;
-    this.mean = super.mean();
+    this(timePeriod, TimeIndex.of(observationTimes), series.clone(), 0, series.length);
+  }
+
+  /**
+   * Create a new time series whose observations were made at the given times, in milliseconds since the epoch, each
+   * in the given zone offset. The times are held as primitive offsets from the first, so no date-time is created until
+   * one is asked for.
+   *
+   * @param timePeriod the time period at which observations are made.
+   * @param epochMillis the observation times, in milliseconds since the epoch.
+   * @param zoneOffset the zone offset of the observation times.
+   * @param series the observation data.
+   * @return a new time series whose observations were made at the given times.
+   * @throws IllegalArgumentException if the number of times differs from the number of observations.
+   */
+  public static TimeSeries fromEpochMillis(final TimePeriod timePeriod, final long[] epochMillis,
+                                           final ZoneOffset zoneOffset, final double... series) {
+    if (epochMillis.length != series.length) {
+      throw new IllegalArgumentException("There are " + epochMillis.length + " observation times but " +
+                                         series.length + " observations.");
+    }
+    if (series.length == 0) {
+      return new TimeSeries(timePeriod, Collections.emptyList(), series);
+    }
+    final long[] epochSeconds = new long[epochMillis.length];
+    final int[] nanos = new int[epochMillis.length];
+    for (int i = 0; i < epochSeconds.length; i++) {
+      epochSeconds[i] = Math.floorDiv(epochMillis[i], 1000L);
+      nanos[i] = (int) Math.floorMod(epochMillis[i], 1000L) * 1_000_000;
+    }
+    final OffsetDateTime startTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis[0]), zoneOffset);
+    return new TimeSeries(timePeriod, TimeIndex.irregular(startTime, epochSeconds, nanos), series.clone());
+  }
+
+  // Construct a new TimeSeries viewing the given range of the given buffer, which must never be modified.
+  private TimeSeries(final TimePeriod timePeriod, final TimeIndex timeIndex, final double[] series, final int offset,
+                     final int n) {
+    super(series, offset, n);
+    this.series = series;
+    this.offset = offset;
+    this.n = n;
     this.timePeriod = timePeriod;
-    this.observationTimes = Collections.unmodifiableList(observationTimes);
-    Map<OffsetDateTime, Integer> dateTimeIndex = new HashMap<>(series.length);
-    int i = 0;
-    for (OffsetDateTime dt : observationTimes) {
-      dateTimeIndex.put(dt, i++);
+    this.timeIndex = timeIndex;
+  }
+
+  // Construct a new TimeSeries from a newly computed array of observations.
+  TimeSeries(final TimePeriod timePeriod, final TimeIndex timeIndex, final double[] series) {
+    this(timePeriod, timeIndex, series, 0, series.length);
+  }
+
+  private static OffsetDateTime parseDateTime(final String dateTime) {
+    try {
+      return OffsetDateTime.parse(dateTime);
+    } catch (DateTimeParseException e) {
+      return OffsetDateTime.of(LocalDateTime.parse(dateTime), ZoneOffset.ofHours(0));
     }
-    this.dateTimeIndex = Collections.unmodifiableMap(dateTimeIndex);
   }
 
   /**
@@ -213,18 +229,16 @@ public final class TimeSeries extends DataSet {
           "The given time period was of a smaller magnitude than the original time period."
               + " To aggregate a series, the time period argument must be of a larger magnitude than the original.");
     }
-    final List<OffsetDateTime> obsTimes = new ArrayList<>();
-    double[] aggregated = new double[series.length / period];
+    double[] aggregated = new double[n / period];
     double sum;
     for (int i = 0; i < aggregated.length; i++) {
       sum = 0.0;
       for (int j = 0; j < period; j++) {
-        sum += series[j + period * i];
+        sum += series[offset + j + period * i];
       }
       aggregated[i] = sum;
-      obsTimes.add(this.observationTimes.get(i * period));
     }
-    return new TimeSeries(timePeriod, obsTimes, aggregated);
+    return new TimeSeries(timePeriod, timeIndex.stride(period, aggregated.length), aggregated);
   }
 
   /**
@@ -234,7 +248,7 @@ public final class TimeSeries extends DataSet {
    * @return the value of the time series at the given index.
    */
   public final double at(final int index) {
-    return this.series[index];
+    return this.series[offset + index];
   }
 
   /**
@@ -244,7 +258,23 @@ public final class TimeSeries extends DataSet {
    * @return the value of the time series at the given date and time.
    */
   public final double at(final OffsetDateTime dateTime) {
-    return this.series[dateTimeIndex.get(dateTime)];
+    return this.series[offset + indexOf(dateTime)];
+  }
+
+  /**
+   * The index of the observation made at the given date and time. For a series observed at regular intervals the index
+   * is computed directly from the date and time, and otherwise found by binary search.
+   *
+   * @param dateTime the date and time of the observation.
+   * @return the index of the observation made at the given date and time.
+   * @throws IllegalArgumentException if no observation was made at the given date and time.
+   */
+  public final int indexOf(final OffsetDateTime dateTime) {
+    final int index = timeIndex.indexOf(dateTime);
+    if (index < 0) {
+      throw new IllegalArgumentException("No observation was made at " + dateTime + ".");
+    }
+    return index;
   }
 
   /**
@@ -265,9 +295,10 @@ public final class TimeSeries extends DataSet {
    * @return every correlation coefficient of this series with itself up to the given lag.
    */
   public final double[] autoCorrelationUpToLag(final int k) {
-    final double[] autoCorrelation = new double[Math.min(k + 1, n)];
-    for (int i = 0; i < Math.min(k + 1, n); i++) {
-      autoCorrelation[i] = autoCorrelationAtLag(i);
+    final double[] autoCorrelation = autoCovarianceUpToLag(k);
+    final double variance = autoCorrelation[0];
+    for (int i = 0; i < autoCorrelation.length; i++) {
+      autoCorrelation[i] /= variance;
     }
     return autoCorrelation;
   }
@@ -279,23 +310,145 @@ public final class TimeSeries extends DataSet {
    * @return the covariance of this series with itself at lag k.
    */
   public final double autoCovarianceAtLag(final int k) {
+    final double[] cached = this.autoCovariances;
+    if (cached != null && k < cached.length) {
+      return cached[k];
+    }
+    return directAutoCovarianceAtLag(k);
+  }
+
+  private double directAutoCovarianceAtLag(final int k) {
+    final double mean = mean();
     double sumOfProductOfDeviations = 0.0;
     for (int t = 0; t < n - k; t++) {
-      sumOfProductOfDeviations += (series[t] - mean) * (series[t + k] - mean);
+      sumOfProductOfDeviations += (series[offset + t] - mean) * (series[offset + t + k] - mean);
     }
     return sumOfProductOfDeviations / n;
   }
 
   /**
-   * Every covariance measure of this series with itself up to the given lag.
+   * Every covariance measure of this series with itself up to the given lag. Depending on the length of the series
+   * and the number of lags, the covariances are either computed directly, in O(n &times; k) time, or from the
+   * periodogram of the series using the fast Fourier transform, in O(n log n) time. The covariances are cached, so
+   * that later requests for the same or fewer lags are not recomputed.
    * 
    * @param k the maximum lag to compute the autocovariance at.
    * @return every covariance measure of this series with itself up to the given lag.
    */
   public final double[] autoCovarianceUpToLag(final int k) {
-    final double[] acv = new double[Math.min(k + 1, n)];
-    for (int i = 0; i < Math.min(k + 1, n); i++) {
-      acv[i] = autoCovarianceAtLag(i);
+    final int lags = Math.min(k + 1, n);
+    double[] cached = this.autoCovariances;
+    if (cached == null || cached.length < lags) {
+      final int fftLength = FastFourierTransform.nextPowerOfTwo(n + lags - 1);
+      final double directCost = (double) n * lags;
+      final double fftCost = FFT_COST_FACTOR * fftLength * (Integer.numberOfTrailingZeros(fftLength) + 1);
+      cached = (directCost > fftCost) ? fftAutoCovariance(lags, fftLength) : directAutoCovariance(lags);
+      this.autoCovariances = cached;
+    }
+    return Arrays.copyOf(cached, lags);
+  }
+
+  /**
+   * The partial correlation of this series with itself at lag k, that is, the correlation between observations k
+   * time steps apart after removing the linear effect of the observations in between.
+   * 
+   * @param k the lag to compute the partial autocorrelation at.
+   * @return the partial correlation of this series with itself at lag k.
+   * @throws IllegalArgumentException if k is negative or not less than the number of observations.
+   */
+  public final double partialAutoCorrelationAtLag(final int k) {
+    validatePartialAutoCorrelationLag(k);
+    final double[] cached = this.partialAutoCorrelations;
+    if (cached != null && k < cached.length) {
+      return cached[k];
+    }
+    return partialAutoCorrelationUpToLag(k)[k];
+  }
+
+  /**
+   * Every partial correlation coefficient of this series with itself up to the given lag. The coefficients are
+   * computed with the Durbin-Levinson recursion from the autocorrelations, in O(k<sup>2</sup>) time once the
+   * autocorrelations are known, and cached, so that later requests for the same or fewer lags are not recomputed. As
+   * with {@link #autoCorrelationUpToLag(int)}, the element at index i is the coefficient at lag i, the coefficient at
+   * lag 0 being 1.
+   * 
+   * @param k the maximum lag to compute the partial autocorrelation at.
+   * @return every partial correlation coefficient of this series with itself up to the given lag.
+   * @throws IllegalArgumentException if k is negative or not less than the number of observations.
+   */
+  public final double[] partialAutoCorrelationUpToLag(final int k) {
+    validatePartialAutoCorrelationLag(k);
+    final int lags = k + 1;
+    double[] cached = this.partialAutoCorrelations;
+    if (cached == null || cached.length < lags) {
+      cached = durbinLevinson(autoCorrelationUpToLag(k));
+      this.partialAutoCorrelations = cached;
+    }
+    return Arrays.copyOf(cached, lags);
+  }
+
+  private void validatePartialAutoCorrelationLag(final int k) {
+    if (k < 0 || k >= n) {
+      throw new IllegalArgumentException("The lag must be at least 0 and less than the number of observations, " + n +
+                                         ", but was " + k + ".");
+    }
+  }
+
+  // At step m, phi holds the coefficients of the best linear predictor of order m - 1, and the partial
+  // autocorrelation at lag m is the last coefficient of the predictor of order m.
+  private static double[] durbinLevinson(final double[] acf) {
+    final int lags = acf.length;
+    final double[] pacf = new double[lags];
+    if (lags == 0) {
+      return pacf;
+    }
+    pacf[0] = 1.0;
+    final double[] phi = new double[lags];
+    final double[] previous = new double[lags];
+    double variance = 1.0;
+    for (int m = 1; m < lags; m++) {
+      double numerator = acf[m];
+      for (int j = 1; j < m; j++) {
+        numerator -= previous[j] * acf[m - j];
+      }
+      final double coefficient = numerator / variance;
+      phi[m] = coefficient;
+      for (int j = 1; j < m; j++) {
+        phi[j] = previous[j] - coefficient * previous[m - j];
+      }
+      variance *= (1 - coefficient * coefficient);
+      pacf[m] = coefficient;
+      System.arraycopy(phi, 1, previous, 1, m);
+    }
+    return pacf;
+  }
+
+  private double[] directAutoCovariance(final int lags) {
+    final double[] acv = new double[lags];
+    for (int i = 0; i < lags; i++) {
+      acv[i] = directAutoCovarianceAtLag(i);
+    }
+    return acv;
+  }
+
+  // The inverse transform of the periodogram of the centered series gives its circular autocovariances. Padding the
+  // series with at least as many zeros as the largest lag makes them equal to the ordinary autocovariances.
+  private double[] fftAutoCovariance(final int lags, final int fftLength) {
+    final double mean = mean();
+    final double[] real = new double[fftLength];
+    final double[] imaginary = new double[fftLength];
+    for (int t = 0; t < n; t++) {
+      real[t] = series[offset + t] - mean;
+    }
+    FastFourierTransform.transform(real, imaginary);
+    for (int i = 0; i < fftLength; i++) {
+      real[i] = real[i] * real[i] + imaginary[i] * imaginary[i];
+      imaginary[i] = 0.0;
+    }
+    FastFourierTransform.inverse(real, imaginary);
+    final double[] acv = new double[lags];
+    for (int i = 0; i < lags; i++) {
+      acv[i] = real[i] / n;
     }
     return acv;
   }
@@ -321,8 +474,8 @@ public final class TimeSeries extends DataSet {
       throw new IllegalArgumentException("The BoxCox parameter must lie between"
           + " -1 and 2, but the provided parameter was equal to " + boxCoxLambda);
     }
-    final double[] boxCoxed = DoubleFunctions.boxCox(this.series, boxCoxLambda);
-    return new TimeSeries(this.timePeriod, this.observationTimes, boxCoxed);
+    final double[] boxCoxed = DoubleFunctions.boxCox(values(), boxCoxLambda);
+    return new TimeSeries(this.timePeriod, this.timeIndex, boxCoxed);
   }
 
   /**
@@ -336,12 +489,13 @@ public final class TimeSeries extends DataSet {
       throw new IllegalArgumentException("The BoxCox parameter must lie between"
           + " -1 and 2, but the provided parameter was equal to " + boxCoxLambda);
     }
-    final double[] invBoxCoxed = DoubleFunctions.inverseBoxCox(this.series, boxCoxLambda);
-    return new TimeSeries(this.timePeriod, this.observationTimes, invBoxCoxed);
+    final double[] invBoxCoxed = DoubleFunctions.inverseBoxCox(values(), boxCoxLambda);
+    return new TimeSeries(this.timePeriod, this.timeIndex, invBoxCoxed);
   }
 
   /**
-   * Compute a moving average of order m.
+   * Compute a moving average of order m. The average is updated as the window slides, so this takes O(n) time
+   * regardless of the order.
    * 
    * @param m the order of the moving average.
    * @return a new TimeSeries with the smoothed observations.
@@ -349,18 +503,7 @@ public final class TimeSeries extends DataSet {
   public final TimeSeries movingAverage(final int m) {
     final int c = m % 2;
     final int k = (m - c) / 2;
-    final double[] average;
-    average = new double[this.n - m + 1];
-    double sum;
-    for (int t = 0; t < average.length; t++) {
-      sum = 0;
-      for (int j = -k; j < k + c; j++) {
-        sum += series[t + k + j];
-      }
-      average[t] = sum / m;
-    }
-    final List<OffsetDateTime> times = this.observationTimes.subList(k + c - 1, n - k);
-    return new TimeSeries(this.timePeriod, times, average);
+    return new TimeSeries(this.timePeriod, timeIndex.slice(k + c - 1, n - k), movingAverages(m));
   }
 
   /**
@@ -372,10 +515,24 @@ public final class TimeSeries extends DataSet {
   public final TimeSeries centeredMovingAverage(final int m) {
     if (m % 2 == 1)
       return movingAverage(m);
-    TimeSeries firstAverage = movingAverage(m);
+    final double[] average = movingAverages(m);
+    for (int t = 0; t < average.length - 1; t++) {
+      average[t] = (average[t] + average[t + 1]) / 2;
+    }
     final int k = m / 2;
-    final List<OffsetDateTime> times = this.observationTimes.subList(k, n - k);
-    return new TimeSeries(this.timePeriod, times, firstAverage.movingAverage(2).series);
+    return new TimeSeries(this.timePeriod, timeIndex.slice(k, n - k), average, 0, average.length - 1);
+  }
+
+  private double[] movingAverages(final int m) {
+    final double[] average = new double[this.n - m + 1];
+    final RollingStatistics window = new RollingStatistics(m);
+    for (int t = 0; t < n; t++) {
+      window.add(series[offset + t]);
+      if (t >= m - 1) {
+        average[t - m + 1] = window.mean();
+      }
+    }
+    return average;
   }
 
   /**
@@ -384,11 +541,12 @@ public final class TimeSeries extends DataSet {
    * @return a new time series representing this time series with its mean removed.
    */
   public final TimeSeries demean() {
-    final double[] demeaned = new double[this.series.length];
+    final double[] demeaned = new double[this.n];
+    final double mean = mean();
     for (int t = 0; t < demeaned.length; t++) {
-      demeaned[t] = this.series[t] - this.mean;
+      demeaned[t] = this.series[offset + t] - mean;
     }
-    return new TimeSeries(this.timePeriod, this.observationTimes, demeaned);
+    return new TimeSeries(this.timePeriod, this.timeIndex, demeaned);
   }
 
   /**
@@ -400,11 +558,16 @@ public final class TimeSeries extends DataSet {
    */
   public final TimeSeries difference(final int lag, final int times) {
     if (times > 0) {
-      TimeSeries diffed = difference(lag);
-      for (int i = 1; i < times; i++) {
-        diffed = diffed.difference(lag);
+      // Difference a single copy of the observations in place, each pass shortening the series by the lag.
+      final double[] diffed = series();
+      int length = n;
+      for (int i = 0; i < times; i++) {
+        length -= lag;
+        for (int t = 0; t < length; t++) {
+          diffed[t] = diffed[t + lag] - diffed[t];
+        }
       }
-      return diffed;
+      return new TimeSeries(this.timePeriod, timeIndex.slice(lag * times, n), diffed, 0, length);
     }
     return this;
   }
@@ -416,9 +579,7 @@ public final class TimeSeries extends DataSet {
    * @return a new TimeSeries differenced at the given lag.
    */
   public final TimeSeries difference(final int lag) {
-    double[] diffed = differenceArray(lag);
-    final List<OffsetDateTime> obsTimes = this.observationTimes.subList(lag, n);
-    return new TimeSeries(this.timePeriod, obsTimes, diffed);
+    return difference(lag, 1);
   }
 
   /**
@@ -430,14 +591,6 @@ public final class TimeSeries extends DataSet {
     return difference(1);
   }
 
-  private double[] differenceArray(final int lag) {
-    double[] differenced = new double[series.length - lag];
-    for (int i = 0; i < differenced.length; i++) {
-      differenced[i] = series[i + lag] - series[i];
-    }
-    return differenced;
-  }
-
   /**
    * Subtract the given series from this time series and return the result in a new time series. This is a vectorized
    * operation.
@@ -446,11 +599,11 @@ public final class TimeSeries extends DataSet {
    * @return The difference between this series and the given series.
    */
   public final TimeSeries minus(final TimeSeries otherSeries) {
-    final double[] subtracted = new double[this.series.length];
+    final double[] subtracted = new double[this.n];
     for (int t = 0; t < subtracted.length; t++) {
-      subtracted[t] = this.series[t] - otherSeries.series[t];
+      subtracted[t] = this.series[offset + t] - otherSeries.series[otherSeries.offset + t];
     }
-    return new TimeSeries(this.timePeriod, observationTimes, subtracted);
+    return new TimeSeries(this.timePeriod, this.timeIndex, subtracted);
   }
 
   /**
@@ -461,11 +614,11 @@ public final class TimeSeries extends DataSet {
    * @return The difference between this series and the given series.
    */
   public final TimeSeries minus(final double[] otherSeries) {
-    final double[] subtracted = new double[this.series.length];
+    final double[] subtracted = new double[this.n];
     for (int t = 0; t < subtracted.length; t++) {
-      subtracted[t] = this.series[t] - otherSeries[t];
+      subtracted[t] = this.series[offset + t] - otherSeries[t];
     }
-    return new TimeSeries(this.timePeriod, observationTimes, subtracted);
+    return new TimeSeries(this.timePeriod, this.timeIndex, subtracted);
   }
 
   /**
@@ -476,10 +629,7 @@ public final class TimeSeries extends DataSet {
    * @return a slice of this time series from start (inclusive) to end (inclusive).
    */
   public final TimeSeries from(final int start, final int end) {
-    final double[] sliced = new double[end - start + 1];
-    System.arraycopy(series, start, sliced, 0, end - start + 1);
-    final List<OffsetDateTime> obsTimes = this.observationTimes.subList(start, end + 1);
-    return new TimeSeries(this.timePeriod, obsTimes, sliced);
+    return slice(start, end + 1);
   }
 
   /**
@@ -492,12 +642,9 @@ public final class TimeSeries extends DataSet {
    * @return a slice of this time series from start (inclusive) to end (inclusive).
    */
   public final TimeSeries from(final OffsetDateTime start, final OffsetDateTime end) {
-    final int startIdx = this.dateTimeIndex.get(start);
-    final int endIdx = this.dateTimeIndex.get(end);
-    final double[] sliced = new double[endIdx - startIdx + 1];
-    System.arraycopy(series, startIdx, sliced, 0, endIdx - startIdx + 1);
-    final List<OffsetDateTime> obsTimes = this.observationTimes.subList(startIdx, endIdx + 1);
-    return new TimeSeries(this.timePeriod, obsTimes, sliced);
+    final int startIdx = indexOf(start);
+    final int endIdx = indexOf(end);
+    return slice(startIdx, endIdx + 1);
   }
 
   /**
@@ -509,15 +656,15 @@ public final class TimeSeries extends DataSet {
    * @return a slice of this time series from start (inclusive) to end (inclusive) using R/Julia style indexing.
    */
   public final TimeSeries timeSlice(final int start, final int end) {
-    final double[] sliced = new double[end - start + 1];
-    System.arraycopy(series, start - 1, sliced, 0, end - start + 1);
-    final List<OffsetDateTime> obsTimes = this.observationTimes.subList(start - 1, end);
-    return new TimeSeries(this.timePeriod, obsTimes, sliced);
+    return slice(start - 1, end);
   }
 
-  // Helper method to get the total period length for the provided time period.
-  private long totalPeriodLength(final TimePeriod timePeriod) {
-    return timePeriod.timeUnit().unitLength() * timePeriod.periodLength();
+  // A view of the observations from index from, inclusive, to index to, exclusive, sharing this series' buffer.
+  private TimeSeries slice(final int from, final int to) {
+    if (from < 0 || to > n || from > to) {
+      throw new IndexOutOfBoundsException("Cannot slice from " + from + " to " + to + " a series of size " + n + ".");
+    }
+    return new TimeSeries(this.timePeriod, timeIndex.slice(from, to), series, offset + from, to - from);
   }
 
   /**
@@ -533,7 +680,12 @@ public final class TimeSeries extends DataSet {
    * @return the time series of observations.
    */
   public final double[] series() {
-    return this.series.clone();
+    return Arrays.copyOfRange(series, offset, offset + n);
+  }
+
+  // The observations, without copying them if this series spans its whole buffer. The result must not be modified.
+  private double[] values() {
+    return (offset == 0 && n == series.length) ? series : series();
   }
 
   /**
@@ -551,25 +703,43 @@ public final class TimeSeries extends DataSet {
    * @return the time at which the first observation was made.
    */
   public final OffsetDateTime startTime() {
-    return this.observationTimes.get(0);
+    return this.timeIndex.startTime();
   }
 
   /**
-   * Retrieve the list of observation times for this series.
+   * Retrieve the list of observation times for this series. The list is an unmodifiable view of the compact time index
+   * of this series, and each observation time is created when it is retrieved.
    * 
    * @return the list of observation times for this series.
    */
   public final List<OffsetDateTime> observationTimes() {
-    return this.observationTimes;
+    return this.timeIndex.asList();
+  }
+
+  // The compact index of observation times, shared with other classes in this package.
+  final TimeIndex timeIndex() {
+    return this.timeIndex;
   }
 
   /**
-   * Retrieve the mapping of observation times to array indices for this series.
+   * Retrieve the mapping of observation times to array indices for this series. The map holds an entry for every
+   * observation and is built the first time this method is called, so {@link #indexOf(OffsetDateTime)} should be
+   * preferred for looking up individual observation times.
    * 
    * @return the mapping of observation times to array indices for this series.
    */
   public final Map<OffsetDateTime, Integer> dateTimeIndex() {
-    return this.dateTimeIndex;
+    Map<OffsetDateTime, Integer> index = this.dateTimeIndex;
+    if (index == null) {
+      final Map<OffsetDateTime, Integer> map = new HashMap<>(n);
+      final List<OffsetDateTime> times = observationTimes();
+      for (int i = 0; i < times.size(); i++) {
+        map.put(times.get(i), i);
+      }
+      index = Collections.unmodifiableMap(map);
+      this.dateTimeIndex = index;
+    }
+    return index;
   }
 
   // ********** Plots ********** //
@@ -579,11 +749,11 @@ public final class TimeSeries extends DataSet {
   @Override
   public final void plot() {
     new Thread(() -> {
-      final List<Date> xAxis = new ArrayList<>(this.observationTimes.size());
-      for (OffsetDateTime dateTime : this.observationTimes) {
+      final List<Date> xAxis = new ArrayList<>(n);
+      for (OffsetDateTime dateTime : observationTimes()) {
         xAxis.add(Date.from(dateTime.toInstant()));
       }
-      final List<Double> seriesList = com.google.common.primitives.Doubles.asList(this.series);
+      final List<Double> seriesList = com.google.common.primitives.Doubles.asList(series());
       for (int t = 0; t < seriesList.size(); t++) {
         if (seriesList.get(t).isInfinite()) {
           seriesList.set(t, Double.NaN);
@@ -607,11 +777,11 @@ public final class TimeSeries extends DataSet {
 
   public final void plot(final String plotName) {
     new Thread(() -> {
-      final List<Date> xAxis = new ArrayList<>(this.observationTimes.size());
-      for (OffsetDateTime dateTime : this.observationTimes) {
+      final List<Date> xAxis = new ArrayList<>(n);
+      for (OffsetDateTime dateTime : observationTimes()) {
         xAxis.add(Date.from(dateTime.toInstant()));
       }
-      final List<Double> seriesList = com.google.common.primitives.Doubles.asList(this.series);
+      final List<Double> seriesList = com.google.common.primitives.Doubles.asList(series());
       for (int t = 0; t < seriesList.size(); t++) {
         if (seriesList.get(t).isInfinite()) {
           seriesList.set(t, Double.NaN);
@@ -644,8 +814,8 @@ public final class TimeSeries extends DataSet {
     for (int i = 1; i < lags.length; i++) {
       lags[i] = i;
     }
-    final double upper = (-1 / series.length) + (2 / Math.sqrt(series.length));
-    final double lower = (-1 / series.length) - (2 / Math.sqrt(series.length));
+    final double upper = (-1 / n) + (2 / Math.sqrt(n));
+    final double lower = (-1 / n) - (2 / Math.sqrt(n));
     final double[] upperLine = new double[lags.length];
     final double[] lowerLine = new double[lags.length];
     for (int i = 0; i < lags.length; i++) {
@@ -689,28 +859,15 @@ public final class TimeSeries extends DataSet {
     if (getClass() != obj.getClass())
       return false;
     TimeSeries other = (TimeSeries) obj;
-    if (Double.doubleToLongBits(mean) != Double.doubleToLongBits(other.mean))
-      return false;
-    if (n != other.n)
-      return false;
-    if (observationTimes == null) {
-      if (other.observationTimes != null)
-        return false;
-    } else if (!observationTimes.equals(other.observationTimes))
-      return false;
-    return Arrays.equals(series, other.series);
+    return timeIndex.equals(other.timeIndex);
   }
 
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = super.hashCode();
-    long temp;
-    temp = Double.doubleToLongBits(mean);
-    result = prime * result + (int) (temp ^ (temp >>> 32));
     result = prime * result + n;
-    result = prime * result + ((observationTimes == null) ? 0 : observationTimes.hashCode());
-    result = prime * result + Arrays.hashCode(series);
+    result = prime * result + timeIndex.hashCode();
     return result;
   }
 
@@ -718,24 +875,25 @@ public final class TimeSeries extends DataSet {
   public String toString() {
     NumberFormat numFormatter = new DecimalFormat("#0.0000");
     StringBuilder builder = new StringBuilder();
-    builder.append("n: ").append(n).append("\nmean: ").append(numFormatter.format(mean)).append("\nseries: ");
-    if (series.length > 6) {
-      for (double d : DoubleFunctions.slice(series, 0, 3)) {
-        builder.append(numFormatter.format(d)).append(", ");
+    builder.append("n: ").append(n).append("\nmean: ").append(numFormatter.format(mean())).append("\nseries: ");
+    if (n > 6) {
+      for (int i = 0; i < 3; i++) {
+        builder.append(numFormatter.format(at(i))).append(", ");
       }
       builder.append("..., ");
-      for (double d : DoubleFunctions.slice(series, n - 3, n - 1)) {
-        builder.append(numFormatter.format(d)).append(", ");
+      for (int i = n - 3; i < n - 1; i++) {
+        builder.append(numFormatter.format(at(i))).append(", ");
       }
-      builder.append(numFormatter.format(series[n - 1]));
+      builder.append(numFormatter.format(at(n - 1)));
     } else {
-      for (int i = 0; i < series.length - 1; i++) {
-        builder.append(numFormatter.format(series[i])).append(", ");
+      for (int i = 0; i < n - 1; i++) {
+        builder.append(numFormatter.format(at(i))).append(", ");
       }
-      builder.append(numFormatter.format(series[n - 1]));
+      builder.append(numFormatter.format(at(n - 1)));
     }
+    final List<OffsetDateTime> observationTimes = observationTimes();
     builder.append("\nobservationTimes: ");
-    if (series.length > 6) {
+    if (n > 6) {
       for (OffsetDateTime date : observationTimes.subList(0, 3)) {
         builder.append(date.toString()).append(", ");
       }
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact binary file format for time series, and the means to write and memory-map it.
+ *
+ * <p>
+ * Every number in a file is little-endian. The file begins with a 64 byte header,
+ *
+ * <pre>
+ *   offset  size  field
+ *        0     4  magic number, the ASCII characters "JTSB"
+ *        4     4  format version, currently 2
+ *        8     4  flags; bit 0 is set if the file has a time column, and bit 1 if it has a zone offset column
+ *       12     4  zone offset of the start time, in seconds
+ *       16    16  name of the {@link TimeUnit} of the time period, ASCII and padded with zeros
+ *       32     8  length of the time period
+ *       40     8  start time, in seconds since the epoch
+ *       48     4  nanosecond of the start time's second
+ *       52     4  reserved
+ *       56     8  number of observations, n
+ * </pre>
+ *
+ * followed by the n observations as doubles. A regular series stores only its start time, since the rest of its times
+ * follow from the time period. Otherwise the observations are followed by a time column of n longs holding the
+ * seconds since the epoch of each observation time, and then by n ints holding the nanosecond of each of those
+ * seconds, so that any representable times may be stored together. If the observation times of an irregular series
+ * do not all share the zone offset of the start time, the time column is followed by a zone offset column of n ints
+ * holding the zone offset of each observation time, in seconds, so that every time is read back exactly as it was
+ * written.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class TimeSeriesFile {
+
+  static final int MAGIC = 'J' | 'T' << 8 | 'S' << 16 | 'B' << 24;
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 64;
+  static final int TIME_COLUMN = 1;
+  static final int ZONE_OFFSET_COLUMN = 2;
+  private static final int UNIT_NAME_SIZE = 16;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private TimeSeriesFile() {
+  }
+
+  /**
+   * Write the given time series to the file at the given path, replacing the file if it exists.
+   *
+   * @param series the time series to write.
+   * @param path the path of the file to write to.
+   * @throws UncheckedIOException if an I/O error occurs.
+   */
+  public static void write(final TimeSeries series, final Path path) {
+    final TimeIndex timeIndex = series.timeIndex();
+    final int n = series.n();
+    final boolean hasTimeColumn = !timeIndex.isRegular();
+    final OffsetDateTime start = (n == 0) ? OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC)
+                                          : timeIndex.startTime();
+    final long[] epochSeconds = hasTimeColumn ? new long[n] : null;
+    final int[] nanos = hasTimeColumn ? new int[n] : null;
+    int[] zoneOffsets = null;
+    if (hasTimeColumn) {
+      final List<OffsetDateTime> times = timeIndex.asList();
+      final int startOffset = start.getOffset().getTotalSeconds();
+      for (int i = 0; i < n; i++) {
+        final OffsetDateTime time = times.get(i);
+        epochSeconds[i] = time.toEpochSecond();
+        nanos[i] = time.getNano();
+        final int offset = time.getOffset().getTotalSeconds();
+        if (zoneOffsets == null && offset != startOffset) {
+          zoneOffsets = new int[n];
+          Arrays.fill(zoneOffsets, 0, i, startOffset);
+        }
+        if (zoneOffsets != null) {
+          zoneOffsets[i] = offset;
+        }
+      }
+    }
+    final int flags = (hasTimeColumn ? TIME_COLUMN : 0) | ((zoneOffsets != null) ? ZONE_OFFSET_COLUMN : 0);
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    writeHeader(buffer, series.timePeriod(), start, n, flags);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+      final DoubleBuffer values = series.asBuffer();
+      while (values.hasRemaining()) {
+        if (buffer.remaining() < Double.BYTES) {
+          drain(buffer, channel);
+        }
+        final int count = Math.min(values.remaining(), buffer.remaining() / Double.BYTES);
+        final int limit = values.limit();
+        values.limit(values.position() + count);
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        values.limit(limit);
+      }
+      if (hasTimeColumn) {
+        for (int i = 0; i < n; i++) {
+          if (buffer.remaining() < Long.BYTES) {
+            drain(buffer, channel);
+          }
+          buffer.putLong(epochSeconds[i]);
+        }
+        for (int i = 0; i < n; i++) {
+          if (buffer.remaining() < Integer.BYTES) {
+            drain(buffer, channel);
+          }
+          buffer.putInt(nanos[i]);
+        }
+      }
+      if (zoneOffsets != null) {
+        for (int i = 0; i < n; i++) {
+          if (buffer.remaining() < Integer.BYTES) {
+            drain(buffer, channel);
+          }
+          buffer.putInt(zoneOffsets[i]);
+        }
+      }
+      drain(buffer, channel);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Memory-map the time series in the file at the given path. The observations are read directly from the mapped
+   * file, rather than copied into the heap, and the mapping remains valid after this method returns.
+   *
+   * @param path the path of the file to map.
+   * @return a read-only view of the time series in the file.
+   * @throws IllegalArgumentException if the file is not a valid time series file.
+   * @throws UncheckedIOException if an I/O error occurs.
+   */
+  public static MappedTimeSeries map(final Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IllegalArgumentException("The file is too small to hold a time series header.");
+      }
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return readFrom(mapped.order(ByteOrder.LITTLE_ENDIAN), size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Read the time series in the file at the given path into the heap.
+   *
+   * @param path the path of the file to read.
+   * @return the time series in the file.
+   * @throws IllegalArgumentException if the file is not a valid time series file.
+   * @throws UncheckedIOException if an I/O error occurs.
+   */
+  public static TimeSeries read(final Path path) {
+    return map(path).toTimeSeries();
+  }
+
+  private static MappedTimeSeries readFrom(final ByteBuffer buffer, final long size) {
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("The file is not a time series file.");
+    }
+    final int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported time series file version: " + version + ".");
+    }
+    final int flags = buffer.getInt(8);
+    final boolean hasTimeColumn = (flags & TIME_COLUMN) != 0;
+    final boolean hasZoneOffsetColumn = (flags & ZONE_OFFSET_COLUMN) != 0;
+    if (hasZoneOffsetColumn && !hasTimeColumn) {
+      throw new IllegalArgumentException("The file has a zone offset column but no time column.");
+    }
+    final TimePeriod timePeriod = new TimePeriod(timeUnit(buffer), buffer.getLong(32));
+    final OffsetDateTime start = MappedTimeSeries.dateTime(buffer.getLong(40), buffer.getInt(48), buffer.getInt(12));
+    final long n = buffer.getLong(56);
+    final long rowSize = Double.BYTES + (hasTimeColumn ? Long.BYTES + Integer.BYTES : 0)
+                         + (hasZoneOffsetColumn ? Integer.BYTES : 0);
+    if (n < 0 || n > (Integer.MAX_VALUE - HEADER_SIZE) / rowSize || size != HEADER_SIZE + n * rowSize) {
+      throw new IllegalArgumentException("The file size does not match the " + n + " observations in its header.");
+    }
+    buffer.position(HEADER_SIZE);
+    final ByteBuffer valueBytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    valueBytes.limit((int) n * Double.BYTES);
+    final DoubleBuffer values = valueBytes.asDoubleBuffer();
+    if (!hasTimeColumn) {
+      return new MappedTimeSeries(timePeriod, start, values, null, null, null);
+    }
+    buffer.position(HEADER_SIZE + (int) n * Double.BYTES);
+    final ByteBuffer secondBytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    secondBytes.limit((int) n * Long.BYTES);
+    buffer.position(HEADER_SIZE + (int) n * (Double.BYTES + Long.BYTES));
+    final ByteBuffer nanoBytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    nanoBytes.limit((int) n * Integer.BYTES);
+    if (!hasZoneOffsetColumn) {
+      return new MappedTimeSeries(timePeriod, start, values, secondBytes.asLongBuffer(), nanoBytes.asIntBuffer(),
+                                  null);
+    }
+    buffer.position(HEADER_SIZE + (int) n * (Double.BYTES + Long.BYTES + Integer.BYTES));
+    final ByteBuffer zoneOffsetBytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    return new MappedTimeSeries(timePeriod, start, values, secondBytes.asLongBuffer(), nanoBytes.asIntBuffer(),
+                                zoneOffsetBytes.asIntBuffer());
+  }
+
+  private static void writeHeader(final ByteBuffer buffer, final TimePeriod timePeriod, final OffsetDateTime start,
+                                  final int n, final int flags) {
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(flags);
+    buffer.putInt(start.getOffset().getTotalSeconds());
+    final byte[] unitName = timePeriod.timeUnit().name().getBytes(StandardCharsets.US_ASCII);
+    buffer.put(unitName);
+    buffer.put(new byte[UNIT_NAME_SIZE - unitName.length]);
+    buffer.putLong(timePeriod.periodLength());
+    buffer.putLong(start.toEpochSecond());
+    buffer.putInt(start.getNano());
+    buffer.putInt(0);
+    buffer.putLong(n);
+  }
+
+  private static TimeUnit timeUnit(final ByteBuffer buffer) {
+    final byte[] unitName = new byte[UNIT_NAME_SIZE];
+    buffer.position(16);
+    buffer.get(unitName);
+    int length = 0;
+    while (length < UNIT_NAME_SIZE && unitName[length] != 0) {
+      length++;
+    }
+    final String name = new String(unitName, 0, length, StandardCharsets.US_ASCII);
+    try {
+      return TimeUnit.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown time unit in time series file: " + name + ".");
+    }
+  }
+
+  private static void drain(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
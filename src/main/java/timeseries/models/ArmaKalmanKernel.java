@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models;
+
+import java.util.Arrays;
+
+import linear.doubles.LyapunovSolver;
+
+/**
+ * A reusable Kalman filter kernel specialized to ARMA models in state space form. All matrices are stored row-major in
+ * flat arrays that are allocated once per state dimension, so that repeatedly filtering series, as done while
+ * optimizing a likelihood, allocates nothing once the kernel has been used with a given state dimension.
+ *
+ * <p>
+ * Each step takes advantage of the companion form of the transition matrix and the unit observation vector, running
+ * in O(r<sup>2</sup>) time, where r = max(p, q + 1). Once the predicted state covariance stops changing, the filter
+ * has reached its steady state, and the remaining observations are processed with the fixed Kalman gain in O(r) time
+ * per step.
+ * </p>
+ *
+ * <p>
+ * The state disturbance has unit variance, so that the prediction error variances are relative to the model variance,
+ * which is concentrated out of the likelihood. A kernel is mutable and must not be shared between threads.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class ArmaKalmanKernel {
+
+  // The covariance is considered converged once no element changes by more than this amount, relative to the
+  // prediction error variance, in a single step.
+  private static final double STEADY_STATE_TOLERANCE = 1E-12;
+
+  private int r = -1;
+  private double[] arParams;
+  private double[] maVector;
+  private double[] predictedState;
+  private double[] filteredState;
+  private double[] predictedCovariance;
+  private double[] filteredCovariance;
+  private double[] transitionTimesCovariance;
+  private double[] gain;
+  private double[] transition;
+  private double[] disturbanceCovariance;
+  private LyapunovSolver lyapunovSolver;
+
+  private int n;
+  private int steadyStateIndex;
+  private double sumOfScaledSquaredErrors;
+  private double sumOfLogVariances;
+
+  /**
+   * Filter the first n observations of the given series, minus the given mean, through the ARMA model with the given
+   * coefficients. The prediction errors and their variances are written to the given arrays, either of which may be
+   * null if not needed.
+   *
+   * @param y the observations.
+   * @param n the number of observations to filter.
+   * @param mean the mean of the process, subtracted from every observation.
+   * @param arCoeffs the autoregressive coefficients, of which the first p are used.
+   * @param p the number of autoregressive coefficients.
+   * @param maCoeffs the moving average coefficients, of which the first q are used.
+   * @param q the number of moving average coefficients.
+   * @param errors an array of length at least n to store the prediction errors in, or null.
+   * @param variances an array of length at least n to store the relative prediction error variances in, or null.
+   */
+  public void filter(final double[] y, final int n, final double mean, final double[] arCoeffs, final int p,
+                     final double[] maCoeffs, final int q, final double[] errors, final double[] variances) {
+    ensureDimension(Math.max(p, q + 1));
+    Arrays.fill(arParams, 0.0);
+    System.arraycopy(arCoeffs, 0, arParams, 0, p);
+    Arrays.fill(maVector, 0.0);
+    maVector[0] = 1.0;
+    System.arraycopy(maCoeffs, 0, maVector, 1, q);
+    Arrays.fill(predictedState, 0.0);
+    initializeCovariance();
+
+    this.n = n;
+    this.steadyStateIndex = n;
+    double scaledSquares = 0.0;
+    double logVariances = 0.0;
+    final double[] phi = arParams;
+    final double[] R = maVector;
+    final double[] a = predictedState;
+    final double[] af = filteredState;
+    final double[] P = predictedCovariance;
+    final double[] Pf = filteredCovariance;
+    final double[] TPf = transitionTimesCovariance;
+
+    int t = 0;
+    while (t < n) {
+      // Since Z is a unit vector, Z * a = a[0] and the prediction error variance f = Z * P * Z' = P[0][0].
+      final double v = y[t] - mean - a[0];
+      final double f = P[0];
+      if (errors != null) {
+        errors[t] = v;
+      }
+      if (variances != null) {
+        variances[t] = f;
+      }
+      scaledSquares += v * v / f;
+      logVariances += Math.log(f);
+      t++;
+
+      for (int i = 0; i < r; i++) {
+        af[i] = a[i] + P[i * r] * v / f;
+      }
+      for (int i = 0; i < r; i++) {
+        for (int j = 0; j < r; j++) {
+          Pf[i * r + j] = P[i * r + j] - P[i * r] * P[j * r] / f;
+        }
+      }
+
+      // (T * x)[i] = phi[i] * x[0] + x[i + 1], since T has the AR coefficients in its first column and ones on its
+      // superdiagonal.
+      for (int i = 0; i < r - 1; i++) {
+        a[i] = phi[i] * af[0] + af[i + 1];
+      }
+      a[r - 1] = phi[r - 1] * af[0];
+
+      for (int i = 0; i < r; i++) {
+        for (int j = 0; j < r; j++) {
+          TPf[i * r + j] = phi[i] * Pf[j] + ((i < r - 1) ? Pf[(i + 1) * r + j] : 0.0);
+        }
+      }
+      double change = 0.0;
+      for (int i = 0; i < r; i++) {
+        for (int j = 0; j < r; j++) {
+          final double updated = phi[j] * TPf[i * r] + ((j < r - 1) ? TPf[i * r + j + 1] : 0.0) + R[i] * R[j];
+          change = Math.max(change, Math.abs(updated - P[i * r + j]));
+          P[i * r + j] = updated;
+        }
+      }
+      if (change <= STEADY_STATE_TOLERANCE * P[0]) {
+        steadyStateIndex = t;
+        break;
+      }
+    }
+
+    if (t < n) {
+      // The covariance, and so the gain and the prediction error variance, no longer change.
+      final double f = P[0];
+      final double logF = Math.log(f);
+      for (int i = 0; i < r; i++) {
+        gain[i] = P[i * r] / f;
+      }
+      for (; t < n; t++) {
+        final double v = y[t] - mean - a[0];
+        if (errors != null) {
+          errors[t] = v;
+        }
+        if (variances != null) {
+          variances[t] = f;
+        }
+        scaledSquares += v * v / f;
+        logVariances += logF;
+        final double af0 = a[0] + gain[0] * v;
+        for (int i = 0; i < r - 1; i++) {
+          a[i] = phi[i] * af0 + a[i + 1] + gain[i + 1] * v;
+        }
+        a[r - 1] = phi[r - 1] * af0;
+      }
+    }
+    this.sumOfScaledSquaredErrors = scaledSquares;
+    this.sumOfLogVariances = logVariances;
+  }
+
+  /**
+   * The maximum-likelihood estimate of the model variance from the last series filtered.
+   *
+   * @return the maximum-likelihood estimate of the model variance from the last series filtered.
+   */
+  public double sigma2() {
+    return sumOfScaledSquaredErrors / n;
+  }
+
+  /**
+   * The exact Gaussian log-likelihood of the last series filtered, with the model variance concentrated out.
+   *
+   * @return the concentrated log-likelihood of the last series filtered.
+   */
+  public double logLikelihood() {
+    return (-n / 2.0) * (Math.log(2 * Math.PI * sigma2()) + 1) - 0.5 * sumOfLogVariances;
+  }
+
+  /**
+   * The index of the first observation processed with the steady state gain, or the number of observations if the
+   * filter never reached its steady state.
+   *
+   * @return the index of the first observation processed with the steady state gain.
+   */
+  public int steadyStateIndex() {
+    return this.steadyStateIndex;
+  }
+
+  // Set the initial predicted covariance to the stationary covariance of the state, the solution of the discrete
+  // Lyapunov equation P = T * P * T' + R * R'. If the model is not stationary there is no such covariance.
+  private void initializeCovariance() {
+    Arrays.fill(transition, 0.0);
+    for (int i = 0; i < r; i++) {
+      transition[i * r] = arParams[i];
+      if (i < r - 1) {
+        transition[i * r + i + 1] = 1.0;
+      }
+      for (int j = 0; j < r; j++) {
+        disturbanceCovariance[i * r + j] = maVector[i] * maVector[j];
+      }
+    }
+    if (!lyapunovSolver.solve(transition, disturbanceCovariance, predictedCovariance)) {
+      Arrays.fill(predictedCovariance, 1.0);
+    }
+  }
+
+  private void ensureDimension(final int dimension) {
+    if (dimension == r) {
+      return;
+    }
+    this.r = dimension;
+    this.arParams = new double[r];
+    this.maVector = new double[r];
+    this.predictedState = new double[r];
+    this.filteredState = new double[r];
+    this.predictedCovariance = new double[r * r];
+    this.filteredCovariance = new double[r * r];
+    this.transitionTimesCovariance = new double[r * r];
+    this.gain = new double[r];
+    this.transition = new double[r * r];
+    this.disturbanceCovariance = new double[r * r];
+    this.lyapunovSolver = new LyapunovSolver(r);
+  }
+}
@@ -1,117 +1,88 @@
 package timeseries.models;
 
-import static org.ejml.ops.CommonOps.*;
-
-import org.ejml.data.DenseMatrix64F;
-import org.ejml.data.RowD1Matrix64F;
-
 import timeseries.models.arima.StateSpaceARMA;
 
+/**
+ * A Kalman filter for an ARMA model in state space form. The state disturbance has unit variance, so that the
+ * prediction error variances are relative to the model variance, which can then be concentrated out of the likelihood.
+ * The filtering itself is done by an {@link ArmaKalmanKernel}.
+ *
+ * @author Jacob Rachiele
+ */
 public final class KalmanFilter {
   
   private final double[] y;
-  private final int r; // r = max(p, q + 1);
-  private final DenseMatrix64F transitionFunction;
-  private final RowD1Matrix64F stateDisturbance;
-  private final RowD1Matrix64F predictedState;
-  private final RowD1Matrix64F filteredState;
-  private final DenseMatrix64F predictedStateCovariance;
-  private final RowD1Matrix64F filteredStateCovariance;
   private final double[] predictionErrorVariance;
   private final double[] predictionError;
-  //M is the first column of the predictedCovariance matrix.
-  private final DenseMatrix64F predictedCovarianceFirstColumn; 
-  // We don't include Z. It is a row vector with a 1 in the first position and zeros
-  // elsewhere. Any of its transformations are done manually as documented below.
+  private final double sigma2;
+  private final double logLikelihood;
+  private final int steadyStateIndex;
   
-  KalmanFilter(final StateSpaceARMA ss) {
+  /**
+   * Run the Kalman filter over the observations of the given state space ARMA model.
+   *
+   * @param ss the ARMA model in state space form.
+   */
+  public KalmanFilter(final StateSpaceARMA ss) {
     this.y = ss.differencedSeries();
-    this.r = ss.r();
-    this.transitionFunction = new DenseMatrix64F(ss.transitionMatrix());
-    final RowD1Matrix64F R = new DenseMatrix64F(r, 1, true, ss.movingAverageVector());
-    this.stateDisturbance = new DenseMatrix64F(r, r);
-    multOuter(R, stateDisturbance);
-    this.predictedState = new DenseMatrix64F(r, 1, true, new double[r]);
-    this.filteredState = new DenseMatrix64F(r, 1, true, new double[r]);
-    this.predictedStateCovariance = initializePredictedCovariance();
-    this.filteredStateCovariance = new DenseMatrix64F(r, r);
     this.predictionErrorVariance = new double[y.length];
     this.predictionError = new double[y.length];
-    this.predictedCovarianceFirstColumn = new DenseMatrix64F(r, 1);
-    extractColumn(predictedStateCovariance, 0, predictedCovarianceFirstColumn);
-    filter();
+    final double[] arParams = ss.arParams();
+    final double[] maParams = ss.maParams();
+    final ArmaKalmanKernel kernel = new ArmaKalmanKernel();
+    kernel.filter(y, y.length, 0.0, arParams, arParams.length, maParams, maParams.length, predictionError,
+                  predictionErrorVariance);
+    this.sigma2 = kernel.sigma2();
+    this.logLikelihood = kernel.logLikelihood();
+    this.steadyStateIndex = kernel.steadyStateIndex();
   }
-  
-  private DenseMatrix64F initializePredictedCovariance() {
-    final DenseMatrix64F P = new DenseMatrix64F(r * r, 1);
-    final RowD1Matrix64F id = identity(r * r);
-    final DenseMatrix64F kronT = new DenseMatrix64F(r * r, r * r);
-    kron(transitionFunction, transitionFunction, kronT);
-    final DenseMatrix64F idKronT = new DenseMatrix64F(r * r, r * r);
-    subtract(id, kronT, idKronT);
-    final DenseMatrix64F RQR = this.stateDisturbance.copy();
-    RQR.reshape(r * r, 1);
-    final boolean solved = invert(idKronT);
-    if (solved) {
-      mult(idKronT, RQR, P);
-    }
-    else {
-      fill(P, 1.0);
-    }
-    P.reshape(r, r);
-    return P;
+
+  /**
+   * The one-step-ahead prediction errors, or innovations, of the filter.
+   *
+   * @return the one-step-ahead prediction errors of the filter.
+   */
+  public double[] predictionErrors() {
+    return this.predictionError.clone();
+  }
+
+  /**
+   * The variances of the one-step-ahead prediction errors, relative to the model variance.
+   *
+   * @return the variances of the one-step-ahead prediction errors, relative to the model variance.
+   */
+  public double[] predictionErrorVariances() {
+    return this.predictionErrorVariance.clone();
+  }
+
+  /**
+   * The maximum-likelihood estimate of the model variance, equal to the mean of the squared prediction errors, each
+   * scaled by its relative variance.
+   *
+   * @return the maximum-likelihood estimate of the model variance.
+   */
+  public double sigma2() {
+    return this.sigma2;
+  }
+
+  /**
+   * The exact Gaussian log-likelihood of the model, with the model variance concentrated out by replacing it with
+   * its maximum-likelihood estimate.
+   *
+   * @return the concentrated log-likelihood of the model.
+   */
+  public double logLikelihood() {
+    return this.logLikelihood;
   }
 
-  private void filter() {
-    
-    predictionError[0] = y[0];
-    // f[t] is always the first element of column vector M because f[t] = Z*M, where
-    // Z is a row vector with a 1 in the first (index 0) position and zeros elsewhere.
-    predictionErrorVariance[0] = predictedCovarianceFirstColumn.get(0);
-    
-    // Initialize filteredState.
-    RowD1Matrix64F newInfo = this.predictedCovarianceFirstColumn.copy();
-    scale(predictionError[0], newInfo);
-    divide(newInfo, predictionErrorVariance[0]);
-    add(predictedState, newInfo, filteredState);
-    
-    // Initialize filteredCovariance.
-    final RowD1Matrix64F adjustedPredictionCovariance = new DenseMatrix64F(r, r);
-    multOuter(predictedCovarianceFirstColumn, adjustedPredictionCovariance);
-    divide(adjustedPredictionCovariance, predictionErrorVariance[0]);
-    subtract(predictedStateCovariance, adjustedPredictionCovariance, filteredStateCovariance);
-    
-    final RowD1Matrix64F filteredCovarianceTransition = new DenseMatrix64F(r, r);
-    final RowD1Matrix64F stateCovarianceTransition = new DenseMatrix64F(r, r);
-    final DenseMatrix64F transitionTranspose = transitionFunction.copy();
-    transpose(transitionTranspose);
-    
-    
-    for (int t = 1; t < y.length; t++) {
-      
-      // Update predicted mean of the state vector.
-      mult(transitionFunction, filteredState, predictedState);
-      
-      // Update predicted covariance of the state vector.
-      mult(transitionFunction, filteredStateCovariance, filteredCovarianceTransition);
-      mult(filteredCovarianceTransition, transitionTranspose, stateCovarianceTransition);
-      add(stateCovarianceTransition, stateDisturbance, predictedStateCovariance);
-      
-      predictionError[t] = y[t] - predictedState.get(0);
-      extractColumn(predictedStateCovariance, 0, predictedCovarianceFirstColumn);
-      predictionErrorVariance[t] = predictedCovarianceFirstColumn.get(0);
-      
-      // Update filteredState.
-      newInfo = this.predictedCovarianceFirstColumn.copy();
-      scale(predictionError[t], newInfo);
-      divide(newInfo, predictionErrorVariance[t]);
-      add(predictedState, newInfo, filteredState);
-      
-      // Update filteredCovariance.
-      multOuter(predictedCovarianceFirstColumn, adjustedPredictionCovariance);
-      divide(adjustedPredictionCovariance, predictionErrorVariance[t]);
-      subtract(predictedStateCovariance, adjustedPredictionCovariance, filteredStateCovariance);
-    }
+  /**
+   * The index of the first observation filtered with the steady state Kalman gain, or the number of observations if
+   * the filter never reached its steady state.
+   *
+   * @return the index of the first observation filtered with the steady state Kalman gain.
+   */
+  public int steadyStateIndex() {
+    return this.steadyStateIndex;
   }
   
 //  private final double[] series;
@@ -33,12 +33,15 @@ import data.DoubleFunctions;
 import linear.doubles.Matrix;
 import linear.doubles.Vector;
 import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
 import optim.BFGS;
+import optim.OptimizationResult;
+import optim.OptimizerOptions;
 import timeseries.TimePeriod;
 import timeseries.TimeSeries;
 import timeseries.models.Forecast;
+import timeseries.models.KalmanFilter;
 import timeseries.models.Model;
-import timeseries.operators.LagPolynomial;
 
 /**
  * A seasonal autoregressive integrated moving average (ARIMA) model. This class is immutable and thread-safe.
@@ -64,12 +67,74 @@ public final class Arima implements Model {
   private final double[] arSarCoeffs;
   private final double[] maSmaCoeffs;
   private final double[] stdErrors;
+  private final OptimizationResult optimizationResult;
   
   public static Arima model(final TimeSeries observations, final ModelOrder order,
                             final TimePeriod seasonalCycle, final FittingStrategy fittingStrategy) {
     return new Arima(observations, order, seasonalCycle, fittingStrategy);
   }
 
+  /**
+   * Create a new ARIMA model from the given observations, model order, seasonal cycle, and fitting strategy, with the
+   * coefficients estimated under the given optimizer options. The options bound the iterations, function evaluations,
+   * and time spent fitting, which bounds the latency of a fit. Whether a fit converged or was stopped early is reported
+   * by {@link #optimizationResult()}.
+   *
+   * @param observations the time series of observations.
+   * @param order the order of the ARIMA model.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @param fittingStrategy the strategy to use to fit the model to the data.
+   * @param options the tolerances and budgets of the optimizer that estimates the coefficients.
+   * @return a new ARIMA model fit under the given optimizer options.
+   */
+  public static Arima model(final TimeSeries observations, final ModelOrder order, final TimePeriod seasonalCycle,
+                            final FittingStrategy fittingStrategy, final OptimizerOptions options) {
+    return new Arima(observations, order, seasonalCycle, fittingStrategy, new ArimaWorkspace(), null, options);
+  }
+
+  // Fit the model using the given workspace, which lets callers fitting many models reuse buffers between fits.
+  static Arima model(final TimeSeries observations, final ModelOrder order, final TimePeriod seasonalCycle,
+                     final FittingStrategy fittingStrategy, final ArimaWorkspace workspace) {
+    return new Arima(observations, order, seasonalCycle, fittingStrategy, workspace, null,
+                     OptimizerOptions.defaults());
+  }
+
+  // Fit the model starting the optimization from the given parameters, laid out as in OptimFunction.
+  static Arima model(final TimeSeries observations, final ModelOrder order, final TimePeriod seasonalCycle,
+                     final FittingStrategy fittingStrategy, final ArimaWorkspace workspace,
+                     final double[] initialParameters) {
+    return new Arima(observations, order, seasonalCycle, fittingStrategy, workspace, initialParameters,
+                     OptimizerOptions.defaults());
+  }
+
+  /**
+   * Automatically select and fit an ARIMA model to the given observations. The orders of differencing are chosen
+   * with a KPSS unit-root test and a test of seasonal strength, and the remaining orders are chosen by a stepwise
+   * search minimizing the corrected Akaike information criterion. The candidate models at each step of the search are
+   * fit in parallel, each starting from the coefficients of the best model found so far.
+   *
+   * @param observations the time series of observations.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @return the ARIMA model with the smallest corrected Akaike information criterion found by the search.
+   */
+  public static Arima autoModel(final TimeSeries observations, final TimePeriod seasonalCycle) {
+    return autoModel(observations, seasonalCycle, InformationCriterion.AICC);
+  }
+
+  /**
+   * Automatically select and fit an ARIMA model to the given observations, using the given information criterion to
+   * compare candidate models. See {@link #autoModel(TimeSeries, TimePeriod)} for details of the search.
+   *
+   * @param observations the time series of observations.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @param criterion the information criterion used to compare candidate models.
+   * @return the ARIMA model with the smallest value of the given information criterion found by the search.
+   */
+  public static Arima autoModel(final TimeSeries observations, final TimePeriod seasonalCycle,
+                                final InformationCriterion criterion) {
+    return new AutoArima(observations, seasonalCycle, criterion).search();
+  }
+
   /**
    * Create a new ARIMA model from the given observations, model order, and seasonal cycle. This method sets the
    * model {@link FittingStrategy} to unconditional sum-of-squares.
@@ -166,20 +231,26 @@ public final class Arima implements Model {
    */
   private Arima(final TimeSeries observations, final ModelOrder order, final TimePeriod seasonalCycle,
       final FittingStrategy fittingStrategy) {
+    this(observations, order, seasonalCycle, fittingStrategy, new ArimaWorkspace(), null, OptimizerOptions.defaults());
+  }
+
+  private Arima(final TimeSeries observations, final ModelOrder order, final TimePeriod seasonalCycle,
+      final FittingStrategy fittingStrategy, final ArimaWorkspace workspace, final double[] initialParameters,
+      final OptimizerOptions options) {
     this.observations = observations;
     this.order = order;
     this.seasonalFrequency = (int) (observations.timePeriod().frequencyPer(seasonalCycle));
     this.differencedSeries = observations.difference(1, order.d).difference(seasonalFrequency, order.D);
 
-    final Vector initParams = new Vector(getInitialParameters());
+    final Vector initParams = new Vector(
+        (initialParameters == null) ? getInitialParameters() : validInitialParameters(initialParameters));
     final Matrix initHessian = getInitialHessian(initParams.elements());
     final AbstractMultivariateFunction function = new OptimFunction(differencedSeries, order, fittingStrategy,
-        seasonalFrequency);
-    final BFGS optimizer = new BFGS(function, initParams, 1e-8, 1e-8, initHessian);
+        seasonalFrequency, workspace);
+    final BFGS optimizer = new BFGS(function, initParams, options, initHessian);
     final Vector optimizedParams = optimizer.parameters();
     final Matrix inverseHessian = optimizer.inverseHessian();
-    System.out.println(function.functionEvaluations());
-    System.out.println(function.gradientEvaluations());
+    this.optimizationResult = optimizer.result();
     this.stdErrors = DoubleFunctions.sqrt(inverseHessian.scaledBy((1.0) / differencedSeries.n()).diagonal());
     final double[] arCoeffs = getArCoeffs(optimizedParams);
     final double[] maCoeffs = getMaCoeffs(optimizedParams);
@@ -192,8 +263,10 @@ public final class Arima implements Model {
     this.intercept = mean * (1 - sumOf(arCoeffs));
     this.modelCoefficients = new ModelCoefficients(arCoeffs, maCoeffs, sarCoeffs, smaCoeffs, order.d, order.D,
         this.mean);
-    if (fittingStrategy == FittingStrategy.CSS) {
-      this.modelInfo = fitCss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, order);
+    if (fittingStrategy != FittingStrategy.USS) {
+      this.modelInfo = (fittingStrategy == FittingStrategy.CSS)
+          ? fitCss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, order)
+          : fitMl(differencedSeries, arSarCoeffs, maSmaCoeffs, mean);
       final double[] residuals = modelInfo.residuals;
       final double[] fittedArray = integrate(differenceOf(differencedSeries.series(), residuals));
       this.fittedSeries = new TimeSeries(observations.timePeriod(), observations.observationTimes(), fittedArray);
@@ -252,8 +325,11 @@ public final class Arima implements Model {
     this.mean = coeffs.mean;
     this.intercept = mean * (1 - sumOf(arSarCoeffs));
     this.stdErrors = DoubleFunctions.fill(order.sumARMA() + order.constant, Double.POSITIVE_INFINITY);
-    if (fittingStrategy == FittingStrategy.CSS) {
-      this.modelInfo = fitCss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, order);
+    this.optimizationResult = null;
+    if (fittingStrategy != FittingStrategy.USS) {
+      this.modelInfo = (fittingStrategy == FittingStrategy.CSS)
+          ? fitCss(differencedSeries, arSarCoeffs, maSmaCoeffs, mean, order)
+          : fitMl(differencedSeries, arSarCoeffs, maSmaCoeffs, mean);
       final double[] residuals = modelInfo.residuals;
       final double[] fittedArray = integrate(differenceOf(differencedSeries.series(), residuals));
       this.fittedSeries = new TimeSeries(observations.timePeriod(), observations.observationTimes(), fittedArray);
@@ -284,18 +360,23 @@ public final class Arima implements Model {
                                  final double[] maCoeffs, final double mean, final ModelOrder order) {
     final int offset = arCoeffs.length;
     final int n = differencedSeries.n();
+    final double[] series = differencedSeries.series();
+    final SparseLags ar = SparseLags.of(arCoeffs);
+    final SparseLags ma = SparseLags.of(maCoeffs);
 
     final double[] fitted = new double[n];
     final double[] residuals = new double[n];
 
     for (int t = offset; t < fitted.length; t++) {
-      for (int i = 0; i < arCoeffs.length; i++) {
-        fitted[t] += mean + arCoeffs[i] * (differencedSeries.at(t - i - 1) - mean);
+      // The mean enters once for each autoregressive coefficient, whether or not the coefficient is zero.
+      fitted[t] = offset * mean;
+      for (int l = 0; l < ar.size; l++) {
+        fitted[t] += ar.values[l] * (series[t - ar.lags[l] - 1] - mean);
       }
-      for (int j = 0; j < Math.min(t, maCoeffs.length); j++) {
-        fitted[t] += maCoeffs[j] * residuals[t - j - 1];
+      for (int l = 0; l < ma.size && ma.lags[l] < t; l++) {
+        fitted[t] += ma.values[l] * residuals[t - ma.lags[l] - 1];
       }
-      residuals[t] = differencedSeries.at(t) - fitted[t];
+      residuals[t] = series[t] - fitted[t];
     }
     final int m = differencedSeries.n() - order.sumARMA() - order.constant;
     final double sigma2 = sumOfSquared(residuals) / m;
@@ -316,6 +397,8 @@ public final class Arima implements Model {
                                  final double[] maCoeffs, final double mean, final ModelOrder order) {
     int n = differencedSeries.n();
     final int m = arCoeffs.length;
+    final SparseLags ar = SparseLags.of(arCoeffs);
+    final SparseLags ma = SparseLags.of(maCoeffs);
     final double[] extendedFit = new double[2 * m + n];
     final double[] extendedSeries = new double[2 * m + n];
     final double[] residuals = new double[2 * m + n];
@@ -326,10 +409,8 @@ public final class Arima implements Model {
     n = differencedSeries.n();
     for (int t = n; t < n + 2 * m; t++) {
       extendedSeries[t] = mean;
-      for (int i = 0; i < arCoeffs.length; i++) {
-        if (Math.abs(arCoeffs[i]) > 0) {
-          extendedSeries[t] += arCoeffs[i] * (extendedSeries[t - i - 1] - mean);
-        }
+      for (int l = 0; l < ar.size; l++) {
+        extendedSeries[t] += ar.values[l] * (extendedSeries[t - ar.lags[l] - 1] - mean);
       }
     }
 
@@ -339,15 +420,11 @@ public final class Arima implements Model {
     }
     for (int t = m; t < n; t++) {
       extendedFit[t] = mean;
-      for (int i = 0; i < arCoeffs.length; i++) {
-        if (Math.abs(arCoeffs[i]) > 0) {
-          extendedFit[t] += arCoeffs[i] * (extendedSeries[n - t + i] - mean);
-        }
+      for (int l = 0; l < ar.size; l++) {
+        extendedFit[t] += ar.values[l] * (extendedSeries[n - t + ar.lags[l]] - mean);
       }
-      for (int j = 0; j < Math.min(t, maCoeffs.length); j++) {
-        if (Math.abs(maCoeffs[j]) > 0) {
-          extendedFit[t] += maCoeffs[j] * residuals[t - j - 1];
-        }
+      for (int l = 0; l < ma.size && ma.lags[l] < t; l++) {
+        extendedFit[t] += ma.values[l] * residuals[t - ma.lags[l] - 1];
       }
       residuals[t] = extendedSeries[n - t - 1] - extendedFit[t];
     }
@@ -358,6 +435,25 @@ public final class Arima implements Model {
     return new ModelInformation(sigma2, logLikelihood, residuals, extendedFit);
   }
 
+  /**
+   * Fit the model using exact maximum likelihood, computing the one-step-ahead prediction errors and their variances
+   * with the Kalman filter. The residuals are the prediction errors, and the fitted values the one-step-ahead
+   * predictions.
+   * 
+   * @return information about the model fit.
+   */
+  static ModelInformation fitMl(final TimeSeries differencedSeries, final double[] arCoeffs,
+                                final double[] maCoeffs, final double mean) {
+    final double[] centered = differencedSeries.series();
+    for (int t = 0; t < centered.length; t++) {
+      centered[t] -= mean;
+    }
+    final KalmanFilter filter = new KalmanFilter(new StateSpaceARMA(centered, arCoeffs, maCoeffs));
+    final double[] residuals = filter.predictionErrors();
+    final double[] fitted = differenceOf(differencedSeries.series(), residuals);
+    return new ModelInformation(filter.sigma2(), filter.logLikelihood(), residuals, fitted);
+  }
+
   /**
    * Forecast the given number of steps ahead and return the result in a new array of doubles.
    * 
@@ -365,42 +461,69 @@ public final class Arima implements Model {
    * @return a forecast from this model for the given number of steps.
    */
   public final double[] forecast(final int steps) {
-    final int d = order.d;
-    final int D = order.D;
-    final int n = differencedSeries.n();
-    final int m = observations.n();
-    final double[] resid = this.residuals.series();
-    final double[] diffedFcst = new double[n + steps];
-    final double[] fcst = new double[m + steps];
-    System.arraycopy(differencedSeries.series(), 0, diffedFcst, 0, n);
-    System.arraycopy(observations.series(), 0, fcst, 0, m);
-    LagPolynomial diffPolynomial = LagPolynomial.differences(d);
-    LagPolynomial seasDiffPolynomial = LagPolynomial.seasonalDifferences(seasonalFrequency, D);
-    LagPolynomial lagPolyomial = diffPolynomial.times(seasDiffPolynomial);
-    for (int t = 0; t < steps; t++) {
-      diffedFcst[n + t] = mean;
-      fcst[m + t] = mean;
-      fcst[m + t] += lagPolyomial.applyInverse(fcst, m + t);
-      for (int i = 0; i < arSarCoeffs.length; i++) {
-        diffedFcst[n + t] += arSarCoeffs[i] * (diffedFcst[n + t - i - 1] - mean);
-        fcst[m + t] += arSarCoeffs[i] * (diffedFcst[n + t - i - 1] - mean);
-      }
-      for (int j = maSmaCoeffs.length; j > 0 && t - j < 0; j--) {
-        diffedFcst[n + t] += maSmaCoeffs[j - 1] * resid[m + t - j];
-        fcst[m + t] += maSmaCoeffs[j - 1] * resid[m + t - j];
-      }
-    }
-    return slice(fcst, m, m + steps);
+    final double[] forecast = new double[steps];
+    new ForecastState(this, 0).forecastInto(forecast);
+    return forecast;
+  }
+
+  /**
+   * Extract the state needed to forecast from the end of the observations, with prediction interval bounds for up to
+   * the given number of steps ahead. The state is independent of the length of the observations, and forecasts into
+   * caller-supplied arrays without allocating.
+   *
+   * @param maxSteps the largest number of steps ahead for which prediction interval bounds will be needed.
+   * @return the state needed to forecast from the end of the observations.
+   * @throws IllegalArgumentException if the maximum number of steps is negative.
+   */
+  public final ForecastState forecastState(final int maxSteps) {
+    return new ForecastState(this, maxSteps);
+  }
+
+  /**
+   * Simulate the given number of sample paths, each continuing the observations for the given number of steps, with
+   * errors bootstrapped from the residuals. The paths are simulated in parallel on all available processors; use an
+   * {@link ArimaSimulator} directly to choose the errors, the seed, or the parallelism.
+   *
+   * @param steps the number of steps in each path.
+   * @param nPaths the number of paths to simulate.
+   * @return the simulated paths.
+   */
+  public final ArimaSimulator.Paths simulatePaths(final int steps, final int nPaths) {
+    return ArimaSimulator.newBuilder().build().simulate(this, steps, nPaths);
+  }
+
+  /**
+   * Simulate a single continuation of the observations for the given number of steps, with Gaussian errors of the
+   * model's variance. The same seed always gives the same series, which makes this suitable for generating synthetic
+   * data.
+   *
+   * @param steps the number of steps to simulate.
+   * @param seed the seed of the random number generator.
+   * @return a simulated continuation of the observations.
+   */
+  public final TimeSeries simulate(final int steps, final long seed) {
+    final ArimaSimulator simulator = ArimaSimulator.newBuilder().innovations(ArimaSimulator.Innovations.GAUSSIAN)
+                                                   .seed(seed).parallelism(1).build();
+    return new TimeSeries(observations.timePeriod(), forecastStart(), simulator.simulate(this, steps, 1).path(0));
   }
 
   @Override
   public TimeSeries pointForecast(int steps) {
-    final int n = observations.n();
-    double[] fcst = forecast(steps);
-    TimePeriod timePeriod = observations.timePeriod();
-    final OffsetDateTime startTime = observations.observationTimes().get(n - 1).plus(
+    return pointForecast(new ForecastState(this, 0), steps);
+  }
+
+  // The point forecasts from the given state of this model, as a series starting one period after the last observation.
+  final TimeSeries pointForecast(final ForecastState state, final int steps) {
+    final double[] fcst = new double[steps];
+    state.forecastInto(fcst);
+    return new TimeSeries(observations.timePeriod(), forecastStart(), fcst);
+  }
+
+  // The observation time one period after the last observation.
+  private OffsetDateTime forecastStart() {
+    final TimePeriod timePeriod = observations.timePeriod();
+    return observations.observationTimes().get(observations.n() - 1).plus(
         timePeriod.periodLength() * timePeriod.timeUnit().unitLength(), timePeriod.timeUnit().temporalUnit());
-    return new TimeSeries(timePeriod, startTime, fcst);
   }
 
   @Override
@@ -436,6 +559,15 @@ public final class Arima implements Model {
     return builder.build();
   }
 
+  private double[] validInitialParameters(final double[] initialParameters) {
+    final int expected = order.sumARMA() + order.constant;
+    if (initialParameters.length != expected) {
+      throw new IllegalArgumentException("The model order requires " + expected + " initial parameters, but " +
+                                         initialParameters.length + " were given.");
+    }
+    return initialParameters.clone();
+  }
+
   private double[] getInitialParameters() {
     // Set initial constant to the mean and all other parameters to zero.
     double[] initParams = new double[order.sumARMA() + order.constant];
@@ -451,19 +583,24 @@ public final class Arima implements Model {
   static double[] expandArCoefficients(final double[] arCoeffs, final double[] sarCoeffs,
                                        final int seasonalFrequency) {
     double[] arSarCoeffs = new double[arCoeffs.length + sarCoeffs.length * seasonalFrequency];
+    expandArCoefficients(arCoeffs, arCoeffs.length, sarCoeffs, sarCoeffs.length, seasonalFrequency, arSarCoeffs);
+    return arSarCoeffs;
+  }
 
-    System.arraycopy(arCoeffs, 0, arSarCoeffs, 0, arCoeffs.length);
+  // Expand the first p autoregressive and first P seasonal autoregressive coefficients in place. Only the indices
+  // that may be non-zero are written, so the remaining indices of the target must already be zero.
+  static void expandArCoefficients(final double[] arCoeffs, final int p, final double[] sarCoeffs, final int P,
+                                   final int seasonalFrequency, final double[] arSarCoeffs) {
+    System.arraycopy(arCoeffs, 0, arSarCoeffs, 0, p);
 
     // Note that we take into account the interaction between the seasonal and non-seasonal coefficients,
     // which arises because the model's ar and sar polynomials are multiplied together.
-    for (int i = 0; i < sarCoeffs.length; i++) {
+    for (int i = 0; i < P; i++) {
       arSarCoeffs[(i + 1) * seasonalFrequency - 1] = sarCoeffs[i];
-      for (int j = 0; j < arCoeffs.length; j++) {
+      for (int j = 0; j < p; j++) {
         arSarCoeffs[(i + 1) * seasonalFrequency + j] = -sarCoeffs[i] * arCoeffs[j];
       }
     }
-
-    return arSarCoeffs;
   }
 
   // Expand the moving average coefficients by combining the non-seasonal and seasonal coefficients into a single
@@ -472,19 +609,25 @@ public final class Arima implements Model {
   static double[] expandMaCoefficients(final double[] maCoeffs, final double[] smaCoeffs,
                                        final int seasonalFrequency) {
     double[] maSmaCoeffs = new double[maCoeffs.length + smaCoeffs.length * seasonalFrequency];
+    expandMaCoefficients(maCoeffs, maCoeffs.length, smaCoeffs, smaCoeffs.length, seasonalFrequency, maSmaCoeffs);
+    return maSmaCoeffs;
+  }
 
-    System.arraycopy(maCoeffs, 0, maSmaCoeffs, 0, maCoeffs.length);
+  // Expand the first q moving average and first Q seasonal moving average coefficients in place. Only the indices
+  // that may be non-zero are written, so the remaining indices of the target must already be zero.
+  static void expandMaCoefficients(final double[] maCoeffs, final int q, final double[] smaCoeffs, final int Q,
+                                   final int seasonalFrequency, final double[] maSmaCoeffs) {
+    System.arraycopy(maCoeffs, 0, maSmaCoeffs, 0, q);
 
     // Note that we take into account the interaction between the seasonal and non-seasonal coefficients,
     // which arises because the model's ma and sma polynomials are multiplied together.
     // In contrast to the ar polynomial, the ma and sma product maintains a positive sign.
-    for (int i = 0; i < smaCoeffs.length; i++) {
+    for (int i = 0; i < Q; i++) {
       maSmaCoeffs[(i + 1) * seasonalFrequency - 1] = smaCoeffs[i];
-      for (int j = 0; j < maCoeffs.length; j++) {
+      for (int j = 0; j < q; j++) {
         maSmaCoeffs[(i + 1) * seasonalFrequency + j] = smaCoeffs[i] * maCoeffs[j];
       }
     }
-    return maSmaCoeffs;
   }
 
   private double[] getSarCoeffs(final Vector optimizedParams) {
@@ -563,6 +706,17 @@ public final class Arima implements Model {
     return this.stdErrors.clone();
   }
 
+  /**
+   * A summary of the optimization that estimated the model coefficients: why it stopped, the iterations and function
+   * evaluations it took, and the time it spent.
+   *
+   * @return a summary of the optimization that estimated the model coefficients, or null if the coefficients were
+   *         given rather than estimated.
+   */
+  public final OptimizationResult optimizationResult() {
+    return this.optimizationResult;
+  }
+
   /**
    * The model intercept term. Note that this is <i>not</i> the model mean, as in R, but the actual intercept.
    * 
@@ -599,6 +753,40 @@ public final class Arima implements Model {
     return modelInfo.logLikelihood;
   }
 
+  /**
+   * The Akaike information criterion of this model, computed from the log-likelihood.
+   * 
+   * @return the Akaike information criterion of this model.
+   */
+  public final double aic() {
+    return -2 * logLikelihood() + 2 * parameterCount();
+  }
+
+  /**
+   * The Akaike information criterion of this model corrected for small sample sizes.
+   * 
+   * @return the Akaike information criterion of this model corrected for small sample sizes.
+   */
+  public final double aicc() {
+    final int k = parameterCount();
+    final int n = differencedSeries.n();
+    return aic() + (2.0 * k * (k + 1)) / (n - k - 1);
+  }
+
+  /**
+   * The Bayesian information criterion of this model, computed from the log-likelihood.
+   * 
+   * @return the Bayesian information criterion of this model.
+   */
+  public final double bic() {
+    return -2 * logLikelihood() + parameterCount() * Math.log(differencedSeries.n());
+  }
+
+  // The number of estimated parameters, including the model variance.
+  private int parameterCount() {
+    return order.sumARMA() + order.constant + 1;
+  }
+
   final double[] arSarCoefficients() {
     return this.arSarCoeffs.clone();
   }
@@ -998,6 +1186,15 @@ public final class Arima implements Model {
       this.fitted = fitted.clone();
     }
 
+    /**
+     * Return the estimate of the model variance.
+     * 
+     * @return the estimate of the model variance.
+     */
+    double sigma2() {
+      return this.sigma2;
+    }
+
     @Override
     public String toString() {
       return "sigma2: " + sigma2 + "\nlogLikelihood: " + logLikelihood;
@@ -1029,53 +1226,129 @@ public final class Arima implements Model {
     }
   }
 
-  public static final class OptimFunction extends AbstractMultivariateFunction {
+  /**
+   * The objective function minimized when fitting an ARIMA model. For the sum-of-squares strategies, this is equal to
+   * one half of the log of the estimated model variance, and both the value and the exact gradient are available, the
+   * latter computed in the same recursive pass over the residuals as the sum-of-squares itself. For maximum
+   * likelihood, it is the negative of the concentrated log-likelihood divided by the number of observations.
+   * Evaluations reuse a single workspace, so that the many evaluations made while fitting a model allocate no
+   * intermediate arrays.
+   */
+  public static final class OptimFunction extends AbstractMultivariateFunction
+      implements DifferentiableMultivariateFunction {
+
+    private static final double GRADIENT_STEP = 1E-4;
 
     private final TimeSeries differencedSeries;
     private final ModelOrder order;
     private final FittingStrategy fittingStrategy;
     private final int seasonalFrequency;
-    private final double[] arParams;
-    private final double[] maParams;
-    private final double[] sarParams;
-    private final double[] smaParams;
+    private final double denominator;
+    private final ArimaWorkspace workspace;
+    private final double[] scratchPoint;
+    // The point and value of the most recent maximum likelihood evaluation made without the gradient.
+    private final double[] lastPoint;
+    private double lastValue = Double.NaN;
 
     public OptimFunction(final TimeSeries differencedSeries, final ModelOrder order, final FittingStrategy fittingStrategy,
         final int seasonalFrequency) {
+      this(differencedSeries, order, fittingStrategy, seasonalFrequency, new ArimaWorkspace());
+    }
+
+    OptimFunction(final TimeSeries differencedSeries, final ModelOrder order, final FittingStrategy fittingStrategy,
+                  final int seasonalFrequency, final ArimaWorkspace workspace) {
       this.differencedSeries = differencedSeries;
       this.order = order;
       this.fittingStrategy = fittingStrategy;
       this.seasonalFrequency = seasonalFrequency;
-      this.arParams = new double[order.p];
-      this.maParams = new double[order.q];
-      this.sarParams = new double[order.P];
-      this.smaParams = new double[order.Q];
+      this.denominator = (fittingStrategy == FittingStrategy.CSS)
+          ? differencedSeries.n() - order.sumARMA() - order.constant : differencedSeries.n();
+      this.workspace = workspace.prepare(differencedSeries.series(), order, seasonalFrequency);
+      this.scratchPoint = new double[order.sumARMA() + order.constant];
+      this.lastPoint = new double[order.sumARMA() + order.constant];
     }
 
     @Override
     public final double at(final Vector point) {
       functionEvaluations++;
-      final double[] params = point.elements();
-      System.arraycopy(params, 0, arParams, 0, order.p);
-      System.arraycopy(params, order.p, maParams, 0, order.q);
-      for (int i = 0; i < order.P; i++) {
-        sarParams[i] = params[i + order.p + order.q];
+      final double[] elements = point.elements();
+      workspace.setParameters(elements);
+      if (fittingStrategy == FittingStrategy.ML) {
+        System.arraycopy(elements, 0, lastPoint, 0, lastPoint.length);
+        lastValue = workspace.mlObjective();
+        return lastValue;
+      }
+      final double sumOfSquares = (fittingStrategy == FittingStrategy.CSS)
+          ? workspace.cssSumOfSquares() : workspace.ussSumOfSquares();
+      return 0.5 * Math.log(sumOfSquares / denominator);
+    }
+
+    @Override
+    public final Vector gradientAt(final Vector point) {
+      gradientEvalutations++;
+      final double[] gradient = new double[point.size()];
+      objectiveAndGradient(point.elements(), gradient);
+      return new Vector(gradient);
+    }
+
+    @Override
+    public final Vector gradientAt(final Vector point, final double functionValue) {
+      return gradientAt(point);
+    }
+
+    @Override
+    public final boolean isGradientCheap() {
+      return fittingStrategy != FittingStrategy.ML;
+    }
+
+    @Override
+    public final double valueAndGradientAt(final double[] point, final double[] gradient) {
+      functionEvaluations++;
+      gradientEvalutations++;
+      return objectiveAndGradient(point, gradient);
+    }
+
+    private double objectiveAndGradient(final double[] point, final double[] gradient) {
+      if (fittingStrategy == FittingStrategy.ML) {
+        return likelihoodAndGradient(point, gradient);
+      }
+      workspace.setParameters(point);
+      final double sumOfSquares = (fittingStrategy == FittingStrategy.CSS)
+          ? workspace.cssSumOfSquaresAndGradient(gradient) : workspace.ussSumOfSquaresAndGradient(gradient);
+      // The variance is the sum-of-squares divided by a constant, so d/dx 0.5 * log(sigma2) = 0.5 * dSS / SS.
+      for (int i = 0; i < gradient.length; i++) {
+        gradient[i] = 0.5 * gradient[i] / sumOfSquares;
+      }
+      return 0.5 * Math.log(sumOfSquares / denominator);
+    }
+
+    // The likelihood has no cheap exact gradient, so use central differences, reusing a single scratch point. The
+    // step is relative to the size of each parameter, since the mean may be on a very different scale from the
+    // coefficients.
+    private double likelihoodAndGradient(final double[] point, final double[] gradient) {
+      System.arraycopy(point, 0, scratchPoint, 0, point.length);
+      for (int i = 0; i < point.length; i++) {
+        final double h = GRADIENT_STEP * Math.max(1.0, Math.abs(point[i]));
+        scratchPoint[i] = point[i] + h;
+        workspace.setParameters(scratchPoint);
+        final double forward = workspace.mlObjective();
+        scratchPoint[i] = point[i] - h;
+        workspace.setParameters(scratchPoint);
+        final double backward = workspace.mlObjective();
+        scratchPoint[i] = point[i];
+        gradient[i] = (forward - backward) / (2 * h);
       }
-      for (int i = 0; i < order.Q; i++) {
-        smaParams[i] = params[i + order.p + order.q + order.P];
+      workspace.setParameters(point);
+      // A line search usually asks for the gradient at the point whose value it has just computed.
+      if (Arrays.equals(point, lastPoint) && !Double.isNaN(lastValue)) {
+        return lastValue;
       }
-      final double[] arCoeffs = Arima.expandArCoefficients(arParams, sarParams, seasonalFrequency);
-      final double[] maCoeffs = Arima.expandMaCoefficients(maParams, smaParams, seasonalFrequency);
-      final double mean = (order.constant == 1) ? params[params.length - 1] : 0.0;
-      final ModelInformation info = (fittingStrategy == FittingStrategy.CSS)
-          ? Arima.fitCss(differencedSeries, arCoeffs, maCoeffs, mean, order)
-          : Arima.fitUss(differencedSeries, arCoeffs, maCoeffs, mean, order);
-      return 0.5 * Math.log(info.sigma2);
+      return workspace.mlObjective();
     }
 
     @Override
     public String toString() {
-      return "differencedSeries: " + differencedSeries + "\norder: " + order + "\nfittingStrategy: " + fittingStrategy + "\nseasonalFrequency: " + seasonalFrequency + "\narParams: " + Arrays.toString(arParams) + "\nmaParams: " + Arrays.toString(maParams) + "\nsarParams: " + Arrays.toString(sarParams) + "\nsmaParams: " + Arrays.toString(smaParams);
+      return "differencedSeries: " + differencedSeries + "\norder: " + order + "\nfittingStrategy: " + fittingStrategy + "\nseasonalFrequency: " + seasonalFrequency;
     }
 
     @SuppressWarnings("ConstantConditions")
@@ -1083,14 +1356,10 @@ public final class Arima implements Model {
     public int hashCode() {
       final int prime = 31;
       int result = 1;
-      result = prime * result + Arrays.hashCode(arParams);
       result = prime * result + ((differencedSeries == null) ? 0 : differencedSeries.hashCode());
       result = prime * result + ((fittingStrategy == null) ? 0 : fittingStrategy.hashCode());
-      result = prime * result + Arrays.hashCode(maParams);
       result = prime * result + ((order == null) ? 0 : order.hashCode());
-      result = prime * result + Arrays.hashCode(sarParams);
       result = prime * result + seasonalFrequency;
-      result = prime * result + Arrays.hashCode(smaParams);
       return result;
     }
 
@@ -1101,17 +1370,14 @@ public final class Arima implements Model {
       if (obj == null) return false;
       if (getClass() != obj.getClass()) return false;
       OptimFunction other = (OptimFunction) obj;
-      if (!Arrays.equals(arParams, other.arParams)) return false;
       if (differencedSeries == null) {
         if (other.differencedSeries != null) return false;
       } else if (!differencedSeries.equals(other.differencedSeries)) return false;
       if (fittingStrategy != other.fittingStrategy) return false;
-      if (!Arrays.equals(maParams, other.maParams)) return false;
       if (order == null) {
         if (other.order != null) return false;
       } else if (!order.equals(other.order)) return false;
-      if (!Arrays.equals(sarParams, other.sarParams)) return false;
-      return seasonalFrequency == other.seasonalFrequency && Arrays.equals(smaParams, other.smaParams);
+      return seasonalFrequency == other.seasonalFrequency;
     }
   }
 
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * Fits ARIMA models to many time series in parallel. At most a fixed number of series are fit at once, each worker
+ * reusing a single optimizer workspace for every series it fits. Results are returned in the order of the input
+ * series, and a failure to fit one series is captured in the result rather than aborting the rest of the batch.
+ *
+ * <p>
+ * Instances are immutable, apart from the per-thread workspaces, and may be used to fit any number of batches.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class ArimaBatch {
+
+  private final FittingStrategy fittingStrategy;
+  private final TimePeriod seasonalCycle;
+  private final int parallelism;
+  private final Executor executor;
+  private final ThreadLocal<ArimaWorkspace> workspaces = ThreadLocal.withInitial(ArimaWorkspace::new);
+
+  private ArimaBatch(final Builder builder) {
+    this.fittingStrategy = builder.fittingStrategy;
+    this.seasonalCycle = builder.seasonalCycle;
+    this.parallelism = builder.parallelism;
+    this.executor = builder.executor;
+  }
+
+  /**
+   * Get a new builder for an ARIMA batch.
+   *
+   * @return a new builder for an ARIMA batch.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Fit a model of the given order to each of the given series.
+   *
+   * @param series the time series to fit models to.
+   * @param order the order of the model to fit to every series.
+   * @return the result of fitting the batch, with one outcome per series in the order of the input.
+   */
+  public Result fit(final List<TimeSeries> series, final ModelOrder order) {
+    return fit(series, Collections.nCopies(series.size(), order));
+  }
+
+  /**
+   * Fit a model to each of the given series, using the order at the same position in the list of orders.
+   *
+   * @param series the time series to fit models to.
+   * @param orders the model order for each series.
+   * @return the result of fitting the batch, with one outcome per series in the order of the input.
+   */
+  public Result fit(final List<TimeSeries> series, final List<ModelOrder> orders) {
+    if (series.size() != orders.size()) {
+      throw new IllegalArgumentException("The number of model orders, " + orders.size() + ", must equal the number " +
+                                         "of series, " + series.size() + ".");
+    }
+    final int n = series.size();
+    final Arima[] models = new Arima[n];
+    final RuntimeException[] failures = new RuntimeException[n];
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicLong fitNanos = new AtomicLong();
+    final Runnable worker = () -> {
+      final ArimaWorkspace workspace = workspaces.get();
+      int i;
+      while ((i = next.getAndIncrement()) < n) {
+        final long start = System.nanoTime();
+        try {
+          final TimeSeries observations = series.get(i);
+          final TimePeriod cycle = (seasonalCycle == null) ? observations.timePeriod() : seasonalCycle;
+          models[i] = Arima.model(observations, orders.get(i), cycle, fittingStrategy, workspace);
+        } catch (RuntimeException e) {
+          failures[i] = e;
+        }
+        fitNanos.addAndGet(System.nanoTime() - start);
+      }
+    };
+
+    final long start = System.nanoTime();
+    BoundedWorkers.run(worker, Math.min(parallelism, n), executor);
+    return new Result(models, failures, System.nanoTime() - start, fitNanos.get());
+  }
+
+  /**
+   * The outcome of fitting a batch of ARIMA models.
+   *
+   * @author Jacob Rachiele
+   */
+  public static final class Result {
+
+    private final Arima[] models;
+    private final RuntimeException[] failures;
+    private final long elapsedNanos;
+    private final long fitNanos;
+    private final int failureCount;
+
+    private Result(final Arima[] models, final RuntimeException[] failures, final long elapsedNanos,
+                   final long fitNanos) {
+      this.models = models;
+      this.failures = failures;
+      this.elapsedNanos = elapsedNanos;
+      this.fitNanos = fitNanos;
+      int count = 0;
+      for (RuntimeException failure : failures) {
+        if (failure != null) {
+          count++;
+        }
+      }
+      this.failureCount = count;
+    }
+
+    /**
+     * The number of series in the batch.
+     *
+     * @return the number of series in the batch.
+     */
+    public int size() {
+      return this.models.length;
+    }
+
+    /**
+     * Return true if the model for the series at the given index was successfully fit.
+     *
+     * @param index the position of the series in the batch.
+     * @return true if the model for the series at the given index was successfully fit.
+     */
+    public boolean succeeded(final int index) {
+      return this.failures[index] == null;
+    }
+
+    /**
+     * Return the model fit to the series at the given index.
+     *
+     * @param index the position of the series in the batch.
+     * @return the model fit to the series at the given index.
+     * @throws IllegalStateException if the model for the series at the given index could not be fit.
+     */
+    public Arima model(final int index) {
+      if (failures[index] != null) {
+        throw new IllegalStateException("The model for the series at index " + index + " could not be fit.",
+                                        failures[index]);
+      }
+      return this.models[index];
+    }
+
+    /**
+     * Return the exception thrown while fitting the series at the given index, or null if the fit succeeded.
+     *
+     * @param index the position of the series in the batch.
+     * @return the exception thrown while fitting the series at the given index, or null if the fit succeeded.
+     */
+    public RuntimeException failure(final int index) {
+      return this.failures[index];
+    }
+
+    /**
+     * Return the successfully fit models, in the order of their series in the batch.
+     *
+     * @return the successfully fit models, in the order of their series in the batch.
+     */
+    public List<Arima> models() {
+      final List<Arima> fitted = new ArrayList<>(models.length - failureCount);
+      for (int i = 0; i < models.length; i++) {
+        if (failures[i] == null) {
+          fitted.add(models[i]);
+        }
+      }
+      return fitted;
+    }
+
+    /**
+     * The number of series whose model could not be fit.
+     *
+     * @return the number of series whose model could not be fit.
+     */
+    public int failureCount() {
+      return this.failureCount;
+    }
+
+    /**
+     * The wall-clock time taken to fit the whole batch, in nanoseconds.
+     *
+     * @return the wall-clock time taken to fit the whole batch, in nanoseconds.
+     */
+    public long elapsedNanos() {
+      return this.elapsedNanos;
+    }
+
+    /**
+     * The time spent fitting models summed over all workers, in nanoseconds. The ratio of this time to the
+     * elapsed time is the effective parallelism achieved.
+     *
+     * @return the time spent fitting models summed over all workers, in nanoseconds.
+     */
+    public long totalFitNanos() {
+      return this.fitNanos;
+    }
+
+    /**
+     * The number of series processed per second of wall-clock time.
+     *
+     * @return the number of series processed per second of wall-clock time.
+     */
+    public double seriesPerSecond() {
+      return models.length / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+      return "size: " + size() + "\nfailureCount: " + failureCount + "\nelapsedMillis: " +
+             TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "\nseriesPerSecond: " + seriesPerSecond();
+    }
+  }
+
+  /**
+   * A builder for an ARIMA batch.
+   *
+   * @author Jacob Rachiele
+   */
+  public static final class Builder {
+
+    private FittingStrategy fittingStrategy = FittingStrategy.USS;
+    private TimePeriod seasonalCycle = null;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Executor executor = null;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the strategy used to fit every model. The default is unconditional sum-of-squares.
+     *
+     * @param fittingStrategy the strategy used to fit every model.
+     * @return this builder.
+     */
+    public Builder fittingStrategy(final FittingStrategy fittingStrategy) {
+      this.fittingStrategy = fittingStrategy;
+      return this;
+    }
+
+    /**
+     * Set the seasonal cycle shared by every series. By default, the time period of each series is used.
+     *
+     * @param seasonalCycle the seasonal cycle shared by every series.
+     * @return this builder.
+     */
+    public Builder seasonalCycle(final TimePeriod seasonalCycle) {
+      this.seasonalCycle = seasonalCycle;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of series fit at the same time. The default is the number of available processors.
+     *
+     * @param parallelism the maximum number of series fit at the same time.
+     * @return this builder.
+     */
+    public Builder parallelism(final int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("The parallelism must be at least 1, but was " + parallelism + ".");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Set the executor that runs the fitting workers. By default, a new fork-join pool with the configured
+     * parallelism is created for, and shut down after, each batch. A supplied executor is never shut down, and no more
+     * than the configured parallelism's worth of workers are submitted to it.
+     *
+     * @param executor the executor that runs the fitting workers.
+     * @return this builder.
+     */
+    public Builder executor(final Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Construct a new ARIMA batch from the configured values.
+     *
+     * @return a new ARIMA batch from the configured values.
+     */
+    public ArimaBatch build() {
+      if (fittingStrategy == null) {
+        throw new IllegalArgumentException("The fitting strategy must not be null.");
+      }
+      return new ArimaBatch(this);
+    }
+  }
+}
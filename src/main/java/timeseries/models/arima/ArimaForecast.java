@@ -27,13 +27,13 @@ import org.knowm.xchart.style.markers.Circle;
 
 import com.google.common.primitives.Doubles;
 
-import stats.distributions.Normal;
 import timeseries.TimeSeries;
 import timeseries.models.Forecast;
-import timeseries.operators.LagPolynomial;
 
 /**
- * A forecast for an ARIMA model.
+ * A forecast for an ARIMA model. The psi weights, and from them the standard deviations of the forecast errors, are
+ * computed once when the forecast is created, so prediction bounds at any number of further significance levels or
+ * quantiles cost only a pass over the forecast steps.
  * @author Jacob Rachiele
  *
  */
@@ -45,7 +45,9 @@ public final class ArimaForecast implements Forecast {
   private final TimeSeries lowerValues;
   private final double alpha;
   private final double criticalValue;
-  private final TimeSeries fcstErrors;  
+  private final TimeSeries fcstErrors;
+  // The standard deviations of the forecast errors, element h - 1 for the forecast h steps ahead.
+  private final double[] stdDeviations;
   
   /**
    * Create a new forecast for the given number of steps from the provided ARIMA model and with the given
@@ -102,9 +104,14 @@ public final class ArimaForecast implements Forecast {
    */
   private ArimaForecast(final Arima model, final int steps, final double alpha) {
     this.model = model;
-    this.forecast = model.pointForecast(steps);
+    final ForecastState state = model.forecastState(steps);
+    this.forecast = model.pointForecast(state, steps);
     this.alpha = alpha;
-    this.criticalValue = new Normal().quantile(1 - alpha / 2);
+    this.stdDeviations = new double[steps];
+    for (int h = 0; h < steps; h++) {
+      stdDeviations[h] = sqrt(state.forecastVariance(h + 1));
+    }
+    this.criticalValue = ForecastState.STANDARD_NORMAL.quantile(1 - alpha / 2);
     this.fcstErrors = getFcstErrors(this.criticalValue);
     this.upperValues = computeUpperPredictionValues(steps, alpha);
     this.lowerValues = computeLowerPredictionValues(steps, alpha);
@@ -125,9 +132,51 @@ public final class ArimaForecast implements Forecast {
     return this.lowerValues;
   }
   
+  /**
+   * Compute the quantiles of the forecast distribution at each of the given probabilities, in one pass over the
+   * forecast steps.
+   *
+   * @param probabilities the probabilities at which to compute the quantiles, each strictly between 0 and 1.
+   * @return an array with one row per probability, row i holding the quantiles at probabilities[i] for each step.
+   * @throws IllegalArgumentException if a probability is not strictly between 0 and 1.
+   */
+  public final double[][] quantiles(final double... probabilities) {
+    final int steps = forecast.n();
+    final double[] criticalValues = new double[probabilities.length];
+    for (int i = 0; i < probabilities.length; i++) {
+      final double probability = probabilities[i];
+      if (!(probability > 0 && probability < 1)) {
+        throw new IllegalArgumentException("Each probability must be between 0 and 1, but was " + probability + ".");
+      }
+      criticalValues[i] = ForecastState.STANDARD_NORMAL.quantile(probability);
+    }
+    final double[][] quantiles = new double[probabilities.length][steps];
+    for (int t = 0; t < steps; t++) {
+      final double value = forecast.at(t);
+      final double sd = stdDeviations[t];
+      for (int i = 0; i < criticalValues.length; i++) {
+        quantiles[i][t] = value + criticalValues[i] * sd;
+      }
+    }
+    return quantiles;
+  }
+
+  /**
+   * Compute the lower and upper prediction bounds at each of the given significance levels, in one pass over the
+   * forecast steps. This is the basis of a fan chart.
+   *
+   * @param alphas the significance levels of the prediction intervals, each strictly between 0 and 1.
+   * @return an array with two rows per significance level. Row i holds the lower bounds at alphas[i] for each step,
+   *         and row alphas.length + i holds the upper bounds.
+   * @throws IllegalArgumentException if a significance level is not strictly between 0 and 1.
+   */
+  public final double[][] predictionBounds(final double... alphas) {
+    return quantiles(ForecastState.boundProbabilities(alphas));
+  }
+
   @Override
   public final TimeSeries computeUpperPredictionValues(final int steps, final double alpha) {
-    final double criticalValue = new Normal().quantile(1 - alpha / 2);
+    final double criticalValue = ForecastState.STANDARD_NORMAL.quantile(1 - alpha / 2);
     double[] upperPredictionValues = new double[steps];
     double[] errors = getStdErrors(criticalValue);
     for (int t = 0; t < steps; t++) {
@@ -139,7 +188,7 @@ public final class ArimaForecast implements Forecast {
 
   @Override
   public final TimeSeries computeLowerPredictionValues(final int steps, final double alpha) {
-    final double criticalValue = new Normal().quantile(alpha / 2);
+    final double criticalValue = ForecastState.STANDARD_NORMAL.quantile(alpha / 2);
     double[] lowerPredictionValues = new double[steps];
     double[] errors = getStdErrors(criticalValue);
     for (int t = 0; t < steps; t++) {
@@ -149,39 +198,15 @@ public final class ArimaForecast implements Forecast {
         lowerPredictionValues);
   }
   
-  private double[] getPsiCoefficients() {
-    final int steps = this.forecast.n();
-    LagPolynomial arPoly = LagPolynomial.autoRegressive(model.arSarCoefficients());
-    LagPolynomial diffPoly = LagPolynomial.differences(model.order().d);
-    LagPolynomial seasDiffPoly = LagPolynomial.seasonalDifferences(model.seasonalFrequency(), model.order().D);
-    double[] phi = diffPoly.times(seasDiffPoly).times(arPoly).inverseParams();
-    double[] theta = model.maSmaCoefficients();
-    final double[] psi = new double[steps];
-    psi[0] = 1.0;
-    System.arraycopy(theta, 0, psi, 1, Math.min(steps - 1, theta.length));
-    for (int j = 1; j < psi.length; j++) {
-      for (int i = 0; i < Math.min(j, phi.length); i++) {
-        psi[j] += psi[j - i - 1] * phi[i];
-      }
-    }
-    return psi;
-  }
-  
   private TimeSeries getFcstErrors(final double criticalValue) {
     double[] errors = getStdErrors(criticalValue);
     return new TimeSeries(forecast.timePeriod(), forecast.observationTimes().get(0), errors);
   }
   
   private double[] getStdErrors(final double criticalValue) {
-    double[] psiCoeffs = getPsiCoefficients();
-    double[] stdErrors = new double[this.forecast.n()];
-    double sigma = sqrt(model.sigma2());
-    double sd;
-    double psiWeightSum = 0.0;
+    final double[] stdErrors = new double[stdDeviations.length];
     for (int i = 0; i < stdErrors.length; i++) {
-      psiWeightSum += psiCoeffs[i] * psiCoeffs[i];
-      sd = sigma * sqrt(psiWeightSum);
-      stdErrors[i] = criticalValue * sd;
+      stdErrors[i] = criticalValue * stdDeviations[i];
     }
     return stdErrors;
   }
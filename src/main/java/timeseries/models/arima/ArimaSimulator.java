@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates future sample paths of fitted ARIMA models by Monte-Carlo, from which prediction intervals that need not
+ * be Gaussian can be read. Each path continues the model's observations, driven either by Gaussian errors with the
+ * model's variance or by errors drawn with replacement from the model's residuals.
+ *
+ * <p>
+ * Paths are simulated in fixed-size blocks, each with its own {@link SplittableRandom} split from a single root
+ * generator before any path is simulated. The paths for a given seed are therefore the same whatever the parallelism,
+ * and the blocks are shared among a fixed number of workers, so that the work scales with the number of cores.
+ * Instances are immutable and may run any number of simulations.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class ArimaSimulator {
+
+  // The number of paths simulated with each random number generator, and the unit of work handed to a worker.
+  private static final int BLOCK_SIZE = 256;
+
+  private final Innovations innovations;
+  private final Long seed;
+  private final int parallelism;
+  private final Executor executor;
+
+  private ArimaSimulator(final Builder builder) {
+    this.innovations = builder.innovations;
+    this.seed = builder.seed;
+    this.parallelism = builder.parallelism;
+    this.executor = builder.executor;
+  }
+
+  /**
+   * Get a new builder for an ARIMA simulator.
+   *
+   * @return a new builder for an ARIMA simulator.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Simulate the given number of paths, each continuing the given model's observations for the given number of steps.
+   *
+   * @param model the fitted model to simulate from.
+   * @param steps the number of steps in each path.
+   * @param nPaths the number of paths to simulate.
+   * @return the simulated paths.
+   * @throws IllegalArgumentException if the number of steps or paths is negative, or if the paths would have more than
+   *         Integer.MAX_VALUE values in total.
+   */
+  public Paths simulate(final Arima model, final int steps, final int nPaths) {
+    if (steps < 0 || nPaths < 0) {
+      throw new IllegalArgumentException("The number of steps and paths cannot be negative, but were " + steps +
+                                         " and " + nPaths + ".");
+    }
+    if ((long) steps * nPaths > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The paths cannot have more than " + Integer.MAX_VALUE + " values.");
+    }
+    final ForecastState state = model.forecastState(0);
+    final double sigma = Math.sqrt(model.sigma2());
+    final double[] pool = (innovations == Innovations.BOOTSTRAP)
+        ? residualPool(model.residuals().series(), state.observationLags()) : null;
+    final double[] values = new double[steps * nPaths];
+    final int blocks = (nPaths + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    final SplittableRandom root = (seed == null) ? new SplittableRandom() : new SplittableRandom(seed);
+    final SplittableRandom[] randoms = new SplittableRandom[blocks];
+    for (int b = 0; b < blocks; b++) {
+      randoms[b] = root.split();
+    }
+
+    final AtomicInteger next = new AtomicInteger();
+    final Runnable worker = () -> {
+      final double[] errors = new double[steps];
+      int b;
+      while ((b = next.getAndIncrement()) < blocks) {
+        final SplittableRandom random = randoms[b];
+        final int end = Math.min(nPaths, (b + 1) * BLOCK_SIZE);
+        for (int path = b * BLOCK_SIZE; path < end; path++) {
+          if (pool == null) {
+            fillGaussian(random, sigma, errors);
+          } else {
+            for (int h = 0; h < steps; h++) {
+              errors[h] = pool[random.nextInt(pool.length)];
+            }
+          }
+          state.simulateInto(values, path * steps, errors, steps);
+        }
+      }
+    };
+
+    BoundedWorkers.run(worker, Math.min(parallelism, blocks), executor);
+    return new Paths(values, steps, nPaths);
+  }
+
+  // The residuals after the start-up of the model's recursions, centered so that the drawn errors have mean zero.
+  private static double[] residualPool(final double[] residuals, final int startUp) {
+    final int from = (residuals.length > startUp) ? startUp : 0;
+    final double[] pool = Arrays.copyOfRange(residuals, from, residuals.length);
+    if (pool.length == 0) {
+      throw new IllegalArgumentException("The model has no residuals to draw errors from.");
+    }
+    double mean = 0.0;
+    for (double residual : pool) {
+      mean += residual;
+    }
+    mean /= pool.length;
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] -= mean;
+    }
+    return pool;
+  }
+
+  // Fill the array with independent normal errors by the polar method of Marsaglia, which yields them in pairs.
+  private static void fillGaussian(final SplittableRandom random, final double sigma, final double[] errors) {
+    for (int h = 0; h < errors.length; h += 2) {
+      double u;
+      double v;
+      double s;
+      do {
+        u = 2 * random.nextDouble() - 1;
+        v = 2 * random.nextDouble() - 1;
+        s = u * u + v * v;
+      } while (s >= 1 || s == 0);
+      final double scale = sigma * Math.sqrt(-2 * Math.log(s) / s);
+      errors[h] = u * scale;
+      if (h + 1 < errors.length) {
+        errors[h + 1] = v * scale;
+      }
+    }
+  }
+
+  /**
+   * The sources of the future errors that drive simulated paths.
+   */
+  public enum Innovations {
+
+    /**
+     * Independent normal errors with mean zero and the model's variance.
+     */
+    GAUSSIAN,
+
+    /**
+     * Errors drawn independently, with replacement, from the model's centered residuals. Paths driven by these
+     * errors keep any skewness or heavy tails of the residuals.
+     */
+    BOOTSTRAP
+  }
+
+  /**
+   * A set of simulated paths, stored in a single primitive array with the steps of each path in consecutive elements.
+   *
+   * @author Jacob Rachiele
+   */
+  public static final class Paths {
+
+    private final double[] values;
+    private final int steps;
+    private final int nPaths;
+
+    private Paths(final double[] values, final int steps, final int nPaths) {
+      this.values = values;
+      this.steps = steps;
+      this.nPaths = nPaths;
+    }
+
+    /**
+     * The number of steps in each path.
+     *
+     * @return the number of steps in each path.
+     */
+    public int steps() {
+      return this.steps;
+    }
+
+    /**
+     * The number of paths.
+     *
+     * @return the number of paths.
+     */
+    public int size() {
+      return this.nPaths;
+    }
+
+    /**
+     * The value of the given path at the given step.
+     *
+     * @param path the index of the path.
+     * @param step the index of the step, 0 being one step ahead.
+     * @return the value of the given path at the given step.
+     */
+    public double at(final int path, final int step) {
+      return this.values[path * steps + step];
+    }
+
+    /**
+     * Return a copy of the given path.
+     *
+     * @param path the index of the path.
+     * @return a copy of the given path.
+     */
+    public double[] path(final int path) {
+      return Arrays.copyOfRange(values, path * steps, (path + 1) * steps);
+    }
+
+    /**
+     * Return a copy of every path in a single array, path i occupying elements i * steps to (i + 1) * steps - 1.
+     *
+     * @return a copy of every path in a single array.
+     */
+    public double[] values() {
+      return this.values.clone();
+    }
+
+    /**
+     * The mean of the paths at each step.
+     *
+     * @return the mean of the paths at each step.
+     */
+    public double[] mean() {
+      final double[] mean = new double[steps];
+      for (int path = 0; path < nPaths; path++) {
+        final int offset = path * steps;
+        for (int h = 0; h < steps; h++) {
+          mean[h] += values[offset + h];
+        }
+      }
+      for (int h = 0; h < steps; h++) {
+        mean[h] /= nPaths;
+      }
+      return mean;
+    }
+
+    /**
+     * Compute the sample quantiles of the paths at each step for each of the given probabilities, interpolating
+     * linearly between order statistics. The values at each step are sorted once for all of the probabilities.
+     *
+     * @param probabilities the probabilities at which to compute the quantiles, each between 0 and 1.
+     * @return an array with one row per probability, row i holding the quantiles at probabilities[i] for each step.
+     * @throws IllegalArgumentException if a probability is not between 0 and 1.
+     * @throws IllegalStateException if there are no paths.
+     */
+    public double[][] quantiles(final double... probabilities) {
+      for (double probability : probabilities) {
+        if (!(probability >= 0 && probability <= 1)) {
+          throw new IllegalArgumentException("Each probability must be between 0 and 1, but was " + probability +
+                                             ".");
+        }
+      }
+      if (nPaths == 0) {
+        throw new IllegalStateException("There are no paths to compute quantiles from.");
+      }
+      final double[][] quantiles = new double[probabilities.length][steps];
+      final double[] column = new double[nPaths];
+      for (int h = 0; h < steps; h++) {
+        for (int path = 0; path < nPaths; path++) {
+          column[path] = values[path * steps + h];
+        }
+        Arrays.sort(column);
+        for (int i = 0; i < probabilities.length; i++) {
+          final double position = probabilities[i] * (nPaths - 1);
+          final int below = (int) position;
+          final int above = Math.min(below + 1, nPaths - 1);
+          quantiles[i][h] = column[below] + (position - below) * (column[above] - column[below]);
+        }
+      }
+      return quantiles;
+    }
+
+    /**
+     * Compute the lower and upper bounds of the central prediction intervals at each of the given significance levels.
+     *
+     * @param alphas the significance levels of the prediction intervals, each strictly between 0 and 1.
+     * @return an array with two rows per significance level. Row i holds the lower bounds at alphas[i] for each step,
+     *         and row alphas.length + i holds the upper bounds.
+     * @throws IllegalArgumentException if a significance level is not strictly between 0 and 1.
+     */
+    public double[][] predictionBounds(final double... alphas) {
+      return quantiles(ForecastState.boundProbabilities(alphas));
+    }
+  }
+
+  /**
+   * A builder for an ARIMA simulator.
+   *
+   * @author Jacob Rachiele
+   */
+  public static final class Builder {
+
+    private Innovations innovations = Innovations.BOOTSTRAP;
+    private Long seed = null;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Executor executor = null;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the source of the errors that drive the paths. The default is to bootstrap the model's residuals.
+     *
+     * @param innovations the source of the errors that drive the paths.
+     * @return this builder.
+     */
+    public Builder innovations(final Innovations innovations) {
+      this.innovations = innovations;
+      return this;
+    }
+
+    /**
+     * Set the seed of the random number generator, so that every simulation of a model gives the same paths. By
+     * default, each simulation is seeded differently.
+     *
+     * @param seed the seed of the random number generator.
+     * @return this builder.
+     */
+    public Builder seed(final long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of workers simulating paths at the same time. The default is the number of available
+     * processors.
+     *
+     * @param parallelism the maximum number of workers simulating paths at the same time.
+     * @return this builder.
+     */
+    public Builder parallelism(final int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("The parallelism must be at least 1, but was " + parallelism + ".");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Set the executor that runs the simulation workers. By default, a new fork-join pool with the configured
+     * parallelism is created for, and shut down after, each simulation. A supplied executor is never shut down, and
+     * no more than the configured parallelism's worth of workers are submitted to it.
+     *
+     * @param executor the executor that runs the simulation workers.
+     * @return this builder.
+     */
+    public Builder executor(final Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Construct a new ARIMA simulator from the configured values.
+     *
+     * @return a new ARIMA simulator from the configured values.
+     */
+    public ArimaSimulator build() {
+      if (innovations == null) {
+        throw new IllegalArgumentException("The source of innovations must not be null.");
+      }
+      return new ArimaSimulator(this);
+    }
+  }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.util.Arrays;
+
+import timeseries.models.ArmaKalmanKernel;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * A reusable set of buffers for repeatedly evaluating the sum-of-squares objective, and its gradient, or the
+ * likelihood of an ARIMA model during fitting. Once prepared for a given series and model order, evaluations allocate
+ * no memory. The buffers only ever grow, so that a single workspace may be prepared again for each of many fits. A
+ * workspace is mutable and must not be shared between threads.
+ *
+ * @author Jacob Rachiele
+ */
+final class ArimaWorkspace {
+
+  private int n;
+  private int seasonalFrequency;
+  private int p;
+  private int q;
+  private int P;
+  private int Q;
+  private int arLength;
+  private int maLength;
+  private int parameterCount;
+  private boolean hasMean;
+  private double mean;
+
+  private double[] series = new double[0];
+  private double[] extendedSeries = new double[0];
+  private double[] residuals = new double[0];
+  private double[] arParams = new double[0];
+  private double[] maParams = new double[0];
+  private double[] sarParams = new double[0];
+  private double[] smaParams = new double[0];
+  private double[] arCoeffs = new double[0];
+  private double[] maCoeffs = new double[0];
+
+  // The lags at which the expanded coefficients can be non-zero, and the coefficients at those lags. The recursions
+  // run over these alone, so that their cost does not grow with the seasonal frequency.
+  private int[] arLags = new int[0];
+  private int[] maLags = new int[0];
+  private int arLagCount;
+  private int maLagCount;
+  private double[] arValues = new double[0];
+  private double[] maValues = new double[0];
+
+  // Gradient buffers, only allocated if a gradient is requested.
+  private double[] arJacobian = new double[0];
+  private double[] maJacobian = new double[0];
+  private double[] dExtended = new double[0];
+  private double[] dResiduals = new double[0];
+  private double[] dFitted = new double[0];
+
+  private final ArmaKalmanKernel kalmanKernel = new ArmaKalmanKernel();
+
+  /**
+   * Prepare this workspace for fitting a model of the given order to the given differenced series.
+   *
+   * @param differencedSeries the differenced observations.
+   * @param order the order of the model to be fit.
+   * @param seasonalFrequency the number of observations per seasonal cycle.
+   * @return this workspace.
+   */
+  ArimaWorkspace prepare(final double[] differencedSeries, final ModelOrder order, final int seasonalFrequency) {
+    this.n = differencedSeries.length;
+    this.seasonalFrequency = seasonalFrequency;
+    this.p = order.p;
+    this.q = order.q;
+    this.P = order.P;
+    this.Q = order.Q;
+    this.arLength = p + P * seasonalFrequency;
+    this.maLength = q + Q * seasonalFrequency;
+    this.hasMean = order.constant == 1;
+    this.parameterCount = p + q + P + Q + order.constant;
+    this.mean = 0.0;
+
+    final int extendedLength = 2 * arLength + n;
+    series = ensureCapacity(series, n);
+    extendedSeries = ensureCapacity(extendedSeries, extendedLength);
+    residuals = ensureCapacity(residuals, extendedLength);
+    arParams = ensureCapacity(arParams, p);
+    maParams = ensureCapacity(maParams, q);
+    sarParams = ensureCapacity(sarParams, P);
+    smaParams = ensureCapacity(smaParams, Q);
+    arCoeffs = ensureCapacity(arCoeffs, arLength);
+    maCoeffs = ensureCapacity(maCoeffs, maLength);
+    Arrays.fill(arCoeffs, 0, arLength, 0.0);
+    Arrays.fill(maCoeffs, 0, maLength, 0.0);
+    arLags = ensureCapacity(arLags, SparseLags.maxStructuralSize(p, P));
+    maLags = ensureCapacity(maLags, SparseLags.maxStructuralSize(q, Q));
+    arLagCount = SparseLags.structural(p, P, seasonalFrequency, arLags);
+    maLagCount = SparseLags.structural(q, Q, seasonalFrequency, maLags);
+    arValues = ensureCapacity(arValues, arLagCount);
+    maValues = ensureCapacity(maValues, maLagCount);
+
+    System.arraycopy(differencedSeries, 0, series, 0, n);
+    // The unconditional fit runs over the reversed series, extended by back-forecasts.
+    for (int i = 0; i < n; i++) {
+      extendedSeries[i] = differencedSeries[n - i - 1];
+    }
+    return this;
+  }
+
+  /**
+   * Set the model parameters, laid out as the non-seasonal AR, non-seasonal MA, seasonal AR and seasonal MA
+   * coefficients, followed by the mean if the model has one. The expanded coefficients, and their values at the
+   * structurally non-zero lags, are updated in place.
+   *
+   * @param params the model parameters.
+   */
+  void setParameters(final double[] params) {
+    System.arraycopy(params, 0, arParams, 0, p);
+    System.arraycopy(params, p, maParams, 0, q);
+    System.arraycopy(params, p + q, sarParams, 0, P);
+    System.arraycopy(params, p + q + P, smaParams, 0, Q);
+    this.mean = hasMean ? params[parameterCount - 1] : 0.0;
+    Arima.expandArCoefficients(arParams, p, sarParams, P, seasonalFrequency, arCoeffs);
+    Arima.expandMaCoefficients(maParams, q, smaParams, Q, seasonalFrequency, maCoeffs);
+    for (int l = 0; l < arLagCount; l++) {
+      arValues[l] = arCoeffs[arLags[l]];
+    }
+    for (int l = 0; l < maLagCount; l++) {
+      maValues[l] = maCoeffs[maLags[l]];
+    }
+  }
+
+  /**
+   * Compute the conditional sum-of-squares of the residuals at the current parameters. The arithmetic is identical
+   * to that of {@link Arima#fitCss}.
+   *
+   * @return the conditional sum-of-squares of the residuals.
+   */
+  double cssSumOfSquares() {
+    final int offset = arLength;
+    Arrays.fill(residuals, 0, offset, 0.0);
+    double sumOfSquares = 0.0;
+    for (int t = offset; t < n; t++) {
+      residuals[t] = series[t] - cssFitted(t);
+      sumOfSquares += residuals[t] * residuals[t];
+    }
+    return sumOfSquares;
+  }
+
+  /**
+   * Compute the unconditional sum-of-squares of the residuals at the current parameters. The arithmetic is identical
+   * to that of {@link Arima#fitUss}.
+   *
+   * @return the unconditional sum-of-squares of the residuals.
+   */
+  double ussSumOfSquares() {
+    final int m = arLength;
+    final int size = 2 * m + n;
+    backForecast();
+    Arrays.fill(residuals, 0, m, 0.0);
+    double sumOfSquares = 0.0;
+    for (int t = m; t < size; t++) {
+      double fitted = mean;
+      for (int l = 0; l < arLagCount; l++) {
+        fitted += arValues[l] * (extendedSeries[size - t + arLags[l]] - mean);
+      }
+      fitted = plusMovingAverage(fitted, t);
+      residuals[t] = extendedSeries[size - t - 1] - fitted;
+      sumOfSquares += residuals[t] * residuals[t];
+    }
+    return sumOfSquares;
+  }
+
+  /**
+   * Compute the negative of the exact Gaussian log-likelihood at the current parameters, with the model variance
+   * concentrated out, divided by the number of observations.
+   *
+   * @return the negative of the concentrated log-likelihood divided by the number of observations.
+   */
+  double mlObjective() {
+    kalmanKernel.filter(series, n, mean, arCoeffs, arLength, maCoeffs, maLength, null, null);
+    return -kalmanKernel.logLikelihood() / n;
+  }
+
+  /**
+   * Compute the conditional sum-of-squares of the residuals at the current parameters and store its gradient with
+   * respect to the parameters in the given array.
+   *
+   * @param gradient the array in which to store the gradient.
+   * @return the conditional sum-of-squares of the residuals.
+   */
+  double cssSumOfSquaresAndGradient(final double[] gradient) {
+    final int np = parameterCount;
+    prepareGradient(n);
+    Arrays.fill(gradient, 0, np, 0.0);
+    final int offset = arLength;
+    final int meanIndex = hasMean ? np - 1 : -1;
+    final double meanPartial = arLength - sumOf(arValues, arLagCount);
+    Arrays.fill(residuals, 0, offset, 0.0);
+    Arrays.fill(dResiduals, 0, offset * np, 0.0);
+    double sumOfSquares = 0.0;
+    for (int t = offset; t < n; t++) {
+      residuals[t] = series[t] - cssFitted(t);
+      sumOfSquares += residuals[t] * residuals[t];
+
+      // The derivatives of the residual satisfy de[t] = -dFitted[t], where dFitted[t] includes the moving average
+      // terms sum(maCoeffs[k] * de[t - k - 1]).
+      Arrays.fill(dFitted, 0, np, 0.0);
+      for (int l = 0; l < arLagCount; l++) {
+        final int k = arLags[l];
+        final double deviation = series[t - k - 1] - mean;
+        for (int j = 0; j < np; j++) {
+          dFitted[j] += arJacobian[k * np + j] * deviation;
+        }
+      }
+      if (meanIndex >= 0) {
+        dFitted[meanIndex] += meanPartial;
+      }
+      addMovingAverageDerivatives(t);
+      for (int j = 0; j < np; j++) {
+        dResiduals[t * np + j] = -dFitted[j];
+        gradient[j] -= 2 * residuals[t] * dFitted[j];
+      }
+    }
+    return sumOfSquares;
+  }
+
+  /**
+   * Compute the unconditional sum-of-squares of the residuals at the current parameters and store its gradient with
+   * respect to the parameters in the given array.
+   *
+   * @param gradient the array in which to store the gradient.
+   * @return the unconditional sum-of-squares of the residuals.
+   */
+  double ussSumOfSquaresAndGradient(final double[] gradient) {
+    final int np = parameterCount;
+    final int m = arLength;
+    final int size = 2 * m + n;
+    prepareGradient(size);
+    Arrays.fill(gradient, 0, np, 0.0);
+    final int meanIndex = hasMean ? np - 1 : -1;
+    final double meanPartial = 1.0 - sumOf(arValues, arLagCount);
+
+    // The back-forecasts depend on the parameters too, through the same autoregressive recursion.
+    backForecast();
+    for (int t = n; t < size; t++) {
+      Arrays.fill(dFitted, 0, np, 0.0);
+      for (int l = 0; l < arLagCount; l++) {
+        final int k = arLags[l];
+        if (t - k - 1 >= n) {
+          final int lagged = (t - k - 1) * np;
+          for (int j = 0; j < np; j++) {
+            dFitted[j] += arValues[l] * dExtended[lagged + j];
+          }
+        }
+      }
+      for (int l = 0; l < arLagCount; l++) {
+        final int k = arLags[l];
+        final double deviation = extendedSeries[t - k - 1] - mean;
+        for (int j = 0; j < np; j++) {
+          dFitted[j] += arJacobian[k * np + j] * deviation;
+        }
+      }
+      if (meanIndex >= 0) {
+        dFitted[meanIndex] += meanPartial;
+      }
+      System.arraycopy(dFitted, 0, dExtended, t * np, np);
+    }
+
+    Arrays.fill(residuals, 0, m, 0.0);
+    Arrays.fill(dResiduals, 0, m * np, 0.0);
+    double sumOfSquares = 0.0;
+    for (int t = m; t < size; t++) {
+      double fitted = mean;
+      Arrays.fill(dFitted, 0, np, 0.0);
+      for (int l = 0; l < arLagCount; l++) {
+        final int k = arLags[l];
+        fitted += arValues[l] * (extendedSeries[size - t + k] - mean);
+        if (size - t + k >= n) {
+          final int lagged = (size - t + k) * np;
+          for (int j = 0; j < np; j++) {
+            dFitted[j] += arValues[l] * dExtended[lagged + j];
+          }
+        }
+      }
+      fitted = plusMovingAverage(fitted, t);
+      residuals[t] = extendedSeries[size - t - 1] - fitted;
+      sumOfSquares += residuals[t] * residuals[t];
+
+      for (int l = 0; l < arLagCount; l++) {
+        final int k = arLags[l];
+        final double deviation = extendedSeries[size - t + k] - mean;
+        for (int j = 0; j < np; j++) {
+          dFitted[j] += arJacobian[k * np + j] * deviation;
+        }
+      }
+      if (meanIndex >= 0) {
+        dFitted[meanIndex] += meanPartial;
+      }
+      addMovingAverageDerivatives(t);
+      final int observed = (size - t - 1) * np;
+      for (int j = 0; j < np; j++) {
+        dResiduals[t * np + j] = ((size - t - 1 >= n) ? dExtended[observed + j] : 0.0) - dFitted[j];
+        gradient[j] += 2 * residuals[t] * dResiduals[t * np + j];
+      }
+    }
+    return sumOfSquares;
+  }
+
+  // The conditional fit at time t. As in Arima.fitCss, the mean is added once for each autoregressive coefficient.
+  private double cssFitted(final int t) {
+    double fitted = arLength * mean;
+    for (int l = 0; l < arLagCount; l++) {
+      fitted += arValues[l] * (series[t - arLags[l] - 1] - mean);
+    }
+    return plusMovingAverage(fitted, t);
+  }
+
+  // Add the moving average part of the fit at time t, over the residuals known by then, to the given partial fit.
+  private double plusMovingAverage(final double fitted, final int t) {
+    double sum = fitted;
+    for (int l = 0; l < maLagCount && maLags[l] < t; l++) {
+      sum += maValues[l] * residuals[t - maLags[l] - 1];
+    }
+    return sum;
+  }
+
+  // Extend the reversed series with back-forecasts of the first few observations.
+  private void backForecast() {
+    final int size = 2 * arLength + n;
+    for (int t = n; t < size; t++) {
+      double value = mean;
+      for (int l = 0; l < arLagCount; l++) {
+        value += arValues[l] * (extendedSeries[t - arLags[l] - 1] - mean);
+      }
+      extendedSeries[t] = value;
+    }
+  }
+
+  private void addMovingAverageDerivatives(final int t) {
+    final int np = parameterCount;
+    for (int l = 0; l < maLagCount; l++) {
+      final int k = maLags[l];
+      if (k < t) {
+        final int lagged = (t - k - 1) * np;
+        final double residual = residuals[t - k - 1];
+        for (int j = 0; j < np; j++) {
+          dFitted[j] += maJacobian[k * np + j] * residual + maValues[l] * dResiduals[lagged + j];
+        }
+      }
+    }
+  }
+
+  // Grow the gradient buffers if needed and compute the coefficient Jacobians at the current parameters.
+  private void prepareGradient(final int size) {
+    final int np = parameterCount;
+    arJacobian = ensureCapacity(arJacobian, arLength * np);
+    maJacobian = ensureCapacity(maJacobian, maLength * np);
+    dExtended = ensureCapacity(dExtended, size * np);
+    dResiduals = ensureCapacity(dResiduals, size * np);
+    dFitted = ensureCapacity(dFitted, np);
+    fillArJacobian();
+    fillMaJacobian();
+  }
+
+  // The partial derivatives of the expanded AR coefficients with respect to the model parameters, stored row-wise
+  // with one row per coefficient. Only the rows at the structural lags are ever read, so only those are cleared. The
+  // writes mirror those of Arima.expandArCoefficients, so that a coefficient shared between the seasonal and
+  // non-seasonal parts takes the derivative of whichever value was written last.
+  private void fillArJacobian() {
+    final int np = parameterCount;
+    clearRows(arJacobian, arLags, arLagCount);
+    for (int j = 0; j < p; j++) {
+      arJacobian[j * np + j] = 1.0;
+    }
+    for (int i = 0; i < P; i++) {
+      final int sarIndex = p + q + i;
+      int row = (i + 1) * seasonalFrequency - 1;
+      Arrays.fill(arJacobian, row * np, (row + 1) * np, 0.0);
+      arJacobian[row * np + sarIndex] = 1.0;
+      for (int j = 0; j < p; j++) {
+        row = (i + 1) * seasonalFrequency + j;
+        Arrays.fill(arJacobian, row * np, (row + 1) * np, 0.0);
+        arJacobian[row * np + sarIndex] = -arParams[j];
+        arJacobian[row * np + j] = -sarParams[i];
+      }
+    }
+  }
+
+  // The partial derivatives of the expanded MA coefficients with respect to the model parameters.
+  private void fillMaJacobian() {
+    final int np = parameterCount;
+    clearRows(maJacobian, maLags, maLagCount);
+    for (int j = 0; j < q; j++) {
+      maJacobian[j * np + p + j] = 1.0;
+    }
+    for (int i = 0; i < Q; i++) {
+      final int smaIndex = p + q + P + i;
+      int row = (i + 1) * seasonalFrequency - 1;
+      Arrays.fill(maJacobian, row * np, (row + 1) * np, 0.0);
+      maJacobian[row * np + smaIndex] = 1.0;
+      for (int j = 0; j < q; j++) {
+        row = (i + 1) * seasonalFrequency + j;
+        Arrays.fill(maJacobian, row * np, (row + 1) * np, 0.0);
+        maJacobian[row * np + smaIndex] = maParams[j];
+        maJacobian[row * np + p + j] = smaParams[i];
+      }
+    }
+  }
+
+  private void clearRows(final double[] jacobian, final int[] lags, final int count) {
+    final int np = parameterCount;
+    for (int l = 0; l < count; l++) {
+      Arrays.fill(jacobian, lags[l] * np, (lags[l] + 1) * np, 0.0);
+    }
+  }
+
+  private static double sumOf(final double[] values, final int length) {
+    double sum = 0.0;
+    for (int i = 0; i < length; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  private static double[] ensureCapacity(final double[] buffer, final int length) {
+    return (buffer.length < length) ? new double[length] : buffer;
+  }
+
+  private static int[] ensureCapacity(final int[] buffer, final int length) {
+    return (buffer.length < length) ? new int[length] : buffer;
+  }
+}
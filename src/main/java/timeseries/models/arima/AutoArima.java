@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import static stats.Statistics.meanOf;
+import static stats.Statistics.varianceOf;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelCoefficients;
+import timeseries.models.arima.Arima.ModelOrder;
+
+/**
+ * A stepwise search for the ARIMA model minimizing an information criterion, following the algorithm of
+ * Hyndman and Khandakar (2008). The orders of differencing are fixed up front, after which the search moves from the
+ * best model found so far to the best of its neighbors, stopping when no neighbor improves on it. The neighbors at
+ * each step are fit in parallel, each starting from the coefficients of the current best model. The fits run on a
+ * pool of at most one thread per processor, created for and shut down after each search, and each thread reuses a
+ * single optimizer workspace for every model it fits.
+ *
+ * @author Jacob Rachiele
+ */
+final class AutoArima {
+
+  private static final int MAX_P = 5;
+  private static final int MAX_Q = 5;
+  private static final int MAX_SEASONAL_P = 2;
+  private static final int MAX_SEASONAL_Q = 2;
+  private static final int MAX_ORDER = 5;
+  private static final int MAX_DIFFERENCES = 2;
+  private static final int MAX_MODELS = 94;
+
+  // The 5% critical value of the KPSS test for level stationarity (Kwiatkowski et al. 1992, Table 1).
+  private static final double KPSS_CRITICAL_VALUE = 0.463;
+  // Seasonal differencing is used if the seasonal strength is at least this large (Wang, Smith and Hyndman 2006).
+  private static final double SEASONAL_STRENGTH_THRESHOLD = 0.64;
+
+  private final TimeSeries observations;
+  private final TimePeriod seasonalCycle;
+  private final InformationCriterion criterion;
+  private final int seasonalFrequency;
+  private final boolean seasonal;
+  private final int d;
+  private final int D;
+  private final int differencedLength;
+  private final double differencedMean;
+  private final Set<ModelOrder> visited = new HashSet<>();
+  private final List<ModelOrder> fitted = new ArrayList<>();
+  private final int parallelism = Runtime.getRuntime().availableProcessors();
+  private final ThreadLocal<ArimaWorkspace> workspaces = ThreadLocal.withInitial(ArimaWorkspace::new);
+
+  AutoArima(final TimeSeries observations, final TimePeriod seasonalCycle, final InformationCriterion criterion) {
+    this.observations = observations;
+    this.seasonalCycle = seasonalCycle;
+    this.criterion = criterion;
+    this.seasonalFrequency = (int) observations.timePeriod().frequencyPer(seasonalCycle);
+    this.seasonal = seasonalFrequency > 1;
+    this.D = seasonal ? seasonalDifferences(observations.series(), seasonalFrequency) : 0;
+    final TimeSeries seasonallyDifferenced = observations.difference(seasonalFrequency, D);
+    this.d = nonSeasonalDifferences(seasonallyDifferenced.series());
+    final TimeSeries differenced = seasonallyDifferenced.difference(1, d);
+    this.differencedLength = differenced.n();
+    this.differencedMean = differenced.mean();
+  }
+
+  /**
+   * Perform the stepwise search and return the best model found.
+   *
+   * @return the best model found by the search.
+   */
+  Arima search() {
+    final boolean constant = d + D <= 1;
+    final List<ModelOrder> initial = new ArrayList<>(4);
+    addIfFeasible(initial, 2, 2, 1, 1, constant);
+    addIfFeasible(initial, 0, 0, 0, 0, constant);
+    addIfFeasible(initial, 1, 0, 1, 0, constant);
+    addIfFeasible(initial, 0, 1, 0, 1, constant);
+    final ForkJoinPool pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+    Candidate best;
+    try {
+      best = fitAll(initial, null, pool);
+      while (best.model != null && visited.size() < MAX_MODELS) {
+        final List<ModelOrder> neighbors = neighborsOf(best.order);
+        if (neighbors.isEmpty()) {
+          break;
+        }
+        final Candidate bestNeighbor = fitAll(neighbors, best.model, pool);
+        if (bestNeighbor.score < best.score) {
+          best = bestNeighbor;
+        } else {
+          break;
+        }
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdown();
+      }
+    }
+    if (best.model == null) {
+      throw new IllegalStateException("None of the candidate ARIMA models could be fit to the observations.");
+    }
+    return best.model;
+  }
+
+  // The models differing from the given one by one in one or both of the non-seasonal or seasonal orders, or by the
+  // inclusion of the constant, that haven't already been fit.
+  private List<ModelOrder> neighborsOf(final ModelOrder order) {
+    final List<ModelOrder> neighbors = new ArrayList<>();
+    final boolean c = order.constant == 1;
+    for (int step = -1; step <= 1; step += 2) {
+      addIfFeasible(neighbors, order.p + step, order.q, order.P, order.Q, c);
+      addIfFeasible(neighbors, order.p, order.q + step, order.P, order.Q, c);
+      addIfFeasible(neighbors, order.p + step, order.q + step, order.P, order.Q, c);
+      if (seasonal) {
+        addIfFeasible(neighbors, order.p, order.q, order.P + step, order.Q, c);
+        addIfFeasible(neighbors, order.p, order.q, order.P, order.Q + step, c);
+        addIfFeasible(neighbors, order.p, order.q, order.P + step, order.Q + step, c);
+      }
+    }
+    if (d + D <= 1) {
+      addIfFeasible(neighbors, order.p, order.q, order.P, order.Q, !c);
+    }
+    final int remaining = MAX_MODELS - visited.size();
+    return (neighbors.size() > remaining) ? neighbors.subList(0, remaining) : neighbors;
+  }
+
+  private void addIfFeasible(final List<ModelOrder> orders, final int p, final int q, final int P, final int Q,
+                             final boolean constant) {
+    if (p < 0 || q < 0 || P < 0 || Q < 0 || p > MAX_P || q > MAX_Q || P > MAX_SEASONAL_P || Q > MAX_SEASONAL_Q ||
+        p + q + P + Q > MAX_ORDER) {
+      return;
+    }
+    if (!seasonal && (P > 0 || Q > 0)) {
+      return;
+    }
+    // Leave enough observations after the autoregressive lags to estimate every parameter.
+    final int parameters = p + q + P + Q + (constant ? 1 : 0) + 1;
+    if (differencedLength - (p + P * seasonalFrequency) <= parameters) {
+      return;
+    }
+    final ModelOrder order = new ModelOrder(p, d, q, P, D, Q, constant);
+    if (!visited.contains(order) && !orders.contains(order)) {
+      orders.add(order);
+    }
+  }
+
+  /**
+   * The orders of every model fit so far, in the order they were fit.
+   *
+   * @return the orders of every model fit so far.
+   */
+  List<ModelOrder> fittedOrders() {
+    return new ArrayList<>(this.fitted);
+  }
+
+  // Fit every model of the given orders in parallel, returning the one with the smallest criterion. Each worker takes
+  // the next unfit order until none remain, so that it fits them all with the same workspace.
+  private Candidate fitAll(final List<ModelOrder> orders, final Arima parent, final Executor pool) {
+    visited.addAll(orders);
+    fitted.addAll(orders);
+    final int n = orders.size();
+    final Candidate[] candidates = new Candidate[n];
+    final AtomicInteger next = new AtomicInteger();
+    final Runnable worker = () -> {
+      final ArimaWorkspace workspace = workspaces.get();
+      int i;
+      while ((i = next.getAndIncrement()) < n) {
+        candidates[i] = fit(orders.get(i), parent, workspace);
+      }
+    };
+    // The pool is shared by every step of the search, so that each of its threads keeps its workspace throughout.
+    BoundedWorkers.run(worker, (pool == null) ? 1 : Math.min(parallelism, n), pool);
+    Candidate best = new Candidate(null, null, Double.POSITIVE_INFINITY);
+    for (Candidate candidate : candidates) {
+      if (candidate.score < best.score) {
+        best = candidate;
+      }
+    }
+    return best;
+  }
+
+  private Candidate fit(final ModelOrder order, final Arima parent, final ArimaWorkspace workspace) {
+    try {
+      final Arima model = Arima.model(observations, order, seasonalCycle, FittingStrategy.USS, workspace,
+                                      warmStart(order, parent));
+      final double score = criterion.of(model);
+      return new Candidate(order, model, Double.isNaN(score) ? Double.POSITIVE_INFINITY : score);
+    } catch (RuntimeException e) {
+      return new Candidate(order, null, Double.POSITIVE_INFINITY);
+    }
+  }
+
+  // Initial parameters for the given order taken from the coefficients of a neighboring model, with any coefficients
+  // the neighbor lacks set to zero.
+  private double[] warmStart(final ModelOrder order, final Arima parent) {
+    final double[] params = new double[order.p + order.q + order.P + order.Q + order.constant];
+    if (parent == null) {
+      if (order.constant == 1) {
+        params[params.length - 1] = differencedMean;
+      }
+      return params;
+    }
+    final ModelCoefficients coefficients = parent.coefficients();
+    copyInto(coefficients.arCoeffs(), params, 0, order.p);
+    copyInto(coefficients.maCoeffs(), params, order.p, order.q);
+    copyInto(coefficients.sarCoeffs(), params, order.p + order.q, order.P);
+    copyInto(coefficients.smaCoeffs(), params, order.p + order.q + order.P, order.Q);
+    if (order.constant == 1) {
+      params[params.length - 1] = (parent.order().constant == 1) ? coefficients.getMean() : differencedMean;
+    }
+    return params;
+  }
+
+  private static void copyInto(final double[] source, final double[] target, final int offset, final int length) {
+    System.arraycopy(source, 0, target, offset, Math.min(source.length, length));
+  }
+
+  /**
+   * The number of seasonal differences, either zero or one, needed to remove the seasonality from the given series.
+   *
+   * @param series the observations.
+   * @param seasonalFrequency the number of observations per seasonal cycle.
+   * @return the number of seasonal differences needed to remove the seasonality from the given series.
+   */
+  static int seasonalDifferences(final double[] series, final int seasonalFrequency) {
+    if (series.length < 2 * seasonalFrequency + 1) {
+      return 0;
+    }
+    return (seasonalStrength(series, seasonalFrequency) >= SEASONAL_STRENGTH_THRESHOLD) ? 1 : 0;
+  }
+
+  /**
+   * The number of differences, at most two, needed for the given series to pass the KPSS test for level stationarity
+   * at the 5% level.
+   *
+   * @param series the observations.
+   * @return the number of differences needed for the given series to be level stationary.
+   */
+  static int nonSeasonalDifferences(final double[] series) {
+    double[] differenced = series;
+    int differences = 0;
+    while (differences < MAX_DIFFERENCES && differenced.length > 2 &&
+           kpssStatistic(differenced) > KPSS_CRITICAL_VALUE) {
+      final double[] next = new double[differenced.length - 1];
+      for (int t = 0; t < next.length; t++) {
+        next[t] = differenced[t + 1] - differenced[t];
+      }
+      differenced = next;
+      differences++;
+    }
+    return differences;
+  }
+
+  /**
+   * The KPSS statistic for the null hypothesis of level stationarity, using a Bartlett-weighted estimate of the
+   * long-run variance with the number of lags equal to the integer part of 3&radic;n / 13.
+   *
+   * @param series the observations.
+   * @return the KPSS statistic for the null hypothesis of level stationarity.
+   */
+  static double kpssStatistic(final double[] series) {
+    final int n = series.length;
+    final double mean = meanOf(series);
+    final double[] residuals = new double[n];
+    double partialSum = 0.0;
+    double sumOfSquaredPartialSums = 0.0;
+    double longRunVariance = 0.0;
+    for (int t = 0; t < n; t++) {
+      residuals[t] = series[t] - mean;
+      partialSum += residuals[t];
+      sumOfSquaredPartialSums += partialSum * partialSum;
+      longRunVariance += residuals[t] * residuals[t];
+    }
+    final int lags = (int) (3 * Math.sqrt(n) / 13);
+    for (int l = 1; l <= lags; l++) {
+      double autoCovariance = 0.0;
+      for (int t = l; t < n; t++) {
+        autoCovariance += residuals[t] * residuals[t - l];
+      }
+      longRunVariance += 2 * (1.0 - l / (lags + 1.0)) * autoCovariance;
+    }
+    longRunVariance /= n;
+    return sumOfSquaredPartialSums / (n * (double) n * longRunVariance);
+  }
+
+  /**
+   * The strength of the seasonal component of the given series, between zero and one, measured from a classical
+   * additive decomposition as one minus the ratio of the remainder variance to the variance of the detrended series.
+   *
+   * @param series the observations.
+   * @param seasonalFrequency the number of observations per seasonal cycle.
+   * @return the strength of the seasonal component of the given series.
+   */
+  static double seasonalStrength(final double[] series, final int seasonalFrequency) {
+    final int s = seasonalFrequency;
+    final int half = s / 2;
+    final int start = half;
+    final int end = series.length - half;
+    final double[] detrended = new double[end - start];
+    for (int t = start; t < end; t++) {
+      // A centered moving average of order s if s is odd and of order 2 x s if s is even.
+      double trend = 0.0;
+      if (s % 2 == 1) {
+        for (int j = -half; j <= half; j++) {
+          trend += series[t + j];
+        }
+        trend /= s;
+      } else {
+        for (int j = -half + 1; j < half; j++) {
+          trend += series[t + j];
+        }
+        trend = (trend + 0.5 * (series[t - half] + series[t + half])) / s;
+      }
+      detrended[t - start] = series[t] - trend;
+    }
+    final double[] seasonalSums = new double[s];
+    final int[] seasonalCounts = new int[s];
+    for (int i = 0; i < detrended.length; i++) {
+      seasonalSums[(i + start) % s] += detrended[i];
+      seasonalCounts[(i + start) % s]++;
+    }
+    double overallMean = 0.0;
+    for (int j = 0; j < s; j++) {
+      seasonalSums[j] /= seasonalCounts[j];
+      overallMean += seasonalSums[j];
+    }
+    overallMean /= s;
+    final double[] remainder = new double[detrended.length];
+    for (int i = 0; i < detrended.length; i++) {
+      remainder[i] = detrended[i] - (seasonalSums[(i + start) % s] - overallMean);
+    }
+    final double detrendedVariance = varianceOf(detrended);
+    if (detrendedVariance == 0.0) {
+      return 0.0;
+    }
+    return Math.max(0.0, 1.0 - varianceOf(remainder) / detrendedVariance);
+  }
+
+  private static final class Candidate {
+
+    private final ModelOrder order;
+    private final Arima model;
+    private final double score;
+
+    private Candidate(final ModelOrder order, final Arima model, final double score) {
+      this.order = order;
+      this.model = model;
+      this.score = score;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a fixed number of copies of a worker in parallel and waits for all of them to finish. The workers are expected
+ * to share their work through a common counter, each taking the next unit until none remain, so that a worker can
+ * reuse its own buffers for every unit it takes.
+ *
+ * @author Jacob Rachiele
+ */
+final class BoundedWorkers {
+
+  private BoundedWorkers() {
+  }
+
+  /**
+   * Run the given number of copies of the worker and wait for all of them to finish. A single worker is run on the
+   * calling thread. Otherwise the workers are submitted to the given executor, which is not shut down, or, if none is
+   * given, to a new fork-join pool with one thread per worker, which is shut down once they finish.
+   *
+   * @param worker the worker to run.
+   * @param workers the number of copies of the worker to run.
+   * @param executor the executor to run the workers on, or null to create a pool for them.
+   */
+  static void run(final Runnable worker, final int workers, final Executor executor) {
+    if (workers <= 1) {
+      worker.run();
+      return;
+    }
+    final ForkJoinPool ownPool = (executor == null) ? new ForkJoinPool(workers) : null;
+    try {
+      final Executor target = (ownPool == null) ? executor : ownPool;
+      final CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+      for (int w = 0; w < workers; w++) {
+        futures[w] = CompletableFuture.runAsync(worker, target);
+      }
+      CompletableFuture.allOf(futures).join();
+    } finally {
+      if (ownPool != null) {
+        ownPool.shutdown();
+      }
+    }
+  }
+}
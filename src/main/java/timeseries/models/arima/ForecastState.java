@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import stats.distributions.Normal;
+import timeseries.TimeSeries;
+import timeseries.operators.LagPolynomial;
+
+/**
+ * The part of a fitted ARIMA model needed to forecast from the end of its observations: the most recent observations
+ * and residuals, the non-zero coefficients of the model, and the variances of the forecast errors up to a maximum
+ * horizon. A state is extracted once, with {@link Arima#forecastState(int)}, and then forecasts in time proportional
+ * to the number of steps and non-zero coefficients, independent of the length of the series the model was fit to.
+ *
+ * <p>
+ * The autoregressive and differencing polynomials are multiplied into a single polynomial in the observations, so
+ * that a forecast is a recursion over the observations alone, with no differenced series to maintain. Forecasts are
+ * written into arrays supplied by the caller and allocate no memory. This class is immutable and thread-safe, so one
+ * state may serve any number of concurrent forecast requests.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class ForecastState {
+
+  // The quantile function is a pure function, so a single instance serves every thread.
+  static final Normal STANDARD_NORMAL = new Normal();
+
+  private final double intercept;
+  // The coefficients of the observations and residuals, the former including the differencing.
+  private final SparseLags phi;
+  private final SparseLags theta;
+  // The most recent observations and residuals, oldest first.
+  private final double[] recentObservations;
+  private final double[] recentResiduals;
+  // forecastVariances[h] is the variance of the forecast error h + 1 steps ahead.
+  private final double[] forecastVariances;
+
+  ForecastState(final Arima model, final int maxSteps) {
+    if (maxSteps < 0) {
+      throw new IllegalArgumentException("The maximum number of steps cannot be negative, but was " + maxSteps + ".");
+    }
+    final Arima.ModelOrder order = model.order();
+    final double[] arCoeffs = model.arSarCoefficients();
+    final double[] maCoeffs = model.maSmaCoefficients();
+    final LagPolynomial integratedAr = LagPolynomial.differences(order.d)
+                                                    .times(LagPolynomial.seasonalDifferences(model.seasonalFrequency(),
+                                                                                             order.D))
+                                                    .times(LagPolynomial.autoRegressive(arCoeffs));
+    double arSum = 0.0;
+    for (double arCoeff : arCoeffs) {
+      arSum += arCoeff;
+    }
+    this.intercept = model.coefficients().getMean() * (1 - arSum);
+    this.phi = SparseLags.of(integratedAr.inverseParams());
+    this.theta = SparseLags.of(maCoeffs);
+    this.recentObservations = lastValues(model.timeSeries(), maxLag(phi));
+    this.recentResiduals = lastValues(model.residuals(), maxLag(theta));
+
+    final double[] psi = psiWeights(phi, maCoeffs, maxSteps);
+    this.forecastVariances = new double[maxSteps];
+    final double sigma2 = model.sigma2();
+    double psiWeightSum = 0.0;
+    for (int h = 0; h < maxSteps; h++) {
+      psiWeightSum += psi[h] * psi[h];
+      forecastVariances[h] = sigma2 * psiWeightSum;
+    }
+  }
+
+  /**
+   * The largest number of steps ahead for which prediction interval bounds can be computed.
+   *
+   * @return the largest number of steps ahead for which prediction interval bounds can be computed.
+   */
+  public int maxSteps() {
+    return this.forecastVariances.length;
+  }
+
+  /**
+   * The variance of the forecast error the given number of steps ahead.
+   *
+   * @param steps the number of steps ahead, from 1 to {@link #maxSteps()}.
+   * @return the variance of the forecast error the given number of steps ahead.
+   * @throws IllegalArgumentException if the number of steps is not between 1 and the maximum number of steps.
+   */
+  public double forecastVariance(final int steps) {
+    if (steps < 1 || steps > forecastVariances.length) {
+      throw new IllegalArgumentException("The number of steps must be between 1 and " + forecastVariances.length +
+                                         ", but was " + steps + ".");
+    }
+    return this.forecastVariances[steps - 1];
+  }
+
+  /**
+   * Write point forecasts for as many steps ahead as the given array holds into the array, without allocating. There
+   * is no limit on the number of steps.
+   *
+   * @param forecast the array to hold the forecasts, element h - 1 holding the forecast h steps ahead.
+   */
+  public void forecastInto(final double[] forecast) {
+    final int observed = recentObservations.length;
+    final int residuals = recentResiduals.length;
+    for (int h = 0; h < forecast.length; h++) {
+      double value = intercept;
+      for (int l = 0; l < phi.size; l++) {
+        final int index = h - phi.lags[l] - 1;
+        value += phi.values[l] * ((index >= 0) ? forecast[index] : recentObservations[observed + index]);
+      }
+      // Future errors have expectation zero, so only the residuals observed before the origin contribute.
+      for (int l = theta.size - 1; l >= 0 && theta.lags[l] >= h; l--) {
+        value += theta.values[l] * recentResiduals[residuals + h - theta.lags[l] - 1];
+      }
+      forecast[h] = value;
+    }
+  }
+
+  /**
+   * Write point forecasts, and the bounds of the prediction intervals at the given significance level, for as many
+   * steps ahead as the given arrays hold into the arrays, without allocating.
+   *
+   * @param forecast the array to hold the forecasts, element h - 1 holding the forecast h steps ahead.
+   * @param alpha the significance level of the prediction intervals.
+   * @param lower the array to hold the lower bounds, the same length as the forecast array.
+   * @param upper the array to hold the upper bounds, the same length as the forecast array.
+   * @throws IllegalArgumentException if the arrays differ in length, if they are longer than the maximum number of
+   *         steps, or if alpha is not strictly between 0 and 1.
+   */
+  public void forecastInto(final double[] forecast, final double alpha, final double[] lower, final double[] upper) {
+    if (lower.length != forecast.length || upper.length != forecast.length) {
+      throw new IllegalArgumentException("The forecast and bound arrays must have the same length.");
+    }
+    if (forecast.length > forecastVariances.length) {
+      throw new IllegalArgumentException("This state holds forecast variances for at most " +
+                                         forecastVariances.length + " steps, but " + forecast.length +
+                                         " were requested.");
+    }
+    if (!(alpha > 0 && alpha < 1)) {
+      throw new IllegalArgumentException("The significance level must be between 0 and 1, but was " + alpha + ".");
+    }
+    forecastInto(forecast);
+    final double criticalValue = STANDARD_NORMAL.quantile(1 - alpha / 2);
+    for (int h = 0; h < forecast.length; h++) {
+      final double error = criticalValue * Math.sqrt(forecastVariances[h]);
+      lower[h] = forecast[h] - error;
+      upper[h] = forecast[h] + error;
+    }
+  }
+
+  /**
+   * Simulate a path from the end of the observations, driving the recursion with the given future errors in place of
+   * their expectation of zero. The path is written to consecutive elements of the given array.
+   *
+   * @param paths the array to write the path to.
+   * @param offset the index of the array at which the first step of the path is written.
+   * @param innovations the future errors, element h being the error h + 1 steps ahead.
+   * @param steps the number of steps to simulate.
+   */
+  void simulateInto(final double[] paths, final int offset, final double[] innovations, final int steps) {
+    final int observed = recentObservations.length;
+    final int residuals = recentResiduals.length;
+    for (int h = 0; h < steps; h++) {
+      double value = intercept + innovations[h];
+      for (int l = 0; l < phi.size; l++) {
+        final int index = h - phi.lags[l] - 1;
+        value += phi.values[l] * ((index >= 0) ? paths[offset + index] : recentObservations[observed + index]);
+      }
+      for (int l = 0; l < theta.size; l++) {
+        final int index = h - theta.lags[l] - 1;
+        value += theta.values[l] * ((index >= 0) ? innovations[index] : recentResiduals[residuals + index]);
+      }
+      paths[offset + h] = value;
+    }
+  }
+
+  /**
+   * The number of past observations a forecast depends on, which is the number of initial observations whose
+   * residuals are affected by the start-up of the model's recursions.
+   *
+   * @return the number of past observations a forecast depends on.
+   */
+  int observationLags() {
+    return this.recentObservations.length;
+  }
+
+  /**
+   * Compute the first given number of psi weights, the coefficients of the infinite moving average form of the
+   * model with the given observation and moving average coefficients.
+   *
+   * @param phi the non-zero coefficients of the observations, including the differencing.
+   * @param theta the expanded moving average coefficients.
+   * @param steps the number of weights to compute.
+   * @return the first given number of psi weights.
+   */
+  static double[] psiWeights(final SparseLags phi, final double[] theta, final int steps) {
+    final double[] psi = new double[steps];
+    if (steps == 0) {
+      return psi;
+    }
+    psi[0] = 1.0;
+    System.arraycopy(theta, 0, psi, 1, Math.min(steps - 1, theta.length));
+    for (int j = 1; j < psi.length; j++) {
+      for (int l = 0; l < phi.size && phi.lags[l] < j; l++) {
+        psi[j] += psi[j - phi.lags[l] - 1] * phi.values[l];
+      }
+    }
+    return psi;
+  }
+
+  /**
+   * The probabilities of the lower and upper bounds of the central prediction intervals at the given significance
+   * levels, in the order expected of prediction bounds: the lower bound probabilities first, then the upper ones.
+   *
+   * @param alphas the significance levels of the prediction intervals, each strictly between 0 and 1.
+   * @return an array whose element i is alphas[i] / 2 and whose element alphas.length + i is 1 - alphas[i] / 2.
+   * @throws IllegalArgumentException if a significance level is not strictly between 0 and 1.
+   */
+  static double[] boundProbabilities(final double[] alphas) {
+    final double[] probabilities = new double[2 * alphas.length];
+    for (int i = 0; i < alphas.length; i++) {
+      if (!(alphas[i] > 0 && alphas[i] < 1)) {
+        throw new IllegalArgumentException("Each significance level must be between 0 and 1, but was " + alphas[i] +
+                                           ".");
+      }
+      probabilities[i] = alphas[i] / 2;
+      probabilities[alphas.length + i] = 1 - alphas[i] / 2;
+    }
+    return probabilities;
+  }
+
+  private static int maxLag(final SparseLags lags) {
+    return (lags.size == 0) ? 0 : lags.lags[lags.size - 1] + 1;
+  }
+
+  // The last length values of the given series, padded at the front with zeros if the series is shorter.
+  private static double[] lastValues(final TimeSeries series, final int length) {
+    final double[] last = new double[length];
+    final int count = Math.min(length, series.n());
+    for (int i = 0; i < count; i++) {
+      last[length - count + i] = series.at(series.n() - count + i);
+    }
+    return last;
+  }
+}
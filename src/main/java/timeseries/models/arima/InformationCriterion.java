@@ -0,0 +1,47 @@
+package timeseries.models.arima;
+
+/**
+ * An information criterion used to compare ARIMA models fit to the same data. Smaller values are better.
+ * @author Jacob Rachiele
+ *
+ */
+public enum InformationCriterion {
+
+  /**
+   * The Akaike information criterion.
+   */
+  AIC {
+    @Override
+    double of(final Arima model) {
+      return model.aic();
+    }
+  },
+
+  /**
+   * The Akaike information criterion corrected for small sample sizes.
+   */
+  AICC {
+    @Override
+    double of(final Arima model) {
+      return model.aicc();
+    }
+  },
+
+  /**
+   * The Bayesian information criterion.
+   */
+  BIC {
+    @Override
+    double of(final Arima model) {
+      return model.bic();
+    }
+  };
+
+  /**
+   * Compute the value of this criterion for the given model.
+   * @param model the model to compute the criterion for.
+   * @return the value of this criterion for the given model.
+   */
+  abstract double of(Arima model);
+
+}
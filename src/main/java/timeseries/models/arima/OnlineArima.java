@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelCoefficients;
+import timeseries.models.arima.Arima.ModelOrder;
+import timeseries.operators.LagPolynomial;
+
+/**
+ * An ARIMA model that is updated one observation at a time. Starting from a fitted {@link Arima} model, each appended
+ * observation is differenced, its one-step-ahead prediction error computed, and the recent history the forecasts
+ * depend on updated, all in O(p + q + d + D * s) time, where p and q are the orders of the expanded autoregressive and
+ * moving average polynomials. Forecasts are computed from this recent history alone, so their cost does not depend on
+ * the number of observations seen.
+ *
+ * <p>
+ * Optionally, the coefficients can be re-estimated after every given number of appended observations. Re-estimation
+ * runs in the background on a copy of the most recent observations, starting the optimization from the current
+ * coefficients, and the new model is installed on the first append after it completes. Observations appended while
+ * the model was being re-estimated are replayed through the new model when it is installed. If re-estimation fails,
+ * the current model is kept.
+ * </p>
+ *
+ * <p>
+ * Instances are mutable and must not be appended to from more than one thread at a time.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class OnlineArima {
+
+  private final TimePeriod timePeriod;
+  private final OffsetDateTime startTime;
+  private final TimePeriod seasonalCycle;
+  private final int seasonalFrequency;
+  private final ModelOrder order;
+  private final FittingStrategy fittingStrategy;
+  private final int refitInterval;
+  private final int window;
+  private final Executor executor;
+  private final ArimaWorkspace refitWorkspace = new ArimaWorkspace();
+
+  // The parameters of the combined differencing polynomial, so that the differenced series is
+  // w_t = y_t + differenceParams[0] * y_(t-1) + ... + differenceParams[L - 1] * y_(t-L).
+  private final double[] differenceParams;
+  private final SparseLags differences;
+
+  // The recent history, most recent value first.
+  private final double[] recentObservations;
+  private double[] recentDifferences;
+  private double[] recentResiduals;
+
+  private Arima model;
+  private double[] arSarCoeffs;
+  private double[] maSmaCoeffs;
+  // The non-zero expanded coefficients, over which the recursions run.
+  private SparseLags ar;
+  private SparseLags ma;
+  private double mean;
+
+  private long count;
+  private double lastResidual;
+  private double[] forecastObservations = new double[0];
+  private double[] forecastDifferences = new double[0];
+
+  // The observations retained for re-estimation, history[0] being observation number historyStart.
+  private double[] history = new double[0];
+  private int historySize;
+  private long historyStart;
+  private long appendsSinceRefit;
+  private int refits;
+  private CompletableFuture<Arima> pendingRefit;
+  private long pendingRefitEnd;
+
+  private OnlineArima(final Builder builder) {
+    final Arima initialModel = builder.model;
+    final TimeSeries observations = initialModel.timeSeries();
+    this.timePeriod = observations.timePeriod();
+    this.startTime = observations.observationTimes().get(0);
+    this.seasonalFrequency = initialModel.seasonalFrequency();
+    this.seasonalCycle = new TimePeriod(timePeriod.timeUnit(), timePeriod.periodLength() * seasonalFrequency);
+    this.order = initialModel.order();
+    this.fittingStrategy = builder.fittingStrategy;
+    this.refitInterval = builder.refitInterval;
+    this.window = builder.window;
+    this.executor = builder.executor;
+    this.differenceParams = LagPolynomial.differences(order.d)
+                                         .times(LagPolynomial.seasonalDifferences(seasonalFrequency, order.D))
+                                         .parameters();
+    this.differences = SparseLags.of(differenceParams);
+    this.recentObservations = new double[differenceParams.length];
+    this.count = observations.n();
+    install(initialModel, count);
+    if (refitInterval > 0) {
+      final double[] series = observations.series();
+      final int retained = Math.min(series.length, window);
+      this.history = Arrays.copyOfRange(series, series.length - retained, series.length);
+      this.historySize = retained;
+      this.historyStart = count - retained;
+    }
+  }
+
+  /**
+   * Create a new online ARIMA model starting from the given fitted model, without re-estimation.
+   *
+   * @param model the fitted model to start from.
+   * @return a new online ARIMA model starting from the given fitted model.
+   */
+  public static OnlineArima from(final Arima model) {
+    return newBuilder().model(model).build();
+  }
+
+  /**
+   * Get a new builder for an online ARIMA model.
+   *
+   * @return a new builder for an online ARIMA model.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Update the model with the next observation of the series.
+   *
+   * @param observation the next observation of the series.
+   */
+  public void append(final double observation) {
+    installCompletedRefit();
+    update(observation);
+    count++;
+    if (refitInterval > 0) {
+      retain(observation);
+      appendsSinceRefit++;
+      if (appendsSinceRefit >= refitInterval && pendingRefit == null) {
+        submitRefit();
+      }
+      installCompletedRefit();
+    }
+  }
+
+  /**
+   * Forecast the given number of steps ahead of the last observation and return the result in a new array.
+   *
+   * @param steps the number of time steps ahead to forecast.
+   * @return a forecast for the given number of steps ahead of the last observation.
+   */
+  public double[] forecast(final int steps) {
+    final double[] forecast = new double[steps];
+    forecastInto(forecast);
+    return forecast;
+  }
+
+  /**
+   * Forecast as many steps ahead of the last observation as the given array has room for, writing the forecasts into
+   * the array. No memory is allocated once forecasts of this many steps have been made.
+   *
+   * @param forecast the array to write the forecasts to.
+   */
+  public void forecastInto(final double[] forecast) {
+    final int steps = forecast.length;
+    final int L = differenceParams.length;
+    final int p = arSarCoeffs.length;
+    if (forecastObservations.length < L + steps) {
+      forecastObservations = new double[L + steps];
+    }
+    if (forecastDifferences.length < p + steps) {
+      forecastDifferences = new double[p + steps];
+    }
+    final double[] y = forecastObservations;
+    final double[] w = forecastDifferences;
+    for (int i = 0; i < L; i++) {
+      y[L - i - 1] = recentObservations[i];
+    }
+    for (int i = 0; i < p; i++) {
+      w[p - i - 1] = recentDifferences[i];
+    }
+    for (int h = 0; h < steps; h++) {
+      double next = mean;
+      for (int l = 0; l < ar.size; l++) {
+        next += ar.values[l] * (w[p + h - ar.lags[l] - 1] - mean);
+      }
+      // Future prediction errors have expectation zero, so only the known residuals contribute.
+      for (int l = 0; l < ma.size; l++) {
+        final int j = ma.lags[l];
+        if (j >= h) {
+          next += ma.values[l] * recentResiduals[j - h];
+        }
+      }
+      w[p + h] = next;
+      double value = next;
+      for (int l = 0; l < differences.size; l++) {
+        value -= differences.values[l] * y[L + h - differences.lags[l] - 1];
+      }
+      y[L + h] = value;
+      forecast[h] = value;
+    }
+  }
+
+  /**
+   * The one-step-ahead prediction error of the last observation appended, or of the last observation the model was
+   * fit to if none have been appended.
+   *
+   * @return the one-step-ahead prediction error of the last observation.
+   */
+  public double lastResidual() {
+    return this.lastResidual;
+  }
+
+  /**
+   * The total number of observations seen, including those the initial model was fit to.
+   *
+   * @return the total number of observations seen.
+   */
+  public long observations() {
+    return this.count;
+  }
+
+  /**
+   * The model whose coefficients are currently used to update the state and forecast. This is either the initial
+   * model or the most recently installed re-estimated model.
+   *
+   * @return the model whose coefficients are currently in use.
+   */
+  public Arima model() {
+    return this.model;
+  }
+
+  /**
+   * The number of re-estimated models installed so far.
+   *
+   * @return the number of re-estimated models installed so far.
+   */
+  public int refits() {
+    return this.refits;
+  }
+
+  private void update(final double observation) {
+    double difference = observation;
+    for (int l = 0; l < differences.size; l++) {
+      difference += differences.values[l] * recentObservations[differences.lags[l]];
+    }
+    double prediction = mean;
+    for (int l = 0; l < ar.size; l++) {
+      prediction += ar.values[l] * (recentDifferences[ar.lags[l]] - mean);
+    }
+    for (int l = 0; l < ma.size; l++) {
+      prediction += ma.values[l] * recentResiduals[ma.lags[l]];
+    }
+    lastResidual = difference - prediction;
+    push(recentObservations, observation);
+    push(recentDifferences, difference);
+    push(recentResiduals, lastResidual);
+  }
+
+  // Shift the values of the array back by one position and put the given value at the front.
+  private static void push(final double[] recent, final double value) {
+    if (recent.length > 0) {
+      System.arraycopy(recent, 0, recent, 1, recent.length - 1);
+      recent[0] = value;
+    }
+  }
+
+  // Take the coefficients of the given model, which was fit to observations up to, but not including, the given
+  // observation number, and rebuild the recent history from its observations and residuals.
+  private void install(final Arima newModel, final long end) {
+    final ModelCoefficients coefficients = newModel.coefficients();
+    this.model = newModel;
+    this.arSarCoeffs = Arima.expandArCoefficients(coefficients.arCoeffs(), coefficients.sarCoeffs(),
+                                                  seasonalFrequency);
+    this.maSmaCoeffs = Arima.expandMaCoefficients(coefficients.maCoeffs(), coefficients.smaCoeffs(),
+                                                  seasonalFrequency);
+    this.ar = SparseLags.of(arSarCoeffs);
+    this.ma = SparseLags.of(maSmaCoeffs);
+    this.mean = coefficients.getMean();
+    this.recentDifferences = new double[arSarCoeffs.length];
+    this.recentResiduals = new double[maSmaCoeffs.length];
+
+    final double[] series = newModel.timeSeries().series();
+    final double[] residuals = newModel.residuals().series();
+    final int n = series.length;
+    final int L = differenceParams.length;
+    Arrays.fill(recentObservations, 0.0);
+    for (int i = 0; i < L && i < n; i++) {
+      recentObservations[i] = series[n - i - 1];
+    }
+    for (int i = 0; i < recentDifferences.length && n - i - 1 - L >= 0; i++) {
+      final int t = n - i - 1;
+      double difference = series[t];
+      for (int l = 0; l < differences.size; l++) {
+        difference += differences.values[l] * series[t - differences.lags[l] - 1];
+      }
+      recentDifferences[i] = difference;
+    }
+    for (int j = 0; j < recentResiduals.length && j < n; j++) {
+      recentResiduals[j] = residuals[n - j - 1];
+    }
+    this.lastResidual = residuals[n - 1];
+
+    // Replay any observations seen after the model's observations through the new coefficients.
+    for (long t = end; t < count; t++) {
+      update(history[(int) (t - historyStart)]);
+    }
+  }
+
+  private void retain(final double observation) {
+    if (historySize == history.length) {
+      // Keep the most recent window of observations, along with any a pending refit will need to replay.
+      final long keepFrom = (pendingRefit == null) ? count - window : Math.min(count - window, pendingRefitEnd);
+      final int drop = (int) Math.max(0, keepFrom - historyStart);
+      final double[] retained = (historySize - drop < history.length / 2)
+          ? history : new double[Math.max(16, 2 * (historySize - drop))];
+      System.arraycopy(history, drop, retained, 0, historySize - drop);
+      this.history = retained;
+      this.historySize -= drop;
+      this.historyStart += drop;
+    }
+    history[historySize++] = observation;
+  }
+
+  private void submitRefit() {
+    final int length = (int) Math.min(window, count - historyStart);
+    final int from = historySize - length;
+    final double[] values = Arrays.copyOfRange(history, from, historySize);
+    final long first = historyStart + from;
+    final OffsetDateTime start = startTime.plus(first * timePeriod.periodLength() * timePeriod.timeUnit().unitLength(),
+                                                timePeriod.timeUnit().temporalUnit());
+    final TimeSeries observations = new TimeSeries(timePeriod, start, values);
+    final double[] initialParameters = currentParameters();
+    this.appendsSinceRefit = 0;
+    this.pendingRefitEnd = count;
+    this.pendingRefit = CompletableFuture.supplyAsync(
+        () -> Arima.model(observations, order, seasonalCycle, fittingStrategy, refitWorkspace, initialParameters),
+        executor);
+  }
+
+  private void installCompletedRefit() {
+    if (pendingRefit == null || !pendingRefit.isDone()) {
+      return;
+    }
+    final CompletableFuture<Arima> completed = pendingRefit;
+    this.pendingRefit = null;
+    final Arima refit;
+    try {
+      refit = completed.join();
+    } catch (RuntimeException e) {
+      return;
+    }
+    install(refit, pendingRefitEnd);
+    this.refits++;
+  }
+
+  // The current coefficients laid out as the parameters of the optimization.
+  private double[] currentParameters() {
+    final ModelCoefficients coefficients = model.coefficients();
+    final double[] params = new double[order.p + order.q + order.P + order.Q + order.constant];
+    System.arraycopy(coefficients.arCoeffs(), 0, params, 0, order.p);
+    System.arraycopy(coefficients.maCoeffs(), 0, params, order.p, order.q);
+    System.arraycopy(coefficients.sarCoeffs(), 0, params, order.p + order.q, order.P);
+    System.arraycopy(coefficients.smaCoeffs(), 0, params, order.p + order.q + order.P, order.Q);
+    if (order.constant == 1) {
+      params[params.length - 1] = coefficients.getMean();
+    }
+    return params;
+  }
+
+  /**
+   * A builder for an online ARIMA model.
+   *
+   * @author Jacob Rachiele
+   */
+  public static final class Builder {
+
+    private Arima model;
+    private int refitInterval = 0;
+    private int window = Integer.MAX_VALUE;
+    private FittingStrategy fittingStrategy = FittingStrategy.USS;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    private Builder() {
+    }
+
+    /**
+     * Set the fitted model to start from.
+     *
+     * @param model the fitted model to start from.
+     * @return this builder.
+     */
+    public Builder model(final Arima model) {
+      this.model = model;
+      return this;
+    }
+
+    /**
+     * Re-estimate the coefficients after every given number of appended observations. The default, zero, disables
+     * re-estimation, in which case no observations are retained.
+     *
+     * @param refitInterval the number of appended observations between re-estimations, or zero for none.
+     * @return this builder.
+     */
+    public Builder refitEvery(final int refitInterval) {
+      if (refitInterval < 0) {
+        throw new IllegalArgumentException("The refit interval must be non-negative, but was " + refitInterval + ".");
+      }
+      this.refitInterval = refitInterval;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of the most recent observations used to re-estimate the coefficients. By default, every
+     * observation is used.
+     *
+     * @param window the maximum number of observations used to re-estimate the coefficients.
+     * @return this builder.
+     */
+    public Builder window(final int window) {
+      if (window < 1) {
+        throw new IllegalArgumentException("The window must be at least 1, but was " + window + ".");
+      }
+      this.window = window;
+      return this;
+    }
+
+    /**
+     * Set the strategy used to re-estimate the coefficients. The default is unconditional sum-of-squares.
+     *
+     * @param fittingStrategy the strategy used to re-estimate the coefficients.
+     * @return this builder.
+     */
+    public Builder fittingStrategy(final FittingStrategy fittingStrategy) {
+      this.fittingStrategy = fittingStrategy;
+      return this;
+    }
+
+    /**
+     * Set the executor that re-estimates the coefficients. The default is the common fork-join pool.
+     *
+     * @param executor the executor that re-estimates the coefficients.
+     * @return this builder.
+     */
+    public Builder executor(final Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Construct a new online ARIMA model from the configured values.
+     *
+     * @return a new online ARIMA model from the configured values.
+     */
+    public OnlineArima build() {
+      if (model == null) {
+        throw new IllegalArgumentException("The model to start from must not be null.");
+      }
+      if (fittingStrategy == null) {
+        throw new IllegalArgumentException("The fitting strategy must not be null.");
+      }
+      if (executor == null) {
+        throw new IllegalArgumentException("The executor must not be null.");
+      }
+      return new OnlineArima(this);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.arima;
+
+import java.util.Arrays;
+
+/**
+ * The non-zero coefficients of an expanded autoregressive or moving average polynomial, stored as parallel arrays of
+ * lags and values. A seasonal model of order (p, P) with seasonal frequency s expands to p + Ps coefficients, of which
+ * at most p + P(p + 1) can be non-zero, so recursions that run over the sparse form take time proportional to the
+ * number of model parameters rather than to the seasonal frequency.
+ *
+ * <p>
+ * Lags are zero-based, as are the indices of the expanded arrays: lag k holds the coefficient of the (k + 1)th
+ * lagged value. Lags are stored in increasing order, so that sums taken over them accumulate in the same order as
+ * sums taken over the expanded array, and skipping the zero coefficients leaves the results unchanged.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+final class SparseLags {
+
+  final int[] lags;
+  final double[] values;
+  final int size;
+
+  private SparseLags(final int[] lags, final double[] values) {
+    this.lags = lags;
+    this.values = values;
+    this.size = lags.length;
+  }
+
+  /**
+   * Collect the non-zero elements of the given expanded coefficients.
+   *
+   * @param coefficients the expanded coefficients.
+   * @return the non-zero elements of the given expanded coefficients.
+   */
+  static SparseLags of(final double[] coefficients) {
+    int count = 0;
+    for (double coefficient : coefficients) {
+      if (coefficient != 0.0) {
+        count++;
+      }
+    }
+    final int[] lags = new int[count];
+    final double[] values = new double[count];
+    count = 0;
+    for (int k = 0; k < coefficients.length; k++) {
+      if (coefficients[k] != 0.0) {
+        lags[count] = k;
+        values[count++] = coefficients[k];
+      }
+    }
+    return new SparseLags(lags, values);
+  }
+
+  /**
+   * The largest number of lags that {@link #structural} can store for the given orders.
+   *
+   * @param nonSeasonal the non-seasonal order.
+   * @param seasonal the seasonal order.
+   * @return the largest number of lags that can be structurally non-zero.
+   */
+  static int maxStructuralSize(final int nonSeasonal, final int seasonal) {
+    return nonSeasonal + seasonal * (nonSeasonal + 1);
+  }
+
+  /**
+   * Store, in increasing order, the lags at which the expansion of a polynomial of the given non-seasonal and
+   * seasonal orders can be non-zero. These are the lags written by {@link Arima#expandArCoefficients} and
+   * {@link Arima#expandMaCoefficients}, and depend only on the model order.
+   *
+   * @param nonSeasonal the non-seasonal order.
+   * @param seasonal the seasonal order.
+   * @param seasonalFrequency the number of observations per seasonal cycle.
+   * @param lags an array with room for at least {@link #maxStructuralSize} lags.
+   * @return the number of lags stored.
+   */
+  static int structural(final int nonSeasonal, final int seasonal, final int seasonalFrequency, final int[] lags) {
+    int count = 0;
+    for (int j = 0; j < nonSeasonal; j++) {
+      lags[count++] = j;
+    }
+    for (int i = 0; i < seasonal; i++) {
+      lags[count++] = (i + 1) * seasonalFrequency - 1;
+      for (int j = 0; j < nonSeasonal; j++) {
+        lags[count++] = (i + 1) * seasonalFrequency + j;
+      }
+    }
+    // The seasonal and non-seasonal lags overlap when the non-seasonal order reaches the seasonal frequency.
+    Arrays.sort(lags, 0, count);
+    int unique = 0;
+    for (int l = 0; l < count; l++) {
+      if (unique == 0 || lags[l] != lags[unique - 1]) {
+        lags[unique++] = lags[l];
+      }
+    }
+    return unique;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+import timeseries.TimeSeries;
+
+/**
+ * Holt's linear trend method, for series with a trend but no seasonality. The level is smoothed with parameter
+ * &alpha; and the slope with parameter &beta;, and the forecast h steps ahead is the level plus h times the slope.
+ *
+ * @author Jacob Rachiele
+ */
+public final class Holt extends SmoothingModel {
+
+  private Holt(final TimeSeries observations, final SmoothingKernel kernel, final double[] parameters) {
+    super("Holt's Linear Trend", observations, kernel, parameters, true, 0, false);
+  }
+
+  /**
+   * Create a new Holt model from the given observations, with &alpha; and &beta; chosen to minimize the mean squared
+   * one-step error.
+   *
+   * @param observations the time series of observations.
+   * @return a new Holt model fit to the given observations.
+   * @throws IllegalArgumentException if there are fewer than three observations.
+   */
+  public static Holt model(final TimeSeries observations) {
+    final SmoothingKernel kernel = new SmoothingKernel(observations.series(), true, 0, false);
+    return new Holt(observations, kernel, estimate(kernel, true, false));
+  }
+
+  /**
+   * Create a new Holt model from the given observations and smoothing parameters.
+   *
+   * @param observations the time series of observations.
+   * @param alpha the smoothing parameter for the level, between 0 and 1.
+   * @param beta the smoothing parameter for the slope, between 0 and 1.
+   * @return a new Holt model with the given smoothing parameters.
+   * @throws IllegalArgumentException if there are fewer than three observations or a parameter is not between 0 and
+   *                                  1.
+   */
+  public static Holt model(final TimeSeries observations, final double alpha, final double beta) {
+    final SmoothingKernel kernel = new SmoothingKernel(observations.series(), true, 0, false);
+    return new Holt(observations, kernel, validate(new double[] {alpha, beta}, false));
+  }
+
+  /**
+   * The smoothing parameter for the slope, &beta;.
+   *
+   * @return the smoothing parameter for the slope.
+   */
+  public double beta() {
+    return betaParameter();
+  }
+
+  /**
+   * The slope at the time of the last observation.
+   *
+   * @return the slope at the time of the last observation.
+   */
+  public double trend() {
+    return slope();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+
+/**
+ * The Holt-Winters seasonal method, for series with both a trend and seasonality. The level, slope, and seasonal
+ * components are smoothed with parameters &alpha;, &beta;, and &gamma; respectively. With additive seasonality the
+ * seasonal component is added to the trend, and with multiplicative seasonality the trend is scaled by it, which
+ * suits series whose seasonal swings grow with their level.
+ *
+ * @author Jacob Rachiele
+ */
+public final class HoltWinters extends SmoothingModel {
+
+  private final Seasonality seasonality;
+
+  private HoltWinters(final TimeSeries observations, final SmoothingKernel kernel, final double[] parameters,
+                      final int period, final Seasonality seasonality) {
+    super("Holt-Winters " + seasonality, observations, kernel, parameters, true, period,
+          seasonality == Seasonality.MULTIPLICATIVE);
+    this.seasonality = seasonality;
+  }
+
+  /**
+   * Create a new Holt-Winters model from the given observations, with &alpha;, &beta;, and &gamma; chosen to minimize
+   * the mean squared one-step error.
+   *
+   * @param observations the time series of observations.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @param seasonality whether the seasonality is additive or multiplicative.
+   * @return a new Holt-Winters model fit to the given observations.
+   * @throws IllegalArgumentException if there are fewer than two seasonal cycles of observations, or if the
+   *                                  seasonality is multiplicative and some observation is not positive.
+   */
+  public static HoltWinters model(final TimeSeries observations, final TimePeriod seasonalCycle,
+                                  final Seasonality seasonality) {
+    final int period = seasonalPeriod(observations, seasonalCycle);
+    final SmoothingKernel kernel = kernel(observations, period, seasonality);
+    return new HoltWinters(observations, kernel, estimate(kernel, true, true), period, seasonality);
+  }
+
+  /**
+   * Create a new Holt-Winters model from the given observations and smoothing parameters.
+   *
+   * @param observations the time series of observations.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @param seasonality whether the seasonality is additive or multiplicative.
+   * @param alpha the smoothing parameter for the level, between 0 and 1.
+   * @param beta the smoothing parameter for the slope, between 0 and 1.
+   * @param gamma the smoothing parameter for the seasonal components, between 0 and 1 - &alpha;.
+   * @return a new Holt-Winters model with the given smoothing parameters.
+   * @throws IllegalArgumentException if there are fewer than two seasonal cycles of observations, if the seasonality
+   *                                  is multiplicative and some observation is not positive, or if a parameter is out
+   *                                  of range.
+   */
+  public static HoltWinters model(final TimeSeries observations, final TimePeriod seasonalCycle,
+                                  final Seasonality seasonality, final double alpha, final double beta,
+                                  final double gamma) {
+    final int period = seasonalPeriod(observations, seasonalCycle);
+    final SmoothingKernel kernel = kernel(observations, period, seasonality);
+    return new HoltWinters(observations, kernel, validate(new double[] {alpha, beta, gamma}, true), period,
+                           seasonality);
+  }
+
+  private static SmoothingKernel kernel(final TimeSeries observations, final int period,
+                                        final Seasonality seasonality) {
+    return new SmoothingKernel(observations.series(), true, period, seasonality == Seasonality.MULTIPLICATIVE);
+  }
+
+  /**
+   * The smoothing parameter for the slope, &beta;.
+   *
+   * @return the smoothing parameter for the slope.
+   */
+  public double beta() {
+    return betaParameter();
+  }
+
+  /**
+   * The smoothing parameter for the seasonal components, &gamma;.
+   *
+   * @return the smoothing parameter for the seasonal components.
+   */
+  public double gamma() {
+    return gammaParameter();
+  }
+
+  /**
+   * The slope at the time of the last observation.
+   *
+   * @return the slope at the time of the last observation.
+   */
+  public double trend() {
+    return slope();
+  }
+
+  /**
+   * The seasonal components for one cycle following the last observation, element j applying to the observation
+   * j + 1 steps ahead.
+   *
+   * @return the seasonal components for one cycle following the last observation.
+   */
+  public double[] seasonal() {
+    return seasonalComponents();
+  }
+
+  /**
+   * Whether the seasonality is additive or multiplicative.
+   *
+   * @return whether the seasonality is additive or multiplicative.
+   */
+  public Seasonality seasonality() {
+    return this.seasonality;
+  }
+
+  /**
+   * The ways in which the seasonal component can combine with the trend.
+   */
+  public enum Seasonality {
+    ADDITIVE("Additive"), MULTIPLICATIVE("Multiplicative");
+
+    private final String description;
+
+    Seasonality(final String description) {
+      this.description = description;
+    }
+
+    @Override
+    public String toString() {
+      return this.description;
+    }
+  }
+}
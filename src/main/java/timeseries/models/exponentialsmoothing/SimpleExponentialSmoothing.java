@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+import timeseries.TimeSeries;
+
+/**
+ * Simple exponential smoothing, for series with neither trend nor seasonality. The forecast at every horizon is the
+ * current level, an exponentially weighted average of past observations with weights decaying at rate 1 - &alpha;.
+ *
+ * @author Jacob Rachiele
+ */
+public final class SimpleExponentialSmoothing extends SmoothingModel {
+
+  private SimpleExponentialSmoothing(final TimeSeries observations, final SmoothingKernel kernel,
+                                     final double[] parameters) {
+    super("Simple Exponential Smoothing", observations, kernel, parameters, false, 0, false);
+  }
+
+  /**
+   * Create a new simple exponential smoothing model from the given observations, with &alpha; chosen to minimize the
+   * mean squared one-step error.
+   *
+   * @param observations the time series of observations.
+   * @return a new simple exponential smoothing model fit to the given observations.
+   * @throws IllegalArgumentException if there are fewer than two observations.
+   */
+  public static SimpleExponentialSmoothing model(final TimeSeries observations) {
+    final SmoothingKernel kernel = new SmoothingKernel(observations.series(), false, 0, false);
+    return new SimpleExponentialSmoothing(observations, kernel, estimate(kernel, false, false));
+  }
+
+  /**
+   * Create a new simple exponential smoothing model from the given observations and smoothing parameter.
+   *
+   * @param observations the time series of observations.
+   * @param alpha the smoothing parameter for the level, between 0 and 1.
+   * @return a new simple exponential smoothing model with the given smoothing parameter.
+   * @throws IllegalArgumentException if there are fewer than two observations or &alpha; is not between 0 and 1.
+   */
+  public static SimpleExponentialSmoothing model(final TimeSeries observations, final double alpha) {
+    final SmoothingKernel kernel = new SmoothingKernel(observations.series(), false, 0, false);
+    return new SimpleExponentialSmoothing(observations, kernel, validate(new double[] {alpha}, false));
+  }
+}
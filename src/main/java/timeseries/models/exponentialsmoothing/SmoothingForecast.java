@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+import org.knowm.xchart.XChartPanel;
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries;
+import org.knowm.xchart.XYSeries.XYSeriesRenderStyle;
+import org.knowm.xchart.style.Styler.ChartTheme;
+import org.knowm.xchart.style.markers.None;
+
+import com.google.common.primitives.Doubles;
+
+import stats.distributions.Normal;
+import timeseries.TimeSeries;
+import timeseries.models.Forecast;
+
+/**
+ * A forecast for an exponential smoothing model, with prediction intervals based on normally distributed forecast
+ * errors.
+ *
+ * @author Jacob Rachiele
+ */
+public final class SmoothingForecast implements Forecast {
+
+  private final SmoothingModel model;
+  private final TimeSeries forecast;
+  private final double[] variances;
+  private final TimeSeries upperValues;
+  private final TimeSeries lowerValues;
+  private final TimeSeries fcstErrors;
+
+  SmoothingForecast(final SmoothingModel model, final int steps, final double alpha) {
+    this.model = model;
+    this.forecast = model.pointForecast(steps);
+    this.variances = model.forecastVariances(steps);
+    final double criticalValue = new Normal().quantile(1 - alpha / 2);
+    final double[] errors = new double[steps];
+    for (int t = 0; t < steps; t++) {
+      errors[t] = criticalValue * Math.sqrt(variances[t]);
+    }
+    this.fcstErrors = new TimeSeries(forecast.timePeriod(), forecast.observationTimes().get(0), errors);
+    this.upperValues = predictionValues(steps, criticalValue);
+    this.lowerValues = forecast.minus(errors);
+  }
+
+  @Override
+  public TimeSeries forecast() {
+    return this.forecast;
+  }
+
+  @Override
+  public TimeSeries upperPredictionValues() {
+    return this.upperValues;
+  }
+
+  @Override
+  public TimeSeries lowerPredictionValues() {
+    return this.lowerValues;
+  }
+
+  @Override
+  public TimeSeries computeUpperPredictionValues(final int steps, final double alpha) {
+    return predictionValues(steps, new Normal().quantile(1 - alpha / 2));
+  }
+
+  @Override
+  public TimeSeries computeLowerPredictionValues(final int steps, final double alpha) {
+    return predictionValues(steps, new Normal().quantile(alpha / 2));
+  }
+
+  private TimeSeries predictionValues(final int steps, final double criticalValue) {
+    final TimeSeries pointForecast = (steps == forecast.n()) ? forecast : model.pointForecast(steps);
+    final double[] stepVariances = (steps <= variances.length) ? variances : model.forecastVariances(steps);
+    final double[] values = new double[steps];
+    for (int t = 0; t < steps; t++) {
+      values[t] = pointForecast.at(t) + criticalValue * Math.sqrt(stepVariances[t]);
+    }
+    return new TimeSeries(pointForecast.timePeriod(), pointForecast.observationTimes().get(0), values);
+  }
+
+  @Override
+  public void plot() {
+    new Thread(() -> {
+      final List<Date> xAxis = new ArrayList<>(forecast.observationTimes().size());
+      final List<Date> xAxisObs = new ArrayList<>(model.timeSeries().n());
+      for (OffsetDateTime dateTime : model.timeSeries().observationTimes()) {
+        xAxisObs.add(Date.from(dateTime.toInstant()));
+      }
+      for (OffsetDateTime dateTime : forecast.observationTimes()) {
+        xAxis.add(Date.from(dateTime.toInstant()));
+      }
+
+      List<Double> errorList = Doubles.asList(fcstErrors.series());
+      List<Double> seriesList = Doubles.asList(model.timeSeries().series());
+      List<Double> forecastList = Doubles.asList(forecast.series());
+      final XYChart chart = new XYChartBuilder().theme(ChartTheme.GGPlot2).height(800).width(1200)
+          .title(model.name() + " Past and Future").build();
+
+      XYSeries observationSeries = chart.addSeries("Past", xAxisObs, seriesList);
+      XYSeries forecastSeries = chart.addSeries("Future", xAxis, forecastList, errorList);
+
+      observationSeries.setMarker(new None());
+      forecastSeries.setMarker(new None());
+
+      observationSeries.setLineWidth(0.75f);
+      forecastSeries.setLineWidth(1.5f);
+
+      chart.getStyler().setDefaultSeriesRenderStyle(XYSeriesRenderStyle.Line).setErrorBarsColor(Color.RED);
+      observationSeries.setLineColor(Color.BLACK);
+      forecastSeries.setLineColor(Color.BLUE);
+
+      JPanel panel = new XChartPanel<>(chart);
+      JFrame frame = new JFrame(model.name() + " Past and Future");
+      frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+      frame.add(panel);
+      frame.pack();
+      frame.setVisible(true);
+    }).start();
+  }
+
+  @Override
+  public void plotForecast() {
+    new Thread(() -> {
+      final List<Date> xAxis = new ArrayList<>(forecast.observationTimes().size());
+      for (OffsetDateTime dateTime : forecast.observationTimes()) {
+        xAxis.add(Date.from(dateTime.toInstant()));
+      }
+
+      List<Double> errorList = Doubles.asList(fcstErrors.series());
+      List<Double> forecastList = Doubles.asList(forecast.series());
+      final XYChart chart = new XYChartBuilder().theme(ChartTheme.GGPlot2).height(600).width(800)
+          .title(model.name() + " Forecast").build();
+
+      chart.setXAxisTitle("Time");
+      chart.setYAxisTitle("Forecast Values");
+      chart.getStyler().setAxisTitleFont(new Font("Arial", Font.PLAIN, 14));
+      chart.getStyler().setDefaultSeriesRenderStyle(XYSeriesRenderStyle.Line).setErrorBarsColor(Color.RED)
+      .setChartFontColor(new Color(112, 112, 112));
+
+      XYSeries forecastSeries = chart.addSeries("Forecast", xAxis, forecastList, errorList);
+      forecastSeries.setMarker(new None());
+      forecastSeries.setLineWidth(1.5f);
+      forecastSeries.setLineColor(Color.BLUE);
+
+      JPanel panel = new XChartPanel<>(chart);
+      JFrame frame = new JFrame(model.name() + " Forecast");
+      frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+      frame.add(panel);
+      frame.pack();
+      frame.setVisible(true);
+    }).start();
+  }
+}
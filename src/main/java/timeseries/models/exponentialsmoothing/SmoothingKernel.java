@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+/**
+ * The recursions shared by every exponential smoothing method, in the component form of Hyndman and Athanasopoulos,
+ * <i>Forecasting: Principles and Practice</i>. With level l, slope b, seasonal component s over a period of m
+ * observations, and one-step error e = y<sub>t</sub> - &#375;<sub>t</sub>, each observation updates the state by
+ *
+ * <pre>
+ *   additive:       l = &alpha;(y - s) + (1 - &alpha;)(l + b),  b = &beta;(l' - l) + (1 - &beta;)b,
+ *                   s = &gamma;(y - l - b) + (1 - &gamma;)s
+ *   multiplicative: l = &alpha;(y / s) + (1 - &alpha;)(l + b),  b = &beta;(l' - l) + (1 - &beta;)b,
+ *                   s = &gamma;(y / (l + b)) + (1 - &gamma;)s
+ * </pre>
+ *
+ * where l' is the updated level. A method without a trend keeps b at zero, and one without seasonality keeps s at its
+ * identity. A single pass of the recursion computes the sum of squared one-step errors, and optionally the fitted
+ * values, without allocating, so that a kernel can be evaluated many times while its parameters are optimized.
+ *
+ * <p>
+ * The initial state is chosen heuristically. Without seasonality the level starts at the first observation and the
+ * slope at the first difference, and the recursion starts with the second observation. With seasonality the level
+ * starts at the mean of the first period, the slope at the difference between the means of the first two periods
+ * divided by the period, and the seasonal components at the deviations, or ratios, of the first period's
+ * observations from that mean, and the recursion starts with the first observation.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+final class SmoothingKernel {
+
+  private final double[] y;
+  private final int n;
+  private final boolean trend;
+  private final int period;
+  private final boolean multiplicative;
+  private final int first;
+
+  private final double initialLevel;
+  private final double initialSlope;
+  private final double[] initialSeasonal;
+  private final double[] seasonal;
+
+  private double level;
+  private double slope;
+
+  /**
+   * Create a new kernel over the given observations.
+   *
+   * @param y the observations, which are not copied and must not be modified.
+   * @param trend whether the method has an additive trend.
+   * @param period the number of observations in one seasonal period, or 0 if the method has no seasonality.
+   * @param multiplicative whether the seasonality is multiplicative rather than additive.
+   */
+  SmoothingKernel(final double[] y, final boolean trend, final int period, final boolean multiplicative) {
+    this.y = y;
+    this.n = y.length;
+    this.trend = trend;
+    this.period = period;
+    this.multiplicative = multiplicative;
+    if (period > 0) {
+      if (n < 2 * period) {
+        throw new IllegalArgumentException("At least two full seasonal periods, " + 2 * period + " observations, " +
+                                           "are needed to initialize a seasonal model, but there were " + n + ".");
+      }
+      if (multiplicative) {
+        for (double value : y) {
+          if (!(value > 0.0)) {
+            throw new IllegalArgumentException("Multiplicative seasonality requires strictly positive observations.");
+          }
+        }
+      }
+      final double firstMean = mean(0, period);
+      this.initialLevel = firstMean;
+      this.initialSlope = trend ? (mean(period, 2 * period) - firstMean) / period : 0.0;
+      this.initialSeasonal = new double[period];
+      for (int i = 0; i < period; i++) {
+        initialSeasonal[i] = multiplicative ? y[i] / firstMean : y[i] - firstMean;
+      }
+      this.seasonal = new double[period];
+      this.first = 0;
+    } else {
+      final int required = trend ? 3 : 2;
+      if (n < required) {
+        throw new IllegalArgumentException("At least " + required + " observations are needed to fit the model, " +
+                                           "but there were " + n + ".");
+      }
+      this.initialLevel = y[0];
+      this.initialSlope = trend ? y[1] - y[0] : 0.0;
+      this.initialSeasonal = new double[0];
+      this.seasonal = new double[0];
+      this.first = 1;
+    }
+  }
+
+  /**
+   * Run the recursion over every observation with the given smoothing parameters.
+   *
+   * @param alpha the level smoothing parameter.
+   * @param beta the slope smoothing parameter, ignored without a trend.
+   * @param gamma the seasonal smoothing parameter, ignored without seasonality.
+   * @param fitted an array of length n to hold the one-step fitted values, or null if they are not needed. Values
+   *               before the first recursion step are set equal to the observations.
+   * @return the sum of squared one-step errors.
+   */
+  double run(final double alpha, final double beta, final double gamma, final double[] fitted) {
+    double l = initialLevel;
+    double b = initialSlope;
+    System.arraycopy(initialSeasonal, 0, seasonal, 0, period);
+    if (fitted != null) {
+      System.arraycopy(y, 0, fitted, 0, first);
+    }
+    double sumOfSquares = 0.0;
+    int phase = 0;
+    for (int t = first; t < n; t++) {
+      final double base = l + b;
+      final double s;
+      final double prediction;
+      if (period == 0) {
+        s = 0.0;
+        prediction = base;
+      } else {
+        s = seasonal[phase];
+        prediction = multiplicative ? base * s : base + s;
+      }
+      final double observation = y[t];
+      final double error = observation - prediction;
+      sumOfSquares += error * error;
+      if (fitted != null) {
+        fitted[t] = prediction;
+      }
+      final double nextLevel;
+      if (period == 0) {
+        nextLevel = alpha * observation + (1 - alpha) * base;
+      } else if (multiplicative) {
+        nextLevel = alpha * observation / s + (1 - alpha) * base;
+        seasonal[phase] = gamma * observation / base + (1 - gamma) * s;
+      } else {
+        nextLevel = alpha * (observation - s) + (1 - alpha) * base;
+        seasonal[phase] = gamma * (observation - base) + (1 - gamma) * s;
+      }
+      if (trend) {
+        b = beta * (nextLevel - l) + (1 - beta) * b;
+      }
+      l = nextLevel;
+      if (period > 0 && ++phase == period) {
+        phase = 0;
+      }
+    }
+    this.level = l;
+    this.slope = b;
+    return sumOfSquares;
+  }
+
+  /**
+   * The position of the first observation predicted by the recursion.
+   *
+   * @return the position of the first observation predicted by the recursion.
+   */
+  int first() {
+    return this.first;
+  }
+
+  /**
+   * The number of one-step errors made by the recursion.
+   *
+   * @return the number of one-step errors made by the recursion.
+   */
+  int errors() {
+    return n - first;
+  }
+
+  /**
+   * The level after the most recent run of the recursion.
+   *
+   * @return the level after the most recent run of the recursion.
+   */
+  double level() {
+    return this.level;
+  }
+
+  /**
+   * The slope after the most recent run of the recursion.
+   *
+   * @return the slope after the most recent run of the recursion.
+   */
+  double slope() {
+    return this.slope;
+  }
+
+  /**
+   * The seasonal components after the most recent run of the recursion, rotated so that element j applies to the
+   * forecast j + 1 steps ahead of the last observation.
+   *
+   * @return the seasonal components after the most recent run of the recursion.
+   */
+  double[] seasonalComponents() {
+    final double[] components = new double[period];
+    for (int j = 0; j < period; j++) {
+      components[j] = seasonal[(n + j) % period];
+    }
+    return components;
+  }
+
+  private double mean(final int from, final int to) {
+    double sum = 0.0;
+    for (int i = from; i < to; i++) {
+      sum += y[i];
+    }
+    return sum / (to - from);
+  }
+}
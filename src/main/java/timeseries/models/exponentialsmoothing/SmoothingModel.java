@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.models.exponentialsmoothing;
+
+import java.awt.Color;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+import org.knowm.xchart.XChartPanel;
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYChartBuilder;
+import org.knowm.xchart.XYSeries;
+import org.knowm.xchart.XYSeries.XYSeriesRenderStyle;
+import org.knowm.xchart.style.Styler.ChartTheme;
+import org.knowm.xchart.style.XYStyler;
+import org.knowm.xchart.style.markers.Circle;
+import org.knowm.xchart.style.markers.None;
+
+import com.google.common.primitives.Doubles;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
+import optim.BFGS;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.Forecast;
+import timeseries.models.Model;
+
+/**
+ * The behavior shared by the exponential smoothing models: estimation of the smoothing parameters, point forecasts,
+ * forecast variances, and plots. Subclasses only decide which components the model has.
+ *
+ * <p>
+ * The smoothing parameters are estimated by minimizing the log of the mean squared one-step error with {@link BFGS}.
+ * So that the optimization is unconstrained, it is carried out on the logistic scale, with &alpha; and &beta; the logistic
+ * function of the first two optimization variables, and &gamma; the logistic function of the third multiplied by
+ * 1 - &alpha;, which keeps &gamma; in the usual region [0, 1 - &alpha;].
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+abstract class SmoothingModel implements Model {
+
+  private static final double GRADIENT_STEP = 1E-5;
+  private static final double[] INITIAL_PARAMETERS = {0.3, 0.1, 0.1};
+
+  private final String name;
+  private final TimeSeries observations;
+  private final TimeSeries fittedSeries;
+  private final TimeSeries residuals;
+  private final boolean trend;
+  private final int period;
+  private final double alpha;
+  private final double beta;
+  private final double gamma;
+  private final double sigma2;
+  private final double level;
+  private final double slope;
+  private final double[] seasonal;
+  private final boolean multiplicative;
+
+  /**
+   * Create a new model by running the kernel with the given smoothing parameters.
+   *
+   * @param name the name of the model, used in plot titles.
+   * @param observations the observations.
+   * @param kernel the kernel over the observations.
+   * @param parameters &alpha;, followed by &beta; if the model has a trend and &gamma; if it is seasonal.
+   * @param trend whether the model has a trend.
+   * @param period the seasonal period, or 0 if the model is not seasonal.
+   * @param multiplicative whether the seasonality is multiplicative.
+   */
+  SmoothingModel(final String name, final TimeSeries observations, final SmoothingKernel kernel,
+                 final double[] parameters, final boolean trend, final int period, final boolean multiplicative) {
+    this.name = name;
+    this.observations = observations;
+    this.trend = trend;
+    this.period = period;
+    this.multiplicative = multiplicative;
+    this.alpha = parameters[0];
+    this.beta = trend ? parameters[1] : 0.0;
+    this.gamma = (period > 0) ? parameters[parameters.length - 1] : 0.0;
+    final double[] fitted = new double[observations.n()];
+    final double sumOfSquares = kernel.run(alpha, beta, gamma, fitted);
+    this.sigma2 = sumOfSquares / Math.max(1, kernel.errors() - parameters.length);
+    this.level = kernel.level();
+    this.slope = kernel.slope();
+    this.seasonal = kernel.seasonalComponents();
+    this.fittedSeries = new TimeSeries(observations.timePeriod(), observations.observationTimes(), fitted);
+    this.residuals = observations.minus(fittedSeries);
+  }
+
+  /**
+   * Estimate the smoothing parameters of the given kernel.
+   *
+   * @param kernel the kernel over the observations.
+   * @param trend whether the model has a trend.
+   * @param seasonal whether the model is seasonal.
+   * @return &alpha;, followed by &beta; if the model has a trend and &gamma; if it is seasonal.
+   */
+  static double[] estimate(final SmoothingKernel kernel, final boolean trend, final boolean seasonal) {
+    final int size = 1 + (trend ? 1 : 0) + (seasonal ? 1 : 0);
+    final SmoothingObjective objective = new SmoothingObjective(kernel, trend, seasonal, size);
+    final double[] start = new double[size];
+    for (int i = 0; i < size; i++) {
+      start[i] = logit(INITIAL_PARAMETERS[i]);
+    }
+    final BFGS optimizer = new BFGS(objective, new Vector(start), 1E-8, 1E-8);
+    return objective.parameters(optimizer.parameters().elements(), new double[size]);
+  }
+
+  /**
+   * Validate fixed smoothing parameters.
+   *
+   * @param parameters &alpha;, followed by &beta; if the model has a trend and &gamma; if it is seasonal.
+   * @param seasonal whether the last parameter is &gamma;.
+   * @return the given parameters.
+   */
+  static double[] validate(final double[] parameters, final boolean seasonal) {
+    for (double parameter : parameters) {
+      if (!(parameter >= 0.0 && parameter <= 1.0)) {
+        throw new IllegalArgumentException("The smoothing parameters must be between 0 and 1, but one was " +
+                                           parameter + ".");
+      }
+    }
+    if (seasonal && parameters[parameters.length - 1] > 1 - parameters[0]) {
+      throw new IllegalArgumentException("The seasonal smoothing parameter must be at most 1 - alpha, " +
+                                         (1 - parameters[0]) + ", but was " + parameters[parameters.length - 1] + ".");
+    }
+    return parameters;
+  }
+
+  /**
+   * The number of observations in one seasonal cycle of the given series.
+   *
+   * @param observations the observations.
+   * @param seasonalCycle the amount of time it takes for the seasonal pattern to complete one cycle.
+   * @return the number of observations in one seasonal cycle.
+   */
+  static int seasonalPeriod(final TimeSeries observations, final TimePeriod seasonalCycle) {
+    final int period = (int) observations.timePeriod().frequencyPer(seasonalCycle);
+    if (period < 2) {
+      throw new IllegalArgumentException("The seasonal cycle must span at least two observations, but spans " +
+                                         period + ".");
+    }
+    return period;
+  }
+
+  @Override
+  public final TimeSeries pointForecast(final int steps) {
+    final double[] forecast = new double[steps];
+    forecastInto(forecast);
+    return new TimeSeries(observations.timePeriod(), forecastStart(), forecast);
+  }
+
+  /**
+   * Write point forecasts for as many steps ahead as the given array holds into the array, without allocating.
+   *
+   * @param forecast the array to hold the forecasts, element h - 1 holding the forecast h steps ahead.
+   */
+  public final void forecastInto(final double[] forecast) {
+    for (int h = 1; h <= forecast.length; h++) {
+      final double base = level + h * slope;
+      if (period == 0) {
+        forecast[h - 1] = base;
+      } else {
+        final double s = seasonal[(h - 1) % period];
+        forecast[h - 1] = multiplicative ? base * s : base + s;
+      }
+    }
+  }
+
+  @Override
+  public final Forecast forecast(final int steps, final double alpha) {
+    return new SmoothingForecast(this, steps, alpha);
+  }
+
+  /**
+   * The variances of the forecast errors up to the given number of steps ahead. For the additive methods these are
+   * exact for the corresponding state space model with additive errors: &sigma;<sup>2</sup>(1 + c<sub>1</sub>
+   * <sup>2</sup> + ... + c<sub>h-1</sub><sup>2</sup>), where c<sub>j</sub> = &alpha;(1 + j&beta;) + &gamma; when j is
+   * a multiple of the period, and &alpha;(1 + j&beta;) otherwise. The same formula is used as an approximation for
+   * multiplicative seasonality.
+   *
+   * @param steps the number of steps ahead.
+   * @return the variances of the forecast errors up to the given number of steps ahead.
+   */
+  final double[] forecastVariances(final int steps) {
+    final double[] variances = new double[steps];
+    double sum = 1.0;
+    for (int h = 1; h <= steps; h++) {
+      variances[h - 1] = sigma2 * sum;
+      double c = alpha * (1 + h * beta);
+      if (period > 0 && h % period == 0) {
+        c += gamma;
+      }
+      sum += c * c;
+    }
+    return variances;
+  }
+
+  /**
+   * The smoothing parameter for the level, &alpha;.
+   *
+   * @return the smoothing parameter for the level.
+   */
+  public final double alpha() {
+    return this.alpha;
+  }
+
+  /**
+   * The estimated variance of the one-step errors.
+   *
+   * @return the estimated variance of the one-step errors.
+   */
+  public final double sigma2() {
+    return this.sigma2;
+  }
+
+  /**
+   * The level at the time of the last observation.
+   *
+   * @return the level at the time of the last observation.
+   */
+  public final double level() {
+    return this.level;
+  }
+
+  final double slope() {
+    return this.slope;
+  }
+
+  final double betaParameter() {
+    return this.beta;
+  }
+
+  final double gammaParameter() {
+    return this.gamma;
+  }
+
+  final double[] seasonalComponents() {
+    return this.seasonal.clone();
+  }
+
+  final boolean hasTrend() {
+    return this.trend;
+  }
+
+  final String name() {
+    return this.name;
+  }
+
+  @Override
+  public final TimeSeries timeSeries() {
+    return this.observations;
+  }
+
+  @Override
+  public final TimeSeries fittedSeries() {
+    return this.fittedSeries;
+  }
+
+  @Override
+  public final TimeSeries residuals() {
+    return this.residuals;
+  }
+
+  @Override
+  public final void plotFit() {
+    new Thread(() -> {
+      final List<Date> xAxis = new ArrayList<>(fittedSeries.observationTimes().size());
+      for (OffsetDateTime dateTime : fittedSeries.observationTimes()) {
+        xAxis.add(Date.from(dateTime.toInstant()));
+      }
+      List<Double> seriesList = Doubles.asList(observations.series());
+      List<Double> fittedList = Doubles.asList(fittedSeries.series());
+      final XYChart chart = new XYChartBuilder().theme(ChartTheme.GGPlot2).height(600).width(800)
+          .title(name + " Fitted vs Actual").build();
+      XYSeries fitSeries = chart.addSeries("Fitted Values", xAxis, fittedList);
+      XYSeries observedSeries = chart.addSeries("Actual Values", xAxis, seriesList);
+      XYStyler styler = chart.getStyler();
+      styler.setDefaultSeriesRenderStyle(XYSeriesRenderStyle.Line);
+      observedSeries.setLineWidth(0.75f);
+      observedSeries.setMarker(new None()).setLineColor(Color.RED);
+      fitSeries.setLineWidth(0.75f);
+      fitSeries.setMarker(new None()).setLineColor(Color.BLUE);
+
+      JPanel panel = new XChartPanel<>(chart);
+      JFrame frame = new JFrame(name + " Fit");
+      frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+      frame.add(panel);
+      frame.pack();
+      frame.setVisible(true);
+    }).start();
+  }
+
+  @Override
+  public final void plotResiduals() {
+    new Thread(() -> {
+      final List<Date> xAxis = new ArrayList<>(residuals.observationTimes().size());
+      for (OffsetDateTime dateTime : residuals.observationTimes()) {
+        xAxis.add(Date.from(dateTime.toInstant()));
+      }
+      List<Double> seriesList = Doubles.asList(residuals.series());
+      final XYChart chart = new XYChartBuilder().theme(ChartTheme.GGPlot2).height(600).width(800)
+          .title(name + " Residuals").build();
+      XYSeries residualSeries = chart.addSeries("Model Residuals", xAxis, seriesList);
+      residualSeries.setXYSeriesRenderStyle(XYSeriesRenderStyle.Scatter);
+      residualSeries.setMarker(new Circle()).setMarkerColor(Color.RED);
+
+      JPanel panel = new XChartPanel<>(chart);
+      JFrame frame = new JFrame(name + " Residuals");
+      frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+      frame.add(panel);
+      frame.pack();
+      frame.setVisible(true);
+    }).start();
+  }
+
+  @Override
+  public String toString() {
+    return name + ": alpha = " + alpha + (trend ? ", beta = " + beta : "") + ((period > 0) ? ", gamma = " + gamma : "")
+           + ", sigma2 = " + sigma2;
+  }
+
+  private OffsetDateTime forecastStart() {
+    final TimePeriod timePeriod = observations.timePeriod();
+    return observations.observationTimes().get(observations.n() - 1)
+                       .plus(timePeriod.periodLength() * timePeriod.timeUnit().unitLength(),
+                             timePeriod.timeUnit().temporalUnit());
+  }
+
+  private static double logit(final double p) {
+    return Math.log(p / (1 - p));
+  }
+
+  private static double logistic(final double x) {
+    return 1.0 / (1.0 + Math.exp(-x));
+  }
+
+  // One half the log of the mean squared one-step error, as for ARIMA, as a function of the smoothing parameters on
+  // the logistic scale. The gradient is computed by central differences, reusing a single scratch point.
+  private static final class SmoothingObjective extends AbstractMultivariateFunction
+      implements DifferentiableMultivariateFunction {
+
+    private final SmoothingKernel kernel;
+    private final boolean trend;
+    private final boolean seasonal;
+    private final double[] parameters;
+    private final double[] scratchPoint;
+    private final double denominator;
+
+    private SmoothingObjective(final SmoothingKernel kernel, final boolean trend, final boolean seasonal,
+                               final int size) {
+      this.kernel = kernel;
+      this.trend = trend;
+      this.seasonal = seasonal;
+      this.parameters = new double[size];
+      this.scratchPoint = new double[size];
+      this.denominator = kernel.errors();
+    }
+
+    @Override
+    public double at(final Vector point) {
+      functionEvaluations++;
+      return evaluate(point.elements());
+    }
+
+    @Override
+    public Vector gradientAt(final Vector point) {
+      gradientEvalutations++;
+      final double[] gradient = new double[point.size()];
+      valueAndGradient(point.elements(), gradient);
+      return new Vector(gradient);
+    }
+
+    @Override
+    public Vector gradientAt(final Vector point, final double functionValue) {
+      return gradientAt(point);
+    }
+
+    @Override
+    public double valueAndGradientAt(final double[] point, final double[] gradient) {
+      functionEvaluations++;
+      gradientEvalutations++;
+      return valueAndGradient(point, gradient);
+    }
+
+    private double valueAndGradient(final double[] point, final double[] gradient) {
+      System.arraycopy(point, 0, scratchPoint, 0, point.length);
+      for (int i = 0; i < point.length; i++) {
+        scratchPoint[i] = point[i] + GRADIENT_STEP;
+        final double forward = evaluate(scratchPoint);
+        scratchPoint[i] = point[i] - GRADIENT_STEP;
+        final double backward = evaluate(scratchPoint);
+        scratchPoint[i] = point[i];
+        gradient[i] = (forward - backward) / (2 * GRADIENT_STEP);
+      }
+      return evaluate(point);
+    }
+
+    private double evaluate(final double[] point) {
+      parameters(point, parameters);
+      final double beta = trend ? parameters[1] : 0.0;
+      final double gamma = seasonal ? parameters[parameters.length - 1] : 0.0;
+      return 0.5 * Math.log(kernel.run(parameters[0], beta, gamma, null) / denominator);
+    }
+
+    private double[] parameters(final double[] point, final double[] parameters) {
+      parameters[0] = logistic(point[0]);
+      if (trend) {
+        parameters[1] = logistic(point[1]);
+      }
+      if (seasonal) {
+        parameters[parameters.length - 1] = (1 - parameters[0]) * logistic(point[point.length - 1]);
+      }
+      return parameters;
+    }
+  }
+}
@@ -2,7 +2,9 @@
  * Copyright (c) 2016 Jacob Rachiele
  */
 
-/** Marker package for future development work. This package will contain all three exponential smoothing methods.
+/**
+ * Exponential smoothing models: simple exponential smoothing, Holt's linear trend method, and the additive and
+ * multiplicative Holt-Winters seasonal methods.
  *
  */
-package timeseries.models.exponentialsmoothing;
\ No newline at end of file
+package timeseries.models.exponentialsmoothing;
@@ -52,7 +52,7 @@ public final class LagOperator {
    * @return the value of the series at the given number of lags from the given index.
    */
   public static double apply(final TimeSeries series, final OffsetDateTime dateTime, final int times) {
-    return series.at(series.dateTimeIndex().get(dateTime) - times);
+    return series.at(series.indexOf(dateTime) - times);
   }
   
   /**
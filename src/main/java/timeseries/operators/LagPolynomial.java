@@ -11,6 +11,12 @@ import timeseries.TimeSeries;
  * Forecasting, structural time series models and the Kalman filter</a>, (1989, equation 2.1.3), or
  * <a target="_blank" href="https://en.wikipedia.org/wiki/Lag_operator#Lag_polynomials"> the wiki entry</a>. The
  * polynomial is taken in the lag operator, but is algebraically equivalent to a real or complex polynomial.
+ *
+ * <p>
+ * Seasonal polynomials have high degree but few non-zero terms, so a polynomial also records the lags of its non-zero
+ * parameters, and is multiplied and applied over those lags alone. The first seasonal difference at lag 1440, for
+ * instance, is applied with a single multiplication rather than 1440.
+ * </p>
  * 
  * @author jrachiele
  *
@@ -20,6 +26,8 @@ public class LagPolynomial {
   final double[] parameters;
   final double[] coefficients;
   final int degree;
+  // The lags, in increasing order, at which the parameters are non-zero.
+  final int[] nonZeroLags;
 
   /**
    * Construct a new lag polynomial from the given parameters. Note that the parameters given here are not the same as
@@ -33,6 +41,19 @@ public class LagPolynomial {
     this.coefficients[0] = 1.0;
     System.arraycopy(parameters, 0, this.coefficients, 1, parameters.length);
     this.degree = parameters.length;
+    int count = 0;
+    for (double parameter : parameters) {
+      if (parameter != 0.0) {
+        count++;
+      }
+    }
+    this.nonZeroLags = new int[count];
+    count = 0;
+    for (int i = 0; i < parameters.length; i++) {
+      if (parameters[i] != 0.0) {
+        this.nonZeroLags[count++] = i + 1;
+      }
+    }
   }
 
   /**
@@ -131,8 +152,14 @@ public class LagPolynomial {
    */
   public final LagPolynomial times(final LagPolynomial other) {
     final double[] newParams = new double[this.degree + other.degree + 1];
-    for (int i = 0; i < coefficients.length; i++) {
-      for (int j = 0; j < other.coefficients.length; j++) {
+    // The zero-degree coefficient of each factor is 1, and contributes the other factor's terms unchanged.
+    newParams[0] = 1.0;
+    for (int j : other.nonZeroLags) {
+      newParams[j] += other.coefficients[j];
+    }
+    for (int i : nonZeroLags) {
+      newParams[i] += coefficients[i];
+      for (int j : other.nonZeroLags) {
         newParams[i + j] += coefficients[i] * other.coefficients[j];
       }
     }
@@ -147,8 +174,8 @@ public class LagPolynomial {
    * @return the result of applying this lag polynomial to the given time series at the given index.
    */
   public final double apply(final TimeSeries timeSeries, final int index) {
-    double value = 0.0;
-    for (int i = 0; i < coefficients.length; i++) {
+    double value = LagOperator.apply(timeSeries, index, 0);
+    for (int i : nonZeroLags) {
       value += this.coefficients[i] * LagOperator.apply(timeSeries, index, i);
     }
     return value;
@@ -162,8 +189,8 @@ public class LagPolynomial {
    * @return the result of applying this lag polynomial to the given time series at the given date and time.
    */
   public final double apply(final TimeSeries timeSeries, final OffsetDateTime dateTime) {
-    double value = 0.0;
-    for (int i = 0; i < coefficients.length; i++) {
+    double value = LagOperator.apply(timeSeries, dateTime, 0);
+    for (int i : nonZeroLags) {
       value += this.coefficients[i] * LagOperator.apply(timeSeries, dateTime, i);
     }
     return value;
@@ -178,8 +205,8 @@ public class LagPolynomial {
    */
   public double applyInverse(final TimeSeries timeSeries, final int index) {
     double value = 0.0;
-    for (int i = 0; i < parameters.length; i++) {
-      value -= parameters[i] * LagOperator.apply(timeSeries, index, i + 1);
+    for (int lag : nonZeroLags) {
+      value -= parameters[lag - 1] * LagOperator.apply(timeSeries, index, lag);
     }
     return value;
   }
@@ -193,8 +220,8 @@ public class LagPolynomial {
    */
   public double applyInverse(final TimeSeries timeSeries, OffsetDateTime dateTime) {
     double value = 0.0;
-    for (int i = 0; i < parameters.length; i++) {
-      value -= parameters[i] * LagOperator.apply(timeSeries, dateTime, i + 1);
+    for (int lag : nonZeroLags) {
+      value -= parameters[lag - 1] * LagOperator.apply(timeSeries, dateTime, lag);
     }
     return value;
   }
@@ -208,8 +235,8 @@ public class LagPolynomial {
    */
   public double applyInverse(final double[] timeSeries, final int index) {
     double value = 0.0;
-    for (int i = 0; i < parameters.length; i++) {
-      value -= parameters[i] * LagOperator.apply(timeSeries, index, i + 1);
+    for (int lag : nonZeroLags) {
+      value -= parameters[lag - 1] * LagOperator.apply(timeSeries, index, lag);
     }
     return value;
   }
@@ -24,8 +24,8 @@ public final class MovingAveragePolynomial extends LagPolynomial {
   @Override
   public double applyInverse(final TimeSeries timeSeries, final int index) {
     double value = 0.0;
-    for (int i = 0; i < parameters.length; i++) {
-      value += parameters[i] * LagOperator.apply(timeSeries, index, i + 1);
+    for (int lag : nonZeroLags) {
+      value += parameters[lag - 1] * LagOperator.apply(timeSeries, index, lag);
     }
     return value;
   }
@@ -33,8 +33,8 @@ public final class MovingAveragePolynomial extends LagPolynomial {
   @Override
   public double applyInverse(final double[] timeSeries, final int index) {
     double value = 0.0;
-    for (int i = 0; i < parameters.length; i++) {
-      value += parameters[i] * LagOperator.apply(timeSeries, index, i + 1);
+    for (int lag : nonZeroLags) {
+      value += parameters[lag - 1] * LagOperator.apply(timeSeries, index, lag);
     }
     return value;
   }
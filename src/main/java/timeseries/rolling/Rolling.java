@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.rolling;
+
+import java.util.function.ToDoubleFunction;
+
+import timeseries.TimeSeries;
+
+/**
+ * Static methods for computing statistics of every window of consecutive observations of a time series. Each method
+ * makes a single pass over the series, and each returns a new series of length n - m + 1 for a window of size m, whose
+ * observation at time t is the statistic of the m observations ending at time t.
+ *
+ * @author Jacob Rachiele
+ */
+public final class Rolling {
+
+  private Rolling() {
+  }
+
+  /**
+   * Compute the rolling sum of the given series.
+   *
+   * @param series the series to compute the rolling sum of.
+   * @param window the number of observations in each window.
+   * @return the rolling sum of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries sum(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::sum);
+  }
+
+  /**
+   * Compute the rolling mean of the given series.
+   *
+   * @param series the series to compute the rolling mean of.
+   * @param window the number of observations in each window.
+   * @return the rolling mean of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries mean(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::mean);
+  }
+
+  /**
+   * Compute the rolling unbiased sample variance of the given series.
+   *
+   * @param series the series to compute the rolling variance of.
+   * @param window the number of observations in each window.
+   * @return the rolling unbiased sample variance of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries variance(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::variance);
+  }
+
+  /**
+   * Compute the rolling unbiased sample standard deviation of the given series.
+   *
+   * @param series the series to compute the rolling standard deviation of.
+   * @param window the number of observations in each window.
+   * @return the rolling unbiased sample standard deviation of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries stdDeviation(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::stdDeviation);
+  }
+
+  /**
+   * Compute the rolling minimum of the given series.
+   *
+   * @param series the series to compute the rolling minimum of.
+   * @param window the number of observations in each window.
+   * @return the rolling minimum of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries min(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::min);
+  }
+
+  /**
+   * Compute the rolling maximum of the given series.
+   *
+   * @param series the series to compute the rolling maximum of.
+   * @param window the number of observations in each window.
+   * @return the rolling maximum of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries max(final TimeSeries series, final int window) {
+    return rolling(series, window, RollingStatistics::max);
+  }
+
+  /**
+   * Compute the rolling median of the given series.
+   *
+   * @param series the series to compute the rolling median of.
+   * @param window the number of observations in each window.
+   * @return the rolling median of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series.
+   */
+  public static TimeSeries median(final TimeSeries series, final int window) {
+    return quantile(series, window, 0.5);
+  }
+
+  /**
+   * Compute the rolling quantile of the given series with the given probability.
+   *
+   * @param series the series to compute the rolling quantile of.
+   * @param window the number of observations in each window.
+   * @param probability the probability of the quantile, between 0 and 1 inclusive.
+   * @return the rolling quantile of the given series.
+   * @throws IllegalArgumentException if the window size is less than 1 or greater than the length of the series, or
+   *                                  if the probability is not between 0 and 1.
+   */
+  public static TimeSeries quantile(final TimeSeries series, final int window, final double probability) {
+    validate(series, window);
+    final RollingQuantile quantile = new RollingQuantile(window, probability);
+    final int n = series.n();
+    final double[] result = new double[n - window + 1];
+    for (int t = 0; t < n; t++) {
+      quantile.add(series.at(t));
+      if (t >= window - 1) {
+        result[t - window + 1] = quantile.quantile();
+      }
+    }
+    return windowEnds(series, window, result);
+  }
+
+  private static TimeSeries rolling(final TimeSeries series, final int window,
+                                    final ToDoubleFunction<RollingStatistics> statistic) {
+    validate(series, window);
+    final RollingStatistics statistics = new RollingStatistics(window);
+    final int n = series.n();
+    final double[] result = new double[n - window + 1];
+    for (int t = 0; t < n; t++) {
+      statistics.add(series.at(t));
+      if (t >= window - 1) {
+        result[t - window + 1] = statistic.applyAsDouble(statistics);
+      }
+    }
+    return windowEnds(series, window, result);
+  }
+
+  private static void validate(final TimeSeries series, final int window) {
+    if (window < 1 || window > series.n()) {
+      throw new IllegalArgumentException("The window size must be between 1 and the length of the series, " +
+                                         series.n() + ", but was " + window + ".");
+    }
+  }
+
+  private static TimeSeries windowEnds(final TimeSeries series, final int window, final double[] result) {
+    return new TimeSeries(series.timePeriod(), series.observationTimes().subList(window - 1, series.n()), result);
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.rolling;
+
+/**
+ * A quantile of the most recent observations in a window of fixed size, updated as each observation is added.
+ *
+ * <p>
+ * The observations in the window are split between two heaps: a max-heap of the lowest observations, holding exactly
+ * as many as are needed to reach the requested quantile, and a min-heap of the rest. Each heap records the position of
+ * every observation it holds, so the observation leaving the window is removed directly rather than lazily, and every
+ * update takes O(log m) time for a window of size m without allocating. The quantile is interpolated between the tops
+ * of the two heaps, in the same way as R's default (type 7) sample quantile.
+ * </p>
+ *
+ * <p>
+ * Until the window is full, the quantile is that of every observation added so far. Instances are mutable and not
+ * thread-safe.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class RollingQuantile {
+
+  private final int window;
+  private final double probability;
+  private final double[] values;
+  private long count;
+
+  // Each heap holds slots of the values array. The position of a slot within its heap is kept in heapPosition, and
+  // which heap it belongs to in inLowHeap.
+  private final int[] lowHeap;
+  private int lowSize;
+  private final int[] highHeap;
+  private int highSize;
+  private final int[] heapPosition;
+  private final boolean[] inLowHeap;
+
+  /**
+   * Create a new rolling quantile over windows of the given size.
+   *
+   * @param window the number of most recent observations the quantile is computed over.
+   * @param probability the probability of the quantile, between 0 and 1 inclusive.
+   * @throws IllegalArgumentException if the window size is less than 1 or the probability is not between 0 and 1.
+   */
+  public RollingQuantile(final int window, final double probability) {
+    if (window < 1) {
+      throw new IllegalArgumentException("The window size must be at least 1, but was " + window + ".");
+    }
+    if (!(probability >= 0.0 && probability <= 1.0)) {
+      throw new IllegalArgumentException("The probability must be between 0 and 1, but was " + probability + ".");
+    }
+    this.window = window;
+    this.probability = probability;
+    this.values = new double[window];
+    this.lowHeap = new int[window];
+    this.highHeap = new int[window];
+    this.heapPosition = new int[window];
+    this.inLowHeap = new boolean[window];
+  }
+
+  /**
+   * Create a new rolling median over windows of the given size.
+   *
+   * @param window the number of most recent observations the median is computed over.
+   * @return a new rolling median over windows of the given size.
+   * @throws IllegalArgumentException if the window size is less than 1.
+   */
+  public static RollingQuantile median(final int window) {
+    return new RollingQuantile(window, 0.5);
+  }
+
+  /**
+   * Add the next observation, removing the oldest observation from the window if it is full.
+   *
+   * @param value the next observation.
+   */
+  public void add(final double value) {
+    final int slot = (int) (count % window);
+    if (count >= window) {
+      remove(slot);
+    }
+    values[slot] = value;
+    if (lowSize > 0 && value <= values[lowHeap[0]]) {
+      pushLow(slot);
+    } else {
+      pushHigh(slot);
+    }
+    count++;
+    rebalance();
+  }
+
+  /**
+   * The number of observations currently in the window.
+   *
+   * @return the number of observations currently in the window.
+   */
+  public int size() {
+    return (int) Math.min(count, window);
+  }
+
+  /**
+   * Return true if the window holds its full number of observations.
+   *
+   * @return true if the window holds its full number of observations.
+   */
+  public boolean isFull() {
+    return count >= window;
+  }
+
+  /**
+   * The probability of the quantile.
+   *
+   * @return the probability of the quantile.
+   */
+  public double probability() {
+    return this.probability;
+  }
+
+  /**
+   * The quantile of the observations in the window.
+   *
+   * @return the quantile of the observations in the window.
+   * @throws IllegalStateException if no observations have been added.
+   */
+  public double quantile() {
+    if (count == 0) {
+      throw new IllegalStateException("No observations have been added.");
+    }
+    final double h = (size() - 1) * probability;
+    final double lower = values[lowHeap[0]];
+    final double fraction = h - Math.floor(h);
+    if (fraction == 0.0 || highSize == 0) {
+      return lower;
+    }
+    return lower + fraction * (values[highHeap[0]] - lower);
+  }
+
+  // The low heap holds the floor(h) + 1 smallest observations, so that its top is the order statistic at floor(h).
+  private void rebalance() {
+    final int target = (int) Math.floor((size() - 1) * probability) + 1;
+    while (lowSize > target) {
+      final int slot = lowHeap[0];
+      removeAt(true, 0);
+      pushHigh(slot);
+    }
+    while (lowSize < target) {
+      final int slot = highHeap[0];
+      removeAt(false, 0);
+      pushLow(slot);
+    }
+  }
+
+  private void remove(final int slot) {
+    removeAt(inLowHeap[slot], heapPosition[slot]);
+  }
+
+  private void removeAt(final boolean low, final int position) {
+    final int[] heap = low ? lowHeap : highHeap;
+    final int last = low ? --lowSize : --highSize;
+    if (position == last) {
+      return;
+    }
+    final int moved = heap[last];
+    heap[position] = moved;
+    heapPosition[moved] = position;
+    siftUp(low, position);
+    siftDown(low, heapPosition[moved]);
+  }
+
+  private void pushLow(final int slot) {
+    inLowHeap[slot] = true;
+    lowHeap[lowSize] = slot;
+    heapPosition[slot] = lowSize;
+    siftUp(true, lowSize++);
+  }
+
+  private void pushHigh(final int slot) {
+    inLowHeap[slot] = false;
+    highHeap[highSize] = slot;
+    heapPosition[slot] = highSize;
+    siftUp(false, highSize++);
+  }
+
+  // True if the slot at position i should sit above the slot at position j: larger values rise in the low heap and
+  // smaller values in the high heap.
+  private boolean above(final boolean low, final int[] heap, final int i, final int j) {
+    return low ? values[heap[i]] > values[heap[j]] : values[heap[i]] < values[heap[j]];
+  }
+
+  private void siftUp(final boolean low, int position) {
+    final int[] heap = low ? lowHeap : highHeap;
+    while (position > 0) {
+      final int parent = (position - 1) >>> 1;
+      if (!above(low, heap, position, parent)) {
+        return;
+      }
+      swap(heap, position, parent);
+      position = parent;
+    }
+  }
+
+  private void siftDown(final boolean low, int position) {
+    final int[] heap = low ? lowHeap : highHeap;
+    final int size = low ? lowSize : highSize;
+    while (true) {
+      final int left = 2 * position + 1;
+      if (left >= size) {
+        return;
+      }
+      final int right = left + 1;
+      final int child = (right < size && above(low, heap, right, left)) ? right : left;
+      if (!above(low, heap, child, position)) {
+        return;
+      }
+      swap(heap, position, child);
+      position = child;
+    }
+  }
+
+  private void swap(final int[] heap, final int i, final int j) {
+    final int slot = heap[i];
+    heap[i] = heap[j];
+    heap[j] = slot;
+    heapPosition[heap[i]] = i;
+    heapPosition[heap[j]] = j;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+package timeseries.rolling;
+
+/**
+ * The sum, mean, variance, minimum, and maximum of the most recent observations in a window of fixed size, updated as
+ * each observation is added. Every update takes constant amortized time, regardless of the size of the window.
+ *
+ * <p>
+ * The sum is maintained with Kahan compensated summation, so that adding and removing observations does not
+ * accumulate rounding error, and the sum of squared deviations from the mean with a sliding form of Welford's update.
+ * The minimum and maximum are the fronts of monotonic queues of the observations that may still become the extreme
+ * value of a later window.
+ * </p>
+ *
+ * <p>
+ * Until the window is full, the statistics are those of every observation added so far. Instances are mutable and
+ * not thread-safe.
+ * </p>
+ *
+ * @author Jacob Rachiele
+ */
+public final class RollingStatistics {
+
+  private final int window;
+  private final double[] values;
+  private long count;
+
+  private double sum;
+  private double compensation;
+  private double sumOfSquaredDeviations;
+
+  // Positions, in order of arrival, of the observations that may still be the minimum or maximum of some window.
+  // Observations in the minimum queue have increasing values, and those in the maximum queue decreasing values.
+  private final long[] minQueue;
+  private int minHead;
+  private int minSize;
+  private final long[] maxQueue;
+  private int maxHead;
+  private int maxSize;
+
+  /**
+   * Create new rolling statistics over windows of the given size.
+   *
+   * @param window the number of most recent observations the statistics are computed over.
+   * @throws IllegalArgumentException if the window size is less than 1.
+   */
+  public RollingStatistics(final int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("The window size must be at least 1, but was " + window + ".");
+    }
+    this.window = window;
+    this.values = new double[window];
+    this.minQueue = new long[window];
+    this.maxQueue = new long[window];
+  }
+
+  /**
+   * Add the next observation, removing the oldest observation from the window if it is full.
+   *
+   * @param value the next observation.
+   */
+  public void add(final double value) {
+    final int slot = (int) (count % window);
+    final double previousMean = mean();
+    if (count >= window) {
+      // Replacing the oldest observation x with y changes the sum of squared deviations by
+      // (y - x) * (y - newMean + x - oldMean), which avoids the cancellation in the sum-of-squares formula.
+      final double removed = values[slot];
+      addToSum(value - removed);
+      sumOfSquaredDeviations += (value - removed) * (value - mean() + removed - previousMean);
+    } else {
+      addToSum(value);
+      sumOfSquaredDeviations += (value - previousMean) * (value - sum / (count + 1));
+    }
+    if (sumOfSquaredDeviations < 0.0) {
+      sumOfSquaredDeviations = 0.0;
+    }
+    values[slot] = value;
+
+    final long expired = count - window;
+    if (minSize > 0 && minQueue[minHead] == expired) {
+      minHead = (minHead + 1) % window;
+      minSize--;
+    }
+    while (minSize > 0 && valueAt(minQueue[(minHead + minSize - 1) % window]) >= value) {
+      minSize--;
+    }
+    minQueue[(minHead + minSize++) % window] = count;
+
+    if (maxSize > 0 && maxQueue[maxHead] == expired) {
+      maxHead = (maxHead + 1) % window;
+      maxSize--;
+    }
+    while (maxSize > 0 && valueAt(maxQueue[(maxHead + maxSize - 1) % window]) <= value) {
+      maxSize--;
+    }
+    maxQueue[(maxHead + maxSize++) % window] = count;
+    count++;
+  }
+
+  /**
+   * The number of observations currently in the window.
+   *
+   * @return the number of observations currently in the window.
+   */
+  public int size() {
+    return (int) Math.min(count, window);
+  }
+
+  /**
+   * Return true if the window holds its full number of observations.
+   *
+   * @return true if the window holds its full number of observations.
+   */
+  public boolean isFull() {
+    return count >= window;
+  }
+
+  /**
+   * The total number of observations added.
+   *
+   * @return the total number of observations added.
+   */
+  public long count() {
+    return this.count;
+  }
+
+  /**
+   * The sum of the observations in the window.
+   *
+   * @return the sum of the observations in the window.
+   */
+  public double sum() {
+    return this.sum;
+  }
+
+  /**
+   * The mean of the observations in the window, or 0 if no observations have been added.
+   *
+   * @return the mean of the observations in the window.
+   */
+  public double mean() {
+    final int size = size();
+    return (size == 0) ? 0.0 : sum / size;
+  }
+
+  /**
+   * The unbiased sample variance of the observations in the window.
+   *
+   * @return the unbiased sample variance of the observations in the window.
+   */
+  public double variance() {
+    return sumOfSquaredDeviations / (size() - 1);
+  }
+
+  /**
+   * The unbiased sample standard deviation of the observations in the window.
+   *
+   * @return the unbiased sample standard deviation of the observations in the window.
+   */
+  public double stdDeviation() {
+    return Math.sqrt(variance());
+  }
+
+  /**
+   * The smallest observation in the window.
+   *
+   * @return the smallest observation in the window.
+   * @throws IllegalStateException if no observations have been added.
+   */
+  public double min() {
+    if (minSize == 0) {
+      throw new IllegalStateException("No observations have been added.");
+    }
+    return valueAt(minQueue[minHead]);
+  }
+
+  /**
+   * The largest observation in the window.
+   *
+   * @return the largest observation in the window.
+   * @throws IllegalStateException if no observations have been added.
+   */
+  public double max() {
+    if (maxSize == 0) {
+      throw new IllegalStateException("No observations have been added.");
+    }
+    return valueAt(maxQueue[maxHead]);
+  }
+
+  private double valueAt(final long position) {
+    return values[(int) (position % window)];
+  }
+
+  private void addToSum(final double value) {
+    final double y = value - compensation;
+    final double t = sum + y;
+    compensation = (t - sum) - y;
+    sum = t;
+  }
+}
@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) 2016 Jacob Rachiele
+ *
+ */
+
+/**
+ * Statistics of sliding windows of observations, computed in a single pass over a time series or updated as each new
+ * observation arrives.
+ *
+ */
+package timeseries.rolling;
@@ -0,0 +1,163 @@
+package data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.TimeSeriesFile;
+
+public class StreamingCsvReaderSpec {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static InputStream stream(final String csv) {
+    return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private InputStream pigs() {
+    return getClass().getClassLoader().getResourceAsStream("monthly-total-number-of-pigs-sla.csv");
+  }
+
+  @Test
+  public void whenMonthlyFileReadThenRegularSeriesCreated() {
+    StreamingCsvReader reader = StreamingCsvReader.newBuilder().header(true).timeColumn("Month").build();
+    TimeSeries series = reader.readTimeSeries(pigs(), "Pigs Slaughtered", TimePeriod.oneMonth());
+    CsvReader strings = new CsvReader("monthly-total-number-of-pigs-sla.csv", true);
+    assertThat(series.n(), is(188));
+    assertThat(series.at(0), is(76378.0));
+    assertThat(series.at(187), is(Double.parseDouble(strings.getColumn(1).get(187))));
+    assertThat(series.observationTimes().get(0), is(OffsetDateTime.of(1980, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+    assertThat(series.observationTimes().get(187), is(OffsetDateTime.of(1995, 8, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+  }
+
+  @Test
+  public void whenQuotedAndEmptyFieldsThenParsedAsValuesAndNaN() {
+    String csv = "time,a,\"b, quoted\",c\r\n" +
+                 "2016-03-01T10:00:00Z,1.5,\"2\",\n" +
+                 "\n" +
+                 "2016-03-01T11:00:00+01:00,-3e2,,7\n" +
+                 "2016-03-01 12:30,4,5";
+    CsvColumns columns = StreamingCsvReader.newBuilder().header(true).timeColumn(0).build().read(stream(csv));
+    assertThat(columns.rows(), is(3));
+    assertThat(columns.names(), contains("time", "a", "b, quoted", "c"));
+    assertThat(columns.column("a"), is(new double[] {1.5, -300.0, 4.0}));
+    assertThat(columns.column(2)[0], is(2.0));
+    assertThat(Double.isNaN(columns.column(2)[1]), is(true));
+    assertThat(Double.isNaN(columns.column("c")[0]), is(true));
+    assertThat(Double.isNaN(columns.column("c")[2]), is(true));
+    long tenUtc = OffsetDateTime.of(2016, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    assertThat(columns.times(), is(new long[] {tenUtc, tenUtc, tenUtc + 150 * 60 * 1000}));
+  }
+
+  @Test
+  public void whenTimesIrregularThenSeriesKeepsThem() {
+    String csv = "0,1\n1000,2\n5000,3\n";
+    CsvColumns columns = StreamingCsvReader.newBuilder().timeColumn(0).epochTimes(TimeUnit.SECONDS).build()
+                                           .read(stream(csv));
+    TimeSeries series = columns.timeSeries(1, new TimePeriod(timeseries.TimeUnit.SECOND, 1000));
+    assertThat(series.series(), is(new double[] {1.0, 2.0, 3.0}));
+    assertThat(series.observationTimes().get(2), is(OffsetDateTime.of(1970, 1, 1, 1, 23, 20, 0, ZoneOffset.UTC)));
+  }
+
+  @Test
+  public void whenMonthlyTimesFromEndOfMonthThenRegularSeriesWithSameTimes() throws IOException {
+    ZoneOffset offset = ZoneOffset.ofHoursMinutes(5, 30);
+    OffsetDateTime start = OffsetDateTime.of(2015, 1, 31, 9, 15, 0, 0, offset);
+    List<OffsetDateTime> times = new ArrayList<>();
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 30; i++) {
+      times.add(start.plusMonths(i));
+      csv.append(start.plusMonths(i)).append(',').append(i).append('\n');
+    }
+    TimeSeries series = StreamingCsvReader.newBuilder().timeColumn(0).zoneOffset(offset).build()
+                                          .read(stream(csv.toString())).timeSeries(1, TimePeriod.oneMonth());
+    assertThat(series.observationTimes(), is(times));
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(Files.size(path), is(64L + 8L * series.n()));
+  }
+
+  @Test
+  public void whenDailyTimesSkipADayThenIrregularSeriesKeepsZoneOffset() throws IOException {
+    String csv = "2016-03-01T00:00+02:00,1\n2016-03-02T00:00+02:00,2\n2016-03-04T00:00+02:00,3\n";
+    TimeSeries series = StreamingCsvReader.newBuilder().timeColumn(0).zoneOffset(ZoneOffset.ofHours(2)).build()
+                                          .read(stream(csv)).timeSeries(1, new TimePeriod(timeseries.TimeUnit.DAY, 1));
+    assertThat(series.observationTimes().get(2),
+               is(OffsetDateTime.of(2016, 3, 4, 0, 0, 0, 0, ZoneOffset.ofHours(2))));
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(Files.size(path), is(64L + 20L * series.n()));
+  }
+
+  @Test
+  public void whenColumnsSelectedThenOthersNotParsed() {
+    String csv = "x,y\nnot a number,1\n?,2\n";
+    CsvColumns columns = StreamingCsvReader.newBuilder().header(true).columns("y").build().read(stream(csv));
+    assertThat(columns.column("y"), is(new double[] {1.0, 2.0}));
+    assertThat(columns.hasTimes(), is(false));
+  }
+
+  @Test
+  public void whenManyRowsThenBuffersGrow() {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      csv.append(i).append(';').append(i * 0.25).append('\n');
+    }
+    CsvColumns columns = StreamingCsvReader.newBuilder().delimiter(';').build().read(stream(csv.toString()));
+    assertThat(columns.rows(), is(5000));
+    assertThat(columns.column(1)[4999], is(4999 * 0.25));
+  }
+
+  @Test
+  public void whenDecimalParsedThenSameAsJavaParser() {
+    Random random = new Random(3L);
+    for (int i = 0; i < 100000; i++) {
+      String text;
+      switch (i % 4) {
+        case 0:
+          text = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+          break;
+        case 1:
+          text = String.format("%.6f", random.nextDouble() * 1000);
+          break;
+        case 2:
+          text = Long.toString(random.nextLong());
+          break;
+        default:
+          text = (random.nextInt(200000) - 100000) + "." + random.nextInt(100) + "e" + (random.nextInt(40) - 20);
+      }
+      char[] chars = text.toCharArray();
+      assertThat(text, StreamingCsvReader.parseDouble(chars, 0, chars.length), is(Double.parseDouble(text)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenFieldNotNumericThenIllegalArgument() {
+    StreamingCsvReader.newBuilder().build().read(stream("1,2\n3,x\n"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void whenColumnNamedWithoutHeaderThenIllegalState() {
+    StreamingCsvReader.newBuilder().timeColumn("time").build();
+  }
+}
@@ -0,0 +1,73 @@
+package linear.doubles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LyapunovSolverSpec {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void whenArOneThenStationaryVarianceCorrect() {
+    LyapunovSolver solver = new LyapunovSolver(1);
+    double[] x = new double[1];
+    assertThat(solver.solve(new double[] {0.9}, new double[] {2.0}, x), is(true));
+    assertThat(x[0], is(closeTo(2.0 / (1 - 0.81), 1E-10)));
+  }
+
+  @Test
+  public void whenStableMatrixThenSolutionSatisfiesEquation() {
+    final int n = 7;
+    Random random = new Random(7L);
+    double[] a = new double[n * n];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = random.nextGaussian() * 0.15;
+    }
+    double[] b = new double[n * n];
+    for (int i = 0; i < b.length; i++) {
+      b[i] = random.nextGaussian();
+    }
+    Matrix bMatrix = new Matrix(n, n, b);
+    double[] q = bMatrix.times(transpose(bMatrix, n)).data();
+    double[] x = new double[n * n];
+    LyapunovSolver solver = new LyapunovSolver(n);
+    assertThat(solver.solve(a, q, x), is(true));
+    Matrix aMatrix = new Matrix(n, n, a);
+    double[] expected = aMatrix.times(new Matrix(n, n, x)).times(transpose(aMatrix, n)).plus(new Matrix(n, n, q))
+                               .data();
+    for (int i = 0; i < x.length; i++) {
+      assertThat(x[i], is(closeTo(expected[i], 1E-10)));
+    }
+  }
+
+  @Test
+  public void whenUnitRootThenNotConverged() {
+    LyapunovSolver solver = new LyapunovSolver(2);
+    double[] x = new double[4];
+    assertThat(solver.solve(new double[] {1.0, 1.0, 0.0, 0.0}, new double[] {1.0, 0.0, 0.0, 0.0}, x), is(false));
+  }
+
+  @Test
+  public void whenArrayHasWrongLengthThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    new LyapunovSolver(2).solve(new double[4], new double[4], new double[3]);
+  }
+
+  private static Matrix transpose(final Matrix matrix, final int n) {
+    double[] data = matrix.data();
+    double[] transposed = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        transposed[j * n + i] = data[i * n + j];
+      }
+    }
+    return new Matrix(n, n, transposed);
+  }
+}
@@ -3,6 +3,8 @@ package linear.doubles;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -132,4 +134,103 @@ public final class MatrixSpec {
     assertThat(matrix1.equals(newMatrix), is(false));
   }
 
+  @Test
+  public void whenNonSquareMatrixProductComputedResultCorrect() {
+    final Matrix left = new Matrix(2, 3, 5.0, 9.0, 2.0, 5.0, 3.5, 7.5);
+    final Matrix product = left.times(matrix1);
+    final double[] expectedResult = new double[] {35.5, 38.5, 32.75, 41.25};
+    assertThat(product.data(), is(expectedResult));
+  }
+
+  @Test
+  public void whenBlockedMatrixProductComputedResultMatchesNaiveProduct() {
+    final int m = 70;
+    final int p = 45;
+    final int n = 33;
+    final Random random = new Random(42L);
+    final double[] a = new double[m * p];
+    final double[] b = new double[p * n];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = random.nextGaussian();
+    }
+    for (int i = 0; i < b.length; i++) {
+      b[i] = random.nextGaussian();
+    }
+    final double[] product = new Matrix(m, p, a).times(new Matrix(p, n, b)).data();
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double expected = 0.0;
+        for (int k = 0; k < p; k++) {
+          expected += a[i * p + k] * b[k * n + j];
+        }
+        assertThat(product[i * n + j], is(closeTo(expected, 1E-12)));
+      }
+    }
+  }
+
+  @Test
+  public void whenTimesIntoThenExistingValuesOverwritten() {
+    final double[] product = new double[] {1.0, 1.0, 1.0, 1.0};
+    new Matrix(2, 3, 5.0, 9.0, 2.0, 5.0, 3.5, 7.5).timesInto(matrix1, product);
+    assertThat(product, is(new double[] {35.5, 38.5, 32.75, 41.25}));
+    final double[] vectorProduct = new double[] {1.0, 1.0, 1.0};
+    matrix1.timesInto(new double[] {5.0, 9.0}, vectorProduct);
+    assertThat(vectorProduct, is(new double[] {38.0, 30.0, 32.0}));
+  }
+
+  @Test
+  public void whenTimesIntoWithZeroTimesNonFiniteElementThenNaN() {
+    final Matrix zeros = new Matrix(2, 2, 0.0, 1.0, 0.0, 2.0);
+    final Matrix other = new Matrix(2, 2, Double.NaN, 1.0, 1.0, 3.0);
+    final double[] product = new double[4];
+    zeros.timesInto(other, product);
+    assertThat(Double.isNaN(product[0]), is(true));
+    assertThat(product[1], is(3.0));
+    assertThat(Double.isNaN(product[2]), is(true));
+    assertThat(product[3], is(6.0));
+  }
+
+  @Test
+  public void whenRankOneUpdateWithZeroAndNonFiniteElementsThenNaNPropagated() {
+    final Matrix.Mutable mutable = new Matrix.Mutable(2, 2);
+    mutable.rankOneUpdate(1.0, new double[] {0.0, 1.0}, new double[] {Double.NaN, 2.0});
+    assertThat(Double.isNaN(mutable.get(0, 0)), is(true));
+    assertThat(mutable.get(0, 1), is(0.0));
+    assertThat(Double.isNaN(mutable.get(1, 0)), is(true));
+  }
+
+  @Test
+  public void whenTimesIntoArrayTooSmallThenExceptionThrown() {
+    exception.expect(IllegalArgumentException.class);
+    matrix1.timesInto(new Matrix(2, 2, 1.0), new double[5]);
+  }
+
+  @Test
+  public void whenMutableMatrixUpdatedInPlaceThenResultCorrect() {
+    final Matrix.Mutable mutable = new Matrix.Mutable(matrix1);
+    mutable.plusInPlace(matrix2).scaleInPlace(2.0).rankOneUpdate(0.5, new double[] {1.0, 0.0, 2.0},
+                                                                 new double[] {4.0, -2.0});
+    final double[] expectedResult = new double[] {20.0, 21.0, 7.0, 15.0, 13.0, 19.0};
+    assertThat(mutable.toMatrix().data(), is(expectedResult));
+    assertThat(mutable.get(2, 1), is(19.0));
+    assertThat(matrix1, is(new Matrix(3, 2, 4.0, 2.0, 1.5, 2.5, 1.0, 3.0)));
+  }
+
+  @Test
+  public void whenMutableMatrixCopiedThenCopyUnaffectedByLaterUpdates() {
+    final Matrix.Mutable mutable = new Matrix.Mutable(2, 2).setIdentity();
+    final Matrix identity = mutable.toMatrix();
+    mutable.set(0, 1, 3.0);
+    assertThat(identity, is(Matrices.identity(2)));
+    final double[] product = new double[2];
+    mutable.timesInto(new double[] {1.0, 2.0}, product);
+    assertThat(product, is(new double[] {7.0, 2.0}));
+  }
+
+  @Test
+  public void whenRankOneUpdateWithWrongDimensionsThenExceptionThrown() {
+    exception.expect(IllegalArgumentException.class);
+    new Matrix.Mutable(2, 3).rankOneUpdate(1.0, new double[] {1.0, 2.0}, new double[] {1.0, 2.0});
+  }
+
 }
@@ -0,0 +1,54 @@
+package math;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class FastFourierTransformSpec {
+
+  private final double[] sequence = new double[] { 3.0, -1.5, 2.25, 0.0, 4.0, 1.0, -2.0, 0.5 };
+
+  @Test
+  public void whenSequenceTransformedThenResultEqualsDiscreteFourierTransform() {
+    final int n = sequence.length;
+    double[] real = sequence.clone();
+    double[] imaginary = new double[n];
+    FastFourierTransform.transform(real, imaginary);
+    for (int k = 0; k < n; k++) {
+      double expectedReal = 0.0;
+      double expectedImaginary = 0.0;
+      for (int t = 0; t < n; t++) {
+        expectedReal += sequence[t] * Math.cos(2 * Math.PI * t * k / n);
+        expectedImaginary -= sequence[t] * Math.sin(2 * Math.PI * t * k / n);
+      }
+      assertThat(real[k], is(closeTo(expectedReal, 1E-12)));
+      assertThat(imaginary[k], is(closeTo(expectedImaginary, 1E-12)));
+    }
+  }
+
+  @Test
+  public void whenTransformInvertedThenOriginalSequenceRecovered() {
+    double[] real = sequence.clone();
+    double[] imaginary = new double[sequence.length];
+    FastFourierTransform.transform(real, imaginary);
+    FastFourierTransform.inverse(real, imaginary);
+    for (int t = 0; t < sequence.length; t++) {
+      assertThat(real[t], is(closeTo(sequence[t], 1E-12)));
+      assertThat(imaginary[t], is(closeTo(0.0, 1E-12)));
+    }
+  }
+
+  @Test
+  public void whenNextPowerOfTwoComputedThenResultCorrect() {
+    assertThat(FastFourierTransform.nextPowerOfTwo(1), is(1));
+    assertThat(FastFourierTransform.nextPowerOfTwo(5), is(8));
+    assertThat(FastFourierTransform.nextPowerOfTwo(64), is(64));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenLengthNotPowerOfTwoThenIllegalArgument() {
+    FastFourierTransform.transform(new double[6], new double[6]);
+  }
+}
@@ -3,6 +3,8 @@ package optim;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
+import java.time.Duration;
+
 import math.function.AbstractMultivariateFunction;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -29,6 +31,17 @@ public final class BFGSSpec {
     System.out.println(f.gradientEvaluations());
   }
   
+  @Test
+  public void whenRosenbrockMinimizedThenMinimumFoundAndInverseHessianSymmetric() {
+    AbstractMultivariateFunction f = new ExtendedRosenbrockFunction();
+    BFGS solver = new BFGS(f, new Vector(-1.2, 1.0), 1E-8, 1E-12);
+    assertThat(solver.parameters().at(0), is(closeTo(1.0, 1E-4)));
+    assertThat(solver.parameters().at(1), is(closeTo(1.0, 1E-4)));
+    double[][] h = solver.inverseHessian().data2D();
+    assertThat(h[0][1], is(closeTo(h[1][0], 1E-10)));
+    assertThat(h[0][0] > 0 && h[1][1] > 0, is(true));
+  }
+
   @Test
   @Ignore
   public void testHardProblem() {
@@ -50,4 +63,73 @@ public final class BFGSSpec {
     }
     return builder.build();
   }
+
+  @Test
+  public void whenFunctionEvaluationBudgetSpentThenOptimizationStops() {
+    OptimizerOptions options = OptimizerOptions.newBuilder().maxFunctionEvaluations(5).build();
+    BFGS solver = new BFGS(new ExtendedRosenbrockFunction(), new Vector(-1.2, 1.0), options);
+    OptimizationResult result = solver.result();
+    assertThat(result.convergenceReason(), is(OptimizationResult.ConvergenceReason.MAX_FUNCTION_EVALUATIONS));
+    assertThat(result.converged(), is(false));
+    assertThat(result.functionValue(), is(solver.functionValue()));
+  }
+
+  @Test
+  public void whenTimeBudgetSpentThenOptimizationStops() {
+    OptimizerOptions options = OptimizerOptions.newBuilder().maxTime(Duration.ZERO).build();
+    BFGS solver = new BFGS(new ExtendedRosenbrockFunction(), new Vector(-1.2, 1.0), options);
+    assertThat(solver.result().convergenceReason(), is(OptimizationResult.ConvergenceReason.MAX_TIME));
+    assertThat(solver.result().iterations(), is(0));
+  }
+
+  @Test
+  public void whenGradientToleranceMetThenConvergedWithSmallGradient() {
+    OptimizerOptions options = OptimizerOptions.newBuilder().gradientTolerance(1E-6).relativeErrorTolerance(0.0)
+                                               .maxIterations(1000).build();
+    BFGS solver = new BFGS(new ExtendedRosenbrockFunction(), new Vector(-1.2, 1.0), options);
+    assertThat(solver.result().convergenceReason(), is(OptimizationResult.ConvergenceReason.GRADIENT_TOLERANCE));
+    assertThat(solver.result().gradientNorm(), is(lessThanOrEqualTo(1E-6)));
+  }
+
+  @Test
+  public void whenFunctionValueInfiniteThenStopsAsNotFinite() {
+    AbstractMultivariateFunction f = new AbstractMultivariateFunction() {
+      @Override
+      public double at(final Vector point) {
+        functionEvaluations++;
+        return Double.POSITIVE_INFINITY;
+      }
+
+      @Override
+      public Vector gradientAt(final Vector point, final double functionValue) {
+        gradientEvalutations++;
+        return new Vector(1.0, 1.0);
+      }
+    };
+    BFGS solver = new BFGS(f, new Vector(0.5, 1.5), OptimizerOptions.newBuilder().build());
+    assertThat(solver.result().convergenceReason(), is(OptimizationResult.ConvergenceReason.NOT_FINITE));
+    assertThat(solver.result().converged(), is(false));
+  }
+
+  @Test
+  public void whenCurvatureConditionFailsThenInverseHessianNotUpdated() {
+    // The gradient of a linear function never changes, so every step has y's = 0.
+    AbstractMultivariateFunction f = new AbstractMultivariateFunction() {
+      @Override
+      public double at(final Vector point) {
+        functionEvaluations++;
+        return point.at(0) + 2 * point.at(1);
+      }
+
+      @Override
+      public Vector gradientAt(final Vector point, final double functionValue) {
+        gradientEvalutations++;
+        return new Vector(1.0, 2.0);
+      }
+    };
+    OptimizerOptions options = OptimizerOptions.newBuilder().maxIterations(3).build();
+    BFGS solver = new BFGS(f, new Vector(0.0, 0.0), options);
+    assertThat(solver.result().iterations(), is(greaterThan(0)));
+    assertThat(solver.inverseHessian().data2D(), is(new double[][] { { 1.0, 0.0 }, { 0.0, 1.0 } }));
+  }
 }
@@ -0,0 +1,35 @@
+package optim;
+
+import java.util.Arrays;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
+
+/**
+ * The extended Rosenbrock function of any dimension, with its exact gradient.
+ */
+final class ExtendedRosenbrockFunction extends AbstractMultivariateFunction
+    implements DifferentiableMultivariateFunction {
+
+  @Override
+  public double at(final Vector point) {
+    return valueAndGradientAt(point.elements(), new double[point.size()]);
+  }
+
+  @Override
+  public double valueAndGradientAt(final double[] point, final double[] gradient) {
+    functionEvaluations++;
+    gradientEvalutations++;
+    double sum = 0.0;
+    Arrays.fill(gradient, 0.0);
+    for (int i = 0; i < point.length - 1; i++) {
+      final double a = point[i + 1] - point[i] * point[i];
+      final double b = 1 - point[i];
+      sum += 100 * a * a + b * b;
+      gradient[i] += -400 * point[i] * a - 2 * b;
+      gradient[i + 1] += 200 * a;
+    }
+    return sum;
+  }
+}
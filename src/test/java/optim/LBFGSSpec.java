@@ -0,0 +1,76 @@
+package optim;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import linear.doubles.Vector;
+import math.function.AbstractMultivariateFunction;
+import math.function.DifferentiableMultivariateFunction;
+
+public final class LBFGSSpec {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void whenRosenbrockMinimizedThenMinimumFound() {
+    AbstractMultivariateFunction f = new ExtendedRosenbrockFunction();
+    LBFGS solver = new LBFGS(f, new Vector(-1.2, 1.0), 1E-8, 1E-14);
+    assertThat(solver.parameters().at(0), is(closeTo(1.0, 1E-4)));
+    assertThat(solver.parameters().at(1), is(closeTo(1.0, 1E-4)));
+    assertThat(solver.functionValue(), is(lessThan(1E-8)));
+  }
+
+  @Test
+  public void whenHighDimensionalQuadraticMinimizedThenMinimumFound() {
+    final int n = 500;
+    final double[] start = new double[n];
+    for (int i = 0; i < n; i++) {
+      start[i] = (i % 2 == 0) ? -1.2 : 1.0;
+    }
+    LBFGS solver = new LBFGS(new ScaledQuadratic(), new Vector(start), 1E-8, 0.0, 5);
+    assertThat(solver.historySize(), is(5));
+    assertThat(solver.functionValue(), is(lessThan(1E-10)));
+    assertThat(solver.result().iterations(), is(lessThan(100)));
+  }
+
+  @Test
+  public void whenSphereMinimizedWithoutExactGradientThenMinimumFound() {
+    LBFGS solver = new LBFGS(new SphereFunction(), new Vector(3.0, -2.0, 1.0), 1E-6, 1E-12);
+    for (int i = 0; i < 3; i++) {
+      assertThat(solver.parameters().at(i), is(closeTo(0.0, 1E-3)));
+    }
+  }
+
+  @Test
+  public void whenHistorySizeLessThanOneThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    new LBFGS(new ExtendedRosenbrockFunction(), new Vector(0.0, 0.0), 1E-8, 1E-8, 0);
+  }
+
+  // The function sum (1 + i/10) * x_i^2, whose Hessian has condition number 1 + (n - 1)/10.
+  private static final class ScaledQuadratic extends AbstractMultivariateFunction
+      implements DifferentiableMultivariateFunction {
+
+    @Override
+    public double at(final Vector point) {
+      return valueAndGradientAt(point.elements(), new double[point.size()]);
+    }
+
+    @Override
+    public double valueAndGradientAt(final double[] point, final double[] gradient) {
+      functionEvaluations++;
+      double sum = 0.0;
+      for (int i = 0; i < point.length; i++) {
+        final double scale = 1.0 + i / 10.0;
+        sum += scale * point[i] * point[i];
+        gradient[i] = 2 * scale * point[i];
+      }
+      return sum;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package timeseries;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import data.TestData;
+
+public class TimeSeriesFileSpec {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void whenRegularSeriesWrittenThenMappedViewHasSameObservationsAndTimes() throws IOException {
+    TimeSeries series = TestData.ausbeerSeries();
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(Files.size(path), is(64L + 8L * series.n()));
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    assertThat(mapped.n(), is(series.n()));
+    assertThat(mapped.isRegular(), is(true));
+    assertThat(mapped.timePeriod(), is(series.timePeriod()));
+    assertThat(mapped.startTime(), is(series.observationTimes().get(0)));
+    assertThat(mapped.at(17), is(series.at(17)));
+    assertThat(mapped.observationTime(17), is(series.observationTimes().get(17)));
+    double[] values = new double[mapped.n()];
+    mapped.values().get(values);
+    assertArrayEquals(series.series(), values, 0.0);
+  }
+
+  @Test
+  public void whenRegularSeriesReadThenEqualToOriginal() throws IOException {
+    TimeSeries series = TestData.ausbeerSeries().from(10, 49);
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(TimeSeriesFile.read(path), is(equalTo(series)));
+  }
+
+  @Test
+  public void whenIrregularSeriesWrittenThenTimeColumnRoundTrips() throws IOException {
+    ZoneOffset offset = ZoneOffset.ofHours(-5);
+    List<OffsetDateTime> times = Arrays.asList(OffsetDateTime.of(2017, 1, 1, 0, 0, 0, 0, offset),
+                                               OffsetDateTime.of(2017, 1, 1, 0, 0, 1, 500, offset),
+                                               OffsetDateTime.of(2017, 1, 3, 12, 0, 0, 0, offset),
+                                               OffsetDateTime.of(2017, 2, 1, 0, 0, 0, 0, offset));
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.DAY, 1), times, 1.0, 2.5, -3.0, 4.0);
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(Files.size(path), is(64L + 20L * series.n()));
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    assertThat(mapped.isRegular(), is(false));
+    assertThat(mapped.observationTime(1), is(times.get(1)));
+    TimeSeries read = mapped.toTimeSeries();
+    assertThat(read.observationTimes(), is(times));
+    assertArrayEquals(series.series(), read.series(), 0.0);
+  }
+
+  @Test
+  public void whenIrregularSeriesHasMixedZoneOffsetsThenEveryOffsetRoundTrips() throws IOException {
+    List<OffsetDateTime> times = Arrays.asList(OffsetDateTime.of(2017, 3, 1, 0, 0, 0, 0, ZoneOffset.ofHours(-5)),
+                                               OffsetDateTime.of(2017, 3, 12, 9, 0, 0, 0, ZoneOffset.ofHours(-4)),
+                                               OffsetDateTime.of(2017, 3, 20, 0, 0, 0, 0, ZoneOffset.UTC),
+                                               OffsetDateTime.of(2017, 4, 1, 0, 0, 0, 0, ZoneOffset.ofHours(-5)));
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.DAY, 1), times, 1.0, 2.5, -3.0, 4.0);
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    assertThat(Files.size(path), is(64L + 24L * series.n()));
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    assertThat(mapped.observationTime(1), is(times.get(1)));
+    assertThat(mapped.observationTime(2), is(times.get(2)));
+    TimeSeries read = mapped.toTimeSeries();
+    assertThat(read.observationTimes(), is(times));
+    assertThat(read, is(equalTo(series)));
+  }
+
+  @Test
+  public void whenIrregularSeriesSpansCenturiesThenTimeColumnRoundTrips() throws IOException {
+    OffsetDateTime start = OffsetDateTime.of(1700, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    OffsetDateTime[] times = new OffsetDateTime[320];
+    double[] data = new double[times.length];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = start.plusYears(i).plusNanos(i);
+      data[i] = i;
+    }
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.YEAR, 1), Arrays.asList(times), data);
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    assertThat(mapped.observationTime(319), is(times[319]));
+    assertThat(mapped.toTimeSeries(), is(equalTo(series)));
+  }
+
+  @Test
+  public void whenTimeColumnHoldsInvalidNanosecondThenIllegalArgument() throws IOException {
+    ZoneOffset offset = ZoneOffset.UTC;
+    List<OffsetDateTime> times = Arrays.asList(OffsetDateTime.of(2017, 1, 1, 0, 0, 0, 0, offset),
+                                               OffsetDateTime.of(2017, 1, 2, 0, 0, 0, 0, offset));
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.DAY, 1), times, 1.0, 2.0);
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] = (byte) 0x80;
+    Files.write(path, bytes);
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    exception.expect(IllegalArgumentException.class);
+    mapped.toTimeSeries();
+  }
+
+  @Test
+  public void whenValuesBufferRepositionedThenViewUnaffected() throws IOException {
+    TimeSeries series = TestData.livestock();
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    MappedTimeSeries mapped = TimeSeriesFile.map(path);
+    DoubleBuffer values = mapped.values();
+    values.position(5);
+    assertThat(values.isReadOnly(), is(true));
+    assertThat(mapped.values().get(0), is(series.at(0)));
+  }
+
+  @Test
+  public void whenFileNotATimeSeriesFileThenIllegalArgument() throws IOException {
+    File file = folder.newFile();
+    Files.write(file.toPath(), new byte[64]);
+    exception.expect(IllegalArgumentException.class);
+    TimeSeriesFile.map(file.toPath());
+  }
+
+  @Test
+  public void whenFileTruncatedThenIllegalArgument() throws IOException {
+    TimeSeries series = TestData.ausbeerSeries();
+    Path path = folder.newFile().toPath();
+    TimeSeriesFile.write(series, path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+    exception.expect(IllegalArgumentException.class);
+    TimeSeriesFile.map(path);
+  }
+}
@@ -8,7 +8,11 @@ import static org.junit.Assert.assertArrayEquals;
 
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -146,4 +150,190 @@ public class TimeSeriesSpec {
     TimeSeries series = TestData.debitcards();
     series.print();  
   }
+
+  @Test
+  public void whenRegularSeriesIndexedByDateTimeThenValueAndSliceCorrect() {
+    TimeSeries series = TestData.ausbeerSeries();
+    OffsetDateTime start = OffsetDateTime.of(LocalDateTime.of(1960, 4, 1, 0, 0), ZoneOffset.ofHours(0));
+    OffsetDateTime end = OffsetDateTime.of(LocalDateTime.of(1961, 1, 1, 0, 0), ZoneOffset.ofHours(0));
+    assertThat(series.indexOf(start), is(17));
+    assertThat(series.at(start), is(series.at(17)));
+    assertThat(series.from(start, end).series(), is(series.from(17, 20).series()));
+    assertThat(series.difference().indexOf(start), is(16));
+    assertThat(series.from(17, 20).observationTimes().get(0), is(start));
+  }
+
+  @Test
+  public void whenIrregularSeriesIndexedByDateTimeThenValueAndSliceCorrect() {
+    OffsetDateTime start = OffsetDateTime.of(LocalDateTime.of(2017, 3, 1, 9, 30), ZoneOffset.ofHours(-5));
+    List<OffsetDateTime> times = Arrays.asList(start, start.plusSeconds(1), start.plusSeconds(5),
+        start.plusMinutes(2), start.plusHours(3).plusNanos(7));
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.SECOND, 1), times, 1.0, 2.0, 3.0, 4.0, 5.0);
+    assertThat(series.at(start.plusMinutes(2)), is(4.0));
+    assertThat(series.indexOf(start.plusHours(3).plusNanos(7)), is(4));
+    assertThat(series.observationTimes(), is(equalTo(times)));
+    TimeSeries sliced = series.from(start.plusSeconds(1), start.plusMinutes(2));
+    assertThat(sliced.series(), is(new double[] { 2.0, 3.0, 4.0 }));
+    assertThat(sliced.observationTimes(), is(equalTo(times.subList(1, 4))));
+  }
+
+  @Test
+  public void whenIrregularSeriesSpansCenturiesThenTimesAndIndexCorrect() {
+    OffsetDateTime start = OffsetDateTime.of(LocalDateTime.of(1700, 1, 1, 0, 0), ZoneOffset.UTC);
+    OffsetDateTime[] times = new OffsetDateTime[320];
+    double[] data = new double[times.length];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = start.plusYears(i).plusNanos(i);
+      data[i] = i;
+    }
+    TimeSeries series = new TimeSeries(new TimePeriod(TimeUnit.YEAR, 1), Arrays.asList(times), data);
+    assertThat(series.observationTimes(), is(equalTo(Arrays.asList(times))));
+    assertThat(series.at(times[310]), is(310.0));
+    assertThat(series.indexOf(times[250]), is(250));
+    long[] epochMillis = new long[times.length];
+    for (int i = 0; i < times.length; i++) {
+      epochMillis[i] = start.plusYears(i).toInstant().toEpochMilli();
+    }
+    TimeSeries fromMillis = TimeSeries.fromEpochMillis(new TimePeriod(TimeUnit.YEAR, 1), epochMillis, ZoneOffset.UTC,
+                                                       data);
+    assertThat(fromMillis.observationTimes().get(319), is(start.plusYears(319)));
+    assertThat(fromMillis.at(start.plusYears(5)), is(5.0));
+  }
+
+  @Test
+  public void whenSeriesCreatedFromObservationTimesOfAnotherThenSeriesEqual() {
+    TimeSeries series = TestData.ausbeerSeries();
+    TimeSeries copy = new TimeSeries(series.timePeriod(), series.observationTimes(), series.series());
+    List<OffsetDateTime> materialized = Arrays.asList(series.observationTimes().toArray(new OffsetDateTime[0]));
+    TimeSeries irregularCopy = new TimeSeries(series.timePeriod(), materialized, series.series());
+    assertThat(copy, is(equalTo(series)));
+    assertThat(irregularCopy, is(equalTo(series)));
+    assertThat(irregularCopy.hashCode(), is(series.hashCode()));
+    assertThat(series.dateTimeIndex().get(series.observationTimes().get(30)), is(30));
+  }
+
+  @Test
+  public void whenNoObservationAtDateTimeThenIllegalArgument() {
+    TimeSeries series = TestData.ausbeerSeries();
+    exception.expect(IllegalArgumentException.class);
+    series.at(OffsetDateTime.of(LocalDateTime.of(1960, 5, 1, 0, 0), ZoneOffset.ofHours(0)));
+  }
+
+  @Test
+  public void whenSeriesSlicedThenViewHasSameValuesAndStatisticsAsCopy() {
+    TimeSeries series = TestData.ausbeerSeries();
+    TimeSeries slice = series.from(10, 49);
+    TimeSeries copy = new TimeSeries(series.timePeriod(), series.observationTimes().get(10), slice.series());
+    assertThat(slice, is(equalTo(copy)));
+    assertThat(slice.hashCode(), is(copy.hashCode()));
+    assertThat(slice.mean(), is(copy.mean()));
+    assertThat(slice.stdDeviation(), is(copy.stdDeviation()));
+    assertThat(slice.autoCovarianceAtLag(4), is(copy.autoCovarianceAtLag(4)));
+    assertThat(slice.timeSlice(2, 5).series(), is(series.from(11, 14).series()));
+  }
+
+  @Test
+  public void whenSeriesDifferencedManyTimesThenSameAsRepeatedDifferences() {
+    TimeSeries series = TestData.ausbeerSeries().from(3, 100);
+    TimeSeries expected = series.difference(4).difference(4).difference(4);
+    assertThat(series.difference(4, 3), is(equalTo(expected)));
+    assertThat(series.difference(4, 3).n(), is(series.n() - 12));
+  }
+
+  @Test
+  public void whenBufferRequestedThenReadOnlyViewOfObservations() {
+    TimeSeries slice = TestData.ausbeerSeries().from(5, 9);
+    DoubleBuffer buffer = slice.asBuffer();
+    assertThat(buffer.remaining(), is(5));
+    for (int i = 0; i < 5; i++) {
+      assertThat(buffer.get(i), is(slice.at(i)));
+    }
+    exception.expect(ReadOnlyBufferException.class);
+    buffer.put(0, 1.0);
+  }
+
+  @Test
+  public void whenAutoCovarianceComputedByFourierTransformThenSameAsDirect() {
+    double[] data = new double[1000];
+    for (int t = 0; t < data.length; t++) {
+      data[t] = Math.sin(t / 7.0) + 0.3 * Math.cos(t * t / 11.0);
+    }
+    TimeSeries series = new TimeSeries(data);
+    TimeSeries direct = new TimeSeries(data);
+    double[] acvf = series.autoCovarianceUpToLag(500);
+    double[] acf = series.autoCorrelationUpToLag(500);
+    assertThat(acvf.length, is(501));
+    for (int k = 0; k <= 500; k++) {
+      assertThat(acvf[k], is(closeTo(direct.autoCovarianceAtLag(k), 1E-12)));
+      assertThat(acf[k], is(closeTo(direct.autoCorrelationAtLag(k), 1E-12)));
+    }
+  }
+
+  @Test
+  public void whenPartialAutoCorrelationComputedThenEqualsLastYuleWalkerCoefficient() {
+    TimeSeries series = TestData.ausbeerSeries().difference();
+    double[] acf = series.autoCorrelationUpToLag(8);
+    double[] pacf = series.partialAutoCorrelationUpToLag(8);
+    assertThat(pacf.length, is(9));
+    assertThat(pacf[0], is(1.0));
+    assertThat(pacf[1], is(closeTo(acf[1], 1E-12)));
+    assertThat(pacf[2], is(closeTo((acf[2] - acf[1] * acf[1]) / (1 - acf[1] * acf[1]), 1E-12)));
+    for (int m = 3; m <= 8; m++) {
+      assertThat(pacf[m], is(closeTo(lastYuleWalkerCoefficient(acf, m), 1E-10)));
+    }
+  }
+
+  @Test
+  public void whenCorrelationsRequestedAgainThenCachedValuesReturnedAsCopies() {
+    TimeSeries series = TestData.ausbeerSeries();
+    double[] pacf = series.partialAutoCorrelationUpToLag(12);
+    double[] fewer = series.partialAutoCorrelationUpToLag(4);
+    assertArrayEquals(Arrays.copyOf(pacf, 5), fewer, 0.0);
+    fewer[1] = 10.0;
+    assertThat(series.partialAutoCorrelationAtLag(1), is(pacf[1]));
+    double[] acf = series.autoCorrelationUpToLag(12);
+    acf[2] = 10.0;
+    assertThat(series.autoCorrelationUpToLag(12)[2], is(series.autoCorrelationAtLag(2)));
+  }
+
+  @Test
+  public void whenPartialAutoCorrelationLagNotLessThanSizeThenIllegalArgument() {
+    TimeSeries series = TestData.ausbeerSeries();
+    exception.expect(IllegalArgumentException.class);
+    series.partialAutoCorrelationAtLag(series.n());
+  }
+
+  @Test
+  public void whenPartialAutoCorrelationLagNegativeThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    TestData.ausbeerSeries().partialAutoCorrelationUpToLag(-1);
+  }
+
+  // Solve the Yule-Walker equations of order m by Gaussian elimination and return the coefficient at lag m.
+  private static double lastYuleWalkerCoefficient(final double[] acf, final int m) {
+    double[][] system = new double[m][m + 1];
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < m; j++) {
+        system[i][j] = acf[Math.abs(i - j)];
+      }
+      system[i][m] = acf[i + 1];
+    }
+    for (int col = 0; col < m; col++) {
+      for (int row = col + 1; row < m; row++) {
+        double factor = system[row][col] / system[col][col];
+        for (int j = col; j <= m; j++) {
+          system[row][j] -= factor * system[col][j];
+        }
+      }
+    }
+    double[] solution = new double[m];
+    for (int i = m - 1; i >= 0; i--) {
+      double sum = system[i][m];
+      for (int j = i + 1; j < m; j++) {
+        sum -= system[i][j] * solution[j];
+      }
+      solution[i] = sum / system[i][i];
+    }
+    return solution[m - 1];
+  }
 }
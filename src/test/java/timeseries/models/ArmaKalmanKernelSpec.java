@@ -0,0 +1,97 @@
+package timeseries.models;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ArmaKalmanKernelSpec {
+
+  private final double phi = 0.5;
+  private final double theta = -0.3;
+  private final double[] y = simulateArmaOneOne(300);
+
+  @Test
+  public void whenSteadyStateReachedThenLogLikelihoodStillExact() {
+    ArmaKalmanKernel kernel = new ArmaKalmanKernel();
+    kernel.filter(y, y.length, 0.0, new double[] {phi}, 1, new double[] {theta}, 1, null, null);
+    assertThat(kernel.steadyStateIndex(), is(lessThan(y.length)));
+    assertThat(kernel.logLikelihood(), is(closeTo(exactLogLikelihood(), 1E-7)));
+  }
+
+  @Test
+  public void whenKernelReusedWithDifferentDimensionsThenSameResultAsFreshKernel() {
+    ArmaKalmanKernel kernel = new ArmaKalmanKernel();
+    kernel.filter(y, y.length, 0.0, new double[] {0.2, 0.1, -0.1}, 3, new double[] {0.4, 0.0, 0.0, 0.3}, 4, null,
+        null);
+    double[] errors = new double[y.length];
+    kernel.filter(y, y.length, 0.0, new double[] {phi}, 1, new double[] {theta}, 1, errors, null);
+    ArmaKalmanKernel fresh = new ArmaKalmanKernel();
+    double[] expected = new double[y.length];
+    fresh.filter(y, y.length, 0.0, new double[] {phi}, 1, new double[] {theta}, 1, expected, null);
+    assertThat(kernel.logLikelihood(), is(fresh.logLikelihood()));
+    assertThat(errors, is(expected));
+  }
+
+  @Test
+  public void whenMeanGivenThenSameAsFilteringCenteredSeries() {
+    double[] shifted = new double[y.length];
+    for (int t = 0; t < y.length; t++) {
+      shifted[t] = y[t] + 10.0;
+    }
+    ArmaKalmanKernel kernel = new ArmaKalmanKernel();
+    kernel.filter(shifted, shifted.length, 10.0, new double[] {phi}, 1, new double[] {theta}, 1, null, null);
+    assertThat(kernel.logLikelihood(), is(closeTo(exactLogLikelihood(), 1E-7)));
+  }
+
+  private double[] simulateArmaOneOne(final int n) {
+    Random random = new Random(11L);
+    double[] series = new double[n];
+    double previousError = 0.0;
+    double previous = 0.0;
+    for (int t = 0; t < n; t++) {
+      double error = random.nextGaussian();
+      series[t] = phi * previous + error + theta * previousError;
+      previous = series[t];
+      previousError = error;
+    }
+    return series;
+  }
+
+  // The concentrated log-likelihood computed from a Cholesky factorization of the autocovariance matrix.
+  private double exactLogLikelihood() {
+    int n = y.length;
+    double[] gamma = new double[n];
+    gamma[0] = (1 + 2 * phi * theta + theta * theta) / (1 - phi * phi);
+    gamma[1] = (1 + phi * theta) * (phi + theta) / (1 - phi * phi);
+    for (int k = 2; k < n; k++) {
+      gamma[k] = phi * gamma[k - 1];
+    }
+    double[][] L = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j <= i; j++) {
+        double sum = gamma[i - j];
+        for (int k = 0; k < j; k++) {
+          sum -= L[i][k] * L[j][k];
+        }
+        L[i][j] = (i == j) ? Math.sqrt(sum) : sum / L[j][j];
+      }
+    }
+    double[] z = new double[n];
+    double quadraticForm = 0.0;
+    double logDeterminant = 0.0;
+    for (int i = 0; i < n; i++) {
+      double sum = y[i];
+      for (int k = 0; k < i; k++) {
+        sum -= L[i][k] * z[k];
+      }
+      z[i] = sum / L[i][i];
+      quadraticForm += z[i] * z[i];
+      logDeterminant += 2 * Math.log(L[i][i]);
+    }
+    double sigma2 = quadraticForm / n;
+    return (-n / 2.0) * (Math.log(2 * Math.PI * sigma2) + 1) - 0.5 * logDeterminant;
+  }
+}
@@ -1,5 +1,8 @@
 package timeseries.models;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -25,4 +28,61 @@ public class KalmanFilterSpec {
     long end = System.currentTimeMillis();
     System.out.println("Time taken: " + (end - start) + " millis.");
   }
+
+  @Test
+  public void whenArOneFilteredThenPredictionErrorsAreInnovations() {
+    double phi = 0.6;
+    double[] y = TestData.livestock().difference().demean().series();
+    KalmanFilter filter = new KalmanFilter(new StateSpaceARMA(y, new double[] {phi}, new double[] {}));
+    double[] errors = filter.predictionErrors();
+    double[] variances = filter.predictionErrorVariances();
+    assertThat(variances[0], is(closeTo(1.0 / (1.0 - phi * phi), 1E-10)));
+    for (int t = 1; t < y.length; t++) {
+      assertThat(errors[t], is(closeTo(y[t] - phi * y[t - 1], 1E-10)));
+      assertThat(variances[t], is(closeTo(1.0, 1E-10)));
+    }
+  }
+
+  @Test
+  public void whenArmaFilteredThenLogLikelihoodEqualsExactGaussianLikelihood() {
+    double phi = 0.5;
+    double theta = -0.3;
+    double[] y = TestData.livestock().difference().demean().series();
+    int n = y.length;
+    KalmanFilter filter = new KalmanFilter(new StateSpaceARMA(y, new double[] {phi}, new double[] {theta}));
+
+    // Build the autocovariance matrix of the ARMA(1, 1) process with unit variance and factor it.
+    double[] gamma = new double[n];
+    gamma[0] = (1 + 2 * phi * theta + theta * theta) / (1 - phi * phi);
+    gamma[1] = (1 + phi * theta) * (phi + theta) / (1 - phi * phi);
+    for (int k = 2; k < n; k++) {
+      gamma[k] = phi * gamma[k - 1];
+    }
+    double[][] L = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j <= i; j++) {
+        double sum = gamma[i - j];
+        for (int k = 0; k < j; k++) {
+          sum -= L[i][k] * L[j][k];
+        }
+        L[i][j] = (i == j) ? Math.sqrt(sum) : sum / L[j][j];
+      }
+    }
+    double[] z = new double[n];
+    double quadraticForm = 0.0;
+    double logDeterminant = 0.0;
+    for (int i = 0; i < n; i++) {
+      double sum = y[i];
+      for (int k = 0; k < i; k++) {
+        sum -= L[i][k] * z[k];
+      }
+      z[i] = sum / L[i][i];
+      quadraticForm += z[i] * z[i];
+      logDeterminant += 2 * Math.log(L[i][i]);
+    }
+    double sigma2 = quadraticForm / n;
+    double logLikelihood = (-n / 2.0) * (Math.log(2 * Math.PI * sigma2) + 1) - 0.5 * logDeterminant;
+    assertThat(filter.sigma2(), is(closeTo(sigma2, 1E-8)));
+    assertThat(filter.logLikelihood(), is(closeTo(logLikelihood, 1E-8)));
+  }
 }
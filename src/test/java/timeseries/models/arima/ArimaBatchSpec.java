@@ -0,0 +1,71 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class ArimaBatchSpec {
+
+  private final ModelOrder order = ModelOrder.order(1, 1, 1, 0, 1, 1);
+  private final List<TimeSeries> series = Arrays.asList(TestData.ausbeerSeries(), TestData.ukcars(),
+      TestData.ausbeerSeries(), TestData.ukcars());
+
+  @Test
+  public void whenBatchFitInParallelThenModelsSameAsSequentialFitsInInputOrder() {
+    ArimaBatch batch = ArimaBatch.newBuilder().parallelism(3).seasonalCycle(TimePeriod.oneYear()).build();
+    ArimaBatch.Result result = batch.fit(series, order);
+    assertThat(result.size(), is(4));
+    assertThat(result.failureCount(), is(0));
+    for (int i = 0; i < series.size(); i++) {
+      Arima expected = Arima.model(series.get(i), order, TimePeriod.oneYear());
+      assertThat(result.model(i).coefficients().arCoeffs(), is(expected.coefficients().arCoeffs()));
+      assertThat(result.model(i).coefficients().smaCoeffs(), is(expected.coefficients().smaCoeffs()));
+    }
+  }
+
+  @Test
+  public void whenOneSeriesFailsThenFailureCapturedAndOthersFit() {
+    ArimaBatch batch = ArimaBatch.newBuilder().parallelism(2).build();
+    ArimaBatch.Result result = batch.fit(Arrays.asList(TestData.ukcars(), null, TestData.ausbeerSeries()), order);
+    assertThat(result.succeeded(0), is(true));
+    assertThat(result.succeeded(1), is(false));
+    assertThat(result.failure(1), is(instanceOf(NullPointerException.class)));
+    assertThat(result.succeeded(2), is(true));
+    assertThat(result.models().size(), is(2));
+    assertThat(result.failureCount(), is(1));
+  }
+
+  @Test
+  public void whenExecutorSuppliedThenBatchFitOnExecutorWithoutShuttingItDown() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ArimaBatch batch = ArimaBatch.newBuilder().executor(executor).parallelism(2).build();
+      ArimaBatch.Result result = batch.fit(series, Arrays.asList(order, order, order, order));
+      assertThat(result.failureCount(), is(0));
+      assertThat(executor.isShutdown(), is(false));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void whenModelRequestedForFailedSeriesThenIllegalStateException() {
+    ArimaBatch.newBuilder().build().fit(Arrays.asList((TimeSeries) null), order).model(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenOrderCountDiffersFromSeriesCountThenIllegalArgumentException() {
+    ArimaBatch.newBuilder().build().fit(series, Arrays.asList(order));
+  }
+}
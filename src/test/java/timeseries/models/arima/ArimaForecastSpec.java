@@ -0,0 +1,56 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class ArimaForecastSpec {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  private final Arima model = Arima.model(TestData.ausbeerSeries(), ModelOrder.order(1, 1, 1, 0, 1, 1),
+                                          TimePeriod.oneYear());
+  private final ArimaForecast forecast = ArimaForecast.forecast(model, 10, 0.05);
+
+  @Test
+  public void whenQuantilesComputedThenSameAsPredictionValues() {
+    double[][] quantiles = forecast.quantiles(0.025, 0.5, 0.975);
+    TimeSeries lower = forecast.lowerPredictionValues();
+    TimeSeries upper = forecast.upperPredictionValues();
+    for (int t = 0; t < 10; t++) {
+      assertThat(quantiles[0][t], is(closeTo(lower.at(t), 1E-10)));
+      assertThat(quantiles[1][t], is(closeTo(forecast.forecast().at(t), 1E-10)));
+      assertThat(quantiles[2][t], is(closeTo(upper.at(t), 1E-10)));
+    }
+  }
+
+  @Test
+  public void whenPredictionBoundsComputedThenSameAsComputedPredictionValues() {
+    double[] alphas = {0.5, 0.2, 0.05, 0.01};
+    double[][] bounds = forecast.predictionBounds(alphas);
+    assertThat(bounds.length, is(2 * alphas.length));
+    for (int i = 0; i < alphas.length; i++) {
+      TimeSeries lower = forecast.computeLowerPredictionValues(10, alphas[i]);
+      TimeSeries upper = forecast.computeUpperPredictionValues(10, alphas[i]);
+      for (int t = 0; t < 10; t++) {
+        assertThat(bounds[i][t], is(closeTo(lower.at(t), 1E-10)));
+        assertThat(bounds[alphas.length + i][t], is(closeTo(upper.at(t), 1E-10)));
+      }
+    }
+  }
+
+  @Test
+  public void whenProbabilityOutsideUnitIntervalThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    forecast.quantiles(0.5, 1.0);
+  }
+}
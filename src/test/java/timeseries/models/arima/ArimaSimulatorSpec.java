@@ -0,0 +1,71 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class ArimaSimulatorSpec {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  private final Arima model = Arima.model(TestData.ausbeerSeries(), ModelOrder.order(1, 1, 1, 0, 1, 1),
+                                          TimePeriod.oneYear());
+
+  @Test
+  public void whenGaussianPathsSimulatedThenBoundsCloseToForecastBounds() {
+    ArimaSimulator simulator = ArimaSimulator.newBuilder().innovations(ArimaSimulator.Innovations.GAUSSIAN)
+                                             .seed(42L).build();
+    ArimaSimulator.Paths paths = simulator.simulate(model, 6, 20000);
+    ArimaForecast forecast = ArimaForecast.forecast(model, 6, 0.2);
+    double[][] bounds = paths.predictionBounds(0.2);
+    double[] mean = paths.mean();
+    for (int h = 0; h < 6; h++) {
+      double sd = Math.sqrt(model.forecastState(6).forecastVariance(h + 1));
+      assertThat(mean[h], is(closeTo(forecast.forecast().at(h), 0.05 * sd)));
+      assertThat(bounds[0][h], is(closeTo(forecast.lowerPredictionValues().at(h), 0.05 * sd)));
+      assertThat(bounds[1][h], is(closeTo(forecast.upperPredictionValues().at(h), 0.05 * sd)));
+    }
+  }
+
+  @Test
+  public void whenSeedGivenThenPathsSameForAnyParallelism() {
+    ArimaSimulator.Paths serial = ArimaSimulator.newBuilder().seed(7L).parallelism(1).build()
+                                                .simulate(model, 12, 1000);
+    ArimaSimulator.Paths parallel = ArimaSimulator.newBuilder().seed(7L).parallelism(4).build()
+                                                  .simulate(model, 12, 1000);
+    assertThat(parallel.values(), is(equalTo(serial.values())));
+    assertThat(parallel.size(), is(1000));
+    assertThat(parallel.steps(), is(12));
+  }
+
+  @Test
+  public void whenSeriesSimulatedThenReproducibleAndContinuesObservations() {
+    TimeSeries simulated = model.simulate(8, 11L);
+    assertThat(simulated.series(), is(equalTo(model.simulate(8, 11L).series())));
+    assertThat(simulated.observationTimes().get(0), is(model.pointForecast(1).observationTimes().get(0)));
+  }
+
+  @Test
+  public void whenQuantilesComputedThenOrderedByProbability() {
+    double[][] quantiles = model.simulatePaths(4, 500).quantiles(0.0, 0.5, 1.0);
+    for (int h = 0; h < 4; h++) {
+      assertThat(quantiles[0][h], is(lessThanOrEqualTo(quantiles[1][h])));
+      assertThat(quantiles[1][h], is(lessThanOrEqualTo(quantiles[2][h])));
+    }
+  }
+
+  @Test
+  public void whenNegativeNumberOfPathsThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    model.simulatePaths(4, -1);
+  }
+}
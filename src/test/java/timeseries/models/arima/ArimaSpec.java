@@ -7,6 +7,10 @@ import java.util.Arrays;
 
 import org.junit.Test;
 
+import linear.doubles.Vector;
+import optim.OptimizationResult;
+import optim.OptimizerOptions;
+
 import data.TestData;
 import timeseries.TimePeriod;
 import timeseries.TimeSeries;
@@ -25,6 +29,15 @@ public class ArimaSpec {
     assertThat(model.coefficients().maCoeffs()[0], is(closeTo(-0.48, 0.02)));
   }
   
+  @Test
+  public void whenArimaModelFitWithMaximumLikelihoodThenParametersSameAsROutput() throws Exception {
+    TimeSeries series = TestData.livestock();
+    ModelOrder order = new ModelOrder(1, 1, 1, 0, 0, 0, false);
+    Arima model = Arima.model(series, order, TimePeriod.oneYear(), FittingStrategy.ML);
+    assertThat(model.coefficients().arCoeffs()[0], is(closeTo(0.6480679, 1E-3)));
+    assertThat(model.coefficients().maCoeffs()[0], is(closeTo(-0.5035514, 1E-3)));
+  }
+
   @Test
   public void whenArimaModelForecastThenForecastValuesCorrect() throws Exception {
     TimeSeries series = TestData.livestock();
@@ -49,4 +62,56 @@ public class ArimaSpec {
     //assertArrayEquals(new double[] {1.0, 1.144516, 1.238173}, fcst.getPsiCoefficients(), 1E-4);
   }
 
+  @Test
+  public void whenCssObjectiveGradientComputedThenCloseToNumericalGradient() throws Exception {
+    assertGradientMatchesNumerical(FittingStrategy.CSS);
+  }
+
+  @Test
+  public void whenUssObjectiveGradientComputedThenCloseToNumericalGradient() throws Exception {
+    assertGradientMatchesNumerical(FittingStrategy.USS);
+  }
+
+  private void assertGradientMatchesNumerical(final FittingStrategy fittingStrategy) {
+    TimeSeries series = TestData.ausbeerSeries().difference();
+    ModelOrder order = ModelOrder.order(2, 0, 1, 1, 0, 1, true);
+    Arima.OptimFunction function = new Arima.OptimFunction(series, order, fittingStrategy, 4);
+    double[] point = {0.3, -0.2, -0.4, 0.5, -0.3, 0.1};
+    double[] gradient = new double[point.length];
+    double value = function.valueAndGradientAt(point, gradient);
+    assertThat(value, is(closeTo(function.at(new Vector(point)), 1E-12)));
+    final double h = 1E-6;
+    for (int i = 0; i < point.length; i++) {
+      double[] forward = point.clone();
+      double[] backward = point.clone();
+      forward[i] += h;
+      backward[i] -= h;
+      double numerical = (function.at(new Vector(forward)) - function.at(new Vector(backward))) / (2 * h);
+      assertThat(gradient[i], is(closeTo(numerical, 1E-6)));
+    }
+  }
+
+  @Test
+  public void whenArimaModelFitThenOptimizationResultReported() {
+    TimeSeries series = TestData.livestock();
+    ModelOrder order = new ModelOrder(1, 1, 1, 0, 0, 0, false);
+    Arima model = Arima.model(series, order, TimePeriod.oneYear());
+    OptimizationResult result = model.optimizationResult();
+    assertThat(result.converged(), is(true));
+    assertThat(result.iterations(), is(greaterThan(0)));
+    assertThat(result.functionEvaluations(), is(greaterThanOrEqualTo(result.iterations())));
+    assertThat(result.elapsedNanos(), is(greaterThan(0L)));
+  }
+
+  @Test
+  public void whenArimaModelFitWithIterationBudgetThenFitStopsAtBudget() {
+    TimeSeries series = TestData.livestock();
+    ModelOrder order = new ModelOrder(1, 1, 1, 0, 0, 0, false);
+    OptimizerOptions options = OptimizerOptions.newBuilder().maxIterations(1).build();
+    Arima model = Arima.model(series, order, TimePeriod.oneYear(), FittingStrategy.CSS, options);
+    assertThat(model.optimizationResult().iterations(), is(1));
+    assertThat(model.optimizationResult().convergenceReason(),
+               is(OptimizationResult.ConvergenceReason.MAX_ITERATIONS));
+  }
+
 }
@@ -0,0 +1,50 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class ArimaWorkspaceSpec {
+
+  private final TimeSeries series = TestData.ausbeerSeries().difference();
+  private final ModelOrder order = ModelOrder.order(2, 0, 1, 1, 0, 1, true);
+  private final double[] params = {0.3, -0.2, -0.4, 0.5, -0.3, 0.1};
+  private final double[] arCoeffs = Arima.expandArCoefficients(new double[] {0.3, -0.2}, new double[] {0.5}, 4);
+  private final double[] maCoeffs = Arima.expandMaCoefficients(new double[] {-0.4}, new double[] {-0.3}, 4);
+
+  @Test
+  public void whenCssSumOfSquaresComputedThenSameAsFitCss() {
+    ArimaWorkspace workspace = new ArimaWorkspace().prepare(series.series(), order, 4);
+    workspace.setParameters(params);
+    double sigma2 = Arima.fitCss(series, arCoeffs, maCoeffs, 0.1, order).sigma2();
+    assertThat(workspace.cssSumOfSquares() / (series.n() - 6), is(sigma2));
+  }
+
+  @Test
+  public void whenUssSumOfSquaresComputedThenSameAsFitUss() {
+    ArimaWorkspace workspace = new ArimaWorkspace().prepare(series.series(), order, 4);
+    workspace.setParameters(params);
+    double sigma2 = Arima.fitUss(series, arCoeffs, maCoeffs, 0.1, order).sigma2();
+    assertThat(workspace.ussSumOfSquares() / series.n(), is(sigma2));
+  }
+
+  @Test
+  public void whenWorkspacePreparedAgainThenPriorFitHasNoEffect() {
+    ArimaWorkspace workspace = new ArimaWorkspace();
+    workspace.prepare(TestData.ukcars().series(), ModelOrder.order(3, 0, 2, 2, 0, 2, true), 4);
+    workspace.setParameters(new double[] {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0});
+    workspace.ussSumOfSquaresAndGradient(new double[10]);
+    workspace.prepare(series.series(), order, 4).setParameters(params);
+    double[] gradient = new double[params.length];
+    double[] expected = new double[params.length];
+    ArimaWorkspace fresh = new ArimaWorkspace().prepare(series.series(), order, 4);
+    fresh.setParameters(params);
+    assertThat(workspace.ussSumOfSquaresAndGradient(gradient), is(fresh.ussSumOfSquaresAndGradient(expected)));
+    assertThat(gradient, is(expected));
+  }
+}
@@ -0,0 +1,93 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class AutoArimaSpec {
+
+  private final Random random = new Random(17L);
+
+  @Test
+  public void whenSeriesIsWhiteNoiseThenNoDifferencesNeeded() {
+    double[] noise = new double[200];
+    for (int t = 0; t < noise.length; t++) {
+      noise[t] = random.nextGaussian();
+    }
+    assertThat(AutoArima.nonSeasonalDifferences(noise), is(0));
+  }
+
+  @Test
+  public void whenSeriesIsRandomWalkThenOneDifferenceNeeded() {
+    double[] walk = new double[200];
+    for (int t = 1; t < walk.length; t++) {
+      walk[t] = walk[t - 1] + random.nextGaussian();
+    }
+    assertThat(AutoArima.kpssStatistic(walk), is(greaterThan(0.463)));
+    assertThat(AutoArima.nonSeasonalDifferences(walk), is(1));
+  }
+
+  @Test
+  public void whenSeriesHasStrongSeasonalPatternThenSeasonalDifferenceNeeded() {
+    double[] series = new double[120];
+    for (int t = 0; t < series.length; t++) {
+      series[t] = 0.1 * t + 5 * Math.sin(2 * Math.PI * t / 12) + 0.5 * random.nextGaussian();
+    }
+    assertThat(AutoArima.seasonalStrength(series, 12), is(greaterThan(0.9)));
+    assertThat(AutoArima.seasonalDifferences(series, 12), is(1));
+  }
+
+  @Test
+  public void whenSeriesHasNoSeasonalPatternThenNoSeasonalDifferenceNeeded() {
+    double[] series = new double[120];
+    for (int t = 0; t < series.length; t++) {
+      series[t] = random.nextGaussian();
+    }
+    assertThat(AutoArima.seasonalDifferences(series, 12), is(0));
+  }
+
+  @Test
+  public void whenAutoModelFitThenCriterionNoWorseThanStartingModels() {
+    TimeSeries series = TestData.ausbeerSeries();
+    Arima model = Arima.autoModel(series, TimePeriod.oneYear());
+    ModelOrder order = model.order();
+    assertThat(order.D, is(1));
+    Arima baseline = Arima.model(series, new ModelOrder(0, order.d, 0, 0, order.D, 0, order.constant == 1),
+        TimePeriod.oneYear());
+    assertThat(model.aicc(), is(lessThanOrEqualTo(baseline.aicc())));
+  }
+
+  @Test
+  public void whenAutoModelFitWithBicThenOrderWithinSearchBounds() {
+    TimeSeries series = TestData.ukcars();
+    ModelOrder bic = Arima.autoModel(series, TimePeriod.oneYear(), InformationCriterion.BIC).order();
+    assertThat(bic.p + bic.q + bic.P + bic.Q, is(lessThanOrEqualTo(5)));
+  }
+
+  @Test
+  public void whenStepwiseSearchRunThenNoOrderFitTwice() {
+    AutoArima search = new AutoArima(TestData.ausbeerSeries(), TimePeriod.oneYear(), InformationCriterion.AICC);
+    search.search();
+    List<ModelOrder> fitted = search.fittedOrders();
+    assertThat(fitted.size(), is(greaterThan(4)));
+    assertThat(new HashSet<>(fitted).size(), is(fitted.size()));
+  }
+
+  @Test
+  public void whenModelOrdersHaveSameValuesThenEqual() {
+    ModelOrder order = new ModelOrder(1, 1, 1, 0, 1, 1, false);
+    assertThat(new ModelOrder(1, 1, 1, 0, 1, 1, false), is(equalTo(order)));
+    assertThat(new ModelOrder(1, 1, 1, 0, 1, 1, false).hashCode(), is(order.hashCode()));
+    assertThat(new ModelOrder(1, 1, 1, 0, 1, 1, true), is(not(equalTo(order))));
+  }
+}
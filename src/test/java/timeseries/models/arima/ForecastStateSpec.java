@@ -0,0 +1,63 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class ForecastStateSpec {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  private final Arima model = Arima.model(TestData.ausbeerSeries(), ModelOrder.order(1, 1, 1, 1, 1, 1),
+                                          TimePeriod.oneYear());
+
+  @Test
+  public void whenForecastIntoThenSameAsModelForecast() {
+    double[] forecast = new double[20];
+    model.forecastState(0).forecastInto(forecast);
+    double[] expected = model.forecast(20);
+    for (int h = 0; h < forecast.length; h++) {
+      assertThat(forecast[h], is(closeTo(expected[h], 1E-8)));
+    }
+  }
+
+  @Test
+  public void whenForecastIntoWithBoundsThenSameAsArimaForecast() {
+    final int steps = 12;
+    double[] forecast = new double[steps];
+    double[] lower = new double[steps];
+    double[] upper = new double[steps];
+    model.forecastState(steps).forecastInto(forecast, 0.05, lower, upper);
+    ArimaForecast expected = ArimaForecast.forecast(model, steps, 0.05);
+    TimeSeries expectedLower = expected.lowerPredictionValues();
+    TimeSeries expectedUpper = expected.upperPredictionValues();
+    for (int h = 0; h < steps; h++) {
+      assertThat(lower[h], is(closeTo(expectedLower.at(h), 1E-8)));
+      assertThat(upper[h], is(closeTo(expectedUpper.at(h), 1E-8)));
+    }
+  }
+
+  @Test
+  public void whenForecastVarianceThenIncreasesWithSteps() {
+    ForecastState state = model.forecastState(8);
+    assertThat(state.forecastVariance(1), is(closeTo(model.sigma2(), 1E-12)));
+    for (int h = 2; h <= state.maxSteps(); h++) {
+      assertThat(state.forecastVariance(h), is(greaterThanOrEqualTo(state.forecastVariance(h - 1))));
+    }
+  }
+
+  @Test
+  public void whenBoundsRequestedBeyondMaxStepsThenIllegalArgument() {
+    exception.expect(IllegalArgumentException.class);
+    model.forecastState(4).forecastInto(new double[5], 0.05, new double[5], new double[5]);
+  }
+}
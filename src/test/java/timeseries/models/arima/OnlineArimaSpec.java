@@ -0,0 +1,101 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.arima.Arima.ModelCoefficients;
+import timeseries.models.arima.Arima.ModelOrder;
+
+public class OnlineArimaSpec {
+
+  private final TimeSeries series = TestData.ausbeerSeries();
+  private final int initial = series.n() - 12;
+
+  private TimeSeries prefix(final int length) {
+    return new TimeSeries(series.timePeriod(), series.observationTimes().get(0),
+                          Arrays.copyOf(series.series(), length));
+  }
+
+  @Test
+  public void whenObservationsAppendedThenForecastsSameAsModelOfFullSeries() {
+    ModelCoefficients coefficients = ModelCoefficients.newBuilder().setArCoeffs(0.2).setMaCoeffs(-0.4)
+                                                      .setSmaCoeffs(-0.6).setDiff(1).setSeasDiff(1).build();
+    Arima start = Arima.model(prefix(initial), coefficients, TimePeriod.oneYear(), FittingStrategy.CSS);
+    OnlineArima online = OnlineArima.from(start);
+    for (int t = initial; t < series.n(); t++) {
+      online.append(series.at(t));
+    }
+    Arima full = Arima.model(series, coefficients, TimePeriod.oneYear(), FittingStrategy.CSS);
+    double[] expected = full.forecast(10);
+    double[] forecast = online.forecast(10);
+    for (int h = 0; h < expected.length; h++) {
+      assertThat(forecast[h], is(closeTo(expected[h], 1E-8)));
+    }
+    assertThat(online.lastResidual(), is(closeTo(full.residuals().at(series.n() - 1), 1E-8)));
+    assertThat(online.observations(), is((long) series.n()));
+  }
+
+  @Test
+  public void whenNoObservationsAppendedThenForecastsSameAsModel() {
+    Arima start = Arima.model(prefix(initial), ModelOrder.order(1, 1, 1, 0, 1, 1), TimePeriod.oneYear());
+    double[] expected = start.forecast(6);
+    double[] forecast = new double[6];
+    OnlineArima.from(start).forecastInto(forecast);
+    for (int h = 0; h < expected.length; h++) {
+      assertThat(forecast[h], is(closeTo(expected[h], 1E-8)));
+    }
+  }
+
+  @Test
+  public void whenRefitIntervalReachedThenModelReestimatedFromCurrentObservations() {
+    ModelOrder order = ModelOrder.order(1, 1, 1, 0, 1, 1);
+    Arima start = Arima.model(prefix(initial), order, TimePeriod.oneYear());
+    OnlineArima online = OnlineArima.newBuilder().model(start).refitEvery(4).executor(Runnable::run).build();
+    for (int t = initial; t < initial + 3; t++) {
+      online.append(series.at(t));
+    }
+    assertThat(online.refits(), is(0));
+    assertThat(online.model(), is(sameInstance(start)));
+    online.append(series.at(initial + 3));
+    assertThat(online.refits(), is(1));
+    assertThat(online.model().timeSeries().n(), is(initial + 4));
+    assertThat(online.model().order(), is(order));
+
+    for (int t = initial + 4; t < series.n(); t++) {
+      online.append(series.at(t));
+    }
+    assertThat(online.refits(), is(3));
+    Arima full = Arima.model(series, online.model().coefficients(), TimePeriod.oneYear());
+    double[] expected = full.forecast(4);
+    double[] forecast = online.forecast(4);
+    for (int h = 0; h < expected.length; h++) {
+      assertThat(forecast[h], is(closeTo(expected[h], 1E-8)));
+    }
+  }
+
+  @Test
+  public void whenWindowSetThenRefitUsesOnlyMostRecentObservations() {
+    Arima start = Arima.model(prefix(initial), ModelOrder.order(1, 1, 1, 0, 1, 1), TimePeriod.oneYear());
+    OnlineArima online = OnlineArima.newBuilder().model(start).refitEvery(6).window(60).executor(Runnable::run)
+                                    .build();
+    for (int t = initial; t < series.n(); t++) {
+      online.append(series.at(t));
+    }
+    assertThat(online.refits(), is(2));
+    assertThat(online.model().timeSeries().n(), is(60));
+    assertThat(online.model().timeSeries().series(), is(Arrays.copyOfRange(series.series(), series.n() - 60,
+                                                                           series.n())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenNegativeRefitIntervalThenIllegalArgument() {
+    OnlineArima.newBuilder().refitEvery(-1);
+  }
+}
@@ -0,0 +1,35 @@
+package timeseries.models.arima;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SparseLagsSpec {
+
+  @Test
+  public void whenCreatedFromExpandedCoefficientsThenOnlyNonZeroLagsKept() {
+    double[] expanded = Arima.expandArCoefficients(new double[] {0.5}, new double[] {0.4}, 12);
+    SparseLags lags = SparseLags.of(expanded);
+    assertThat(lags.size, is(3));
+    assertThat(lags.lags, is(equalTo(new int[] {0, 11, 12})));
+    assertThat(lags.values, is(equalTo(new double[] {0.5, 0.4, -0.2})));
+  }
+
+  @Test
+  public void whenStructuralLagsComputedThenSameAsExpandedNonZeroLags() {
+    double[] expanded = Arima.expandMaCoefficients(new double[] {0.3, 0.2}, new double[] {0.6, 0.1}, 24);
+    int[] lags = new int[SparseLags.maxStructuralSize(2, 2)];
+    int count = SparseLags.structural(2, 2, 24, lags);
+    assertThat(Arrays.copyOf(lags, count), is(equalTo(SparseLags.of(expanded).lags)));
+  }
+
+  @Test
+  public void whenSeasonalAndNonSeasonalLagsOverlapThenLagsUnique() {
+    int[] lags = new int[SparseLags.maxStructuralSize(3, 1)];
+    int count = SparseLags.structural(3, 1, 2, lags);
+    assertThat(Arrays.copyOf(lags, count), is(equalTo(new int[] {0, 1, 2, 3, 4})));
+  }
+}
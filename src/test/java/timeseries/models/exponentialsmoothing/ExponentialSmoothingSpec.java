@@ -0,0 +1,95 @@
+package timeseries.models.exponentialsmoothing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimePeriod;
+import timeseries.TimeSeries;
+import timeseries.models.Forecast;
+import timeseries.models.exponentialsmoothing.HoltWinters.Seasonality;
+
+public class ExponentialSmoothingSpec {
+
+  private final TimeSeries ausbeer = TestData.ausbeerSeries();
+  private final TimeSeries livestock = TestData.livestock();
+
+  @Test
+  public void whenSimpleSmoothingThenLevelIsWeightedAverage() {
+    SimpleExponentialSmoothing model = SimpleExponentialSmoothing.model(new TimeSeries(2.0, 4.0, 8.0), 0.5);
+    // l1 = 0.5 * 4 + 0.5 * 2 = 3, l2 = 0.5 * 8 + 0.5 * 3 = 5.5
+    assertThat(model.level(), is(closeTo(5.5, 1E-12)));
+    assertThat(model.fittedSeries().series(), is(new double[] {2.0, 2.0, 3.0}));
+    assertThat(model.pointForecast(3).series(), is(new double[] {5.5, 5.5, 5.5}));
+  }
+
+  @Test
+  public void whenHoltWithFixedParametersThenRecursionFollowed() {
+    Holt model = Holt.model(new TimeSeries(1.0, 3.0, 4.0, 7.0), 0.5, 0.5);
+    // l0 = 1, b0 = 2; t = 1: fit 3, l = 3, b = 2; t = 2: fit 5, l = 4.5, b = 1.75; t = 3: fit 6.25, l = 6.625,
+    // b = 1.9375.
+    assertThat(model.fittedSeries().series(), is(new double[] {1.0, 3.0, 5.0, 6.25}));
+    assertThat(model.level(), is(closeTo(6.625, 1E-12)));
+    assertThat(model.trend(), is(closeTo(1.9375, 1E-12)));
+    assertThat(model.pointForecast(2).series()[1], is(closeTo(6.625 + 2 * 1.9375, 1E-12)));
+  }
+
+  @Test
+  public void whenParametersEstimatedThenFitIsNoWorseThanDefaults() {
+    Holt estimated = Holt.model(livestock);
+    Holt fixed = Holt.model(livestock, 0.3, 0.1);
+    assertThat(estimated.sigma2(), is(lessThan(fixed.sigma2())));
+    assertThat(estimated.alpha(), is(both(greaterThanOrEqualTo(0.0)).and(lessThanOrEqualTo(1.0))));
+    assertThat(estimated.beta(), is(both(greaterThanOrEqualTo(0.0)).and(lessThanOrEqualTo(1.0))));
+
+    HoltWinters additive = HoltWinters.model(ausbeer, TimePeriod.oneYear(), Seasonality.ADDITIVE);
+    HoltWinters additiveFixed = HoltWinters.model(ausbeer, TimePeriod.oneYear(), Seasonality.ADDITIVE, 0.3, 0.1, 0.1);
+    assertThat(additive.sigma2(), is(lessThan(additiveFixed.sigma2())));
+    assertThat(additive.gamma(), is(lessThanOrEqualTo(1 - additive.alpha())));
+    assertThat(additive.seasonal().length, is(4));
+  }
+
+  @Test
+  public void whenMultiplicativeSeasonalityThenForecastsScaleWithTrend() {
+    HoltWinters model = HoltWinters.model(ausbeer, TimePeriod.oneYear(), Seasonality.MULTIPLICATIVE);
+    double[] seasonal = model.seasonal();
+    double[] forecast = model.pointForecast(8).series();
+    for (int h = 1; h <= 8; h++) {
+      double expected = (model.level() + h * model.trend()) * seasonal[(h - 1) % 4];
+      assertThat(forecast[h - 1], is(closeTo(expected, 1E-10)));
+    }
+    double[] into = new double[8];
+    model.forecastInto(into);
+    assertThat(into, is(forecast));
+  }
+
+  @Test
+  public void whenForecastThenIntervalsWidenWithHorizon() {
+    SimpleExponentialSmoothing model = SimpleExponentialSmoothing.model(livestock, 0.5);
+    Forecast forecast = model.forecast(5, 0.05);
+    double sigma = Math.sqrt(model.sigma2());
+    for (int h = 1; h <= 5; h++) {
+      // For simple smoothing the forecast variance is sigma2 * (1 + (h - 1) * alpha^2).
+      double halfWidth = 1.959964 * sigma * Math.sqrt(1 + (h - 1) * 0.25);
+      assertThat(forecast.upperPredictionValues().at(h - 1) - forecast.forecast().at(h - 1),
+                 is(closeTo(halfWidth, 1E-4)));
+      assertThat(forecast.forecast().at(h - 1) - forecast.lowerPredictionValues().at(h - 1),
+                 is(closeTo(halfWidth, 1E-4)));
+    }
+    assertThat(forecast.forecast().observationTimes().get(0),
+               is(livestock.observationTimes().get(livestock.n() - 1).plusYears(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenFewerThanTwoSeasonalCyclesThenIllegalArgument() {
+    HoltWinters.model(new TimeSeries(TimePeriod.oneQuarter(), "1990-01-01T00:00:00", 1.0, 2.0, 3.0, 4.0, 5.0),
+                      TimePeriod.oneYear(), Seasonality.ADDITIVE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenSeasonalParameterAboveOneMinusAlphaThenIllegalArgument() {
+    HoltWinters.model(ausbeer, TimePeriod.oneYear(), Seasonality.ADDITIVE, 0.6, 0.1, 0.5);
+  }
+}
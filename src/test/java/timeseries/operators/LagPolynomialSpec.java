@@ -66,5 +66,19 @@ public final class LagPolynomialSpec {
     LagPolynomial poly = LagPolynomial.movingAverage(0.4);
     assertThat(poly.coefficients, is(equalTo(new double[] {1.0, 0.4})));
   }
+
+  @Test
+  public void whenSeasonalDiffMultipliedByDiffThenCoefficientsCorrect() {
+    LagPolynomial poly = LagPolynomial.differences(1).times(LagPolynomial.firstSeasonalDifference(4));
+    assertThat(poly.coefficients, is(equalTo(new double[] {1.0, -1.0, 0.0, 0.0, -1.0, 1.0})));
+    assertThat(poly.nonZeroLags, is(equalTo(new int[] {1, 4, 5})));
+  }
+
+  @Test
+  public void whenSeasonalDiffAppliedThenOnlySeasonalLagUsed() {
+    TimeSeries series = TestData.ausbeerSeries();
+    LagPolynomial poly = LagPolynomial.firstSeasonalDifference(4);
+    assertThat(poly.apply(series, 10), is(equalTo(series.at(10) - series.at(6))));
+    assertThat(poly.applyInverse(series.series(), 10), is(equalTo(series.at(6))));
+  }
 }
-  
\ No newline at end of file
@@ -0,0 +1,65 @@
+package timeseries.rolling;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import data.TestData;
+import timeseries.TimeSeries;
+
+public class RollingQuantileSpec {
+
+  // R's type 7 sample quantile.
+  private static double quantile(final double[] values, final double probability) {
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final double h = (sorted.length - 1) * probability;
+    final int lower = (int) Math.floor(h);
+    final int upper = Math.min(lower + 1, sorted.length - 1);
+    return sorted[lower] + (h - lower) * (sorted[upper] - sorted[lower]);
+  }
+
+  @Test
+  public void whenObservationsAddedThenQuantileMatchesSortedWindow() {
+    final Random random = new Random(11L);
+    final double[] data = new double[400];
+    for (int i = 0; i < data.length; i++) {
+      // Draw from a small set of values so that ties are common.
+      data[i] = random.nextInt(20);
+    }
+    for (double probability : new double[] {0.0, 0.1, 0.25, 0.5, 0.9, 1.0}) {
+      for (int window : new int[] {1, 2, 7, 30}) {
+        RollingQuantile rolling = new RollingQuantile(window, probability);
+        for (int t = 0; t < data.length; t++) {
+          rolling.add(data[t]);
+          double[] current = Arrays.copyOfRange(data, Math.max(0, t - window + 1), t + 1);
+          assertThat(rolling.quantile(), is(closeTo(quantile(current, probability), 1E-12)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void whenRollingMedianOfSeriesThenMedianOfEachWindow() {
+    TimeSeries series = TestData.livestock();
+    TimeSeries median = Rolling.median(series, 5);
+    assertThat(median.n(), is(series.n() - 4));
+    for (int t = 0; t < median.n(); t++) {
+      assertThat(median.at(t), is(quantile(Arrays.copyOfRange(series.series(), t, t + 5), 0.5)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenProbabilityOutsideUnitIntervalThenIllegalArgument() {
+    new RollingQuantile(5, 1.5);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void whenNoObservationsThenIllegalState() {
+    RollingQuantile.median(3).quantile();
+  }
+}
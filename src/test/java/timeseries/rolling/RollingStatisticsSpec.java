@@ -0,0 +1,89 @@
+package timeseries.rolling;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import data.TestData;
+import stats.Statistics;
+import timeseries.TimeSeries;
+
+public class RollingStatisticsSpec {
+
+  private final double[] data = randomData(500, 7L);
+
+  private static double[] randomData(final int n, final long seed) {
+    final Random random = new Random(seed);
+    final double[] data = new double[n];
+    for (int i = 0; i < n; i++) {
+      data[i] = 1E6 + random.nextGaussian();
+    }
+    return data;
+  }
+
+  @Test
+  public void whenObservationsAddedThenStatisticsMatchThoseOfWindow() {
+    final int window = 17;
+    RollingStatistics statistics = new RollingStatistics(window);
+    for (int t = 0; t < data.length; t++) {
+      statistics.add(data[t]);
+      double[] current = Arrays.copyOfRange(data, Math.max(0, t - window + 1), t + 1);
+      assertThat(statistics.size(), is(current.length));
+      assertThat(statistics.sum(), is(closeTo(Statistics.sumOf(current), 1E-6)));
+      assertThat(statistics.mean(), is(closeTo(Statistics.meanOf(current), 1E-9)));
+      assertThat(statistics.min(), is(Arrays.stream(current).min().getAsDouble()));
+      assertThat(statistics.max(), is(Arrays.stream(current).max().getAsDouble()));
+      if (current.length > 1) {
+        assertThat(statistics.variance(), is(closeTo(Statistics.varianceOf(current), 1E-6)));
+      }
+    }
+    assertThat(statistics.isFull(), is(true));
+    assertThat(statistics.count(), is((long) data.length));
+  }
+
+  @Test
+  public void whenWindowOfOneThenStatisticsAreLastObservation() {
+    RollingStatistics statistics = new RollingStatistics(1);
+    statistics.add(3.0);
+    statistics.add(-2.0);
+    assertThat(statistics.mean(), is(-2.0));
+    assertThat(statistics.min(), is(-2.0));
+    assertThat(statistics.max(), is(-2.0));
+  }
+
+  @Test
+  public void whenRollingMeanOfSeriesThenTimesAreWindowEnds() {
+    TimeSeries series = TestData.ausbeerSeries();
+    TimeSeries mean = Rolling.mean(series, 4);
+    assertThat(mean.n(), is(series.n() - 3));
+    assertThat(mean.observationTimes().get(0), is(series.observationTimes().get(3)));
+    assertThat(mean.at(0), is(closeTo(Statistics.meanOf(Arrays.copyOfRange(series.series(), 0, 4)), 1E-10)));
+    assertThat(Rolling.max(series, 4).at(10),
+               is(Arrays.stream(Arrays.copyOfRange(series.series(), 10, 14)).max().getAsDouble()));
+  }
+
+  @Test
+  public void whenMovingAverageThenSameAsDirectAverage() {
+    TimeSeries series = TestData.ausbeerSeries();
+    TimeSeries average = series.movingAverage(4);
+    for (int t = 0; t < average.n(); t++) {
+      double expected = Statistics.meanOf(Arrays.copyOfRange(series.series(), t, t + 4));
+      assertThat(average.at(t), is(closeTo(expected, 1E-10)));
+    }
+    assertThat(average.observationTimes().get(0), is(series.observationTimes().get(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenWindowLongerThanSeriesThenIllegalArgument() {
+    Rolling.mean(new TimeSeries(1.0, 2.0), 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenWindowNotPositiveThenIllegalArgument() {
+    new RollingStatistics(0);
+  }
+}